@@ -0,0 +1,87 @@
+package ata.unit.three.project.expense.dynamodb;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+/**
+ * A token bucket whose refill rate follows DynamoDB's throttling signals (additive increase, multiplicative
+ * decrease).
+ *
+ * Every successful call raises the rate a little; every throttled call cuts it by 30%, at most once per
+ * {@link #DECREASE_INTERVAL_MILLIS} so one burst of throttles counts as a single signal. Calls that find the
+ * bucket empty are rejected immediately instead of adding load to a table that is already over its capacity.
+ */
+public class AdaptiveRateLimiter {
+    static final long DECREASE_INTERVAL_MILLIS = 100;
+    private static final double DECREASE_FACTOR = 0.7;
+    private static final double INCREASE_PER_SUCCESS = 0.5;
+
+    private final double minRate;
+    private final double maxRate;
+    private final LongSupplier clock;
+    private double rate;
+    private double tokens;
+    private long lastRefillNanos;
+    private long lastDecreaseNanos;
+
+    /**
+     * Creates a limiter that starts at its maximum rate.
+     * @param minRate the lowest rate, in calls per second, the limiter backs off to
+     * @param maxRate the highest rate, in calls per second, and the starting rate
+     */
+    public AdaptiveRateLimiter(double minRate, double maxRate) {
+        this(minRate, maxRate, System::nanoTime);
+    }
+
+    AdaptiveRateLimiter(double minRate, double maxRate, LongSupplier clock) {
+        this.minRate = minRate;
+        this.maxRate = maxRate;
+        this.clock = clock;
+        this.rate = maxRate;
+        this.tokens = maxRate;
+        this.lastRefillNanos = clock.getAsLong();
+        this.lastDecreaseNanos = lastRefillNanos - TimeUnit.MILLISECONDS.toNanos(DECREASE_INTERVAL_MILLIS);
+    }
+
+    /**
+     * Takes a token if one is available.
+     * @return 0 if the call may proceed, otherwise the number of milliseconds until a token is available
+     */
+    public synchronized long tryAcquire() {
+        refill();
+        if (tokens >= 1) {
+            tokens -= 1;
+            return 0;
+        }
+        return Math.max(1, (long) Math.ceil((1 - tokens) / rate * 1000));
+    }
+
+    /**
+     * Reports a call that completed without being throttled.
+     */
+    public synchronized void onSuccess() {
+        rate = Math.min(maxRate, rate + INCREASE_PER_SUCCESS);
+    }
+
+    /**
+     * Reports a throttled call.
+     */
+    public synchronized void onThrottle() {
+        long now = clock.getAsLong();
+        if (now - lastDecreaseNanos >= TimeUnit.MILLISECONDS.toNanos(DECREASE_INTERVAL_MILLIS)) {
+            rate = Math.max(minRate, rate * DECREASE_FACTOR);
+            tokens = Math.min(tokens, rate);
+            lastDecreaseNanos = now;
+        }
+    }
+
+    public synchronized double getRate() {
+        return rate;
+    }
+
+    private void refill() {
+        long now = clock.getAsLong();
+        tokens = Math.min(rate, tokens + rate * (now - lastRefillNanos) / 1_000_000_000.0);
+        lastRefillNanos = now;
+    }
+}
@@ -0,0 +1,98 @@
+package ata.unit.three.project.expense.dynamodb;
+
+import ata.unit.three.project.expense.service.model.Money;
+
+import com.amazonaws.services.dynamodbv2.datamodeling.DynamoDBMapper;
+import com.amazonaws.services.dynamodbv2.datamodeling.DynamoDBQueryExpression;
+import com.amazonaws.services.dynamodbv2.model.AttributeValue;
+import com.amazonaws.services.dynamodbv2.model.ComparisonOperator;
+import com.amazonaws.services.dynamodbv2.model.Condition;
+import com.kenzie.ata.ExcludeFromJacocoGeneratedReport;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Answers amount queries of an email from the EmailAmountIndex of the Expense table, which is keyed by Email
+ * and sorted by Amount. Amount is stored as a number, so the index orders amounts numerically as it is and every
+ * existing expense is in it as soon as it is built.
+ *
+ * The index is optional. Create it, and wait until it is built, with:
+ * <pre>
+ * java -cp Application.jar ata.unit.three.project.expense.dynamodb.AmountIndex
+ * </pre>
+ * then set EXPENSE_AMOUNT_INDEX (or the dynamodb.amountIndex system property) to true. Without it, amount queries
+ * read every expense of the email. The index only covers the Expense table and is not used while the single
+ * table is read, see {@link DataModelMode}.
+ */
+public class AmountIndex {
+    public static final String ENABLED_ENV = "EXPENSE_AMOUNT_INDEX";
+    public static final String ENABLED_PROPERTY = "dynamodb.amountIndex";
+    public static final String INDEX_NAME = "EmailAmountIndex";
+
+    private final DynamoDBMapper mapper;
+    private final boolean enabled;
+
+    public AmountIndex(DynamoDBMapper mapper, boolean enabled) {
+        this.mapper = mapper;
+        this.enabled = enabled;
+    }
+
+    @ExcludeFromJacocoGeneratedReport
+    public static void main(String[] args) throws InterruptedException {
+        ExpenseTable.createAmountIndexIfMissing();
+    }
+
+    /**
+     * Tells whether the environment enables the index.
+     * @return true if EXPENSE_AMOUNT_INDEX, or dynamodb.amountIndex, is true
+     */
+    public static boolean enabledFromEnvironment() {
+        String value = System.getProperty(ENABLED_PROPERTY);
+        if (value == null || value.isEmpty()) {
+            value = System.getenv(ENABLED_ENV);
+        }
+        return Boolean.parseBoolean(value);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Returns the largest expenses of an email with one Query page.
+     * @param email the email
+     * @param limit how many expenses to return
+     * @return up to limit expenses, largest amount first
+     */
+    public List<ExpenseItem> getLargest(String email, int limit) {
+        return new ArrayList<>(mapper.queryPage(ExpenseItem.class, query(email)
+                .withScanIndexForward(false)
+                .withLimit(limit)).getResults());
+    }
+
+    /**
+     * Returns the expenses of an email with amounts in a range.
+     * @param email the email
+     * @param minCents the smallest amount, in cents
+     * @param maxCents the largest amount, in cents
+     * @return the expenses, smallest amount first
+     */
+    public List<ExpenseItem> getBetween(String email, long minCents, long maxCents) {
+        return new ArrayList<>(mapper.query(ExpenseItem.class, query(email)
+                .withRangeKeyCondition("Amount", new Condition()
+                        .withComparisonOperator(ComparisonOperator.BETWEEN)
+                        .withAttributeValueList(
+                                new AttributeValue().withN(Money.toDecimal(minCents).toPlainString()),
+                                new AttributeValue().withN(Money.toDecimal(maxCents).toPlainString())))));
+    }
+
+    private static DynamoDBQueryExpression<ExpenseItem> query(String email) {
+        ExpenseItem key = new ExpenseItem();
+        key.setEmail(email);
+        return new DynamoDBQueryExpression<ExpenseItem>()
+                .withIndexName(INDEX_NAME)
+                .withHashKeyValues(key)
+                .withConsistentRead(false);
+    }
+}
@@ -0,0 +1,24 @@
+package ata.unit.three.project.expense.dynamodb;
+
+import ata.unit.three.project.expense.service.model.Money;
+
+import com.amazonaws.services.dynamodbv2.datamodeling.DynamoDBTypeConverter;
+
+import java.math.BigDecimal;
+
+/**
+ * Stores an amount held in cents as the decimal number of the amount, the shape amounts were always stored in,
+ * so existing items read back unchanged and atomic ADD updates of totals stay exact.
+ */
+public class CentsConverter implements DynamoDBTypeConverter<BigDecimal, Long> {
+
+    @Override
+    public BigDecimal convert(Long cents) {
+        return Money.toDecimal(cents);
+    }
+
+    @Override
+    public Long unconvert(BigDecimal amount) {
+        return Money.toCents(amount);
+    }
+}
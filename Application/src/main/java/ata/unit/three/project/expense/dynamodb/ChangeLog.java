@@ -0,0 +1,229 @@
+package ata.unit.three.project.expense.dynamodb;
+
+import ata.unit.three.project.expense.service.exceptions.ServiceOverloadedException;
+import ata.unit.three.project.expense.service.sync.SyncChange;
+import ata.unit.three.project.expense.service.sync.SyncPage;
+
+import com.amazonaws.services.dynamodbv2.AmazonDynamoDB;
+import com.amazonaws.services.dynamodbv2.model.AttributeValue;
+import com.amazonaws.services.dynamodbv2.model.CancellationReason;
+import com.amazonaws.services.dynamodbv2.model.GetItemRequest;
+import com.amazonaws.services.dynamodbv2.model.Put;
+import com.amazonaws.services.dynamodbv2.model.QueryRequest;
+import com.amazonaws.services.dynamodbv2.model.QueryResult;
+import com.amazonaws.services.dynamodbv2.model.TransactWriteItem;
+import com.amazonaws.services.dynamodbv2.model.TransactWriteItemsRequest;
+import com.amazonaws.services.dynamodbv2.model.TransactionCanceledException;
+import com.amazonaws.services.dynamodbv2.model.Update;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.LongFunction;
+import java.util.function.LongSupplier;
+
+import static ata.unit.three.project.expense.dynamodb.ExpenseTable.CHANGE_LOG_TABLE_NAME;
+import static ata.unit.three.project.expense.dynamodb.ExpenseTable.EXPENSE_LIST_TABLE_NAME;
+
+/**
+ * The changes to each email's expenses, lists and list memberships, numbered in the order they were made, in
+ * the ExpenseChangeLog table. Items are keyed by Email and Seq: the item at Seq 0 holds the last number given
+ * out, and each change is an item at its own number with the Type and Id of what changed, the ListId of a list
+ * item and Deleted for a tombstone. Expenses and lists are stamped with the number of their latest change, see
+ * {@link ExpenseItem#getChangeSeq()}.
+ *
+ * A change is written in one transaction with the writes that make it, see
+ * {@link #record(String, SyncChange.Type, String, String, boolean, LongFunction)}, so it is numbered if and
+ * only if they are made. The same transaction moves the counter on from the number it was read at, so numbers
+ * are written in order and without gaps, and a client syncs by reading the changes after the last number it has
+ * seen, one Query. Changes are kept forever.
+ */
+public class ChangeLog {
+    static final int MAX_ATTEMPTS = 5;
+    static final long RETRY_AFTER_MILLIS = 100;
+    static final Logger log = LogManager.getLogger();
+
+    private static final String COUNTER_SEQ = "0";
+
+    private final AmazonDynamoDB client;
+    private final LongSupplier clock;
+
+    public ChangeLog(AmazonDynamoDB client) {
+        this(client, System::currentTimeMillis);
+    }
+
+    ChangeLog(AmazonDynamoDB client, LongSupplier clock) {
+        this.client = client;
+        this.clock = clock;
+    }
+
+    /**
+     * Returns the last number given out for an email's data.
+     * @param email the email
+     * @return the number, or 0 if the email's data has never changed
+     */
+    public long current(String email) {
+        Map<String, AttributeValue> counter = client.getItem(new GetItemRequest()
+                .withTableName(CHANGE_LOG_TABLE_NAME)
+                .withKey(key(email, COUNTER_SEQ))
+                .withConsistentRead(true)).getItem();
+        return counter == null || !counter.containsKey("LastSeq") ? 0 : Long.parseLong(counter.get("LastSeq").getN());
+    }
+
+    /**
+     * Records a change to an email's data in one transaction with the writes that make it, under the number
+     * after the last one given out. When another change takes that number first, the transaction is built again
+     * for the next one.
+     * @param email the email whose data changes
+     * @param type what changes
+     * @param id the id of the expense or list
+     * @param listId the id of the list of a list item, or null
+     * @param deleted true if the expense, list or list item is deleted
+     * @param writes builds the writes that make the change for its number, at most 98 of them
+     * @return the number of the change
+     * @throws TransactionCanceledException if one of the writes fails its condition
+     * @throws ServiceOverloadedException if other changes to the email's data took every number tried
+     */
+    public long record(String email, SyncChange.Type type, String id, String listId, boolean deleted,
+                       LongFunction<List<TransactWriteItem>> writes) {
+        for (int attempt = 0; attempt < MAX_ATTEMPTS; attempt++) {
+            long last = current(email);
+            long seq = last + 1;
+            List<TransactWriteItem> items = new ArrayList<>(writes.apply(seq));
+            int counter = items.size();
+            items.add(new TransactWriteItem().withUpdate(counterUpdate(email, last, seq)));
+            items.add(new TransactWriteItem().withPut(new Put()
+                    .withTableName(CHANGE_LOG_TABLE_NAME)
+                    .withItem(entry(email, new SyncChange(seq, type, id, listId, deleted)))));
+            try {
+                client.transactWriteItems(new TransactWriteItemsRequest().withTransactItems(items));
+                return seq;
+            } catch (TransactionCanceledException e) {
+                if (!numberTaken(e, counter)) {
+                    throw e;
+                }
+                log.debug("Change {} of {} was taken by another change, retrying", seq, email);
+            }
+        }
+        throw new ServiceOverloadedException("The data of " + email + " is changing too fast", RETRY_AFTER_MILLIS);
+    }
+
+    /**
+     * Returns the write that stamps a list of the ExpenseList table with the number of a change to its
+     * expenses, to be made with {@link #record(String, SyncChange.Type, String, String, boolean, LongFunction)}.
+     * @param listId the list id
+     * @param seq the number of the change
+     * @return the write, which fails if the list was deleted
+     */
+    public static TransactWriteItem listStamp(String listId, long seq) {
+        return stamp(EXPENSE_LIST_TABLE_NAME, Collections.singletonMap("Id", new AttributeValue(listId)), seq);
+    }
+
+    /**
+     * Reads the changes to an email's data after a number, oldest first. When the same expense, list or list item
+     * changed more than once in the page, only its last change is returned.
+     * @param email the email
+     * @param since the number of the last change the client has seen
+     * @param limit how many changes to read
+     * @return the changes, with the number of the last one read as the token
+     */
+    public SyncPage read(String email, long since, int limit) {
+        Map<String, AttributeValue> values = new HashMap<>();
+        values.put(":email", new AttributeValue(email));
+        values.put(":since", new AttributeValue().withN(Long.toString(since)));
+        QueryResult result = client.query(new QueryRequest()
+                .withTableName(CHANGE_LOG_TABLE_NAME)
+                .withKeyConditionExpression("Email = :email AND Seq > :since")
+                .withExpressionAttributeValues(values)
+                .withConsistentRead(true)
+                .withLimit(limit));
+        Map<String, SyncChange> changes = new LinkedHashMap<>();
+        long last = since;
+        for (Map<String, AttributeValue> item : result.getItems()) {
+            long seq = Long.parseLong(item.get("Seq").getN());
+            SyncChange change = new SyncChange(seq, SyncChange.Type.valueOf(item.get("Type").getS()),
+                    item.get("Id").getS(), item.containsKey("ListId") ? item.get("ListId").getS() : null,
+                    item.containsKey("Deleted") && item.get("Deleted").getBOOL());
+            String changed = change.getType() + "#" + change.getId() + "#" + change.getListId();
+            changes.remove(changed);
+            changes.put(changed, change);
+            last = seq;
+        }
+        return new SyncPage(new ArrayList<>(changes.values()), Long.toString(last),
+                result.getLastEvaluatedKey() != null, false);
+    }
+
+    /**
+     * Moves the counter from the last number read to the number of the change, failing if another change moved
+     * it first.
+     */
+    private static Update counterUpdate(String email, long last, long seq) {
+        Map<String, AttributeValue> values = new HashMap<>();
+        values.put(":seq", new AttributeValue().withN(Long.toString(seq)));
+        String condition = "attribute_not_exists(LastSeq)";
+        if (last > 0) {
+            values.put(":last", new AttributeValue().withN(Long.toString(last)));
+            condition = "LastSeq = :last";
+        }
+        return new Update()
+                .withTableName(CHANGE_LOG_TABLE_NAME)
+                .withKey(key(email, COUNTER_SEQ))
+                .withUpdateExpression("SET LastSeq = :seq")
+                .withConditionExpression(condition)
+                .withExpressionAttributeValues(values);
+    }
+
+    private Map<String, AttributeValue> entry(String email, SyncChange change) {
+        Map<String, AttributeValue> item = key(email, Long.toString(change.getSeq()));
+        item.put("Type", new AttributeValue(change.getType().name()));
+        item.put("Id", new AttributeValue(change.getId()));
+        if (change.getListId() != null) {
+            item.put("ListId", new AttributeValue(change.getListId()));
+        }
+        if (change.isDeleted()) {
+            item.put("Deleted", new AttributeValue().withBOOL(true));
+        }
+        item.put("At", new AttributeValue().withN(Long.toString(clock.getAsLong())));
+        return item;
+    }
+
+    /**
+     * Tells whether a transaction was cancelled because another change took its number, rather than because one
+     * of its writes failed.
+     */
+    private static boolean numberTaken(TransactionCanceledException e, int counter) {
+        List<CancellationReason> reasons = e.getCancellationReasons();
+        if (reasons == null) {
+            return false;
+        }
+        for (int i = 0; i < reasons.size(); i++) {
+            String code = reasons.get(i).getCode();
+            if ("TransactionConflict".equals(code) || i == counter && "ConditionalCheckFailed".equals(code)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static TransactWriteItem stamp(String table, Map<String, AttributeValue> key, long seq) {
+        return new TransactWriteItem().withUpdate(new Update()
+                .withTableName(table)
+                .withKey(key)
+                .withUpdateExpression("SET ChangeSeq = :seq")
+                .withConditionExpression("attribute_exists(" + key.keySet().iterator().next() + ")")
+                .withExpressionAttributeValues(Collections.singletonMap(":seq",
+                        new AttributeValue().withN(Long.toString(seq)))));
+    }
+
+    private static Map<String, AttributeValue> key(String email, String seq) {
+        Map<String, AttributeValue> key = new HashMap<>();
+        key.put("Email", new AttributeValue(email));
+        key.put("Seq", new AttributeValue().withN(seq));
+        return key;
+    }
+}
@@ -0,0 +1,118 @@
+package ata.unit.three.project.expense.dynamodb;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+/**
+ * A circuit breaker for one table and operation.
+ *
+ * The breaker opens after {@link #CONSECUTIVE_FAILURES} failures in a row, or when at least half of the calls in
+ * the current {@link #WINDOW_MILLIS} window failed and the window has seen {@link #MIN_CALLS} calls. While open,
+ * calls are rejected without reaching DynamoDB. After {@link #OPEN_MILLIS} a single probe call is let through;
+ * its outcome closes the breaker again or re-opens it.
+ */
+public class CircuitBreaker {
+    static final int CONSECUTIVE_FAILURES = 5;
+    static final int MIN_CALLS = 20;
+    static final long WINDOW_MILLIS = 10_000;
+    static final long OPEN_MILLIS = 5_000;
+
+    private final LongSupplier clock;
+    private State state = State.CLOSED;
+    private long windowStartNanos;
+    private int windowCalls;
+    private int windowFailures;
+    private int consecutiveFailures;
+    private long openedAtNanos;
+    private boolean probeInFlight;
+
+    public CircuitBreaker() {
+        this(System::nanoTime);
+    }
+
+    CircuitBreaker(LongSupplier clock) {
+        this.clock = clock;
+        this.windowStartNanos = clock.getAsLong();
+    }
+
+    /**
+     * Asks whether a call may proceed.
+     * @return 0 if the call may proceed, otherwise the number of milliseconds until the breaker tries again
+     */
+    public synchronized long tryAcquire() {
+        if (state == State.CLOSED) {
+            return 0;
+        }
+        long openFor = TimeUnit.NANOSECONDS.toMillis(clock.getAsLong() - openedAtNanos);
+        if (state == State.OPEN && openFor >= OPEN_MILLIS) {
+            state = State.HALF_OPEN;
+        }
+        if (state == State.HALF_OPEN && !probeInFlight) {
+            probeInFlight = true;
+            return 0;
+        }
+        return Math.max(1, OPEN_MILLIS - openFor);
+    }
+
+    /**
+     * Reports a call that DynamoDB answered normally.
+     */
+    public synchronized void onSuccess() {
+        if (state == State.HALF_OPEN) {
+            state = State.CLOSED;
+            probeInFlight = false;
+            resetWindow(clock.getAsLong());
+        }
+        consecutiveFailures = 0;
+        count(false);
+    }
+
+    /**
+     * Reports a call that was throttled, failed on the server or timed out.
+     */
+    public synchronized void onFailure() {
+        if (state == State.HALF_OPEN) {
+            open();
+            return;
+        }
+        consecutiveFailures++;
+        count(true);
+        if (consecutiveFailures >= CONSECUTIVE_FAILURES ||
+                windowCalls >= MIN_CALLS && windowFailures * 2 >= windowCalls) {
+            open();
+        }
+    }
+
+    public synchronized State getState() {
+        return state;
+    }
+
+    private void count(boolean failure) {
+        long now = clock.getAsLong();
+        if (TimeUnit.NANOSECONDS.toMillis(now - windowStartNanos) >= WINDOW_MILLIS) {
+            resetWindow(now);
+        }
+        windowCalls++;
+        if (failure) {
+            windowFailures++;
+        }
+    }
+
+    private void open() {
+        state = State.OPEN;
+        probeInFlight = false;
+        openedAtNanos = clock.getAsLong();
+        consecutiveFailures = 0;
+        resetWindow(openedAtNanos);
+    }
+
+    private void resetWindow(long now) {
+        windowStartNanos = now;
+        windowCalls = 0;
+        windowFailures = 0;
+    }
+
+    public enum State {
+        CLOSED, OPEN, HALF_OPEN
+    }
+}
@@ -0,0 +1,60 @@
+package ata.unit.three.project.expense.dynamodb;
+
+/**
+ * Selects which tables the repository reads and writes while moving from the Expense and ExpenseList tables to
+ * the single ExpenseData table, see {@link SingleTableRepository}.
+ *
+ * The mode is set with DATA_MODEL_MODE (or the dynamodb.dataModelMode system property). The migration steps
+ * through the modes in order:
+ * <ol>
+ *     <li>LEGACY - only the Expense and ExpenseList tables are used (the default)</li>
+ *     <li>DUAL_WRITE - writes go to both layouts, reads still come from the old tables; run
+ *     {@link SingleTableMigration} in this mode</li>
+ *     <li>DUAL_WRITE_SINGLE_TABLE_READ - reads come from ExpenseData, writes still go to both so that the old
+ *     tables stay usable for a rollback</li>
+ *     <li>SINGLE_TABLE - only ExpenseData is used</li>
+ * </ol>
+ */
+public enum DataModelMode {
+    LEGACY(true, false, false),
+    DUAL_WRITE(true, true, false),
+    DUAL_WRITE_SINGLE_TABLE_READ(true, true, true),
+    SINGLE_TABLE(false, true, true);
+
+    public static final String MODE_ENV = "DATA_MODEL_MODE";
+    public static final String MODE_PROPERTY = "dynamodb.dataModelMode";
+
+    private final boolean writesLegacy;
+    private final boolean writesSingleTable;
+    private final boolean readsSingleTable;
+
+    DataModelMode(boolean writesLegacy, boolean writesSingleTable, boolean readsSingleTable) {
+        this.writesLegacy = writesLegacy;
+        this.writesSingleTable = writesSingleTable;
+        this.readsSingleTable = readsSingleTable;
+    }
+
+    /**
+     * Reads the mode from the environment.
+     * @return the configured mode, LEGACY if none is set
+     */
+    public static DataModelMode fromEnvironment() {
+        String value = System.getProperty(MODE_PROPERTY);
+        if (value == null || value.isEmpty()) {
+            value = System.getenv(MODE_ENV);
+        }
+        return value == null || value.isEmpty() ? LEGACY : valueOf(value.trim().toUpperCase());
+    }
+
+    public boolean writesLegacy() {
+        return writesLegacy;
+    }
+
+    public boolean writesSingleTable() {
+        return writesSingleTable;
+    }
+
+    public boolean readsSingleTable() {
+        return readsSingleTable;
+    }
+}
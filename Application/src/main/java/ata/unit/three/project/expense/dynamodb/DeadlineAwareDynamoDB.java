@@ -0,0 +1,76 @@
+package ata.unit.three.project.expense.dynamodb;
+
+import ata.unit.three.project.expense.service.Deadline;
+import ata.unit.three.project.expense.service.exceptions.DeadlineExceededException;
+
+import com.amazonaws.AmazonServiceException;
+import com.amazonaws.AmazonWebServiceRequest;
+import com.amazonaws.SdkClientException;
+import com.amazonaws.http.timers.client.ClientExecutionTimeoutException;
+import com.amazonaws.services.dynamodbv2.AmazonDynamoDB;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+
+/**
+ * Applies the current request's {@link Deadline} to every DynamoDB call.
+ *
+ * Each call gets a client execution timeout of the remaining time and a per-attempt timeout of at most
+ * {@link #ATTEMPT_TIMEOUT_ENV} milliseconds, so one stuck connection cannot use up the whole budget. Calls made
+ * after the deadline, calls that time out and calls whose retries were cut short by the deadline fail with a
+ * {@link DeadlineExceededException}.
+ */
+public final class DeadlineAwareDynamoDB implements InvocationHandler {
+    public static final String ATTEMPT_TIMEOUT_ENV = "DYNAMODB_ATTEMPT_TIMEOUT_MILLIS";
+    private static final long DEFAULT_ATTEMPT_TIMEOUT_MILLIS = 2000;
+
+    private final AmazonDynamoDB delegate;
+    private final long attemptTimeoutMillis;
+
+    private DeadlineAwareDynamoDB(AmazonDynamoDB delegate, long attemptTimeoutMillis) {
+        this.delegate = delegate;
+        this.attemptTimeoutMillis = attemptTimeoutMillis;
+    }
+
+    /**
+     * Wraps a client.
+     * @param client the client to wrap
+     * @return a client that honours the current deadline
+     */
+    public static AmazonDynamoDB wrap(AmazonDynamoDB client) {
+        String configured = System.getenv(ATTEMPT_TIMEOUT_ENV);
+        long attemptTimeout = configured == null || configured.isEmpty() ?
+                DEFAULT_ATTEMPT_TIMEOUT_MILLIS : Long.parseLong(configured);
+        return (AmazonDynamoDB) Proxy.newProxyInstance(AmazonDynamoDB.class.getClassLoader(),
+                new Class<?>[] {AmazonDynamoDB.class}, new DeadlineAwareDynamoDB(client, attemptTimeout));
+    }
+
+    @Override
+    public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+        Deadline deadline = Deadline.current();
+        if (deadline != null && args != null && args.length == 1 && args[0] instanceof AmazonWebServiceRequest) {
+            long remaining = deadline.remainingMillis();
+            if (remaining < DeadlineRetryPolicy.MIN_ATTEMPT_MILLIS) {
+                throw new DeadlineExceededException("No time left to call DynamoDB " + method.getName());
+            }
+            AmazonWebServiceRequest request = (AmazonWebServiceRequest) args[0];
+            request.setSdkClientExecutionTimeout((int) remaining);
+            request.setSdkRequestTimeout((int) Math.min(remaining, attemptTimeoutMillis));
+        }
+        try {
+            return method.invoke(delegate, args);
+        } catch (InvocationTargetException e) {
+            Throwable cause = e.getCause();
+            // Errors returned by DynamoDB itself are SdkClientExceptions too, but are answers, not timeouts.
+            if (cause instanceof ClientExecutionTimeoutException ||
+                    cause instanceof SdkClientException && !(cause instanceof AmazonServiceException) &&
+                    deadline != null && deadline.remainingMillis() < 2 * DeadlineRetryPolicy.MIN_ATTEMPT_MILLIS) {
+                throw new DeadlineExceededException("DynamoDB " + method.getName() + " did not complete in time",
+                        cause);
+            }
+            throw cause;
+        }
+    }
+}
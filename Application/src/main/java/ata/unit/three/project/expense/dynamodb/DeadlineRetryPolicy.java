@@ -0,0 +1,57 @@
+package ata.unit.three.project.expense.dynamodb;
+
+import ata.unit.three.project.expense.service.Deadline;
+
+import com.amazonaws.AmazonClientException;
+import com.amazonaws.AmazonWebServiceRequest;
+import com.amazonaws.retry.PredefinedRetryPolicies;
+import com.amazonaws.retry.RetryPolicy;
+
+/**
+ * The DynamoDB default retry policy, limited by the deadline of the current request.
+ *
+ * A retry is only attempted while there is enough time left for it to complete, and the backoff before it never
+ * sleeps past the deadline. Without a deadline the policy behaves exactly like the SDK default.
+ */
+public final class DeadlineRetryPolicy {
+    /**
+     * The shortest time worth starting another attempt with.
+     */
+    static final long MIN_ATTEMPT_MILLIS = 50;
+
+    private DeadlineRetryPolicy() {
+    }
+
+    /**
+     * Creates the retry policy.
+     * @param gate an additional condition every retry has to pass
+     * @return a retry policy for the DynamoDB client
+     */
+    public static RetryPolicy create(RetryPolicy.RetryCondition gate) {
+        return new RetryPolicy((request, exception, retriesAttempted) ->
+                shouldRetry(request, exception, retriesAttempted) &&
+                        gate.shouldRetry(request, exception, retriesAttempted),
+                DeadlineRetryPolicy::delayBeforeNextRetry, PredefinedRetryPolicies.DYNAMODB_DEFAULT_MAX_ERROR_RETRY,
+                true);
+    }
+
+    private static boolean shouldRetry(AmazonWebServiceRequest request, AmazonClientException exception,
+                                       int retriesAttempted) {
+        Deadline deadline = Deadline.current();
+        if (deadline != null && deadline.remainingMillis() < 2 * MIN_ATTEMPT_MILLIS) {
+            return false;
+        }
+        return PredefinedRetryPolicies.DEFAULT_RETRY_CONDITION.shouldRetry(request, exception, retriesAttempted);
+    }
+
+    private static long delayBeforeNextRetry(AmazonWebServiceRequest request, AmazonClientException exception,
+                                             int retriesAttempted) {
+        long delay = PredefinedRetryPolicies.DYNAMODB_DEFAULT_BACKOFF_STRATEGY
+                .delayBeforeNextRetry(request, exception, retriesAttempted);
+        Deadline deadline = Deadline.current();
+        if (deadline == null) {
+            return delay;
+        }
+        return Math.max(0, Math.min(delay, deadline.remainingMillis() - MIN_ATTEMPT_MILLIS));
+    }
+}
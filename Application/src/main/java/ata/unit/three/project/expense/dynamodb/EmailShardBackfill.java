@@ -0,0 +1,165 @@
+package ata.unit.three.project.expense.dynamodb;
+
+import com.amazonaws.services.dynamodbv2.AmazonDynamoDB;
+import com.amazonaws.services.dynamodbv2.model.AttributeValue;
+import com.amazonaws.services.dynamodbv2.model.ConditionalCheckFailedException;
+import com.amazonaws.services.dynamodbv2.model.ScanRequest;
+import com.amazonaws.services.dynamodbv2.model.ScanResult;
+import com.amazonaws.services.dynamodbv2.model.UpdateItemRequest;
+import com.kenzie.ata.ExcludeFromJacocoGeneratedReport;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static ata.unit.three.project.expense.dynamodb.ExpenseTable.EXPENSE_LIST_TABLE_NAME;
+import static ata.unit.three.project.expense.dynamodb.ExpenseTable.EXPENSE_TABLE_NAME;
+
+/**
+ * Fills in EmailShard on items written before the EmailShardIndex existed, while the service keeps running.
+ *
+ * Run it with EMAIL_SHARD_MODE=write deployed and the same EMAIL_INDEX_SHARDS as the service:
+ * <pre>
+ * java -cp Application.jar ata.unit.three.project.expense.dynamodb.EmailShardBackfill [segments] [itemsPerSecond]
+ * </pre>
+ * It adds the index to tables that lack it, then scans both tables with parallel segments and sets EmailShard
+ * wherever it is missing or belongs to an old shard count. Each update only touches EmailShard and requires
+ * the item to still exist, so it cannot undo concurrent changes or bring back deleted items. Once it has
+ * finished, switch to EMAIL_SHARD_MODE=read.
+ */
+@ExcludeFromJacocoGeneratedReport
+public class EmailShardBackfill {
+    static final Logger log = LogManager.getLogger();
+
+    private static final int DEFAULT_SEGMENTS = 4;
+    private static final int DEFAULT_ITEMS_PER_SECOND = 100;
+    private static final int PAGE_SIZE = 100;
+
+    private final AmazonDynamoDB client;
+    private final EmailShards shards;
+    private final int segments;
+    private final long nanosPerItem;
+    private final AtomicLong nextSlotNanos = new AtomicLong(System.nanoTime());
+    private final AtomicLong scanned = new AtomicLong();
+    private final AtomicLong updated = new AtomicLong();
+
+    /**
+     * Creates a backfill.
+     * @param client the DynamoDB client
+     * @param shards the shard configuration the service writes with
+     * @param segments how many parallel scan segments to use per table
+     * @param itemsPerSecond the most items to update per second, to leave capacity for live traffic
+     */
+    public EmailShardBackfill(AmazonDynamoDB client, EmailShards shards, int segments, int itemsPerSecond) {
+        this.client = client;
+        this.shards = shards;
+        this.segments = segments;
+        this.nanosPerItem = TimeUnit.SECONDS.toNanos(1) / Math.max(1, itemsPerSecond);
+    }
+
+    public static void main(String[] args) throws Exception {
+        EmailShards shards = EmailShards.getInstance();
+        if (!shards.isWriteEnabled()) {
+            log.warn("EMAIL_SHARD_MODE is off; new writes will not get EmailShard while the backfill runs");
+        }
+        EmailShardBackfill backfill = new EmailShardBackfill(DynamoDBClientFactory.getClient(), shards,
+                args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_SEGMENTS,
+                args.length > 1 ? Integer.parseInt(args[1]) : DEFAULT_ITEMS_PER_SECOND);
+        ExpenseTable.createEmailShardIndexIfMissing(EXPENSE_TABLE_NAME, true);
+        ExpenseTable.createEmailShardIndexIfMissing(EXPENSE_LIST_TABLE_NAME, false);
+        backfill.run(EXPENSE_TABLE_NAME);
+        backfill.run(EXPENSE_LIST_TABLE_NAME);
+    }
+
+    /**
+     * Backfills one table.
+     * @param table the table name
+     * @throws Exception if a segment fails
+     */
+    public void run(String table) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(segments);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int segment = 0; segment < segments; segment++) {
+                int current = segment;
+                futures.add(executor.submit(() -> {
+                    scanSegment(table, current);
+                    return null;
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdown();
+        }
+        log.info("Backfilled {}: scanned {} items, updated {}", table, scanned.get(), updated.get());
+    }
+
+    private void scanSegment(String table, int segment) throws InterruptedException {
+        Map<String, AttributeValue> startKey = null;
+        do {
+            ScanResult page = client.scan(new ScanRequest()
+                    .withTableName(table)
+                    .withSegment(segment)
+                    .withTotalSegments(segments)
+                    .withLimit(PAGE_SIZE)
+                    .withProjectionExpression("Id, Email, EmailShard")
+                    .withExclusiveStartKey(startKey));
+            for (Map<String, AttributeValue> item : page.getItems()) {
+                scanned.incrementAndGet();
+                backfillItem(table, item);
+            }
+            startKey = page.getLastEvaluatedKey();
+        } while (startKey != null && !startKey.isEmpty());
+    }
+
+    private void backfillItem(String table, Map<String, AttributeValue> item) throws InterruptedException {
+        AttributeValue email = item.get("Email");
+        if (email == null || email.getS() == null) {
+            return;
+        }
+        String id = item.get("Id").getS();
+        String expected = shards.shardKey(email.getS(), id);
+        AttributeValue current = item.get("EmailShard");
+        if (current != null && expected.equals(current.getS())) {
+            return;
+        }
+        pace();
+        Map<String, AttributeValue> values = new HashMap<>();
+        values.put(":shard", new AttributeValue(expected));
+        values.put(":email", email);
+        try {
+            client.updateItem(new UpdateItemRequest()
+                    .withTableName(table)
+                    .withKey(Collections.singletonMap("Id", new AttributeValue(id)))
+                    .withUpdateExpression("SET EmailShard = :shard")
+                    .withConditionExpression("attribute_exists(Id) AND Email = :email")
+                    .withExpressionAttributeValues(values));
+            updated.incrementAndGet();
+        } catch (ConditionalCheckFailedException e) {
+            log.debug("Skipped {} in {}, it changed during the backfill", id, table);
+        }
+    }
+
+    /**
+     * Spaces updates evenly across all segments to stay under the configured rate.
+     */
+    private void pace() throws InterruptedException {
+        long now = System.nanoTime();
+        long slot = nextSlotNanos.getAndUpdate(next -> Math.max(next, now) + nanosPerItem);
+        long wait = slot - now;
+        if (wait > 0) {
+            TimeUnit.NANOSECONDS.sleep(wait);
+        }
+    }
+}
@@ -0,0 +1,185 @@
+package ata.unit.three.project.expense.dynamodb;
+
+import ata.unit.three.project.expense.service.Deadline;
+
+import com.amazonaws.services.dynamodbv2.datamodeling.DynamoDBMapper;
+import com.amazonaws.services.dynamodbv2.datamodeling.DynamoDBQueryExpression;
+import com.amazonaws.services.dynamodbv2.model.AttributeValue;
+import com.amazonaws.services.dynamodbv2.model.ComparisonOperator;
+import com.amazonaws.services.dynamodbv2.model.Condition;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Supplier;
+
+/**
+ * Reads an email's items from the EmailShardIndex by querying all of its shards in parallel.
+ *
+ * Each shard returns its expenses newest first, so the shards are combined with a k-way merge instead of a
+ * full sort. Lists have no date; their shards are concatenated in shard order.
+ */
+public class EmailShardIndex {
+    /**
+     * Orders expenses newest first; ExpenseDate is an ISO-8601 instant, so its text sorts chronologically.
+     */
+    static final Comparator<ExpenseItem> NEWEST_FIRST = Comparator.comparing(ExpenseItem::getExpenseDate,
+            Comparator.nullsLast(Comparator.reverseOrder()));
+
+    private static final ExecutorService EXECUTOR = Executors.newCachedThreadPool(runnable -> {
+        Thread thread = new Thread(runnable, "email-shard-query");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final DynamoDBMapper mapper;
+    private final EmailShards shards;
+
+    public EmailShardIndex(DynamoDBMapper mapper, EmailShards shards) {
+        this.mapper = mapper;
+        this.shards = shards;
+    }
+
+    /**
+     * Returns every expense of an email, newest first.
+     * @param email the email
+     * @return the expenses of all shards
+     */
+    public List<ExpenseItem> getExpensesByEmail(String email) {
+        return getExpensesByEmailSince(email, null);
+    }
+
+    /**
+     * Returns the expenses of an email from a date on, newest first, reading only those from the index.
+     * @param email the email
+     * @param since the earliest expense date, or a prefix of it such as yyyy-MM-dd; null for every expense
+     * @return the expenses of all shards
+     */
+    public List<ExpenseItem> getExpensesByEmailSince(String email, String since) {
+        List<List<ExpenseItem>> results = fanOut(email, shardKey -> {
+            ExpenseItem key = new ExpenseItem();
+            key.setEmailShard(shardKey);
+            DynamoDBQueryExpression<ExpenseItem> query = new DynamoDBQueryExpression<ExpenseItem>()
+                    .withIndexName(EmailShards.INDEX_NAME)
+                    .withHashKeyValues(key)
+                    .withScanIndexForward(false)
+                    .withConsistentRead(false);
+            if (since != null) {
+                query.withRangeKeyCondition("ExpenseDate", new Condition()
+                        .withComparisonOperator(ComparisonOperator.GE)
+                        .withAttributeValueList(new AttributeValue(since)));
+            }
+            return new ArrayList<>(mapper.query(ExpenseItem.class, query));
+        });
+        return mergeNewestFirst(results);
+    }
+
+    /**
+     * Returns every expense list of an email.
+     * @param email the email
+     * @return the lists of all shards
+     */
+    public List<ExpenseItemList> getExpenseListsByEmail(String email) {
+        List<List<ExpenseItemList>> results = fanOut(email, shardKey -> {
+            ExpenseItemList key = new ExpenseItemList();
+            key.setEmailShard(shardKey);
+            return new ArrayList<>(mapper.query(ExpenseItemList.class,
+                    new DynamoDBQueryExpression<ExpenseItemList>()
+                            .withIndexName(EmailShards.INDEX_NAME)
+                            .withHashKeyValues(key)
+                            .withConsistentRead(false)));
+        });
+        List<ExpenseItemList> merged = new ArrayList<>();
+        for (List<ExpenseItemList> shard : results) {
+            merged.addAll(shard);
+        }
+        return merged;
+    }
+
+    /**
+     * Merges lists that are each sorted newest first into one list sorted newest first.
+     * @param sorted the per-shard results
+     * @return the merged result
+     */
+    static List<ExpenseItem> mergeNewestFirst(List<List<ExpenseItem>> sorted) {
+        if (sorted.size() == 1) {
+            return sorted.get(0);
+        }
+        int total = 0;
+        PriorityQueue<Head> heads = new PriorityQueue<>(Math.max(1, sorted.size()),
+                (a, b) -> NEWEST_FIRST.compare(a.item, b.item));
+        for (List<ExpenseItem> shard : sorted) {
+            total += shard.size();
+            Iterator<ExpenseItem> iterator = shard.iterator();
+            if (iterator.hasNext()) {
+                heads.add(new Head(iterator.next(), iterator));
+            }
+        }
+        List<ExpenseItem> merged = new ArrayList<>(total);
+        while (!heads.isEmpty()) {
+            Head head = heads.poll();
+            merged.add(head.item);
+            if (head.rest.hasNext()) {
+                head.item = head.rest.next();
+                heads.add(head);
+            }
+        }
+        return merged;
+    }
+
+    private <T> List<List<T>> fanOut(String email, ShardQuery<T> query) {
+        List<String> keys = shards.shardKeys(email);
+        List<List<T>> results = new ArrayList<>(keys.size());
+        if (keys.size() == 1) {
+            results.add(query.run(keys.get(0)));
+            return results;
+        }
+        Deadline deadline = Deadline.current();
+        List<CompletableFuture<List<T>>> futures = new ArrayList<>(keys.size());
+        for (String key : keys) {
+            futures.add(CompletableFuture.supplyAsync(withDeadline(deadline, () -> query.run(key)), EXECUTOR));
+        }
+        try {
+            for (CompletableFuture<List<T>> future : futures) {
+                results.add(future.join());
+            }
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw e;
+        }
+        return results;
+    }
+
+    private static <T> Supplier<T> withDeadline(Deadline deadline, Supplier<T> task) {
+        return () -> {
+            Deadline.Scope scope = Deadline.attach(deadline);
+            try {
+                return task.get();
+            } finally {
+                scope.close();
+            }
+        };
+    }
+
+    private interface ShardQuery<T> {
+        List<T> run(String shardKey);
+    }
+
+    private static final class Head {
+        private final Iterator<ExpenseItem> rest;
+        private ExpenseItem item;
+
+        private Head(ExpenseItem item, Iterator<ExpenseItem> rest) {
+            this.item = item;
+            this.rest = rest;
+        }
+    }
+}
@@ -0,0 +1,154 @@
+package ata.unit.three.project.expense.dynamodb;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Spreads an email's items over several EmailShardIndex partitions, so that one large account is not limited
+ * to the write throughput of a single partition of the plain EmailIndex.
+ *
+ * Every item gets an EmailShard attribute of the form "email#shard", with the shard picked from the item id.
+ * The number of shards is configured with EMAIL_INDEX_SHARDS (or the dynamodb.emailIndexShards system
+ * property) as comma separated email=count entries plus an optional default=count entry, e.g.
+ * "default=1,importer@example.com=16".
+ *
+ * EMAIL_SHARD_MODE (dynamodb.emailShardMode) rolls the index out in steps:
+ * <ul>
+ *     <li>off - EmailShard is neither written nor read (the default)</li>
+ *     <li>write - new and updated items get EmailShard, reads still use EmailIndex; run
+ *     {@link EmailShardBackfill} in this mode</li>
+ *     <li>read - reads query every shard of the email in parallel and merge the results</li>
+ * </ul>
+ * Changing an email's shard count moves its items only when they are next written, so run the backfill again
+ * before reading with the new count.
+ */
+public class EmailShards {
+    public static final String MODE_ENV = "EMAIL_SHARD_MODE";
+    public static final String MODE_PROPERTY = "dynamodb.emailShardMode";
+    public static final String SHARDS_ENV = "EMAIL_INDEX_SHARDS";
+    public static final String SHARDS_PROPERTY = "dynamodb.emailIndexShards";
+    public static final String INDEX_NAME = "EmailShardIndex";
+    public static final String DEFAULT_KEY = "default";
+
+    static final int MAX_SHARDS = 64;
+
+    private static final String SEPARATOR = "#";
+
+    private static volatile EmailShards instance;
+
+    private final Mode mode;
+    private final int defaultShards;
+    private final Map<String, Integer> shardsByEmail;
+
+    /**
+     * Creates a shard configuration.
+     * @param mode whether EmailShard is written and read
+     * @param shards shard counts by email, with {@link #DEFAULT_KEY} for every other email
+     */
+    public EmailShards(Mode mode, Map<String, Integer> shards) {
+        this.mode = mode;
+        this.shardsByEmail = new HashMap<>(shards);
+        this.defaultShards = checkCount(shardsByEmail.getOrDefault(DEFAULT_KEY, 1));
+        for (Integer count : shardsByEmail.values()) {
+            checkCount(count);
+        }
+    }
+
+    /**
+     * Returns the shard configuration of this container.
+     * @return the shared configuration, read from the environment
+     */
+    public static EmailShards getInstance() {
+        EmailShards current = instance;
+        if (current == null) {
+            synchronized (EmailShards.class) {
+                current = instance;
+                if (current == null) {
+                    current = new EmailShards(Mode.valueOf(setting(MODE_PROPERTY, MODE_ENV, "off").toUpperCase()),
+                            parseShards(setting(SHARDS_PROPERTY, SHARDS_ENV, "")));
+                    instance = current;
+                }
+            }
+        }
+        return current;
+    }
+
+    /**
+     * Parses shard counts such as "default=2,importer@example.com=16".
+     * @param spec comma separated email=count entries
+     * @return the shard counts by email
+     */
+    public static Map<String, Integer> parseShards(String spec) {
+        Map<String, Integer> parsed = new HashMap<>();
+        for (String entry : spec.split(",")) {
+            String trimmed = entry.trim();
+            if (trimmed.isEmpty()) {
+                continue;
+            }
+            int separator = trimmed.lastIndexOf('=');
+            if (separator <= 0) {
+                throw new IllegalArgumentException("Expected email=count but got \"" + trimmed + "\"");
+            }
+            parsed.put(trimmed.substring(0, separator).trim(),
+                    Integer.parseInt(trimmed.substring(separator + 1).trim()));
+        }
+        return parsed;
+    }
+
+    public boolean isWriteEnabled() {
+        return mode != Mode.OFF;
+    }
+
+    public boolean isReadEnabled() {
+        return mode == Mode.READ;
+    }
+
+    public int shardCount(String email) {
+        return shardsByEmail.getOrDefault(email, defaultShards);
+    }
+
+    /**
+     * Returns the EmailShard value of an item.
+     * @param email the item's email
+     * @param id the item's id, which picks the shard
+     * @return "email#shard"
+     */
+    public String shardKey(String email, String id) {
+        return email + SEPARATOR + Math.floorMod(id.hashCode(), shardCount(email));
+    }
+
+    /**
+     * Returns every EmailShard value an email's items can have.
+     * @param email the email
+     * @return one key per shard, in shard order
+     */
+    public List<String> shardKeys(String email) {
+        int count = shardCount(email);
+        List<String> keys = new ArrayList<>(count);
+        for (int shard = 0; shard < count; shard++) {
+            keys.add(email + SEPARATOR + shard);
+        }
+        return keys;
+    }
+
+    private static int checkCount(int count) {
+        if (count < 1 || count > MAX_SHARDS) {
+            throw new IllegalArgumentException("Shard counts must be between 1 and " + MAX_SHARDS);
+        }
+        return count;
+    }
+
+    private static String setting(String property, String env, String defaultValue) {
+        String value = System.getProperty(property);
+        if (value == null || value.isEmpty()) {
+            value = System.getenv(env);
+        }
+        return value == null || value.isEmpty() ? defaultValue : value;
+    }
+
+    public enum Mode {
+        OFF, WRITE, READ
+    }
+}
@@ -0,0 +1,168 @@
+package ata.unit.three.project.expense.dynamodb;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+/**
+ * A small read-through cache of expenses, kept for the life of the container.
+ *
+ * Entries are dropped when this container changes the expense and expire after a short time otherwise, which
+ * bounds how stale an expense changed through another container can be. The size is set with
+ * EXPENSE_CACHE_SIZE (or the dynamodb.expenseCacheSize system property, default 10000, 0 turns the cache off)
+ * and the lifetime with EXPENSE_CACHE_TTL_MILLIS (dynamodb.expenseCacheTtlMillis, default 5000).
+ *
+ * The cache hands out copies, so callers may change what they get without affecting other requests.
+ */
+public class ExpenseCache {
+    public static final String SIZE_ENV = "EXPENSE_CACHE_SIZE";
+    public static final String SIZE_PROPERTY = "dynamodb.expenseCacheSize";
+    public static final String TTL_ENV = "EXPENSE_CACHE_TTL_MILLIS";
+    public static final String TTL_PROPERTY = "dynamodb.expenseCacheTtlMillis";
+
+    private static volatile ExpenseCache instance;
+
+    private final int maxSize;
+    private final long ttlNanos;
+    private final LongSupplier clock;
+    private final LinkedHashMap<String, CacheEntry> entries;
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+
+    /**
+     * Creates a cache.
+     * @param maxSize the most expenses to keep; the least recently used ones are dropped first
+     * @param ttlMillis how long an expense is kept
+     */
+    public ExpenseCache(int maxSize, long ttlMillis) {
+        this(maxSize, ttlMillis, System::nanoTime);
+    }
+
+    ExpenseCache(int maxSize, long ttlMillis, LongSupplier clock) {
+        this.maxSize = maxSize;
+        this.ttlNanos = TimeUnit.MILLISECONDS.toNanos(ttlMillis);
+        this.clock = clock;
+        this.entries = new LinkedHashMap<String, CacheEntry>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, CacheEntry> eldest) {
+                return size() > ExpenseCache.this.maxSize;
+            }
+        };
+    }
+
+    /**
+     * Returns the cache shared by every repository in this container.
+     * @return the shared cache, configured from the environment
+     */
+    public static ExpenseCache getInstance() {
+        ExpenseCache current = instance;
+        if (current == null) {
+            synchronized (ExpenseCache.class) {
+                current = instance;
+                if (current == null) {
+                    current = new ExpenseCache(Integer.parseInt(setting(SIZE_PROPERTY, SIZE_ENV, "10000")),
+                            Long.parseLong(setting(TTL_PROPERTY, TTL_ENV, "5000")));
+                    instance = current;
+                }
+            }
+        }
+        return current;
+    }
+
+    /**
+     * Returns a cached expense.
+     * @param id the expense id
+     * @return a copy of the expense, or null if it is not cached
+     */
+    public ExpenseItem get(String id) {
+        CacheEntry entry;
+        synchronized (entries) {
+            entry = entries.get(id);
+            if (entry != null && clock.getAsLong() - entry.cachedAtNanos >= ttlNanos) {
+                entries.remove(id);
+                entry = null;
+            }
+        }
+        if (entry == null) {
+            misses.incrementAndGet();
+            return null;
+        }
+        hits.incrementAndGet();
+        return copy(entry.expense);
+    }
+
+    /**
+     * Returns the cached ones of several expenses.
+     * @param ids the expense ids
+     * @return copies of the cached expenses by id
+     */
+    public Map<String, ExpenseItem> getAll(Iterable<String> ids) {
+        Map<String, ExpenseItem> found = new HashMap<>();
+        for (String id : ids) {
+            ExpenseItem expense = get(id);
+            if (expense != null) {
+                found.put(id, expense);
+            }
+        }
+        return found;
+    }
+
+    public void put(ExpenseItem expense) {
+        if (maxSize <= 0 || expense == null || expense.getId() == null) {
+            return;
+        }
+        CacheEntry entry = new CacheEntry(copy(expense), clock.getAsLong());
+        synchronized (entries) {
+            entries.put(expense.getId(), entry);
+        }
+    }
+
+    public void invalidate(String id) {
+        synchronized (entries) {
+            entries.remove(id);
+        }
+    }
+
+    public long getHitCount() {
+        return hits.get();
+    }
+
+    public long getMissCount() {
+        return misses.get();
+    }
+
+    static ExpenseItem copy(ExpenseItem expense) {
+        ExpenseItem copy = new ExpenseItem();
+        copy.setId(expense.getId());
+        copy.setEmail(expense.getEmail());
+        copy.setExpenseDate(expense.getExpenseDate());
+        copy.setTitle(expense.getTitle());
+        copy.setAmountCents(expense.getAmountCents());
+        copy.setTags(expense.getTags() == null ? null : new TreeSet<>(expense.getTags()));
+        copy.setChangeSeq(expense.getChangeSeq());
+        copy.setEmailShard(expense.getEmailShard());
+        return copy;
+    }
+
+    private static String setting(String property, String env, String defaultValue) {
+        String value = System.getProperty(property);
+        if (value == null || value.isEmpty()) {
+            value = System.getenv(env);
+        }
+        return value == null || value.isEmpty() ? defaultValue : value;
+    }
+
+    private static final class CacheEntry {
+        private final ExpenseItem expense;
+        private final long cachedAtNanos;
+
+        private CacheEntry(ExpenseItem expense, long cachedAtNanos) {
+            this.expense = expense;
+            this.cachedAtNanos = cachedAtNanos;
+        }
+    }
+}
@@ -0,0 +1,38 @@
+package ata.unit.three.project.expense.dynamodb;
+
+/**
+ * One change to the Expense table, as read from its stream, see {@link ExpenseChangePropagator}.
+ */
+public class ExpenseChange {
+    private final String sequenceNumber;
+    private final String expenseId;
+    private final ExpenseItem newImage;
+
+    /**
+     * Creates a change.
+     * @param sequenceNumber the stream sequence number of the change
+     * @param expenseId the id of the changed expense
+     * @param newImage the expense after the change, or null if it was deleted
+     */
+    public ExpenseChange(String sequenceNumber, String expenseId, ExpenseItem newImage) {
+        this.sequenceNumber = sequenceNumber;
+        this.expenseId = expenseId;
+        this.newImage = newImage;
+    }
+
+    public String getSequenceNumber() {
+        return sequenceNumber;
+    }
+
+    public String getExpenseId() {
+        return expenseId;
+    }
+
+    public ExpenseItem getNewImage() {
+        return newImage;
+    }
+
+    public boolean isRemove() {
+        return newImage == null;
+    }
+}
@@ -0,0 +1,199 @@
+package ata.unit.three.project.expense.dynamodb;
+
+import ata.unit.three.project.expense.service.sync.SyncChange;
+
+import com.amazonaws.services.dynamodbv2.AmazonDynamoDB;
+import com.amazonaws.services.dynamodbv2.datamodeling.DynamoDBMapper;
+import com.amazonaws.services.dynamodbv2.datamodeling.DynamoDBMapperConfig;
+import com.amazonaws.services.dynamodbv2.datamodeling.DynamoDBMapperTableModel;
+import com.amazonaws.services.dynamodbv2.model.AttributeValue;
+import com.amazonaws.services.dynamodbv2.model.TransactWriteItem;
+import com.amazonaws.services.dynamodbv2.model.TransactionCanceledException;
+import com.amazonaws.services.dynamodbv2.model.Update;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+import static ata.unit.three.project.expense.dynamodb.ExpenseTable.EXPENSE_LIST_TABLE_NAME;
+
+/**
+ * Carries changes to expenses over to the lists that contain them, off the request path.
+ *
+ * Changes are read from the Expense table's stream. For each changed expense the lists containing it are found
+ * through {@link ListMemberships} and updated with one conditional update each:
+ * <ul>
+ *     <li>an updated expense replaces its copy in {@link ListStorage#EMBEDDED} lists; other lists read the
+ *     expense itself and need no change;</li>
+ *     <li>a deleted expense is taken out of every list, and its memberships are dropped.</li>
+ * </ul>
+ * Applying a change twice has no further effect, so a batch can be retried from any change. Of several changes
+ * to one expense in a batch only the last is applied. Every list changed is numbered in its owner's
+ * {@link ChangeLog} in one transaction with its update, so syncing clients see it and the entity tag of the
+ * owner's lists changes.
+ */
+public class ExpenseChangePropagator {
+    static final Logger log = LogManager.getLogger();
+
+    private static final int MAX_ATTEMPTS = 3;
+    private static final DynamoDBMapperConfig CONSISTENT = DynamoDBMapperConfig.builder()
+            .withConsistentReads(DynamoDBMapperConfig.ConsistentReads.CONSISTENT)
+            .build();
+
+    private final DynamoDBMapper mapper;
+    private final ListMemberships memberships;
+    private final ListChunks chunks;
+    private final ChangeLog changeLog;
+    private final DynamoDBMapperTableModel<ExpenseItem> expenseModel;
+
+    public ExpenseChangePropagator(AmazonDynamoDB client, DynamoDBMapper mapper) {
+        this(mapper, new ListMemberships(mapper), new ListChunks(client, mapper), new ChangeLog(client));
+    }
+
+    ExpenseChangePropagator(DynamoDBMapper mapper, ListMemberships memberships, ListChunks chunks,
+                            ChangeLog changeLog) {
+        this.mapper = mapper;
+        this.memberships = memberships;
+        this.chunks = chunks;
+        this.changeLog = changeLog;
+        this.expenseModel = mapper.getTableModel(ExpenseItem.class);
+    }
+
+    /**
+     * Applies a batch of changes in order, stopping at the first one that fails.
+     * @param changes the changes, in stream order
+     * @return the sequence number of the change that failed, from which the batch must be retried, or null if
+     *     every change was applied
+     */
+    public String propagate(List<ExpenseChange> changes) {
+        Map<String, Integer> lastChange = new HashMap<>();
+        for (int i = 0; i < changes.size(); i++) {
+            lastChange.put(changes.get(i).getExpenseId(), i);
+        }
+        for (int i = 0; i < changes.size(); i++) {
+            ExpenseChange change = changes.get(i);
+            if (lastChange.get(change.getExpenseId()) != i) {
+                continue;
+            }
+            try {
+                apply(change);
+            } catch (RuntimeException e) {
+                log.warn("Could not propagate change {} to expense {}", change.getSequenceNumber(),
+                        change.getExpenseId(), e);
+                return change.getSequenceNumber();
+            }
+        }
+        return null;
+    }
+
+    private void apply(ExpenseChange change) {
+        for (String listId : memberships.listIdsOf(change.getExpenseId())) {
+            applyToList(listId, change);
+            if (change.isRemove()) {
+                memberships.remove(change.getExpenseId(), listId);
+            }
+        }
+    }
+
+    private void applyToList(String listId, ExpenseChange change) {
+        for (int attempt = 0; attempt < MAX_ATTEMPTS; attempt++) {
+            ExpenseItemList list = mapper.load(ExpenseItemList.class, listId, CONSISTENT);
+            if (list == null) {
+                return;
+            }
+            ListStorage storage = ListStorage.of(list);
+            Update update = null;
+            if (storage == ListStorage.CHUNKED) {
+                if (!change.isRemove()) {
+                    return;
+                }
+                // Recorded even if an earlier try already removed it, as that try may have failed before this.
+                chunks.remove(listId, change.getExpenseId());
+            } else {
+                update = storage == ListStorage.REFERENCES ? referenceUpdate(list, change) :
+                        embeddedUpdate(list, change);
+                if (update == null) {
+                    return;
+                }
+            }
+            try {
+                recordChange(list, change, update);
+                return;
+            } catch (TransactionCanceledException e) {
+                log.debug("List {} changed while expense {} was propagated, retrying", listId, change.getExpenseId());
+            }
+        }
+        throw new IllegalStateException("List " + listId + " kept changing while expense " +
+                change.getExpenseId() + " was propagated");
+    }
+
+    /**
+     * Numbers a change to a list in one transaction with the update making it, which also stamps the list, or
+     * with a stamp of its own when there is no update.
+     */
+    private void recordChange(ExpenseItemList list, ExpenseChange change, Update update) {
+        boolean remove = change.isRemove();
+        changeLog.record(list.getEmail(), remove ? SyncChange.Type.LIST_ITEM : SyncChange.Type.LIST,
+                remove ? change.getExpenseId() : list.getId(), remove ? list.getId() : null, remove, seq -> {
+                    if (update == null) {
+                        return Collections.singletonList(ChangeLog.listStamp(list.getId(), seq));
+                    }
+                    update.getExpressionAttributeValues().put(":seq",
+                            new AttributeValue().withN(Long.toString(seq)));
+                    return Collections.singletonList(new TransactWriteItem().withUpdate(update));
+                });
+    }
+
+    private Update referenceUpdate(ExpenseItemList list, ExpenseChange change) {
+        int position = list.getExpenseIds() == null ? -1 : list.getExpenseIds().indexOf(change.getExpenseId());
+        if (!change.isRemove() || position < 0) {
+            return null;
+        }
+        Map<String, AttributeValue> values = new HashMap<>();
+        values.put(":id", new AttributeValue(change.getExpenseId()));
+        return new Update()
+                .withTableName(EXPENSE_LIST_TABLE_NAME)
+                .withKey(Collections.singletonMap("Id", new AttributeValue(list.getId())))
+                .withUpdateExpression("REMOVE ExpenseIds[" + position + "] SET ChangeSeq = :seq")
+                .withConditionExpression("ExpenseIds[" + position + "] = :id")
+                .withExpressionAttributeValues(values);
+    }
+
+    private Update embeddedUpdate(ExpenseItemList list, ExpenseChange change) {
+        List<ExpenseItem> expenses = list.getExpenseItems() == null ? Collections.emptyList() :
+                list.getExpenseItems();
+        int position = -1;
+        for (int i = 0; i < expenses.size() && position < 0; i++) {
+            if (change.getExpenseId().equals(expenses.get(i).getId())) {
+                position = i;
+            }
+        }
+        if (position < 0 || !change.isRemove() && sameCopy(expenses.get(position), change.getNewImage())) {
+            return null;
+        }
+        Map<String, AttributeValue> values = new HashMap<>();
+        values.put(":id", new AttributeValue(change.getExpenseId()));
+        String action = "REMOVE Expenses[" + position + "] SET ChangeSeq = :seq";
+        if (!change.isRemove()) {
+            values.put(":copy", new AttributeValue().withM(expenseModel.convert(change.getNewImage())));
+            action = "SET Expenses[" + position + "] = :copy, ChangeSeq = :seq";
+        }
+        return new Update()
+                .withTableName(EXPENSE_LIST_TABLE_NAME)
+                .withKey(Collections.singletonMap("Id", new AttributeValue(list.getId())))
+                .withUpdateExpression(action)
+                .withConditionExpression("Expenses[" + position + "].Id = :id")
+                .withExpressionAttributeValues(values);
+    }
+
+    private static boolean sameCopy(ExpenseItem copy, ExpenseItem expense) {
+        return Objects.equals(copy.getTitle(), expense.getTitle()) &&
+                Objects.equals(copy.getAmountCents(), expense.getAmountCents()) &&
+                Objects.equals(copy.getExpenseDate(), expense.getExpenseDate()) &&
+                Objects.equals(copy.getEmail(), expense.getEmail());
+    }
+}
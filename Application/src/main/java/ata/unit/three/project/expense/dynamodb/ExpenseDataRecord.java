@@ -0,0 +1,205 @@
+package ata.unit.three.project.expense.dynamodb;
+
+import com.amazonaws.services.dynamodbv2.datamodeling.DynamoDBAttribute;
+import com.amazonaws.services.dynamodbv2.datamodeling.DynamoDBHashKey;
+import com.amazonaws.services.dynamodbv2.datamodeling.DynamoDBIndexHashKey;
+import com.amazonaws.services.dynamodbv2.datamodeling.DynamoDBIndexRangeKey;
+import com.amazonaws.services.dynamodbv2.datamodeling.DynamoDBRangeKey;
+import com.amazonaws.services.dynamodbv2.datamodeling.DynamoDBTable;
+import com.amazonaws.services.dynamodbv2.datamodeling.DynamoDBTypeConverted;
+import com.kenzie.ata.ExcludeFromJacocoGeneratedReport;
+
+import java.util.Set;
+
+/**
+ * One item of the single ExpenseData table. The partition key is the owner's email; the sort key says what the
+ * item is:
+ * <ul>
+ *     <li>EXP#&lt;date&gt;#&lt;id&gt; - an expense</li>
+ *     <li>LIST#&lt;id&gt; - an expense list</li>
+ *     <li>LISTITEM#&lt;listId&gt;#&lt;expenseId&gt; - an expense's membership in a list</li>
+ * </ul>
+ * Expenses and lists also have an Id, which the IdIndex uses to find them without knowing the email.
+ */
+@ExcludeFromJacocoGeneratedReport
+@DynamoDBTable(tableName = "ExpenseData")
+public class ExpenseDataRecord {
+    public static final String EXPENSE_PREFIX = "EXP#";
+    public static final String LIST_PREFIX = "LIST#";
+    public static final String LIST_ITEM_PREFIX = "LISTITEM#";
+    public static final String ID_INDEX = "IdIndex";
+
+    private String pk;
+    private String sk;
+    private String id;
+    private String expenseDate;
+    private String title;
+    private Long amountCents;
+    private Set<String> tags;
+    private Long changeSeq;
+    private String listId;
+    private String expenseId;
+    private String expenseSk;
+    private Long totalCents;
+    private Long expenseCount;
+    private String firstExpenseDate;
+    private String lastExpenseDate;
+
+    @DynamoDBHashKey(attributeName = "PK")
+    public String getPk() {
+        return pk;
+    }
+
+    @DynamoDBRangeKey(attributeName = "SK")
+    @DynamoDBIndexRangeKey(globalSecondaryIndexName = ID_INDEX, attributeName = "SK")
+    public String getSk() {
+        return sk;
+    }
+
+    @DynamoDBIndexHashKey(globalSecondaryIndexName = ID_INDEX, attributeName = "Id")
+    public String getId() {
+        return id;
+    }
+
+    @DynamoDBAttribute(attributeName = "ExpenseDate")
+    public String getExpenseDate() {
+        return expenseDate;
+    }
+
+    @DynamoDBAttribute(attributeName = "Title")
+    public String getTitle() {
+        return title;
+    }
+
+    @DynamoDBAttribute(attributeName = "Amount")
+    @DynamoDBTypeConverted(converter = CentsConverter.class)
+    public Long getAmountCents() {
+        return amountCents;
+    }
+
+    @DynamoDBAttribute(attributeName = "Tags")
+    public Set<String> getTags() {
+        return tags;
+    }
+
+    @DynamoDBAttribute(attributeName = "ChangeSeq")
+    public Long getChangeSeq() {
+        return changeSeq;
+    }
+
+    @DynamoDBAttribute(attributeName = "ListId")
+    public String getListId() {
+        return listId;
+    }
+
+    @DynamoDBAttribute(attributeName = "ExpenseId")
+    public String getExpenseId() {
+        return expenseId;
+    }
+
+    /**
+     * Returns the sort key of the expense a membership points at, so the expense can be loaded by key.
+     * @return the expense's SK, only set on memberships
+     */
+    @DynamoDBAttribute(attributeName = "ExpenseSK")
+    public String getExpenseSk() {
+        return expenseSk;
+    }
+
+    /**
+     * Returns the sum of the amounts of a list's expenses, see {@link SpendingAggregates}.
+     * @return the total in cents, only set on lists
+     */
+    @DynamoDBAttribute(attributeName = "Total")
+    @DynamoDBTypeConverted(converter = CentsConverter.class)
+    public Long getTotalCents() {
+        return totalCents;
+    }
+
+    @DynamoDBAttribute(attributeName = "ExpenseCount")
+    public Long getExpenseCount() {
+        return expenseCount;
+    }
+
+    @DynamoDBAttribute(attributeName = "FirstExpenseDate")
+    public String getFirstExpenseDate() {
+        return firstExpenseDate;
+    }
+
+    @DynamoDBAttribute(attributeName = "LastExpenseDate")
+    public String getLastExpenseDate() {
+        return lastExpenseDate;
+    }
+
+    public void setPk(String pk) {
+        this.pk = pk;
+    }
+
+    public void setSk(String sk) {
+        this.sk = sk;
+    }
+
+    public void setId(String id) {
+        this.id = id;
+    }
+
+    public void setExpenseDate(String expenseDate) {
+        this.expenseDate = expenseDate;
+    }
+
+    public void setTitle(String title) {
+        this.title = title;
+    }
+
+    public void setAmountCents(Long amountCents) {
+        this.amountCents = amountCents;
+    }
+
+    public void setTags(Set<String> tags) {
+        this.tags = tags;
+    }
+
+    public void setChangeSeq(Long changeSeq) {
+        this.changeSeq = changeSeq;
+    }
+
+    public void setListId(String listId) {
+        this.listId = listId;
+    }
+
+    public void setExpenseId(String expenseId) {
+        this.expenseId = expenseId;
+    }
+
+    public void setExpenseSk(String expenseSk) {
+        this.expenseSk = expenseSk;
+    }
+
+    public void setTotalCents(Long totalCents) {
+        this.totalCents = totalCents;
+    }
+
+    public void setExpenseCount(Long expenseCount) {
+        this.expenseCount = expenseCount;
+    }
+
+    public void setFirstExpenseDate(String firstExpenseDate) {
+        this.firstExpenseDate = firstExpenseDate;
+    }
+
+    public void setLastExpenseDate(String lastExpenseDate) {
+        this.lastExpenseDate = lastExpenseDate;
+    }
+
+    public static String expenseSk(String expenseDate, String id) {
+        return EXPENSE_PREFIX + expenseDate + "#" + id;
+    }
+
+    public static String listSk(String listId) {
+        return LIST_PREFIX + listId;
+    }
+
+    public static String listItemSk(String listId, String expenseId) {
+        return LIST_ITEM_PREFIX + listId + "#" + expenseId;
+    }
+}
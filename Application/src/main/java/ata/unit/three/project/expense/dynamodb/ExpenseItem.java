@@ -1,12 +1,21 @@
 package ata.unit.three.project.expense.dynamodb;
 
+import ata.unit.three.project.expense.lambda.models.CentsAdapter;
+import ata.unit.three.project.expense.service.model.Money;
+
 import com.amazonaws.services.dynamodbv2.datamodeling.DynamoDBAttribute;
 import com.amazonaws.services.dynamodbv2.datamodeling.DynamoDBHashKey;
+import com.amazonaws.services.dynamodbv2.datamodeling.DynamoDBIgnore;
 import com.amazonaws.services.dynamodbv2.datamodeling.DynamoDBIndexHashKey;
+import com.amazonaws.services.dynamodbv2.datamodeling.DynamoDBIndexRangeKey;
 import com.amazonaws.services.dynamodbv2.datamodeling.DynamoDBTable;
+import com.amazonaws.services.dynamodbv2.datamodeling.DynamoDBTypeConverted;
+import com.google.gson.annotations.JsonAdapter;
+import com.google.gson.annotations.SerializedName;
 import com.kenzie.ata.ExcludeFromJacocoGeneratedReport;
 
 import java.util.Objects;
+import java.util.Set;
 
 @ExcludeFromJacocoGeneratedReport
 @DynamoDBTable(tableName = "Expense")
@@ -16,19 +25,26 @@ public class ExpenseItem {
     private String email;
     private String expenseDate;
     private String title;
-    private Double amount;
+    // Held in cents; stored and serialized as the decimal amount.
+    @SerializedName("amount")
+    @JsonAdapter(CentsAdapter.class)
+    private Long amountCents;
+    private Set<String> tags;
+    private Long changeSeq;
+    // Storage details are transient so that Gson leaves them out of responses; DynamoDBMapper still maps them.
+    private transient String emailShard;
 
     @DynamoDBHashKey(attributeName = "Id")
     public String getId() {
         return this.id;
     }
 
-    @DynamoDBIndexHashKey(globalSecondaryIndexName = "EmailIndex", attributeName = "Email")
+    @DynamoDBIndexHashKey(globalSecondaryIndexNames = {"EmailIndex", AmountIndex.INDEX_NAME}, attributeName = "Email")
     public String getEmail() {
         return this.email;
     }
 
-    @DynamoDBAttribute(attributeName = "ExpenseDate")
+    @DynamoDBIndexRangeKey(globalSecondaryIndexName = "EmailShardIndex", attributeName = "ExpenseDate")
     public String getExpenseDate() {
         return this.expenseDate;
     }
@@ -38,9 +54,39 @@ public class ExpenseItem {
         return this.title;
     }
 
-    @DynamoDBAttribute(attributeName = "Amount")
+    @DynamoDBIndexRangeKey(globalSecondaryIndexName = AmountIndex.INDEX_NAME, attributeName = "Amount")
+    @DynamoDBTypeConverted(converter = CentsConverter.class)
+    public Long getAmountCents() {
+        return this.amountCents;
+    }
+
+    /**
+     * Returns the tags the expense is filed under, see {@link ExpenseTags}.
+     * @return the lower-cased tags, or null if it has none
+     */
+    @DynamoDBAttribute(attributeName = "Tags")
+    public Set<String> getTags() {
+        return this.tags;
+    }
+
+    /**
+     * Returns the sequence number of the latest change to the expense among all changes to its owner's data, see
+     * {@link ChangeLog}.
+     * @return the change sequence, or null if it has not changed since the change log was introduced
+     */
+    @DynamoDBAttribute(attributeName = "ChangeSeq")
+    public Long getChangeSeq() {
+        return this.changeSeq;
+    }
+
+    @DynamoDBIgnore
     public Double getAmount() {
-        return this.amount;
+        return Money.toDouble(this.amountCents);
+    }
+
+    @DynamoDBIndexHashKey(globalSecondaryIndexName = "EmailShardIndex", attributeName = "EmailShard")
+    public String getEmailShard() {
+        return this.emailShard;
     }
 
     public void setId(String id) {
@@ -59,8 +105,24 @@ public class ExpenseItem {
         this.title = title;
     }
 
+    public void setAmountCents(Long amountCents) {
+        this.amountCents = amountCents;
+    }
+
+    public void setTags(Set<String> tags) {
+        this.tags = tags;
+    }
+
+    public void setChangeSeq(Long changeSeq) {
+        this.changeSeq = changeSeq;
+    }
+
     public void setAmount(Double amount) {
-        this.amount = amount;
+        this.amountCents = Money.toCents(amount);
+    }
+
+    public void setEmailShard(String emailShard) {
+        this.emailShard = emailShard;
     }
 
     @Override
@@ -1,9 +1,14 @@
 package ata.unit.three.project.expense.dynamodb;
 
+import ata.unit.three.project.expense.lambda.models.CentsAdapter;
+
 import com.amazonaws.services.dynamodbv2.datamodeling.DynamoDBAttribute;
 import com.amazonaws.services.dynamodbv2.datamodeling.DynamoDBHashKey;
 import com.amazonaws.services.dynamodbv2.datamodeling.DynamoDBIndexHashKey;
 import com.amazonaws.services.dynamodbv2.datamodeling.DynamoDBTable;
+import com.amazonaws.services.dynamodbv2.datamodeling.DynamoDBTypeConverted;
+import com.google.gson.annotations.JsonAdapter;
+import com.google.gson.annotations.SerializedName;
 import com.kenzie.ata.ExcludeFromJacocoGeneratedReport;
 
 import java.util.List;
@@ -16,6 +21,19 @@ public class ExpenseItemList {
     private String title;
     private String email;
     private List<ExpenseItem> expenseItems;
+    // Held in cents; stored and serialized as the decimal total.
+    @SerializedName("total")
+    @JsonAdapter(CentsAdapter.class)
+    private Long totalCents;
+    private Long expenseCount;
+    private String firstExpenseDate;
+    private String lastExpenseDate;
+    private Long changeSeq;
+    // Storage details are transient so that Gson leaves them out of responses; DynamoDBMapper still maps them.
+    private transient String emailShard;
+    private transient List<String> expenseIds;
+    private transient String storage;
+    private transient List<Long> chunks;
 
     @DynamoDBHashKey(attributeName = "Id")
     public String getId() {
@@ -35,6 +53,20 @@ public class ExpenseItemList {
         this.title = title;
     }
 
+    /**
+     * Returns the sequence number of the latest change to the list among all changes to its owner's data, see
+     * {@link ChangeLog}.
+     * @return the change sequence, or null if it has not changed since the change log was introduced
+     */
+    @DynamoDBAttribute(attributeName = "ChangeSeq")
+    public Long getChangeSeq() {
+        return changeSeq;
+    }
+
+    public void setChangeSeq(Long changeSeq) {
+        this.changeSeq = changeSeq;
+    }
+
     @DynamoDBAttribute(attributeName = "Expenses")
     public List<ExpenseItem> getExpenseItems() {
         return expenseItems;
@@ -44,6 +76,89 @@ public class ExpenseItemList {
         this.expenseItems = expenseItems;
     }
 
+    /**
+     * Returns the ids of the list's expenses, in order; only stored for {@link ListStorage#REFERENCES} lists,
+     * and filled in from the chunks when a {@link ListStorage#CHUNKED} list is read.
+     * @return the expense ids
+     */
+    @DynamoDBAttribute(attributeName = "ExpenseIds")
+    public List<String> getExpenseIds() {
+        return expenseIds;
+    }
+
+    public void setExpenseIds(List<String> expenseIds) {
+        this.expenseIds = expenseIds;
+    }
+
+    /**
+     * Returns how the list stores its expenses, see {@link ListStorage}.
+     * @return the storage name, or null for lists that embed their expenses
+     */
+    @DynamoDBAttribute(attributeName = "Storage")
+    public String getStorage() {
+        return storage;
+    }
+
+    public void setStorage(String storage) {
+        this.storage = storage;
+    }
+
+    /**
+     * Returns the sequence numbers of the list's chunks, in order; only stored for {@link ListStorage#CHUNKED}
+     * lists.
+     * @return the chunk sequence numbers
+     */
+    @DynamoDBAttribute(attributeName = "Chunks")
+    public List<Long> getChunks() {
+        return chunks;
+    }
+
+    public void setChunks(List<Long> chunks) {
+        this.chunks = chunks;
+    }
+
+    /**
+     * Returns the sum of the amounts of the list's expenses, maintained by {@link SpendingAggregates} with
+     * atomic updates rather than saved with the list.
+     * @return the total in cents
+     */
+    @DynamoDBAttribute(attributeName = "Total")
+    @DynamoDBTypeConverted(converter = CentsConverter.class)
+    public Long getTotalCents() {
+        return totalCents;
+    }
+
+    public void setTotalCents(Long totalCents) {
+        this.totalCents = totalCents;
+    }
+
+    @DynamoDBAttribute(attributeName = "ExpenseCount")
+    public Long getExpenseCount() {
+        return expenseCount;
+    }
+
+    public void setExpenseCount(Long expenseCount) {
+        this.expenseCount = expenseCount;
+    }
+
+    @DynamoDBAttribute(attributeName = "FirstExpenseDate")
+    public String getFirstExpenseDate() {
+        return firstExpenseDate;
+    }
+
+    public void setFirstExpenseDate(String firstExpenseDate) {
+        this.firstExpenseDate = firstExpenseDate;
+    }
+
+    @DynamoDBAttribute(attributeName = "LastExpenseDate")
+    public String getLastExpenseDate() {
+        return lastExpenseDate;
+    }
+
+    public void setLastExpenseDate(String lastExpenseDate) {
+        this.lastExpenseDate = lastExpenseDate;
+    }
+
     @DynamoDBIndexHashKey(globalSecondaryIndexName = "EmailIndex", attributeName = "Email")
     public String getEmail() {
         return this.email;
@@ -53,6 +168,15 @@ public class ExpenseItemList {
         this.email = email;
     }
 
+    @DynamoDBIndexHashKey(globalSecondaryIndexName = "EmailShardIndex", attributeName = "EmailShard")
+    public String getEmailShard() {
+        return this.emailShard;
+    }
+
+    public void setEmailShard(String emailShard) {
+        this.emailShard = emailShard;
+    }
+
     @Override
     public boolean equals(Object o) {
         if (this == o) {
@@ -0,0 +1,48 @@
+package ata.unit.three.project.expense.dynamodb;
+
+import com.amazonaws.services.dynamodbv2.datamodeling.DynamoDBAttribute;
+import com.amazonaws.services.dynamodbv2.datamodeling.DynamoDBHashKey;
+import com.amazonaws.services.dynamodbv2.datamodeling.DynamoDBRangeKey;
+import com.amazonaws.services.dynamodbv2.datamodeling.DynamoDBTable;
+import com.kenzie.ata.ExcludeFromJacocoGeneratedReport;
+
+import java.util.List;
+
+/**
+ * One chunk of a {@link ListStorage#CHUNKED} list: up to {@link ListChunks#CHUNK_SIZE} of the list's expense
+ * ids, in order. The list item names its chunks, in order, in its Chunks attribute.
+ */
+@ExcludeFromJacocoGeneratedReport
+@DynamoDBTable(tableName = "ExpenseListChunk")
+public class ExpenseListChunk {
+    private String listId;
+    private Long seq;
+    private List<String> expenseIds;
+
+    @DynamoDBHashKey(attributeName = "ListId")
+    public String getListId() {
+        return listId;
+    }
+
+    public void setListId(String listId) {
+        this.listId = listId;
+    }
+
+    @DynamoDBRangeKey(attributeName = "Seq")
+    public Long getSeq() {
+        return seq;
+    }
+
+    public void setSeq(Long seq) {
+        this.seq = seq;
+    }
+
+    @DynamoDBAttribute(attributeName = "ExpenseIds")
+    public List<String> getExpenseIds() {
+        return expenseIds;
+    }
+
+    public void setExpenseIds(List<String> expenseIds) {
+        this.expenseIds = expenseIds;
+    }
+}
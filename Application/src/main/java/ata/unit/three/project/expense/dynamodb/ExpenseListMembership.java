@@ -0,0 +1,35 @@
+package ata.unit.three.project.expense.dynamodb;
+
+import com.amazonaws.services.dynamodbv2.datamodeling.DynamoDBHashKey;
+import com.amazonaws.services.dynamodbv2.datamodeling.DynamoDBRangeKey;
+import com.amazonaws.services.dynamodbv2.datamodeling.DynamoDBTable;
+import com.kenzie.ata.ExcludeFromJacocoGeneratedReport;
+
+/**
+ * Records that an expense is in a list, keyed by the expense so that the lists containing an expense can be
+ * found with one Query, see {@link ListMemberships}.
+ */
+@ExcludeFromJacocoGeneratedReport
+@DynamoDBTable(tableName = "ExpenseListMembership")
+public class ExpenseListMembership {
+    private String expenseId;
+    private String listId;
+
+    @DynamoDBHashKey(attributeName = "ExpenseId")
+    public String getExpenseId() {
+        return expenseId;
+    }
+
+    public void setExpenseId(String expenseId) {
+        this.expenseId = expenseId;
+    }
+
+    @DynamoDBRangeKey(attributeName = "ListId")
+    public String getListId() {
+        return listId;
+    }
+
+    public void setListId(String listId) {
+        this.listId = listId;
+    }
+}
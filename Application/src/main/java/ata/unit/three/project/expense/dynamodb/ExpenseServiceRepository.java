@@ -1,41 +1,158 @@
 package ata.unit.three.project.expense.dynamodb;
 
+import ata.unit.three.project.expense.service.analytics.ExpenseColumns;
+import ata.unit.three.project.expense.service.analytics.TagTotal;
+import ata.unit.three.project.expense.service.analytics.TopExpenses;
+import ata.unit.three.project.expense.service.exceptions.ServiceOverloadedException;
+import ata.unit.three.project.expense.service.model.ExpensePage;
+import ata.unit.three.project.expense.service.search.TitlePostings;
+import ata.unit.three.project.expense.service.sync.SyncChange;
+import ata.unit.three.project.expense.service.sync.SyncPage;
+
 import com.amazonaws.services.dynamodbv2.AmazonDynamoDB;
-import com.amazonaws.services.dynamodbv2.AmazonDynamoDBClientBuilder;
 import com.amazonaws.services.dynamodbv2.datamodeling.DynamoDBMapper;
+import com.amazonaws.services.dynamodbv2.datamodeling.DynamoDBMapperConfig;
 import com.amazonaws.services.dynamodbv2.datamodeling.DynamoDBQueryExpression;
+import com.amazonaws.services.dynamodbv2.model.AttributeValue;
+import com.amazonaws.services.dynamodbv2.model.CancellationReason;
+import com.amazonaws.services.dynamodbv2.model.Delete;
+import com.amazonaws.services.dynamodbv2.model.GetItemRequest;
+import com.amazonaws.services.dynamodbv2.model.Put;
+import com.amazonaws.services.dynamodbv2.model.TransactWriteItem;
+import com.amazonaws.services.dynamodbv2.model.TransactionCanceledException;
 import com.kenzie.ata.ExcludeFromJacocoGeneratedReport;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
 import javax.inject.Inject;
 
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
+import static ata.unit.three.project.expense.dynamodb.ExpenseTable.CHANGE_LOG_TABLE_NAME;
+import static ata.unit.three.project.expense.dynamodb.ExpenseTable.EXPENSE_DATA_TABLE_NAME;
+import static ata.unit.three.project.expense.dynamodb.ExpenseTable.EXPENSE_LIST_CHUNK_TABLE_NAME;
 import static ata.unit.three.project.expense.dynamodb.ExpenseTable.EXPENSE_LIST_TABLE_NAME;
+import static ata.unit.three.project.expense.dynamodb.ExpenseTable.EXPENSE_TAG_TABLE_NAME;
 import static ata.unit.three.project.expense.dynamodb.ExpenseTable.EXPENSE_TABLE_NAME;
+import static ata.unit.three.project.expense.dynamodb.ExpenseTable.LIST_MEMBERSHIP_TABLE_NAME;
+import static ata.unit.three.project.expense.dynamodb.ExpenseTable.SPENDING_SUMMARY_TABLE_NAME;
+import static ata.unit.three.project.expense.dynamodb.ExpenseTable.TITLE_INDEX_TABLE_NAME;
 
 // NOTE: You do not need to change anything in this file to complete the project.
 @ExcludeFromJacocoGeneratedReport
 public class ExpenseServiceRepository {
+    static final int MAX_ATTEMPTS = 5;
+    static final long RETRY_AFTER_MILLIS = 100;
+    static final Logger log = LogManager.getLogger();
+
+    // Marks the lists of the ExpenseData table among the lists an expense change moves the totals of.
+    private static final String RECORD = "record#";
+    private static final DynamoDBMapperConfig KEEP_TOTALS = DynamoDBMapperConfig.builder()
+            .withSaveBehavior(DynamoDBMapperConfig.SaveBehavior.UPDATE_SKIP_NULL_ATTRIBUTES)
+            .build();
+    private static final DynamoDBMapperConfig CONSISTENT = DynamoDBMapperConfig.builder()
+            .withConsistentReads(DynamoDBMapperConfig.ConsistentReads.CONSISTENT)
+            .build();
+    private static final DynamoDBMapperConfig ITERATE_ONCE = DynamoDBMapperConfig.builder()
+            .withPaginationLoadingStrategy(DynamoDBMapperConfig.PaginationLoadingStrategy.ITERATION_ONLY)
+            .build();
 
-    AmazonDynamoDB client = AmazonDynamoDBClientBuilder.standard().build();
+    AmazonDynamoDB client = DynamoDBClientFactory.getClient();
     DynamoDBMapper mapper = new DynamoDBMapper(client);
+    ReadHedger readHedger = ReadHedger.getInstance();
+    EmailShards emailShards = EmailShards.getInstance();
+    EmailShardIndex emailShardIndex = new EmailShardIndex(mapper, emailShards);
+    DataModelMode dataModelMode = DataModelMode.fromEnvironment();
+    SingleTableRepository singleTable = new SingleTableRepository(mapper);
+    ExpenseCache expenseCache = ExpenseCache.getInstance();
+    ListHydrator listHydrator = new ListHydrator(mapper, expenseCache);
+    ListStorage newListStorage = ListStorage.forNewLists();
+    ListChunks listChunks = new ListChunks(client, mapper);
+    ListMemberships listMemberships = new ListMemberships(mapper);
+    SpendingAggregates spendingAggregates = new SpendingAggregates(client);
+    AmountIndex amountIndex = new AmountIndex(mapper, AmountIndex.enabledFromEnvironment());
+    TitleIndex titleIndex = TitleIndex.getInstance();
+    ExpenseTags expenseTags = new ExpenseTags(client);
+    ChangeLog changeLog = new ChangeLog(client);
 
     public ExpenseServiceRepository() {
-        if (!ExpenseTable.doesExpenseTableExist(EXPENSE_TABLE_NAME)) {
-            ExpenseTable.createExpenseTable();
+        ExpenseTable.createIfMissing(EXPENSE_TABLE_NAME, ExpenseTable::createExpenseTable);
+        ExpenseTable.createIfMissing(EXPENSE_LIST_TABLE_NAME, ExpenseTable::createExpenseListTable);
+
+        if (dataModelMode.writesLegacy()) {
+            ExpenseTable.createIfMissing(LIST_MEMBERSHIP_TABLE_NAME, ExpenseTable::createListMembershipTable);
+        }
+
+        if (dataModelMode.writesSingleTable()) {
+            ExpenseTable.createIfMissing(EXPENSE_DATA_TABLE_NAME, ExpenseTable::createExpenseDataTable);
         }
 
-        if (!ExpenseTable.doesExpenseTableExist(EXPENSE_LIST_TABLE_NAME)) {
-            ExpenseTable.createExpenseListTable();
+        ExpenseTable.createIfMissing(SPENDING_SUMMARY_TABLE_NAME, ExpenseTable::createSpendingSummaryTable);
+
+        ExpenseTable.createIfMissing(TITLE_INDEX_TABLE_NAME, ExpenseTable::createTitleIndexTable);
+
+        ExpenseTable.createIfMissing(EXPENSE_TAG_TABLE_NAME, ExpenseTable::createExpenseTagTable);
+
+        ExpenseTable.createIfMissing(CHANGE_LOG_TABLE_NAME, ExpenseTable::createChangeLogTable);
+
+        if (newListStorage == ListStorage.CHUNKED) {
+            ExpenseTable.createIfMissing(EXPENSE_LIST_CHUNK_TABLE_NAME, ExpenseTable::createExpenseListChunkTable);
         }
     }
 
+    /**
+     * Tells whether reads come from the single ExpenseData table, in which case an email's lists are read with
+     * {@link #getUserDataset(String)} instead of {@link #getExpenseListsByEmail(String)}.
+     * @return true if the single table is read
+     */
+    public boolean readsSingleTable() {
+        return dataModelMode.readsSingleTable();
+    }
+
+    /**
+     * Reads an expense from the table. The {@link ExpenseCache} is only used to fill in lists: the existence and
+     * ownership checks made before a change, and reads right after one, need the expense as it is now.
+     * @param expenseId the expense id
+     * @return the expense, or null if there is none
+     */
     public ExpenseItem getExpenseById(String expenseId) {
-        ExpenseItem item = mapper.load(ExpenseItem.class, expenseId);
-        return item;
+        if (dataModelMode.readsSingleTable()) {
+            return readHedger.read(() -> singleTable.getExpenseById(expenseId));
+        }
+        return readHedger.read(() -> mapper.load(ExpenseItem.class, expenseId));
+    }
+
+    /**
+     * Returns the number of the latest change to an expense, reading only that number from the Expense table.
+     * @param expenseId the expense id
+     * @return the number, or null if there is no such expense or it has not changed since the change log began
+     */
+    public Long getExpenseChangeSeq(String expenseId) {
+        if (dataModelMode.readsSingleTable()) {
+            ExpenseItem item = singleTable.getExpenseById(expenseId);
+            return item == null ? null : item.getChangeSeq();
+        }
+        Map<String, AttributeValue> item = readHedger.read(() -> client.getItem(new GetItemRequest()
+                .withTableName(EXPENSE_TABLE_NAME)
+                .withKey(Collections.singletonMap("Id", new AttributeValue(expenseId)))
+                .withProjectionExpression("ChangeSeq")).getItem());
+        return item == null || !item.containsKey("ChangeSeq") ? null : Long.valueOf(item.get("ChangeSeq").getN());
     }
 
     public List<ExpenseItem> getExpensesByEmail(String email) {
+        if (dataModelMode.readsSingleTable()) {
+            return singleTable.getExpensesByEmail(email);
+        }
+        if (emailShards.isReadEnabled()) {
+            return emailShardIndex.getExpensesByEmail(email);
+        }
         ExpenseItem expenseItem = new ExpenseItem();
         expenseItem.setEmail(email);
 
@@ -47,66 +164,703 @@ public class ExpenseServiceRepository {
         return mapper.query(ExpenseItem.class, queryExpression);
     }
 
+    /**
+     * Reads an email's expenses from a date on into columns, for analytics over long histories. From the
+     * EmailIndex the pages are read one at a time straight into the columns, so no list of items is held.
+     * @param email the email
+     * @param since the earliest expense date, or a prefix of it such as yyyy-MM-dd
+     * @return the expenses, in no particular order
+     */
+    public ExpenseColumns getExpenseColumns(String email, String since) {
+        if (dataModelMode.readsSingleTable()) {
+            return ExpenseColumns.of(singleTable.getExpensesByEmailSince(email, since));
+        }
+        if (emailShards.isReadEnabled()) {
+            return ExpenseColumns.of(emailShardIndex.getExpensesByEmailSince(email, since));
+        }
+        ExpenseItem expenseItem = new ExpenseItem();
+        expenseItem.setEmail(email);
+        DynamoDBQueryExpression<ExpenseItem> queryExpression = new DynamoDBQueryExpression<ExpenseItem>()
+                .withIndexName("EmailIndex")
+                .withHashKeyValues(expenseItem)
+                .withFilterExpression("ExpenseDate >= :since")
+                .withExpressionAttributeValues(Collections.singletonMap(":since", new AttributeValue(since)))
+                .withConsistentRead(false);
+        return ExpenseColumns.of(mapper.query(ExpenseItem.class, queryExpression, ITERATE_ONCE));
+    }
+
+    /**
+     * Returns an email's largest expenses: from the {@link AmountIndex} when it is used, otherwise by reading
+     * every expense and keeping only the largest.
+     * @param email the email
+     * @param limit how many expenses to return
+     * @return up to limit expenses, largest amount first
+     */
+    public List<ExpenseItem> getLargestExpenses(String email, int limit) {
+        if (usesAmountIndex()) {
+            return amountIndex.getLargest(email, limit);
+        }
+        return TopExpenses.largest(readExpensesByEmail(email), limit);
+    }
+
+    /**
+     * Returns an email's expenses with amounts in a range: from the {@link AmountIndex} when it is used,
+     * otherwise by reading every expense and keeping those in the range.
+     * @param email the email
+     * @param minCents the smallest amount, in cents
+     * @param maxCents the largest amount, in cents
+     * @return the expenses, smallest amount first
+     */
+    public List<ExpenseItem> getExpensesByAmount(String email, long minCents, long maxCents) {
+        if (usesAmountIndex()) {
+            return amountIndex.getBetween(email, minCents, maxCents);
+        }
+        List<ExpenseItem> expenses = new ArrayList<>();
+        for (ExpenseItem expense : readExpensesByEmail(email)) {
+            long cents = expense.getAmountCents() == null ? 0 : expense.getAmountCents();
+            if (cents >= minCents && cents <= maxCents) {
+                expenses.add(expense);
+            }
+        }
+        expenses.sort(TopExpenses.BY_AMOUNT);
+        return expenses;
+    }
+
+    /**
+     * Returns the ids of an email's expenses by the title tokens starting with a prefix, see {@link TitleIndex}.
+     * @param email the email
+     * @param prefix the prefix, one title token
+     * @return the postings of the tokens
+     */
+    public TitlePostings getTitlePostings(String email, String prefix) {
+        return titleIndex.postings(email, prefix);
+    }
+
+    /**
+     * Returns expenses by id, batching the reads from the Expense table.
+     * @param ids the expense ids
+     * @return the expenses that exist, in the order of their ids
+     */
+    public List<ExpenseItem> getExpensesByIds(List<String> ids) {
+        List<ExpenseItem> expenses = new ArrayList<>(ids.size());
+        if (dataModelMode.readsSingleTable()) {
+            for (String id : ids) {
+                ExpenseItem expense = getExpenseById(id);
+                if (expense != null) {
+                    expenses.add(expense);
+                }
+            }
+            return expenses;
+        }
+        Map<String, ExpenseItem> found = listHydrator.loadExpenses(ids);
+        for (String id : ids) {
+            if (found.containsKey(id)) {
+                expenses.add(found.get(id));
+            }
+        }
+        return expenses;
+    }
+
+    /**
+     * Returns one page of the expenses filed under a tag, see {@link ExpenseTags}.
+     * @param email the email
+     * @param tag the tag
+     * @param from the first day, or null for the oldest expense
+     * @param to the last day, or null for the newest expense
+     * @param limit how many expenses to read
+     * @param page the page to read, or null for the first
+     * @return the expenses, newest first
+     */
+    public ExpensePage getExpensesByTag(String email, String tag, LocalDate from, LocalDate to, int limit,
+                                        String page) {
+        return expenseTags.getExpenses(email, tag, from, to, limit, page);
+    }
+
+    /**
+     * Returns the totals of every tag of an email, see {@link ExpenseTags}.
+     * @param email the email
+     * @param from the first day, or null for the oldest expense
+     * @param to the last day, or null for the newest expense
+     * @return the totals, by tag
+     */
+    public List<TagTotal> getTagTotals(String email, LocalDate from, LocalDate to) {
+        return expenseTags.getTotals(email, from, to);
+    }
+
+    /**
+     * Returns the changes to an email's data after a change the client has seen, see {@link ChangeLog}.
+     * @param email the email
+     * @param since the number of the last change the client has seen
+     * @param limit how many changes to read
+     * @return the changes, without the expenses and lists they are about
+     */
+    public SyncPage getChanges(String email, long since, int limit) {
+        return changeLog.read(email, since, limit);
+    }
+
+    /**
+     * Returns the number of the last change to an email's data.
+     * @param email the email
+     * @return the number, 0 if there was none
+     */
+    public long getLastChange(String email) {
+        return changeLog.current(email);
+    }
+
+    /**
+     * Creates an expense. Its month's totals are counted in the same transaction.
+     * @param expense the expense
+     */
     public void createExpense(ExpenseItem expense) {
-        mapper.save(expense);
+        changeLog.record(expense.getEmail(), SyncChange.Type.EXPENSE, expense.getId(), null, false, seq -> {
+            expense.setChangeSeq(seq);
+            List<TransactWriteItem> writes = expenseWrites(null, expense);
+            writes.add(SpendingAggregates.monthTotals(expense, 1, centsOf(expense)));
+            return writes;
+        });
+        spendingAggregates.moveMonthDates(expense, 1);
+        titleIndex.index(expense);
     }
 
-    public void updateExpense(String expenseId, String title, Double amount) {
-        ExpenseItem item = mapper.load(ExpenseItem.class, expenseId);
-        item.setAmount(amount);
-        item.setTitle(title);
-        mapper.save(item);
+    /**
+     * Changes an expense. The totals of its month and lists are moved by the change in its amount in the same
+     * transaction, which only writes if the expense is still as it was read; otherwise it is read again. Nothing
+     * is written if it was deleted in the meantime.
+     * @param expenseId the expense id
+     * @param title the new title
+     * @param amountCents the new amount, in cents
+     * @param tags the new tags, none to remove them, or null to keep them as they are
+     * @throws ServiceOverloadedException if the expense kept changing while it was written
+     */
+    public void updateExpense(String expenseId, String title, Long amountCents, Set<String> tags) {
+        Set<String> deletedLists = new HashSet<>();
+        for (int attempt = 0; attempt < MAX_ATTEMPTS; attempt++) {
+            ExpenseItem item = loadExpenseToChange(expenseId);
+            if (item == null) {
+                return;
+            }
+            ExpenseItem before = ExpenseCache.copy(item);
+            long change = (amountCents == null ? 0 : amountCents) - centsOf(item);
+            item.setAmountCents(amountCents);
+            item.setTitle(title);
+            if (tags != null) {
+                item.setTags(tags.isEmpty() ? null : tags);
+            }
+            List<String> totalled = new ArrayList<>();
+            List<TransactWriteItem> totals = new ArrayList<>();
+            if (change != 0) {
+                listTotals(item, change, deletedLists, totalled, totals);
+                totals.add(SpendingAggregates.monthTotals(item, 0, change));
+            }
+            expenseCache.invalidate(expenseId);
+            try {
+                changeLog.record(item.getEmail(), SyncChange.Type.EXPENSE, expenseId, null, false, seq -> {
+                    item.setChangeSeq(seq);
+                    List<TransactWriteItem> writes = new ArrayList<>(totals);
+                    writes.addAll(expenseWrites(before, item));
+                    return writes;
+                });
+            } catch (TransactionCanceledException e) {
+                if (!conditionFailed(e, totalled, deletedLists)) {
+                    throw e;
+                }
+                log.debug("Expense {} changed while it was updated, reading it again", expenseId);
+                continue;
+            }
+            titleIndex.retitle(item, before.getTitle(), title);
+            return;
+        }
+        throw new ServiceOverloadedException("Expense " + expenseId + " is changing too fast", RETRY_AFTER_MILLIS);
     }
 
+    /**
+     * Deletes an expense. Its month's totals are counted down in the same transaction, which only writes if the
+     * expense is still as it was read; otherwise it is read again.
+     * @param expenseId the expense id
+     * @throws ServiceOverloadedException if the expense kept changing while it was deleted
+     */
     public void deleteExpense(String expenseId) {
-        ExpenseItem item = mapper.load(ExpenseItem.class, expenseId);
-        mapper.delete(item);
+        expenseCache.invalidate(expenseId);
+        for (int attempt = 0; attempt < MAX_ATTEMPTS; attempt++) {
+            ExpenseItem item = loadExpenseToChange(expenseId);
+            if (item == null) {
+                return;
+            }
+            try {
+                changeLog.record(item.getEmail(), SyncChange.Type.EXPENSE, expenseId, null, true, seq -> {
+                    List<TransactWriteItem> writes = expenseWrites(item, null);
+                    writes.add(SpendingAggregates.monthTotals(item, -1, -centsOf(item)));
+                    return writes;
+                });
+            } catch (TransactionCanceledException e) {
+                if (!conditionFailed(e, Collections.emptyList(), new HashSet<>())) {
+                    throw e;
+                }
+                log.debug("Expense {} changed while it was deleted, reading it again", expenseId);
+                continue;
+            }
+            spendingAggregates.moveMonthDates(item, -1);
+            titleIndex.remove(item);
+            return;
+        }
+        throw new ServiceOverloadedException("Expense " + expenseId + " is changing too fast", RETRY_AFTER_MILLIS);
     }
 
     public void createExpenseList(String expenseListId, String email, String title) {
-        ExpenseItemList expenseItemList = new ExpenseItemList();
-        expenseItemList.setId(expenseListId);
-        expenseItemList.setEmail(email);
-        expenseItemList.setTitle(title);
-        mapper.save(expenseItemList);
+        changeLog.record(email, SyncChange.Type.LIST, expenseListId, null, false,
+                seq -> newListWrites(expenseListId, email, title, seq));
     }
 
+    /**
+     * Adds an expense to a list. The change is recorded in one transaction with the list's stamp and totals and,
+     * in the ExpenseData table, the membership itself; the writes to the legacy list tables are made before it.
+     * @param id the list id
+     * @param item the expense
+     */
     public void addExpenseItemToList(String id, ExpenseItem item) {
-        ExpenseItemList list = mapper.load(ExpenseItemList.class, id);
-        if (list.getExpenseItems() == null) {
-            list.setExpenseItems(new LinkedList<>());
+        boolean countLegacyList = false;
+        if (dataModelMode.writesLegacy()) {
+            listMemberships.add(item.getId(), id);
+            ExpenseItemList list = mapper.load(ExpenseItemList.class, id);
+            boolean added = true;
+            if (ListStorage.of(list) == ListStorage.CHUNKED) {
+                listChunks.append(id, item.getId());
+            } else {
+                if (ListStorage.of(list) == ListStorage.REFERENCES) {
+                    if (list.getExpenseIds() == null) {
+                        list.setExpenseIds(new ArrayList<>());
+                    }
+                    added = !list.getExpenseIds().contains(item.getId());
+                    if (added) {
+                        list.getExpenseIds().add(item.getId());
+                    }
+                } else {
+                    if (list.getExpenseItems() == null) {
+                        list.setExpenseItems(new LinkedList<>());
+                    }
+                    list.getExpenseItems().add(item);
+                }
+                saveList(list);
+            }
+            countLegacyList = added;
+        }
+        boolean countList = countLegacyList;
+        changeLog.record(item.getEmail(), SyncChange.Type.LIST_ITEM, item.getId(), id, false, seq -> {
+            List<TransactWriteItem> writes = new ArrayList<>();
+            if (dataModelMode.writesLegacy()) {
+                writes.add(countList ? SpendingAggregates.listTotals(id, item, 1, centsOf(item), seq) :
+                        ChangeLog.listStamp(id, seq));
+            }
+            if (dataModelMode.writesSingleTable()) {
+                writes.add(put(EXPENSE_DATA_TABLE_NAME, mapper.getTableModel(ExpenseDataRecord.class)
+                        .convert(SingleTableRepository.listItemRecord(id, item))));
+                writes.add(SpendingAggregates.listRecordTotals(id, item, 1, centsOf(item), seq));
+            }
+            return writes;
+        });
+        if (countList) {
+            spendingAggregates.moveListDates(id, item, 1);
+        }
+        if (dataModelMode.writesSingleTable()) {
+            spendingAggregates.moveListRecordDates(id, item, 1);
         }
-        list.getExpenseItems().add(item);
-        mapper.save(list);
     }
 
+    /**
+     * Removes an expense from a list. The change is recorded in one transaction with the stamps and totals of the
+     * lists it was removed from, after the writes that remove it.
+     * @param id the list id
+     * @param item the expense
+     */
     public void removeExpenseItemToList(String id, ExpenseItem item) {
-        ExpenseItemList list = mapper.load(ExpenseItemList.class, id);
-        if (list.getExpenseItems() != null) {
-            list.getExpenseItems().remove(item);
-            mapper.save(list);
+        boolean stampList = false;
+        boolean countLegacyList = false;
+        if (dataModelMode.writesLegacy()) {
+            ExpenseItemList list = mapper.load(ExpenseItemList.class, id);
+            ListStorage storage = list == null ? null : ListStorage.of(list);
+            boolean removed = false;
+            if (storage == ListStorage.CHUNKED) {
+                removed = listChunks.remove(id, item.getId());
+            } else if (storage == ListStorage.REFERENCES) {
+                removed = list.getExpenseIds() != null && list.getExpenseIds().remove(item.getId());
+                if (removed) {
+                    saveList(list);
+                }
+            } else if (list != null && list.getExpenseItems() != null) {
+                removed = list.getExpenseItems().remove(item);
+                saveList(list);
+            }
+            listMemberships.remove(item.getId(), id);
+            stampList = list != null;
+            countLegacyList = removed;
+        }
+        boolean stampRecord = dataModelMode.writesSingleTable() && singleTable.deleteListItem(id, item);
+        boolean stampLegacyList = stampList;
+        boolean countList = countLegacyList;
+        changeLog.record(item.getEmail(), SyncChange.Type.LIST_ITEM, item.getId(), id, true, seq -> {
+            List<TransactWriteItem> writes = new ArrayList<>();
+            if (countList) {
+                writes.add(SpendingAggregates.listTotals(id, item, -1, -centsOf(item), seq));
+            } else if (stampLegacyList) {
+                writes.add(ChangeLog.listStamp(id, seq));
+            }
+            if (stampRecord) {
+                writes.add(SpendingAggregates.listRecordTotals(id, item, -1, -centsOf(item), seq));
+            }
+            return writes;
+        });
+        if (countList) {
+            spendingAggregates.moveListDates(id, item, -1);
         }
+        if (stampRecord) {
+            spendingAggregates.moveListRecordDates(id, item, -1);
+        }
+    }
+
+    /**
+     * Returns an email's expenses, lists and list memberships from the single ExpenseData table in one Query.
+     * @param email the email
+     * @return everything the email owns
+     */
+    public UserDataset getUserDataset(String email) {
+        return singleTable.getUserDataset(email);
     }
 
+    /**
+     * Returns an email's lists, with their expenses, from the ExpenseList table.
+     * @param email the email
+     * @return the email's lists
+     */
     public List<ExpenseItemList> getExpenseListsByEmail(String email) {
-        ExpenseItemList expenseItemList = new ExpenseItemList();
-        expenseItemList.setEmail(email);
+        List<ExpenseItemList> lists;
+        if (emailShards.isReadEnabled()) {
+            lists = emailShardIndex.getExpenseListsByEmail(email);
+        } else {
+            ExpenseItemList expenseItemList = new ExpenseItemList();
+            expenseItemList.setEmail(email);
 
-        DynamoDBQueryExpression<ExpenseItemList> queryExpression = new DynamoDBQueryExpression<ExpenseItemList>()
-                .withIndexName("EmailIndex").withConsistentRead(true)
-                .withHashKeyValues(expenseItemList)
-                .withConsistentRead(false);
+            DynamoDBQueryExpression<ExpenseItemList> queryExpression = new DynamoDBQueryExpression<ExpenseItemList>()
+                    .withIndexName("EmailIndex").withConsistentRead(true)
+                    .withHashKeyValues(expenseItemList)
+                    .withConsistentRead(false);
 
-        return mapper.query(ExpenseItemList.class, queryExpression);
+            lists = new ArrayList<>(mapper.query(ExpenseItemList.class, queryExpression));
+        }
+        listHydrator.hydrate(lists);
+        return lists;
     }
 
     public ExpenseItemList getExpenseListById(String id) {
-        ExpenseItemList item = mapper.load(ExpenseItemList.class, id);
+        if (dataModelMode.readsSingleTable()) {
+            return readHedger.read(() -> singleTable.getExpenseListById(id));
+        }
+        ExpenseItemList item = readHedger.read(() -> mapper.load(ExpenseItemList.class, id));
+        if (item != null) {
+            listHydrator.hydrate(Collections.singletonList(item));
+        }
         return item;
     }
 
+    /**
+     * Returns a list without reading its expenses, for changes that only need the list's owner.
+     * @param id the list id
+     * @return the list, with no expenses filled in, or null if there is none
+     */
+    public ExpenseItemList getExpenseListHeader(String id) {
+        if (dataModelMode.readsSingleTable()) {
+            return readHedger.read(() -> singleTable.getExpenseListHeader(id));
+        }
+        return readHedger.read(() -> mapper.load(ExpenseItemList.class, id));
+    }
+
+    /**
+     * Tells whether an expense is in a list with one read of the membership index, however long the list is.
+     * @param list the list, as returned by {@link #getExpenseListHeader(String)}
+     * @param expenseId the expense id
+     * @return true if the expense is in the list
+     */
+    public boolean isExpenseInList(ExpenseItemList list, String expenseId) {
+        if (dataModelMode.readsSingleTable()) {
+            return singleTable.hasListItem(list.getEmail(), list.getId(), expenseId);
+        }
+        return listMemberships.contains(expenseId, list.getId());
+    }
+
+    /**
+     * Returns the lists containing an expense with one Query of the membership index.
+     * @param expense the expense
+     * @return the ids of the lists
+     */
+    public List<String> getListIdsContaining(ExpenseItem expense) {
+        if (dataModelMode.readsSingleTable()) {
+            return singleTable.getListIdsContaining(expense);
+        }
+        return listMemberships.listIdsOf(expense.getId());
+    }
+
+    /**
+     * Deletes a list. The list is deleted in one transaction with the change recording it, and its memberships
+     * and chunks after that.
+     * @param expenseListId the list id
+     */
     public void deleteExpenseItemList(String expenseListId) {
-        ExpenseItemList item = mapper.load(ExpenseItemList.class, expenseListId);
-        mapper.delete(item);
+        ExpenseItemList item = dataModelMode.writesLegacy() ? mapper.load(ExpenseItemList.class, expenseListId) :
+                null;
+        ExpenseItemList record = dataModelMode.writesSingleTable() ?
+                singleTable.getExpenseListHeader(expenseListId) : null;
+        String email = item != null ? item.getEmail() : null;
+        if (email == null && record != null) {
+            email = record.getEmail();
+        }
+        if (email == null) {
+            return;
+        }
+        changeLog.record(email, SyncChange.Type.LIST, expenseListId, null, true, seq -> {
+            List<TransactWriteItem> writes = new ArrayList<>();
+            if (item != null) {
+                writes.add(delete(EXPENSE_LIST_TABLE_NAME,
+                        mapper.getTableModel(ExpenseItemList.class).convertKey(item)));
+            }
+            if (record != null) {
+                writes.add(delete(EXPENSE_DATA_TABLE_NAME, mapper.getTableModel(ExpenseDataRecord.class)
+                        .convertKey(SingleTableRepository.listRecord(expenseListId, record.getEmail(), null, null))));
+            }
+            return writes;
+        });
+        if (item != null) {
+            ListChunks.loadExpenseIds(mapper, Collections.singletonList(item));
+            listMemberships.removeAll(expenseIdsOf(item), expenseListId);
+            if (ListStorage.of(item) == ListStorage.CHUNKED) {
+                listChunks.deleteChunks(expenseListId, ListChunks.chunksOf(item));
+            }
+        }
+        if (record != null) {
+            singleTable.deleteListItems(record.getEmail(), expenseListId);
+        }
+    }
+
+    /**
+     * Returns an email's spending per month, each month's totals read with one GetItem.
+     * @param email the email
+     * @param month the month, as yyyy-MM, or null for every month
+     * @return the totals, oldest month first
+     */
+    public List<SpendingSummary> getSpendingSummaries(String email, String month) {
+        if (month != null) {
+            SpendingSummary summary = readHedger.read(() -> mapper.load(SpendingSummary.class, email, month));
+            return summary == null ? Collections.emptyList() : Collections.singletonList(summary);
+        }
+        SpendingSummary key = new SpendingSummary();
+        key.setEmail(email);
+        return mapper.query(SpendingSummary.class, new DynamoDBQueryExpression<SpendingSummary>()
+                .withHashKeyValues(key));
+    }
+
+    /**
+     * Saves a list that was read and changed. The totals are only ever changed by {@link SpendingAggregates},
+     * and the change number by {@link ChangeLog}; leaving them out of the save keeps it from undoing an update
+     * made since the list was read.
+     */
+    private void saveList(ExpenseItemList list) {
+        stampShard(list);
+        list.setChangeSeq(null);
+        list.setTotalCents(null);
+        list.setExpenseCount(null);
+        list.setFirstExpenseDate(null);
+        list.setLastExpenseDate(null);
+        mapper.save(list, KEEP_TOTALS);
+    }
+
+    /**
+     * Returns the writes of an expense to every table it is written to, its tag items included, to be made in
+     * one transaction with the change recording them. When the expense is changed or deleted, each write fails
+     * unless the expense is still at the change it was read at.
+     * @param before the expense as it was read, or null when it is created
+     * @param after the expense as it is to be, or null when it is deleted
+     */
+    private List<TransactWriteItem> expenseWrites(ExpenseItem before, ExpenseItem after) {
+        ExpenseItem expense = after != null ? after : before;
+        List<TransactWriteItem> writes = new ArrayList<>();
+        if (dataModelMode.writesLegacy()) {
+            Map<String, AttributeValue> key = mapper.getTableModel(ExpenseItem.class).convertKey(expense);
+            if (after != null) {
+                stampShard(after);
+                writes.add(put(EXPENSE_TABLE_NAME, mapper.getTableModel(ExpenseItem.class).convert(after)));
+            } else {
+                writes.add(delete(EXPENSE_TABLE_NAME, key));
+            }
+            unchangedSince(writes.get(writes.size() - 1), before, "Id");
+        }
+        if (dataModelMode.writesSingleTable()) {
+            ExpenseDataRecord record = SingleTableRepository.toRecord(expense);
+            if (after != null) {
+                writes.add(put(EXPENSE_DATA_TABLE_NAME, mapper.getTableModel(ExpenseDataRecord.class).convert(record)));
+            } else {
+                writes.add(delete(EXPENSE_DATA_TABLE_NAME,
+                        mapper.getTableModel(ExpenseDataRecord.class).convertKey(record)));
+            }
+            unchangedSince(writes.get(writes.size() - 1), before, "PK");
+        }
+        writes.addAll(expenseTags.writes(before, after));
+        return writes;
+    }
+
+    /**
+     * Makes a write of an expense fail unless the expense is still at the change it was read at. Expenses
+     * written before changes were numbered only need to exist.
+     */
+    private static void unchangedSince(TransactWriteItem write, ExpenseItem before, String keyAttribute) {
+        if (before == null) {
+            return;
+        }
+        String condition = "attribute_exists(" + keyAttribute + ") AND attribute_not_exists(ChangeSeq)";
+        Map<String, AttributeValue> values = null;
+        if (before.getChangeSeq() != null) {
+            condition = "ChangeSeq = :read";
+            values = Collections.singletonMap(":read", new AttributeValue().withN(before.getChangeSeq().toString()));
+        }
+        if (write.getPut() != null) {
+            write.getPut().withConditionExpression(condition).withExpressionAttributeValues(values);
+        } else {
+            write.getDelete().withConditionExpression(condition).withExpressionAttributeValues(values);
+        }
+    }
+
+    /**
+     * Reads an expense about to be changed, consistently where the table it is read from allows it.
+     */
+    private ExpenseItem loadExpenseToChange(String expenseId) {
+        return dataModelMode.readsSingleTable() ? singleTable.getExpenseById(expenseId) :
+                mapper.load(ExpenseItem.class, expenseId, CONSISTENT);
+    }
+
+    /**
+     * Adds the writes moving the totals of every list holding an expense by a change in its amount, leaving out
+     * lists found deleted by an earlier attempt.
+     */
+    private void listTotals(ExpenseItem item, long change, Set<String> deletedLists, List<String> totalled,
+                            List<TransactWriteItem> totals) {
+        if (dataModelMode.writesLegacy()) {
+            for (String listId : listMemberships.listIdsOf(item.getId())) {
+                if (!deletedLists.contains(listId)) {
+                    totalled.add(listId);
+                    totals.add(SpendingAggregates.listTotals(listId, item, 0, change, null));
+                }
+            }
+        }
+        if (dataModelMode.writesSingleTable()) {
+            for (String listId : singleTable.getListIdsContaining(item)) {
+                if (!deletedLists.contains(RECORD + listId)) {
+                    totalled.add(RECORD + listId);
+                    totals.add(SpendingAggregates.listRecordTotals(listId, item, 0, change, null));
+                }
+            }
+        }
+    }
+
+    /**
+     * Tells whether a transaction changing an expense was cancelled because a write failed its condition, and
+     * notes the lists whose totals could not be moved because they were deleted.
+     * @param totalled the lists whose totals are the first writes of the transaction, in order
+     */
+    private static boolean conditionFailed(TransactionCanceledException e, List<String> totalled,
+                                           Set<String> deletedLists) {
+        List<CancellationReason> reasons = e.getCancellationReasons();
+        boolean failed = false;
+        for (int i = 0; reasons != null && i < reasons.size(); i++) {
+            if ("ConditionalCheckFailed".equals(reasons.get(i).getCode())) {
+                failed = true;
+                if (i < totalled.size()) {
+                    deletedLists.add(totalled.get(i));
+                }
+            }
+        }
+        return failed;
+    }
+
+    /**
+     * Returns the writes of a new, empty list to every table it is written to.
+     */
+    private List<TransactWriteItem> newListWrites(String expenseListId, String email, String title, long seq) {
+        List<TransactWriteItem> writes = new ArrayList<>();
+        if (dataModelMode.writesLegacy()) {
+            ExpenseItemList expenseItemList = new ExpenseItemList();
+            expenseItemList.setId(expenseListId);
+            expenseItemList.setEmail(email);
+            expenseItemList.setTitle(title);
+            expenseItemList.setTotalCents(0L);
+            expenseItemList.setExpenseCount(0L);
+            expenseItemList.setChangeSeq(seq);
+            if (newListStorage == ListStorage.REFERENCES) {
+                expenseItemList.setStorage(ListStorage.REFERENCES.name());
+                expenseItemList.setExpenseIds(new ArrayList<>());
+            } else if (newListStorage == ListStorage.CHUNKED) {
+                expenseItemList.setStorage(ListStorage.CHUNKED.name());
+                expenseItemList.setChunks(new ArrayList<>());
+            }
+            stampShard(expenseItemList);
+            writes.add(put(EXPENSE_LIST_TABLE_NAME,
+                    mapper.getTableModel(ExpenseItemList.class).convert(expenseItemList)));
+        }
+        if (dataModelMode.writesSingleTable()) {
+            writes.add(put(EXPENSE_DATA_TABLE_NAME, mapper.getTableModel(ExpenseDataRecord.class)
+                    .convert(SingleTableRepository.listRecord(expenseListId, email, title, seq))));
+        }
+        return writes;
+    }
+
+    private static TransactWriteItem put(String table, Map<String, AttributeValue> item) {
+        return new TransactWriteItem().withPut(new Put().withTableName(table).withItem(item));
+    }
+
+    private static TransactWriteItem delete(String table, Map<String, AttributeValue> key) {
+        return new TransactWriteItem().withDelete(new Delete().withTableName(table).withKey(key));
+    }
+
+    private boolean usesAmountIndex() {
+        return amountIndex.isEnabled() && !dataModelMode.readsSingleTable();
+    }
+
+    /**
+     * Returns every expense of an email to be read once. From the EmailIndex the pages are read one at a time
+     * and not kept.
+     */
+    private Iterable<ExpenseItem> readExpensesByEmail(String email) {
+        if (dataModelMode.readsSingleTable() || emailShards.isReadEnabled()) {
+            return getExpensesByEmail(email);
+        }
+        ExpenseItem expenseItem = new ExpenseItem();
+        expenseItem.setEmail(email);
+        return mapper.query(ExpenseItem.class, new DynamoDBQueryExpression<ExpenseItem>()
+                .withIndexName("EmailIndex")
+                .withHashKeyValues(expenseItem)
+                .withConsistentRead(false), ITERATE_ONCE);
+    }
+
+    private static long centsOf(ExpenseItem expense) {
+        return expense.getAmountCents() == null ? 0 : expense.getAmountCents();
+    }
+
+    private static Set<String> expenseIdsOf(ExpenseItemList list) {
+        Set<String> expenseIds = new LinkedHashSet<>();
+        if (list.getExpenseIds() != null) {
+            expenseIds.addAll(list.getExpenseIds());
+        }
+        if (list.getExpenseItems() != null) {
+            list.getExpenseItems().forEach(expense -> expenseIds.add(expense.getId()));
+        }
+        return expenseIds;
+    }
+
+    private void stampShard(ExpenseItem item) {
+        if (emailShards.isWriteEnabled()) {
+            item.setEmailShard(emailShards.shardKey(item.getEmail(), item.getId()));
+        }
+    }
+
+    private void stampShard(ExpenseItemList list) {
+        if (emailShards.isWriteEnabled()) {
+            list.setEmailShard(emailShards.shardKey(list.getEmail(), list.getId()));
+        }
     }
 }
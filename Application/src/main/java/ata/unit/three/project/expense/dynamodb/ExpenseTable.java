@@ -2,18 +2,27 @@ package ata.unit.three.project.expense.dynamodb;
 
 import com.amazonaws.AmazonServiceException;
 import com.amazonaws.services.dynamodbv2.AmazonDynamoDB;
-import com.amazonaws.services.dynamodbv2.AmazonDynamoDBClientBuilder;
 import com.amazonaws.services.dynamodbv2.model.AttributeDefinition;
+import com.amazonaws.services.dynamodbv2.model.CreateGlobalSecondaryIndexAction;
 import com.amazonaws.services.dynamodbv2.model.CreateTableRequest;
 import com.amazonaws.services.dynamodbv2.model.CreateTableResult;
 import com.amazonaws.services.dynamodbv2.model.GlobalSecondaryIndex;
+import com.amazonaws.services.dynamodbv2.model.GlobalSecondaryIndexDescription;
+import com.amazonaws.services.dynamodbv2.model.GlobalSecondaryIndexUpdate;
 import com.amazonaws.services.dynamodbv2.model.KeySchemaElement;
 import com.amazonaws.services.dynamodbv2.model.KeyType;
+import com.amazonaws.services.dynamodbv2.model.ListTablesRequest;
 import com.amazonaws.services.dynamodbv2.model.ListTablesResult;
 import com.amazonaws.services.dynamodbv2.model.Projection;
 import com.amazonaws.services.dynamodbv2.model.ProjectionType;
 import com.amazonaws.services.dynamodbv2.model.ProvisionedThroughput;
 import com.amazonaws.services.dynamodbv2.model.ScalarAttributeType;
+import com.amazonaws.services.dynamodbv2.model.StreamSpecification;
+import com.amazonaws.services.dynamodbv2.model.StreamViewType;
+import com.amazonaws.services.dynamodbv2.model.TableDescription;
+import com.amazonaws.services.dynamodbv2.model.TimeToLiveSpecification;
+import com.amazonaws.services.dynamodbv2.model.UpdateTableRequest;
+import com.amazonaws.services.dynamodbv2.model.UpdateTimeToLiveRequest;
 import com.amazonaws.services.dynamodbv2.util.TableUtils;
 import com.kenzie.ata.ExcludeFromJacocoGeneratedReport;
 import org.apache.logging.log4j.LogManager;
@@ -21,13 +30,28 @@ import org.apache.logging.log4j.Logger;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Locale;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
 @ExcludeFromJacocoGeneratedReport
 public class ExpenseTable {
-    public static String EXPENSE_TABLE_NAME = "Expense";
-    public static String EXPENSE_LIST_TABLE_NAME = "ExpenseList";
+    public static final String EXPENSE_TABLE_NAME = "Expense";
+    public static final String EXPENSE_LIST_TABLE_NAME = "ExpenseList";
+    public static final String RATE_LIMIT_TABLE_NAME = "ExpenseRateLimit";
+    public static final String EXPENSE_DATA_TABLE_NAME = "ExpenseData";
+    public static final String EXPENSE_LIST_CHUNK_TABLE_NAME = "ExpenseListChunk";
+    public static final String LIST_MEMBERSHIP_TABLE_NAME = "ExpenseListMembership";
+    public static final String SPENDING_SUMMARY_TABLE_NAME = "SpendingSummary";
+    public static final String TITLE_INDEX_TABLE_NAME = "ExpenseTitleIndex";
+    public static final String EXPENSE_TAG_TABLE_NAME = "ExpenseTag";
+    public static final String CHANGE_LOG_TABLE_NAME = "ExpenseChangeLog";
     static final Logger log = LogManager.getLogger();
-    static final AmazonDynamoDB ddb = AmazonDynamoDBClientBuilder.defaultClient();
+    static final AmazonDynamoDB ddb = DynamoDBClientFactory.getClient();
+    private static final long INDEX_POLL_MILLIS = 5000;
+    // Lower-cased names of the tables known to exist, shared by every request in the container.
+    private static final Set<String> KNOWN_TABLES = ConcurrentHashMap.newKeySet();
 
     @ExcludeFromJacocoGeneratedReport
     public static void createExpenseTable() {
@@ -62,14 +86,17 @@ public class ExpenseTable {
         CreateTableRequest request = new CreateTableRequest()
                 .withAttributeDefinitions(
                         new AttributeDefinition("Id", ScalarAttributeType.S),
-                        new AttributeDefinition("Email", ScalarAttributeType.S)
+                        new AttributeDefinition("Email", ScalarAttributeType.S),
+                        new AttributeDefinition("EmailShard", ScalarAttributeType.S),
+                        new AttributeDefinition("ExpenseDate", ScalarAttributeType.S)
                 )
                 .withKeySchema(
                         new KeySchemaElement("Id", KeyType.HASH)
                 )
                 .withProvisionedThroughput(new ProvisionedThroughput(
                         10L, 10L))
-                .withGlobalSecondaryIndexes(emailIndex)
+                .withGlobalSecondaryIndexes(emailIndex, emailShardIndex(true))
+                .withStreamSpecification(expenseStream())
                 .withTableName(EXPENSE_TABLE_NAME);
 
         try {
@@ -114,14 +141,15 @@ public class ExpenseTable {
         CreateTableRequest request = new CreateTableRequest()
                 .withAttributeDefinitions(
                         new AttributeDefinition("Id", ScalarAttributeType.S),
-                        new AttributeDefinition("Email", ScalarAttributeType.S)
+                        new AttributeDefinition("Email", ScalarAttributeType.S),
+                        new AttributeDefinition("EmailShard", ScalarAttributeType.S)
                 )
                 .withKeySchema(
                         new KeySchemaElement("Id", KeyType.HASH)
                 )
                 .withProvisionedThroughput(new ProvisionedThroughput(
                         10L, 10L))
-                .withGlobalSecondaryIndexes(emailIndex)
+                .withGlobalSecondaryIndexes(emailIndex, emailShardIndex(false))
                 .withTableName(EXPENSE_LIST_TABLE_NAME);
 
         try {
@@ -133,6 +161,371 @@ public class ExpenseTable {
         }
     }
 
+    /**
+     * Creates the single table that holds expenses, lists and list memberships keyed by email, see
+     * {@link ExpenseDataRecord}.
+     */
+    public static void createExpenseDataTable() {
+        log.info("Creating table \"{}\" with the primary key \"PK\", \"SK\".", EXPENSE_DATA_TABLE_NAME);
+
+        GlobalSecondaryIndex idIndex = new GlobalSecondaryIndex()
+                .withIndexName(ExpenseDataRecord.ID_INDEX)
+                .withKeySchema(new KeySchemaElement("Id", KeyType.HASH), new KeySchemaElement("SK", KeyType.RANGE))
+                .withProvisionedThroughput(new ProvisionedThroughput()
+                        .withReadCapacityUnits((long) 10)
+                        .withWriteCapacityUnits((long) 10))
+                .withProjection(new Projection().withProjectionType(ProjectionType.ALL));
+
+        CreateTableRequest request = new CreateTableRequest()
+                .withAttributeDefinitions(
+                        new AttributeDefinition("PK", ScalarAttributeType.S),
+                        new AttributeDefinition("SK", ScalarAttributeType.S),
+                        new AttributeDefinition("Id", ScalarAttributeType.S)
+                )
+                .withKeySchema(
+                        new KeySchemaElement("PK", KeyType.HASH),
+                        new KeySchemaElement("SK", KeyType.RANGE)
+                )
+                .withProvisionedThroughput(new ProvisionedThroughput(10L, 10L))
+                .withGlobalSecondaryIndexes(idIndex)
+                .withTableName(EXPENSE_DATA_TABLE_NAME);
+
+        try {
+            CreateTableResult result = ddb.createTable(request);
+            log.info(result.getTableDescription().getTableName());
+            TableUtils.waitUntilActive(ddb, EXPENSE_DATA_TABLE_NAME);
+        } catch (AmazonServiceException | InterruptedException e) {
+            log.error(e.getMessage());
+        }
+    }
+
+    /**
+     * Creates the table that holds the chunks of chunked expense lists, see {@link ListChunks}.
+     */
+    public static void createExpenseListChunkTable() {
+        log.info("Creating table \"{}\" with the primary key \"ListId\", \"Seq\".", EXPENSE_LIST_CHUNK_TABLE_NAME);
+
+        CreateTableRequest request = new CreateTableRequest()
+                .withAttributeDefinitions(
+                        new AttributeDefinition("ListId", ScalarAttributeType.S),
+                        new AttributeDefinition("Seq", ScalarAttributeType.N)
+                )
+                .withKeySchema(
+                        new KeySchemaElement("ListId", KeyType.HASH),
+                        new KeySchemaElement("Seq", KeyType.RANGE)
+                )
+                .withProvisionedThroughput(new ProvisionedThroughput(10L, 10L))
+                .withTableName(EXPENSE_LIST_CHUNK_TABLE_NAME);
+
+        try {
+            CreateTableResult result = ddb.createTable(request);
+            log.info(result.getTableDescription().getTableName());
+            TableUtils.waitUntilActive(ddb, EXPENSE_LIST_CHUNK_TABLE_NAME);
+        } catch (AmazonServiceException | InterruptedException e) {
+            log.error(e.getMessage());
+        }
+    }
+
+    /**
+     * Creates the table that maps expenses to the lists containing them, see {@link ListMemberships}.
+     */
+    public static void createListMembershipTable() {
+        log.info("Creating table \"{}\" with the primary key \"ExpenseId\", \"ListId\".",
+                LIST_MEMBERSHIP_TABLE_NAME);
+
+        CreateTableRequest request = new CreateTableRequest()
+                .withAttributeDefinitions(
+                        new AttributeDefinition("ExpenseId", ScalarAttributeType.S),
+                        new AttributeDefinition("ListId", ScalarAttributeType.S)
+                )
+                .withKeySchema(
+                        new KeySchemaElement("ExpenseId", KeyType.HASH),
+                        new KeySchemaElement("ListId", KeyType.RANGE)
+                )
+                .withProvisionedThroughput(new ProvisionedThroughput(10L, 10L))
+                .withTableName(LIST_MEMBERSHIP_TABLE_NAME);
+
+        try {
+            CreateTableResult result = ddb.createTable(request);
+            log.info(result.getTableDescription().getTableName());
+            TableUtils.waitUntilActive(ddb, LIST_MEMBERSHIP_TABLE_NAME);
+        } catch (AmazonServiceException | InterruptedException e) {
+            log.error(e.getMessage());
+        }
+    }
+
+    /**
+     * Creates the table that holds each email's spending per month, see {@link SpendingAggregates}.
+     */
+    public static void createSpendingSummaryTable() {
+        log.info("Creating table \"{}\" with the primary key \"Email\", \"Month\".", SPENDING_SUMMARY_TABLE_NAME);
+
+        CreateTableRequest request = new CreateTableRequest()
+                .withAttributeDefinitions(
+                        new AttributeDefinition("Email", ScalarAttributeType.S),
+                        new AttributeDefinition("Month", ScalarAttributeType.S)
+                )
+                .withKeySchema(
+                        new KeySchemaElement("Email", KeyType.HASH),
+                        new KeySchemaElement("Month", KeyType.RANGE)
+                )
+                .withProvisionedThroughput(new ProvisionedThroughput(10L, 10L))
+                .withTableName(SPENDING_SUMMARY_TABLE_NAME);
+
+        try {
+            CreateTableResult result = ddb.createTable(request);
+            log.info(result.getTableDescription().getTableName());
+            TableUtils.waitUntilActive(ddb, SPENDING_SUMMARY_TABLE_NAME);
+        } catch (AmazonServiceException | InterruptedException e) {
+            log.error(e.getMessage());
+        }
+    }
+
+    /**
+     * Creates the table that holds the title tokens of each email's expenses, see {@link TitleIndex}.
+     */
+    public static void createTitleIndexTable() {
+        log.info("Creating table \"{}\" with the primary key \"Email\", \"Token\".", TITLE_INDEX_TABLE_NAME);
+
+        CreateTableRequest request = new CreateTableRequest()
+                .withAttributeDefinitions(
+                        new AttributeDefinition("Email", ScalarAttributeType.S),
+                        new AttributeDefinition("Token", ScalarAttributeType.S)
+                )
+                .withKeySchema(
+                        new KeySchemaElement("Email", KeyType.HASH),
+                        new KeySchemaElement("Token", KeyType.RANGE)
+                )
+                .withProvisionedThroughput(new ProvisionedThroughput(10L, 10L))
+                .withTableName(TITLE_INDEX_TABLE_NAME);
+
+        try {
+            CreateTableResult result = ddb.createTable(request);
+            log.info(result.getTableDescription().getTableName());
+            TableUtils.waitUntilActive(ddb, TITLE_INDEX_TABLE_NAME);
+        } catch (AmazonServiceException | InterruptedException e) {
+            log.error(e.getMessage());
+        }
+    }
+
+    /**
+     * Creates the table that files expenses under their tags, see {@link ExpenseTags}.
+     */
+    public static void createExpenseTagTable() {
+        log.info("Creating table \"{}\" with the primary key \"TagKey\", \"ExpenseKey\".", EXPENSE_TAG_TABLE_NAME);
+
+        CreateTableRequest request = new CreateTableRequest()
+                .withAttributeDefinitions(
+                        new AttributeDefinition("TagKey", ScalarAttributeType.S),
+                        new AttributeDefinition("ExpenseKey", ScalarAttributeType.S)
+                )
+                .withKeySchema(
+                        new KeySchemaElement("TagKey", KeyType.HASH),
+                        new KeySchemaElement("ExpenseKey", KeyType.RANGE)
+                )
+                .withProvisionedThroughput(new ProvisionedThroughput(10L, 10L))
+                .withTableName(EXPENSE_TAG_TABLE_NAME);
+
+        try {
+            CreateTableResult result = ddb.createTable(request);
+            log.info(result.getTableDescription().getTableName());
+            TableUtils.waitUntilActive(ddb, EXPENSE_TAG_TABLE_NAME);
+        } catch (AmazonServiceException | InterruptedException e) {
+            log.error(e.getMessage());
+        }
+    }
+
+    /**
+     * Creates the table that numbers the changes to each email's data, see {@link ChangeLog}.
+     */
+    public static void createChangeLogTable() {
+        log.info("Creating table \"{}\" with the primary key \"Email\", \"Seq\".", CHANGE_LOG_TABLE_NAME);
+
+        CreateTableRequest request = new CreateTableRequest()
+                .withAttributeDefinitions(
+                        new AttributeDefinition("Email", ScalarAttributeType.S),
+                        new AttributeDefinition("Seq", ScalarAttributeType.N)
+                )
+                .withKeySchema(
+                        new KeySchemaElement("Email", KeyType.HASH),
+                        new KeySchemaElement("Seq", KeyType.RANGE)
+                )
+                .withProvisionedThroughput(new ProvisionedThroughput(10L, 10L))
+                .withTableName(CHANGE_LOG_TABLE_NAME);
+
+        try {
+            CreateTableResult result = ddb.createTable(request);
+            log.info(result.getTableDescription().getTableName());
+            TableUtils.waitUntilActive(ddb, CHANGE_LOG_TABLE_NAME);
+        } catch (AmazonServiceException | InterruptedException e) {
+            log.error(e.getMessage());
+        }
+    }
+
+    /**
+     * Turns on the Expense table's stream for a table created before the stream existed.
+     * @return the ARN of the stream
+     */
+    public static String enableExpenseStreamIfMissing() {
+        TableDescription table = ddb.describeTable(EXPENSE_TABLE_NAME).getTable();
+        if (table.getStreamSpecification() == null || !table.getStreamSpecification().isStreamEnabled()) {
+            log.info("Enabling the stream of table \"{}\".", EXPENSE_TABLE_NAME);
+            table = ddb.updateTable(new UpdateTableRequest()
+                    .withTableName(EXPENSE_TABLE_NAME)
+                    .withStreamSpecification(expenseStream())).getTableDescription();
+        }
+        return table.getLatestStreamArn();
+    }
+
+    /**
+     * Adds the EmailShardIndex to a table created before the index existed, and waits until DynamoDB has
+     * finished building it.
+     * @param table the table name
+     * @param byDate whether the index is sorted by ExpenseDate
+     * @throws InterruptedException if interrupted while waiting
+     */
+    public static void createEmailShardIndexIfMissing(String table, boolean byDate) throws InterruptedException {
+        if (!findIndex(table, EmailShards.INDEX_NAME).isPresent()) {
+            log.info("Adding {} to table \"{}\".", EmailShards.INDEX_NAME, table);
+            GlobalSecondaryIndex index = emailShardIndex(byDate);
+            List<AttributeDefinition> attributes = new ArrayList<>();
+            attributes.add(new AttributeDefinition("EmailShard", ScalarAttributeType.S));
+            if (byDate) {
+                attributes.add(new AttributeDefinition("ExpenseDate", ScalarAttributeType.S));
+            }
+            ddb.updateTable(new UpdateTableRequest()
+                    .withTableName(table)
+                    .withAttributeDefinitions(attributes)
+                    .withGlobalSecondaryIndexUpdates(new GlobalSecondaryIndexUpdate()
+                            .withCreate(new CreateGlobalSecondaryIndexAction()
+                                    .withIndexName(index.getIndexName())
+                                    .withKeySchema(index.getKeySchema())
+                                    .withProjection(index.getProjection())
+                                    .withProvisionedThroughput(index.getProvisionedThroughput()))));
+        }
+        waitUntilIndexActive(table, EmailShards.INDEX_NAME);
+    }
+
+    /**
+     * Adds the optional EmailAmountIndex to the Expense table, and waits until DynamoDB has finished building
+     * it, see {@link AmountIndex}.
+     * @throws InterruptedException if interrupted while waiting
+     */
+    public static void createAmountIndexIfMissing() throws InterruptedException {
+        if (!findIndex(EXPENSE_TABLE_NAME, AmountIndex.INDEX_NAME).isPresent()) {
+            log.info("Adding {} to table \"{}\".", AmountIndex.INDEX_NAME, EXPENSE_TABLE_NAME);
+            List<KeySchemaElement> keySchema = new ArrayList<>();
+            keySchema.add(new KeySchemaElement("Email", KeyType.HASH));
+            keySchema.add(new KeySchemaElement("Amount", KeyType.RANGE));
+            ddb.updateTable(new UpdateTableRequest()
+                    .withTableName(EXPENSE_TABLE_NAME)
+                    .withAttributeDefinitions(new AttributeDefinition("Email", ScalarAttributeType.S),
+                            new AttributeDefinition("Amount", ScalarAttributeType.N))
+                    .withGlobalSecondaryIndexUpdates(new GlobalSecondaryIndexUpdate()
+                            .withCreate(new CreateGlobalSecondaryIndexAction()
+                                    .withIndexName(AmountIndex.INDEX_NAME)
+                                    .withKeySchema(keySchema)
+                                    .withProjection(new Projection().withProjectionType(ProjectionType.ALL))
+                                    .withProvisionedThroughput(new ProvisionedThroughput()
+                                            .withReadCapacityUnits((long) 10)
+                                            .withWriteCapacityUnits((long) 10)))));
+        }
+        waitUntilIndexActive(EXPENSE_TABLE_NAME, AmountIndex.INDEX_NAME);
+    }
+
+    private static void waitUntilIndexActive(String table, String indexName) throws InterruptedException {
+        while (!findIndex(table, indexName).map(index -> "ACTIVE".equals(index.getIndexStatus())).orElse(false)) {
+            Thread.sleep(INDEX_POLL_MILLIS);
+        }
+    }
+
+    private static Optional<GlobalSecondaryIndexDescription> findIndex(String table, String indexName) {
+        List<GlobalSecondaryIndexDescription> indexes = ddb.describeTable(table).getTable()
+                .getGlobalSecondaryIndexes();
+        if (indexes == null) {
+            return Optional.empty();
+        }
+        return indexes.stream().filter(index -> indexName.equals(index.getIndexName())).findFirst();
+    }
+
+    private static GlobalSecondaryIndex emailShardIndex(boolean byDate) {
+        List<KeySchemaElement> keySchema = new ArrayList<>();
+        keySchema.add(new KeySchemaElement("EmailShard", KeyType.HASH));
+        if (byDate) {
+            keySchema.add(new KeySchemaElement("ExpenseDate", KeyType.RANGE));
+        }
+        return new GlobalSecondaryIndex()
+                .withIndexName(EmailShards.INDEX_NAME)
+                .withKeySchema(keySchema)
+                .withProvisionedThroughput(new ProvisionedThroughput()
+                        .withReadCapacityUnits((long) 10)
+                        .withWriteCapacityUnits((long) 10))
+                .withProjection(new Projection().withProjectionType(ProjectionType.ALL));
+    }
+
+    /**
+     * Creates the table that holds the shared per-email rate limit counters. Counters expire through the
+     * ExpiresAt TTL attribute once their window has passed.
+     */
+    public static void createRateLimitTable() {
+        log.info("Creating table \"{}\" with a simple primary key: \"Id\".", RATE_LIMIT_TABLE_NAME);
+
+        CreateTableRequest request = new CreateTableRequest()
+                .withAttributeDefinitions(new AttributeDefinition("Id", ScalarAttributeType.S))
+                .withKeySchema(new KeySchemaElement("Id", KeyType.HASH))
+                .withProvisionedThroughput(new ProvisionedThroughput(10L, 10L))
+                .withTableName(RATE_LIMIT_TABLE_NAME);
+
+        try {
+            CreateTableResult result = ddb.createTable(request);
+            log.info(result.getTableDescription().getTableName());
+            TableUtils.waitUntilActive(ddb, RATE_LIMIT_TABLE_NAME);
+            ddb.updateTimeToLive(new UpdateTimeToLiveRequest()
+                    .withTableName(RATE_LIMIT_TABLE_NAME)
+                    .withTimeToLiveSpecification(new TimeToLiveSpecification()
+                            .withAttributeName("ExpiresAt")
+                            .withEnabled(true)));
+        } catch (AmazonServiceException | InterruptedException e) {
+            log.error(e.getMessage());
+        }
+    }
+
+    private static StreamSpecification expenseStream() {
+        return new StreamSpecification()
+                .withStreamEnabled(true)
+                .withStreamViewType(StreamViewType.NEW_AND_OLD_IMAGES);
+    }
+
+    /**
+     * Creates a table unless it exists. The service is asked once per container, with one ListTables for every
+     * table, so repositories built per request do not list the tables each time.
+     * @param table the table name
+     * @param create creates the table
+     */
+    public static void createIfMissing(String table, Runnable create) {
+        String name = table.toLowerCase(Locale.ROOT);
+        if (KNOWN_TABLES.contains(name)) {
+            return;
+        }
+        synchronized (KNOWN_TABLES) {
+            if (KNOWN_TABLES.contains(name)) {
+                return;
+            }
+            String start = null;
+            do {
+                ListTablesResult tables = ddb.listTables(new ListTablesRequest().withExclusiveStartTableName(start));
+                for (String tableName : tables.getTableNames()) {
+                    KNOWN_TABLES.add(tableName.toLowerCase(Locale.ROOT));
+                }
+                start = tables.getLastEvaluatedTableName();
+            } while (start != null);
+            if (!KNOWN_TABLES.contains(name)) {
+                create.run();
+                KNOWN_TABLES.add(name);
+            }
+        }
+    }
+
     public static boolean doesExpenseTableExist(String table) {
         ListTablesResult tables = ddb.listTables();
         List<String> tableNames = tables.getTableNames();
@@ -0,0 +1,235 @@
+package ata.unit.three.project.expense.dynamodb;
+
+import ata.unit.three.project.expense.service.analytics.TagTotal;
+import ata.unit.three.project.expense.service.model.AmountAccumulator;
+import ata.unit.three.project.expense.service.model.ExpensePage;
+import ata.unit.three.project.expense.service.model.Money;
+
+import com.amazonaws.services.dynamodbv2.AmazonDynamoDB;
+import com.amazonaws.services.dynamodbv2.model.AttributeValue;
+import com.amazonaws.services.dynamodbv2.model.Delete;
+import com.amazonaws.services.dynamodbv2.model.Put;
+import com.amazonaws.services.dynamodbv2.model.QueryRequest;
+import com.amazonaws.services.dynamodbv2.model.QueryResult;
+import com.amazonaws.services.dynamodbv2.model.TransactWriteItem;
+import com.amazonaws.services.dynamodbv2.model.Update;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+import static ata.unit.three.project.expense.dynamodb.ExpenseTable.EXPENSE_TAG_TABLE_NAME;
+
+/**
+ * Files expenses under their tags in the ExpenseTag table, as adjacency items keyed by TagKey and ExpenseKey:
+ * <ul>
+ *     <li>TAG#&lt;email&gt;#&lt;tag&gt;, &lt;date&gt;#&lt;id&gt; - an expense filed under a tag, with a copy of its
+ *     date, title, amount and tags</li>
+ *     <li>TAGS#&lt;email&gt;, &lt;tag&gt; - the running totals of one of the email's tags</li>
+ * </ul>
+ * The expenses of a tag are one Query of the tag's partition, newest first, and a date range is a range of its
+ * sort key; the totals of all of an email's tags are one Query too. The repository writes these items in the
+ * same transaction as the expense itself, see {@link #writes(ExpenseItem, ExpenseItem)}, so a tag never lists an
+ * expense that was not saved and its totals never count one twice.
+ */
+public class ExpenseTags {
+    static final String TAG_PREFIX = "TAG#";
+    static final String TOTALS_PREFIX = "TAGS#";
+
+    private static final String FIRST_KEY = "0";
+    private static final String LAST_KEY = "~";
+
+    private final AmazonDynamoDB client;
+
+    public ExpenseTags(AmazonDynamoDB client) {
+        this.client = client;
+    }
+
+    /**
+     * Tells whether an expense is filed under any tag.
+     * @param expense the expense, may be null
+     * @return true if it has tags
+     */
+    public static boolean isTagged(ExpenseItem expense) {
+        return expense != null && expense.getTags() != null && !expense.getTags().isEmpty();
+    }
+
+    /**
+     * Returns the writes that file an expense under its new tags, take it out of the tags it no longer has and
+     * move the totals of both, to be sent in one transaction with the write of the expense. With at most ten
+     * tags an expense needs at most 40 of them.
+     * @param before the expense as it was, or null when it is created
+     * @param after the expense as it is to be, or null when it is deleted
+     * @return the writes
+     */
+    public List<TransactWriteItem> writes(ExpenseItem before, ExpenseItem after) {
+        ExpenseItem expense = after != null ? after : before;
+        Set<String> oldTags = tagsOf(before);
+        Set<String> newTags = tagsOf(after);
+        String expenseKey = expenseKey(expense.getExpenseDate(), expense.getId());
+        List<TransactWriteItem> writes = new ArrayList<>();
+        for (String tag : newTags) {
+            Map<String, AttributeValue> item = key(tagKey(expense.getEmail(), tag), expenseKey);
+            item.put("Id", new AttributeValue(after.getId()));
+            item.put("ExpenseDate", new AttributeValue(after.getExpenseDate()));
+            if (after.getTitle() != null) {
+                item.put("Title", new AttributeValue(after.getTitle()));
+            }
+            item.put("Amount", new AttributeValue().withN(Money.toDecimal(centsOf(after)).toPlainString()));
+            item.put("Tags", new AttributeValue().withSS(newTags));
+            writes.add(new TransactWriteItem().withPut(new Put().withTableName(EXPENSE_TAG_TABLE_NAME).withItem(item)));
+        }
+        Set<String> allTags = new TreeSet<>(oldTags);
+        allTags.addAll(newTags);
+        for (String tag : allTags) {
+            if (!newTags.contains(tag)) {
+                writes.add(new TransactWriteItem().withDelete(new Delete()
+                        .withTableName(EXPENSE_TAG_TABLE_NAME)
+                        .withKey(key(tagKey(expense.getEmail(), tag), expenseKey))));
+            }
+            long count = (newTags.contains(tag) ? 1 : 0) - (oldTags.contains(tag) ? 1 : 0);
+            long cents = (newTags.contains(tag) ? centsOf(after) : 0) - (oldTags.contains(tag) ? centsOf(before) : 0);
+            if (count != 0 || cents != 0) {
+                Map<String, AttributeValue> values = new HashMap<>();
+                values.put(":count", new AttributeValue().withN(Long.toString(count)));
+                values.put(":amount", new AttributeValue().withN(Money.toDecimal(cents).toPlainString()));
+                writes.add(new TransactWriteItem().withUpdate(new Update()
+                        .withTableName(EXPENSE_TAG_TABLE_NAME)
+                        .withKey(key(TOTALS_PREFIX + expense.getEmail(), tag))
+                        .withUpdateExpression("ADD ExpenseCount :count, Total :amount")
+                        .withExpressionAttributeValues(values)));
+            }
+        }
+        return writes;
+    }
+
+    /**
+     * Returns one page of the expenses filed under a tag, with one Query of the tag's partition.
+     * @param email the email
+     * @param tag the tag
+     * @param from the first day, in UTC, or null for the oldest expense
+     * @param to the last day, in UTC, or null for the newest expense
+     * @param limit how many expenses to read
+     * @param page the page, as returned by {@link ExpensePage#getNextPage()}, or null for the first
+     * @return the expenses, newest first
+     * @throws IllegalArgumentException if the page is not one of the range
+     */
+    public ExpensePage getExpenses(String email, String tag, LocalDate from, LocalDate to, int limit, String page) {
+        String first = from == null ? FIRST_KEY : from.toString();
+        String last = to == null ? LAST_KEY : to.plusDays(1).toString();
+        if (page != null && (page.compareTo(first) < 0 || page.compareTo(last) > 0)) {
+            throw new IllegalArgumentException("The page is outside the dates asked for");
+        }
+        String tagKey = tagKey(email, tag);
+        QueryResult result = client.query(rangeQuery(tagKey, first, last)
+                .withScanIndexForward(false)
+                .withLimit(limit)
+                .withExclusiveStartKey(page == null ? null : key(tagKey, page)));
+        List<ExpenseItem> expenses = new ArrayList<>(result.getItems().size());
+        for (Map<String, AttributeValue> item : result.getItems()) {
+            ExpenseItem expense = new ExpenseItem();
+            expense.setId(item.get("Id").getS());
+            expense.setEmail(email);
+            expense.setExpenseDate(item.get("ExpenseDate").getS());
+            expense.setTitle(item.containsKey("Title") ? item.get("Title").getS() : null);
+            expense.setAmountCents(centsOf(item.get("Amount")));
+            expense.setTags(item.containsKey("Tags") ? new TreeSet<>(item.get("Tags").getSS()) : null);
+            expenses.add(expense);
+        }
+        Map<String, AttributeValue> next = result.getLastEvaluatedKey();
+        return new ExpensePage(expenses, next == null ? null : next.get("ExpenseKey").getS());
+    }
+
+    /**
+     * Returns the totals of every tag of an email. Over the whole history they are the running totals, read
+     * with one Query; over a date range they are summed from one Query of each tag's partition, reading only
+     * the amounts.
+     * @param email the email
+     * @param from the first day, in UTC, or null for the oldest expense
+     * @param to the last day, in UTC, or null for the newest expense
+     * @return the totals of the tags with expenses, by tag
+     */
+    public List<TagTotal> getTotals(String email, LocalDate from, LocalDate to) {
+        List<TagTotal> totals = new ArrayList<>();
+        for (Map<String, AttributeValue> item : queryAll(new QueryRequest()
+                .withTableName(EXPENSE_TAG_TABLE_NAME)
+                .withKeyConditionExpression("TagKey = :key")
+                .withExpressionAttributeValues(Collections.singletonMap(":key",
+                        new AttributeValue(TOTALS_PREFIX + email))))) {
+            String tag = item.get("ExpenseKey").getS();
+            long count = item.containsKey("ExpenseCount") ? Long.parseLong(item.get("ExpenseCount").getN()) : 0;
+            if (count <= 0) {
+                continue;
+            }
+            if (from == null && to == null) {
+                totals.add(new TagTotal(tag, centsOf(item.get("Total")), count));
+                continue;
+            }
+            AmountAccumulator amounts = new AmountAccumulator();
+            for (Map<String, AttributeValue> expense : queryAll(rangeQuery(tagKey(email, tag),
+                    from == null ? FIRST_KEY : from.toString(), to == null ? LAST_KEY : to.plusDays(1).toString())
+                    .withProjectionExpression("Amount"))) {
+                amounts.add(centsOf(expense.get("Amount")));
+            }
+            if (amounts.getCount() > 0) {
+                totals.add(new TagTotal(tag, amounts.getSum(), amounts.getCount()));
+            }
+        }
+        return totals;
+    }
+
+    static String tagKey(String email, String tag) {
+        return TAG_PREFIX + email + "#" + tag;
+    }
+
+    static String expenseKey(String expenseDate, String id) {
+        return expenseDate + "#" + id;
+    }
+
+    private List<Map<String, AttributeValue>> queryAll(QueryRequest query) {
+        List<Map<String, AttributeValue>> items = new ArrayList<>();
+        Map<String, AttributeValue> start = null;
+        do {
+            QueryResult result = client.query(query.withExclusiveStartKey(start));
+            items.addAll(result.getItems());
+            start = result.getLastEvaluatedKey();
+        } while (start != null);
+        return items;
+    }
+
+    private static QueryRequest rangeQuery(String tagKey, String first, String last) {
+        Map<String, AttributeValue> values = new HashMap<>();
+        values.put(":key", new AttributeValue(tagKey));
+        values.put(":first", new AttributeValue(first));
+        values.put(":last", new AttributeValue(last));
+        return new QueryRequest()
+                .withTableName(EXPENSE_TAG_TABLE_NAME)
+                .withKeyConditionExpression("TagKey = :key AND ExpenseKey BETWEEN :first AND :last")
+                .withExpressionAttributeValues(values);
+    }
+
+    private static Map<String, AttributeValue> key(String tagKey, String expenseKey) {
+        Map<String, AttributeValue> key = new HashMap<>();
+        key.put("TagKey", new AttributeValue(tagKey));
+        key.put("ExpenseKey", new AttributeValue(expenseKey));
+        return key;
+    }
+
+    private static Set<String> tagsOf(ExpenseItem expense) {
+        return isTagged(expense) ? expense.getTags() : Collections.emptySet();
+    }
+
+    private static long centsOf(ExpenseItem expense) {
+        return expense.getAmountCents() == null ? 0 : expense.getAmountCents();
+    }
+
+    private static long centsOf(AttributeValue amount) {
+        return amount == null ? 0 : Money.toCents(new BigDecimal(amount.getN()));
+    }
+}
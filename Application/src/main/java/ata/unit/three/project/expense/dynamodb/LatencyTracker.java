@@ -0,0 +1,78 @@
+package ata.unit.three.project.expense.dynamodb;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Tracks a latency percentile over recent calls with a small log-scale histogram.
+ *
+ * Buckets grow by 20%, so the reported percentile is within 20% of the true value. Every
+ * {@link #DECAY_INTERVAL} samples all counts are halved, which lets the percentile follow changes in table
+ * latency within a few thousand calls. Recording is lock-free.
+ */
+public class LatencyTracker {
+    static final int DECAY_INTERVAL = 2000;
+    private static final int BUCKETS = 100;
+    private static final double GROWTH = 1.2;
+    private static final double LOG_GROWTH = Math.log(GROWTH);
+    private static final int REFRESH_INTERVAL = 50;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+    private final AtomicLong samples = new AtomicLong();
+    private final double percentile;
+    private volatile long cachedMicros = -1;
+
+    /**
+     * Creates a tracker.
+     * @param percentile the percentile to report, for example 95.0
+     */
+    public LatencyTracker(double percentile) {
+        this.percentile = percentile;
+    }
+
+    /**
+     * Records one call.
+     * @param micros the call latency in microseconds
+     */
+    public void record(long micros) {
+        int bucket = micros <= 1 ? 0 : (int) Math.min(BUCKETS - 1, Math.log(micros) / LOG_GROWTH);
+        counts.incrementAndGet(bucket);
+        long total = samples.incrementAndGet();
+        if (total % DECAY_INTERVAL == 0) {
+            for (int i = 0; i < BUCKETS; i++) {
+                counts.set(i, counts.get(i) / 2);
+            }
+        }
+        if (total % REFRESH_INTERVAL == 0) {
+            cachedMicros = compute();
+        }
+    }
+
+    public long getSampleCount() {
+        return samples.get();
+    }
+
+    /**
+     * Returns the tracked percentile.
+     * @return the percentile in microseconds, or -1 until enough calls have been recorded
+     */
+    public long getPercentileMicros() {
+        return cachedMicros;
+    }
+
+    private long compute() {
+        long total = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            total += counts.get(i);
+        }
+        long threshold = (long) Math.ceil(total * percentile / 100.0);
+        long running = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            running += counts.get(i);
+            if (running >= threshold) {
+                return (long) Math.pow(GROWTH, i + 1);
+            }
+        }
+        return (long) Math.pow(GROWTH, BUCKETS);
+    }
+}
@@ -0,0 +1,314 @@
+package ata.unit.three.project.expense.dynamodb;
+
+import ata.unit.three.project.expense.service.exceptions.ServiceOverloadedException;
+
+import com.amazonaws.services.dynamodbv2.AmazonDynamoDB;
+import com.amazonaws.services.dynamodbv2.datamodeling.DynamoDBMapper;
+import com.amazonaws.services.dynamodbv2.datamodeling.DynamoDBMapperConfig;
+import com.amazonaws.services.dynamodbv2.model.AttributeValue;
+import com.amazonaws.services.dynamodbv2.model.ConditionalCheckFailedException;
+import com.amazonaws.services.dynamodbv2.model.Delete;
+import com.amazonaws.services.dynamodbv2.model.Put;
+import com.amazonaws.services.dynamodbv2.model.TransactWriteItem;
+import com.amazonaws.services.dynamodbv2.model.TransactWriteItemsRequest;
+import com.amazonaws.services.dynamodbv2.model.TransactionCanceledException;
+import com.amazonaws.services.dynamodbv2.model.Update;
+import com.amazonaws.services.dynamodbv2.model.UpdateItemRequest;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static ata.unit.three.project.expense.dynamodb.ExpenseTable.EXPENSE_LIST_CHUNK_TABLE_NAME;
+import static ata.unit.three.project.expense.dynamodb.ExpenseTable.EXPENSE_LIST_TABLE_NAME;
+
+/**
+ * Reads and changes the chunks of {@link ListStorage#CHUNKED} lists.
+ *
+ * A chunked list item only holds the ordered sequence numbers of its chunks; each chunk holds up to
+ * {@link #CHUNK_SIZE} expense ids. Every change writes a single chunk, however long the list is:
+ * <ul>
+ *     <li>appends go to the tail chunk; a full tail is split off into a new chunk, which is added to the list
+ *     in the same transaction;</li>
+ *     <li>removals take the id out of the one chunk holding it; a chunk that drops below {@link #MERGE_BELOW}
+ *     ids is merged into its neighbour when both fit in one chunk;</li>
+ *     <li>reads fetch all chunks of all lists being read with parallel BatchGetItem calls.</li>
+ * </ul>
+ * Conflicting writes are detected with conditions and retried against fresh data.
+ */
+public class ListChunks {
+    static final Logger log = LogManager.getLogger();
+    static final int CHUNK_SIZE = 1000;
+    static final int MERGE_BELOW = CHUNK_SIZE / 4;
+
+    private static final int MAX_ATTEMPTS = 5;
+    private static final long RETRY_AFTER_MILLIS = 100;
+    private static final DynamoDBMapperConfig CONSISTENT = DynamoDBMapperConfig.builder()
+            .withConsistentReads(DynamoDBMapperConfig.ConsistentReads.CONSISTENT)
+            .build();
+
+    private final AmazonDynamoDB client;
+    private final DynamoDBMapper mapper;
+
+    public ListChunks(AmazonDynamoDB client, DynamoDBMapper mapper) {
+        this.client = client;
+        this.mapper = mapper;
+    }
+
+    /**
+     * Fills in the expense ids of the chunked lists among the given lists from their chunks.
+     * @param mapper the mapper to read with
+     * @param lists the lists
+     */
+    public static void loadExpenseIds(DynamoDBMapper mapper, Collection<ExpenseItemList> lists) {
+        Map<String, List<String>> chunks = loadChunks(mapper, lists, DynamoDBMapperConfig.DEFAULT);
+        for (ExpenseItemList list : lists) {
+            if (ListStorage.of(list) == ListStorage.CHUNKED) {
+                List<String> ids = new ArrayList<>();
+                for (Long seq : chunksOf(list)) {
+                    ids.addAll(chunks.getOrDefault(chunkKey(list.getId(), seq), Collections.emptyList()));
+                }
+                list.setExpenseIds(ids);
+            }
+        }
+    }
+
+    /**
+     * Appends an expense to the end of a chunked list.
+     * @param listId the list id
+     * @param expenseId the expense id
+     */
+    public void append(String listId, String expenseId) {
+        for (int attempt = 0; attempt < MAX_ATTEMPTS; attempt++) {
+            List<Long> chunks = chunksOf(mapper.load(ExpenseItemList.class, listId, CONSISTENT));
+            if (!chunks.isEmpty() && appendToChunk(listId, chunks.get(chunks.size() - 1), expenseId)) {
+                return;
+            }
+            if (addChunk(listId, chunks, expenseId)) {
+                return;
+            }
+        }
+        throw new ServiceOverloadedException("Expense list " + listId + " is changing too fast", RETRY_AFTER_MILLIS);
+    }
+
+    /**
+     * Removes an expense from a chunked list.
+     * @param listId the list id
+     * @param expenseId the expense id
+     * @return true if the expense was in the list
+     */
+    public boolean remove(String listId, String expenseId) {
+        for (int attempt = 0; attempt < MAX_ATTEMPTS; attempt++) {
+            ExpenseItemList list = mapper.load(ExpenseItemList.class, listId, CONSISTENT);
+            List<Long> chunks = chunksOf(list);
+            Map<String, List<String>> loaded = loadChunks(mapper, Collections.singletonList(list), CONSISTENT);
+            int index = -1;
+            int position = -1;
+            for (int i = 0; i < chunks.size() && position < 0; i++) {
+                index = i;
+                position = idsOf(loaded, listId, chunks.get(i)).indexOf(expenseId);
+            }
+            if (position < 0) {
+                return false;
+            }
+            try {
+                client.updateItem(new UpdateItemRequest()
+                        .withTableName(EXPENSE_LIST_CHUNK_TABLE_NAME)
+                        .withKey(key(listId, chunks.get(index)))
+                        .withUpdateExpression("REMOVE ExpenseIds[" + position + "]")
+                        .withConditionExpression("ExpenseIds[" + position + "] = :id")
+                        .withExpressionAttributeValues(Collections.singletonMap(":id", new AttributeValue(expenseId))));
+            } catch (ConditionalCheckFailedException e) {
+                continue;
+            }
+            idsOf(loaded, listId, chunks.get(index)).remove(position);
+            mergeIfSmall(listId, chunks, index, loaded);
+            return true;
+        }
+        throw new ServiceOverloadedException("Expense list " + listId + " is changing too fast", RETRY_AFTER_MILLIS);
+    }
+
+    /**
+     * Writes the given ids as the chunks of a list that is about to become chunked.
+     * @param listId the list id
+     * @param expenseIds the list's expense ids, in order
+     * @return the sequence numbers of the written chunks, in order
+     */
+    public List<Long> writeChunks(String listId, List<String> expenseIds) {
+        List<ExpenseListChunk> chunks = new ArrayList<>();
+        List<Long> seqs = new ArrayList<>();
+        for (int start = 0; start < expenseIds.size(); start += CHUNK_SIZE) {
+            ExpenseListChunk chunk = new ExpenseListChunk();
+            chunk.setListId(listId);
+            chunk.setSeq((long) seqs.size());
+            chunk.setExpenseIds(new ArrayList<>(expenseIds.subList(start,
+                    Math.min(expenseIds.size(), start + CHUNK_SIZE))));
+            chunks.add(chunk);
+            seqs.add(chunk.getSeq());
+        }
+        mapper.batchSave(chunks);
+        return seqs;
+    }
+
+    /**
+     * Deletes the chunks of a list.
+     * @param listId the list id
+     * @param seqs the sequence numbers of the chunks
+     */
+    public void deleteChunks(String listId, List<Long> seqs) {
+        List<ExpenseListChunk> chunks = new ArrayList<>();
+        for (Long seq : seqs) {
+            ExpenseListChunk chunk = new ExpenseListChunk();
+            chunk.setListId(listId);
+            chunk.setSeq(seq);
+            chunks.add(chunk);
+        }
+        mapper.batchDelete(chunks);
+    }
+
+    static List<Long> chunksOf(ExpenseItemList list) {
+        return list == null || list.getChunks() == null ? Collections.emptyList() : list.getChunks();
+    }
+
+    private boolean appendToChunk(String listId, long seq, String expenseId) {
+        Map<String, AttributeValue> values = new HashMap<>();
+        values.put(":ids", new AttributeValue().withL(new AttributeValue(expenseId)));
+        values.put(":max", new AttributeValue().withN(Integer.toString(CHUNK_SIZE)));
+        try {
+            client.updateItem(new UpdateItemRequest()
+                    .withTableName(EXPENSE_LIST_CHUNK_TABLE_NAME)
+                    .withKey(key(listId, seq))
+                    .withUpdateExpression("SET ExpenseIds = list_append(ExpenseIds, :ids)")
+                    .withConditionExpression("size(ExpenseIds) < :max")
+                    .withExpressionAttributeValues(values));
+            return true;
+        } catch (ConditionalCheckFailedException e) {
+            return false;
+        }
+    }
+
+    private boolean addChunk(String listId, List<Long> chunks, String expenseId) {
+        long seq = chunks.isEmpty() ? 0 : chunks.get(chunks.size() - 1) + 1;
+        Map<String, AttributeValue> chunk = new HashMap<>(key(listId, seq));
+        chunk.put("ExpenseIds", new AttributeValue().withL(new AttributeValue(expenseId)));
+        Map<String, AttributeValue> values = new HashMap<>();
+        values.put(":seq", new AttributeValue().withL(new AttributeValue().withN(Long.toString(seq))));
+        values.put(":none", new AttributeValue().withL(Collections.<AttributeValue>emptyList()));
+        values.put(":chunked", new AttributeValue(ListStorage.CHUNKED.name()));
+        String unchanged = chunks.isEmpty() ? "attribute_not_exists(Chunks) OR size(Chunks) = :count" :
+                "size(Chunks) = :count";
+        values.put(":count", new AttributeValue().withN(Integer.toString(chunks.size())));
+        return transact(listId, new TransactWriteItem().withPut(new Put()
+                        .withTableName(EXPENSE_LIST_CHUNK_TABLE_NAME)
+                        .withItem(chunk)
+                        .withConditionExpression("attribute_not_exists(ListId)")),
+                new TransactWriteItem().withUpdate(new Update()
+                        .withTableName(EXPENSE_LIST_TABLE_NAME)
+                        .withKey(Collections.singletonMap("Id", new AttributeValue(listId)))
+                        .withUpdateExpression("SET Chunks = list_append(if_not_exists(Chunks, :none), :seq)")
+                        .withConditionExpression("Storage = :chunked AND (" + unchanged + ")")
+                        .withExpressionAttributeValues(values)));
+    }
+
+    private void mergeIfSmall(String listId, List<Long> chunks, int index, Map<String, List<String>> loaded) {
+        if (chunks.size() < 2 || idsOf(loaded, listId, chunks.get(index)).size() >= MERGE_BELOW) {
+            return;
+        }
+        int keep = index > 0 ? index - 1 : index;
+        int gone = keep + 1;
+        List<String> keepIds = idsOf(loaded, listId, chunks.get(keep));
+        List<String> goneIds = idsOf(loaded, listId, chunks.get(gone));
+        if (keepIds.size() + goneIds.size() > CHUNK_SIZE) {
+            return;
+        }
+        List<String> merged = new ArrayList<>(keepIds);
+        merged.addAll(goneIds);
+        Map<String, AttributeValue> keepValues = new HashMap<>();
+        keepValues.put(":old", idList(keepIds));
+        keepValues.put(":merged", idList(merged));
+        Map<String, AttributeValue> goneValues = Collections.singletonMap(":old", idList(goneIds));
+        Map<String, AttributeValue> listValues = Collections.singletonMap(":seq",
+                new AttributeValue().withN(Long.toString(chunks.get(gone))));
+        boolean done = transact(listId, new TransactWriteItem().withUpdate(new Update()
+                        .withTableName(EXPENSE_LIST_CHUNK_TABLE_NAME)
+                        .withKey(key(listId, chunks.get(keep)))
+                        .withUpdateExpression("SET ExpenseIds = :merged")
+                        .withConditionExpression("ExpenseIds = :old")
+                        .withExpressionAttributeValues(keepValues)),
+                new TransactWriteItem().withDelete(new Delete()
+                        .withTableName(EXPENSE_LIST_CHUNK_TABLE_NAME)
+                        .withKey(key(listId, chunks.get(gone)))
+                        .withConditionExpression("ExpenseIds = :old")
+                        .withExpressionAttributeValues(goneValues)),
+                new TransactWriteItem().withUpdate(new Update()
+                        .withTableName(EXPENSE_LIST_TABLE_NAME)
+                        .withKey(Collections.singletonMap("Id", new AttributeValue(listId)))
+                        .withUpdateExpression("REMOVE Chunks[" + gone + "]")
+                        .withConditionExpression("Chunks[" + gone + "] = :seq")
+                        .withExpressionAttributeValues(listValues)));
+        if (!done) {
+            log.debug("Chunks of list {} changed while they were merged; they are merged on a later removal", listId);
+        }
+    }
+
+    private boolean transact(String listId, TransactWriteItem... items) {
+        try {
+            client.transactWriteItems(new TransactWriteItemsRequest().withTransactItems(items));
+            return true;
+        } catch (TransactionCanceledException e) {
+            log.debug("Chunk transaction on list {} was cancelled: {}", listId, e.getCancellationReasons());
+            return false;
+        }
+    }
+
+    private static Map<String, List<String>> loadChunks(DynamoDBMapper mapper, Collection<ExpenseItemList> lists,
+                                                        DynamoDBMapperConfig config) {
+        List<Object> keys = new ArrayList<>();
+        for (ExpenseItemList list : lists) {
+            if (ListStorage.of(list) == ListStorage.CHUNKED) {
+                for (Long seq : chunksOf(list)) {
+                    ExpenseListChunk key = new ExpenseListChunk();
+                    key.setListId(list.getId());
+                    key.setSeq(seq);
+                    keys.add(key);
+                }
+            }
+        }
+        Map<String, List<String>> chunks = new ConcurrentHashMap<>();
+        ListHydrator.batchLoadInParallel(mapper, keys, config, item -> {
+            ExpenseListChunk chunk = (ExpenseListChunk) item;
+            chunks.put(chunkKey(chunk.getListId(), chunk.getSeq()),
+                    chunk.getExpenseIds() == null ? new ArrayList<>() : new ArrayList<>(chunk.getExpenseIds()));
+        });
+        return chunks;
+    }
+
+    private static List<String> idsOf(Map<String, List<String>> loaded, String listId, Long seq) {
+        return loaded.computeIfAbsent(chunkKey(listId, seq), missing -> new ArrayList<>());
+    }
+
+    private static String chunkKey(String listId, Long seq) {
+        return listId + "#" + seq;
+    }
+
+    private static Map<String, AttributeValue> key(String listId, long seq) {
+        Map<String, AttributeValue> key = new HashMap<>();
+        key.put("ListId", new AttributeValue(listId));
+        key.put("Seq", new AttributeValue().withN(Long.toString(seq)));
+        return key;
+    }
+
+    private static AttributeValue idList(List<String> ids) {
+        List<AttributeValue> values = new ArrayList<>(ids.size());
+        for (String id : ids) {
+            values.add(new AttributeValue(id));
+        }
+        return new AttributeValue().withL(values);
+    }
+}
@@ -0,0 +1,72 @@
+package ata.unit.three.project.expense.dynamodb;
+
+import com.amazonaws.services.dynamodbv2.datamodeling.DynamoDBMapper;
+import com.amazonaws.services.dynamodbv2.datamodeling.DynamoDBScanExpression;
+import com.kenzie.ata.ExcludeFromJacocoGeneratedReport;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Repairs expense copies in lists that missed a change, for instance while the PropagateExpenseChanges function
+ * was failing for longer than the stream keeps records, or for a batch it gave up on and reported to its failure
+ * queue:
+ * <pre>
+ * java -cp Application.jar ata.unit.three.project.expense.dynamodb.ListCopyRepair [expenseId ...]
+ * </pre>
+ * Without expense ids every expense in the membership index is checked. Each expense is looked up once and
+ * handed to the {@link ExpenseChangePropagator} as if it had just changed, so only lists holding a stale copy,
+ * or still holding a deleted expense, are written.
+ */
+@ExcludeFromJacocoGeneratedReport
+public class ListCopyRepair {
+    static final Logger log = LogManager.getLogger();
+
+    private static final int SCAN_SEGMENTS = 4;
+
+    private final DynamoDBMapper mapper;
+    private final ExpenseChangePropagator propagator;
+    private final Set<String> checked = new HashSet<>();
+
+    public ListCopyRepair(DynamoDBMapper mapper, ExpenseChangePropagator propagator) {
+        this.mapper = mapper;
+        this.propagator = propagator;
+    }
+
+    public static void main(String[] args) {
+        DynamoDBMapper mapper = new DynamoDBMapper(DynamoDBClientFactory.getClient());
+        ListCopyRepair repair = new ListCopyRepair(mapper,
+                new ExpenseChangePropagator(DynamoDBClientFactory.getClient(), mapper));
+        List<String> expenseIds = Arrays.asList(args);
+        if (expenseIds.isEmpty()) {
+            for (ExpenseListMembership membership : mapper.parallelScan(ExpenseListMembership.class,
+                    new DynamoDBScanExpression(), SCAN_SEGMENTS)) {
+                repair.repair(membership.getExpenseId());
+            }
+        } else {
+            expenseIds.forEach(repair::repair);
+        }
+        log.info("Checked the list copies of {} expenses", repair.checked.size());
+    }
+
+    /**
+     * Brings every list containing an expense up to date with it, once per expense.
+     * @param expenseId the expense id
+     */
+    public void repair(String expenseId) {
+        if (!checked.add(expenseId)) {
+            return;
+        }
+        ExpenseItem expense = mapper.load(ExpenseItem.class, expenseId);
+        String failed = propagator.propagate(Collections.singletonList(new ExpenseChange("repair", expenseId,
+                expense)));
+        if (failed != null) {
+            log.warn("Could not repair the lists of expense {}", expenseId);
+        }
+    }
+}
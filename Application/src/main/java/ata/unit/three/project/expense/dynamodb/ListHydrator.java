@@ -0,0 +1,152 @@
+package ata.unit.three.project.expense.dynamodb;
+
+import ata.unit.three.project.expense.service.Deadline;
+
+import com.amazonaws.services.dynamodbv2.datamodeling.DynamoDBMapper;
+import com.amazonaws.services.dynamodbv2.datamodeling.DynamoDBMapperConfig;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Consumer;
+
+/**
+ * Fills in the expenses of {@link ListStorage#REFERENCES} and {@link ListStorage#CHUNKED} lists.
+ *
+ * The ids of chunked lists are read from their chunks first. The ids of all lists being read are then collected
+ * and looked up in the {@link ExpenseCache}. The rest are loaded with BatchGetItem in chunks of
+ * {@link #BATCH_SIZE}, the most one request may ask for, and the chunks are sent in parallel. Expenses that no
+ * longer exist are left out of the list.
+ */
+public class ListHydrator {
+    static final int BATCH_SIZE = 100;
+
+    private static final ExecutorService EXECUTOR = Executors.newCachedThreadPool(runnable -> {
+        Thread thread = new Thread(runnable, "list-hydration");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final DynamoDBMapper mapper;
+    private final ExpenseCache cache;
+
+    public ListHydrator(DynamoDBMapper mapper, ExpenseCache cache) {
+        this.mapper = mapper;
+        this.cache = cache;
+    }
+
+    /**
+     * Fills in the expenses of the lists among the given lists that store ids; other lists are left as they are.
+     * @param lists the lists
+     */
+    public void hydrate(Collection<ExpenseItemList> lists) {
+        ListChunks.loadExpenseIds(mapper, lists);
+        Set<String> ids = new LinkedHashSet<>();
+        for (ExpenseItemList list : lists) {
+            if (ListStorage.of(list).storesIds() && list.getExpenseIds() != null) {
+                ids.addAll(list.getExpenseIds());
+            }
+        }
+        Map<String, ExpenseItem> expenses = loadExpenses(ids);
+        for (ExpenseItemList list : lists) {
+            if (!ListStorage.of(list).storesIds()) {
+                continue;
+            }
+            List<ExpenseItem> items = new LinkedList<>();
+            for (String id : list.getExpenseIds() == null ? Collections.<String>emptyList() : list.getExpenseIds()) {
+                ExpenseItem expense = expenses.get(id);
+                if (expense != null) {
+                    items.add(expense);
+                }
+            }
+            list.setExpenseItems(items);
+        }
+    }
+
+    /**
+     * Loads expenses by id, from the {@link ExpenseCache} where it has them and with BatchGetItem otherwise.
+     * @param ids the expense ids
+     * @return the expenses found, by id
+     */
+    public Map<String, ExpenseItem> loadExpenses(Collection<String> ids) {
+        Map<String, ExpenseItem> expenses = new ConcurrentHashMap<>(cache.getAll(ids));
+        List<String> missing = new ArrayList<>();
+        for (String id : ids) {
+            if (!expenses.containsKey(id)) {
+                missing.add(id);
+            }
+        }
+        loadInParallel(missing, expenses);
+        return expenses;
+    }
+
+    /**
+     * Loads items with BatchGetItem, sending chunks of {@link #BATCH_SIZE} keys in parallel.
+     * @param mapper the mapper to load with
+     * @param keys the keys of the items
+     * @param config the mapper config for the reads
+     * @param sink receives every item found, possibly from several threads at once
+     */
+    static void batchLoadInParallel(DynamoDBMapper mapper, List<?> keys, DynamoDBMapperConfig config,
+                                    Consumer<Object> sink) {
+        if (keys.isEmpty()) {
+            return;
+        }
+        if (keys.size() <= BATCH_SIZE) {
+            batchLoad(mapper, keys, config, sink);
+            return;
+        }
+        Deadline deadline = Deadline.current();
+        List<CompletableFuture<Void>> futures = new ArrayList<>();
+        for (int start = 0; start < keys.size(); start += BATCH_SIZE) {
+            List<?> chunk = keys.subList(start, Math.min(keys.size(), start + BATCH_SIZE));
+            futures.add(CompletableFuture.runAsync(() -> {
+                Deadline.Scope scope = Deadline.attach(deadline);
+                try {
+                    batchLoad(mapper, chunk, config, sink);
+                } finally {
+                    scope.close();
+                }
+            }, EXECUTOR));
+        }
+        try {
+            CompletableFuture.allOf(futures.toArray(new CompletableFuture<?>[0])).join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw e;
+        }
+    }
+
+    private static void batchLoad(DynamoDBMapper mapper, List<?> keys, DynamoDBMapperConfig config,
+                                  Consumer<Object> sink) {
+        for (List<Object> loaded : mapper.batchLoad(keys, config).values()) {
+            loaded.forEach(sink);
+        }
+    }
+
+    private void loadInParallel(List<String> ids, Map<String, ExpenseItem> into) {
+        List<Object> keys = new ArrayList<>(ids.size());
+        for (String id : ids) {
+            ExpenseItem key = new ExpenseItem();
+            key.setId(id);
+            keys.add(key);
+        }
+        batchLoadInParallel(mapper, keys, DynamoDBMapperConfig.DEFAULT, item -> {
+            ExpenseItem expense = (ExpenseItem) item;
+            cache.put(expense);
+            into.put(expense.getId(), expense);
+        });
+    }
+}
@@ -0,0 +1,60 @@
+package ata.unit.three.project.expense.dynamodb;
+
+import com.amazonaws.services.dynamodbv2.datamodeling.DynamoDBMapper;
+import com.amazonaws.services.dynamodbv2.datamodeling.DynamoDBScanExpression;
+import com.kenzie.ata.ExcludeFromJacocoGeneratedReport;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+import static ata.unit.three.project.expense.dynamodb.ExpenseTable.LIST_MEMBERSHIP_TABLE_NAME;
+
+/**
+ * Records the memberships of lists created before the ExpenseListMembership table existed:
+ * <pre>
+ * java -cp Application.jar ata.unit.three.project.expense.dynamodb.ListMembershipBackfill [segments]
+ * </pre>
+ * Deploy the repository that maintains the table first, so no membership is missed. Memberships are plain
+ * puts, so the tool can be run again at any time.
+ */
+@ExcludeFromJacocoGeneratedReport
+public class ListMembershipBackfill {
+    static final Logger log = LogManager.getLogger();
+
+    private static final int DEFAULT_SEGMENTS = 4;
+
+    public static void main(String[] args) {
+        if (!ExpenseTable.doesExpenseTableExist(LIST_MEMBERSHIP_TABLE_NAME)) {
+            ExpenseTable.createListMembershipTable();
+        }
+        int segments = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_SEGMENTS;
+        DynamoDBMapper mapper = new DynamoDBMapper(DynamoDBClientFactory.getClient());
+        long recorded = 0;
+        for (ExpenseItemList list : mapper.parallelScan(ExpenseItemList.class, new DynamoDBScanExpression(),
+                segments)) {
+            ListChunks.loadExpenseIds(mapper, Collections.singletonList(list));
+            Set<String> expenseIds = new LinkedHashSet<>();
+            if (list.getExpenseIds() != null) {
+                expenseIds.addAll(list.getExpenseIds());
+            }
+            if (list.getExpenseItems() != null) {
+                list.getExpenseItems().forEach(expense -> expenseIds.add(expense.getId()));
+            }
+            List<ExpenseListMembership> memberships = new ArrayList<>();
+            for (String expenseId : expenseIds) {
+                ExpenseListMembership membership = new ExpenseListMembership();
+                membership.setExpenseId(expenseId);
+                membership.setListId(list.getId());
+                memberships.add(membership);
+            }
+            mapper.batchSave(memberships);
+            recorded += memberships.size();
+        }
+        log.info("Recorded {} list memberships", recorded);
+    }
+}
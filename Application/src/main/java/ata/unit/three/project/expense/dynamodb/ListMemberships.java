@@ -0,0 +1,77 @@
+package ata.unit.three.project.expense.dynamodb;
+
+import com.amazonaws.services.dynamodbv2.datamodeling.DynamoDBMapper;
+import com.amazonaws.services.dynamodbv2.datamodeling.DynamoDBQueryExpression;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * The reverse index from expenses to the lists containing them, kept in the ExpenseListMembership table.
+ *
+ * The repository records a membership whenever an expense is added to a list and drops it when the expense is
+ * removed, so the index holds for every list storage. Lists that existed before the index are added with
+ * {@link ListMembershipBackfill}. A membership is recorded before the list changes and dropped after, so the
+ * index may name a list that no longer holds the expense, but never misses one that does.
+ */
+public class ListMemberships {
+    private final DynamoDBMapper mapper;
+
+    public ListMemberships(DynamoDBMapper mapper) {
+        this.mapper = mapper;
+    }
+
+    public void add(String expenseId, String listId) {
+        mapper.save(membership(expenseId, listId));
+    }
+
+    public void remove(String expenseId, String listId) {
+        mapper.delete(membership(expenseId, listId));
+    }
+
+    /**
+     * Tells whether an expense is in a list, with one GetItem.
+     * @param expenseId the expense id
+     * @param listId the list id
+     * @return true if the membership is recorded
+     */
+    public boolean contains(String expenseId, String listId) {
+        return mapper.load(ExpenseListMembership.class, expenseId, listId) != null;
+    }
+
+    /**
+     * Drops the memberships of several expenses in one list, as when the list is deleted.
+     * @param expenseIds the expense ids
+     * @param listId the list id
+     */
+    public void removeAll(Collection<String> expenseIds, String listId) {
+        List<ExpenseListMembership> memberships = new ArrayList<>(expenseIds.size());
+        for (String expenseId : expenseIds) {
+            memberships.add(membership(expenseId, listId));
+        }
+        mapper.batchDelete(memberships);
+    }
+
+    /**
+     * Returns the lists containing an expense, with one Query.
+     * @param expenseId the expense id
+     * @return the ids of the lists
+     */
+    public List<String> listIdsOf(String expenseId) {
+        DynamoDBQueryExpression<ExpenseListMembership> query = new DynamoDBQueryExpression<ExpenseListMembership>()
+                .withHashKeyValues(membership(expenseId, null));
+        List<String> listIds = new ArrayList<>();
+        for (ExpenseListMembership membership : mapper.query(ExpenseListMembership.class, query)) {
+            listIds.add(membership.getListId());
+        }
+        return listIds;
+    }
+
+    private static ExpenseListMembership membership(String expenseId, String listId) {
+        ExpenseListMembership membership = new ExpenseListMembership();
+        membership.setExpenseId(expenseId);
+        membership.setListId(listId);
+        return membership;
+    }
+}
@@ -0,0 +1,56 @@
+package ata.unit.three.project.expense.dynamodb;
+
+/**
+ * How an expense list in the ExpenseList table holds its expenses. Every list records its own storage, so
+ * lists of both kinds can be read side by side while they are migrated, see {@link ListStorageMigration}.
+ */
+public enum ListStorage {
+    /**
+     * The list embeds full copies of its expenses in the Expenses attribute. Lists without a Storage
+     * attribute use this.
+     */
+    EMBEDDED,
+    /**
+     * The list only stores the ids of its expenses, in order, in the ExpenseIds attribute, and is filled in
+     * from the Expense table when read.
+     */
+    REFERENCES,
+    /**
+     * The list item only names its chunks in the Chunks attribute; the expense ids are spread, in order, over
+     * items of the ExpenseListChunk table, see {@link ListChunks}. For lists too large for one item.
+     */
+    CHUNKED;
+
+    public static final String NEW_LISTS_ENV = "EXPENSE_LIST_STORAGE";
+    public static final String NEW_LISTS_PROPERTY = "dynamodb.expenseListStorage";
+
+    /**
+     * Returns the storage of a list.
+     * @param list the list
+     * @return the list's storage, EMBEDDED if it has none
+     */
+    public static ListStorage of(ExpenseItemList list) {
+        return list.getStorage() == null ? EMBEDDED : valueOf(list.getStorage());
+    }
+
+    /**
+     * Tells whether lists of this storage are filled in from expense ids when read.
+     * @return true for REFERENCES and CHUNKED
+     */
+    public boolean storesIds() {
+        return this != EMBEDDED;
+    }
+
+    /**
+     * Reads the storage for new lists from EXPENSE_LIST_STORAGE (or the dynamodb.expenseListStorage system
+     * property).
+     * @return the configured storage, EMBEDDED if none is set
+     */
+    public static ListStorage forNewLists() {
+        String value = System.getProperty(NEW_LISTS_PROPERTY);
+        if (value == null || value.isEmpty()) {
+            value = System.getenv(NEW_LISTS_ENV);
+        }
+        return value == null || value.isEmpty() ? EMBEDDED : valueOf(value.trim().toUpperCase());
+    }
+}
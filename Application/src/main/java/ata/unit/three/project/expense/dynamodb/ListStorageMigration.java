@@ -0,0 +1,203 @@
+package ata.unit.three.project.expense.dynamodb;
+
+import com.amazonaws.services.dynamodbv2.AmazonDynamoDB;
+import com.amazonaws.services.dynamodbv2.datamodeling.DynamoDBMapper;
+import com.amazonaws.services.dynamodbv2.datamodeling.DynamoDBMapperTableModel;
+import com.amazonaws.services.dynamodbv2.datamodeling.DynamoDBScanExpression;
+import com.amazonaws.services.dynamodbv2.model.AttributeValue;
+import com.amazonaws.services.dynamodbv2.model.ConditionalCheckFailedException;
+import com.amazonaws.services.dynamodbv2.model.UpdateItemRequest;
+import com.kenzie.ata.ExcludeFromJacocoGeneratedReport;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static ata.unit.three.project.expense.dynamodb.ExpenseTable.EXPENSE_LIST_TABLE_NAME;
+
+/**
+ * Switches lists in the ExpenseList table between {@link ListStorage#EMBEDDED} and
+ * {@link ListStorage#REFERENCES} while the service keeps running.
+ *
+ * <pre>
+ * java -cp Application.jar ata.unit.three.project.expense.dynamodb.ListStorageMigration \
+ *     [--embedded|--chunked] [listId ...]
+ * </pre>
+ * Without list ids every list is converted. By default lists are converted to references; --embedded converts
+ * them back and --chunked spreads them over chunks, see {@link ListChunks}. Each list is rewritten with one
+ * conditional update that fails if the list gained or lost an expense since it was read; such lists are read
+ * again and retried. Chunked lists are not converted back.
+ */
+@ExcludeFromJacocoGeneratedReport
+public class ListStorageMigration {
+    static final Logger log = LogManager.getLogger();
+
+    private static final int SCAN_SEGMENTS = 4;
+    private static final int MAX_ATTEMPTS = 5;
+
+    private final AmazonDynamoDB client;
+    private final DynamoDBMapper mapper;
+    private final ListHydrator hydrator;
+    private final ListChunks chunks;
+    private final DynamoDBMapperTableModel<ExpenseItem> expenseModel;
+
+    public ListStorageMigration(AmazonDynamoDB client) {
+        this.client = client;
+        this.mapper = new DynamoDBMapper(client);
+        this.hydrator = new ListHydrator(mapper, new ExpenseCache(0, 0));
+        this.chunks = new ListChunks(client, mapper);
+        this.expenseModel = mapper.getTableModel(ExpenseItem.class);
+    }
+
+    public static void main(String[] args) {
+        List<String> ids = new ArrayList<>(Arrays.asList(args));
+        ListStorage target = ListStorage.REFERENCES;
+        if (ids.remove("--embedded")) {
+            target = ListStorage.EMBEDDED;
+        } else if (ids.remove("--chunked")) {
+            target = ListStorage.CHUNKED;
+            if (!ExpenseTable.doesExpenseTableExist(ExpenseTable.EXPENSE_LIST_CHUNK_TABLE_NAME)) {
+                ExpenseTable.createExpenseListChunkTable();
+            }
+        }
+        ListStorageMigration migration = new ListStorageMigration(DynamoDBClientFactory.getClient());
+        int converted = 0;
+        Iterable<ExpenseItemList> lists = ids.isEmpty() ?
+                migration.mapper.parallelScan(ExpenseItemList.class, new DynamoDBScanExpression(), SCAN_SEGMENTS) :
+                Collections.<ExpenseItemList>emptyList();
+        for (ExpenseItemList list : lists) {
+            converted += migration.convert(list.getId(), target) ? 1 : 0;
+        }
+        for (String id : ids) {
+            converted += migration.convert(id, target) ? 1 : 0;
+        }
+        log.info("Converted {} lists to {}", converted, target);
+    }
+
+    /**
+     * Converts one list.
+     * @param listId the list id
+     * @param target the storage to convert to
+     * @return true if the list was converted, false if it already used the target storage or is gone
+     */
+    public boolean convert(String listId, ListStorage target) {
+        for (int attempt = 0; attempt < MAX_ATTEMPTS; attempt++) {
+            ExpenseItemList list = mapper.load(ExpenseItemList.class, listId);
+            if (list == null || ListStorage.of(list) == target || ListStorage.of(list) == ListStorage.CHUNKED) {
+                return false;
+            }
+            if (target == ListStorage.CHUNKED) {
+                if (toChunked(list)) {
+                    return true;
+                }
+                continue;
+            }
+            try {
+                client.updateItem(target == ListStorage.REFERENCES ? toReferences(list) : toEmbedded(list));
+                return true;
+            } catch (ConditionalCheckFailedException e) {
+                log.debug("List {} changed while it was converted, retrying", listId);
+            }
+        }
+        log.warn("Gave up converting list {}, it keeps changing", listId);
+        return false;
+    }
+
+    private UpdateItemRequest toReferences(ExpenseItemList list) {
+        List<ExpenseItem> expenses = list.getExpenseItems() == null ? Collections.emptyList() :
+                list.getExpenseItems();
+        List<AttributeValue> ids = new ArrayList<>();
+        for (ExpenseItem expense : expenses) {
+            AttributeValue id = new AttributeValue(expense.getId());
+            if (!ids.contains(id)) {
+                ids.add(id);
+            }
+        }
+        Map<String, AttributeValue> values = new HashMap<>();
+        values.put(":ids", new AttributeValue().withL(ids));
+        values.put(":storage", new AttributeValue(ListStorage.REFERENCES.name()));
+        String unchanged = "attribute_not_exists(Storage) AND " + sizeUnchanged("Expenses", expenses.size(), values);
+        return new UpdateItemRequest()
+                .withTableName(EXPENSE_LIST_TABLE_NAME)
+                .withKey(Collections.singletonMap("Id", new AttributeValue(list.getId())))
+                .withUpdateExpression("SET ExpenseIds = :ids, Storage = :storage REMOVE Expenses")
+                .withConditionExpression(unchanged)
+                .withExpressionAttributeValues(values);
+    }
+
+    private boolean toChunked(ExpenseItemList list) {
+        Map<String, AttributeValue> values = new HashMap<>();
+        String unchanged = unchanged(list, values);
+        Set<String> ids = new LinkedHashSet<>();
+        if (list.getExpenseIds() != null) {
+            ids.addAll(list.getExpenseIds());
+        }
+        if (list.getExpenseItems() != null) {
+            list.getExpenseItems().forEach(expense -> ids.add(expense.getId()));
+        }
+        List<Long> written = chunks.writeChunks(list.getId(), new ArrayList<>(ids));
+        List<AttributeValue> seqs = new ArrayList<>();
+        for (Long seq : written) {
+            seqs.add(new AttributeValue().withN(Long.toString(seq)));
+        }
+        values.put(":chunks", new AttributeValue().withL(seqs));
+        values.put(":chunked", new AttributeValue(ListStorage.CHUNKED.name()));
+        try {
+            client.updateItem(new UpdateItemRequest()
+                    .withTableName(EXPENSE_LIST_TABLE_NAME)
+                    .withKey(Collections.singletonMap("Id", new AttributeValue(list.getId())))
+                    .withUpdateExpression("SET Chunks = :chunks, Storage = :chunked REMOVE Expenses, ExpenseIds")
+                    .withConditionExpression(unchanged)
+                    .withExpressionAttributeValues(values));
+            return true;
+        } catch (ConditionalCheckFailedException e) {
+            log.debug("List {} changed while it was converted, retrying", list.getId());
+            chunks.deleteChunks(list.getId(), written);
+            return false;
+        }
+    }
+
+    private static String unchanged(ExpenseItemList list, Map<String, AttributeValue> values) {
+        if (ListStorage.of(list) == ListStorage.REFERENCES) {
+            values.put(":references", new AttributeValue(ListStorage.REFERENCES.name()));
+            return "Storage = :references AND " + sizeUnchanged("ExpenseIds",
+                    list.getExpenseIds() == null ? 0 : list.getExpenseIds().size(), values);
+        }
+        return "attribute_not_exists(Storage) AND " + sizeUnchanged("Expenses",
+                list.getExpenseItems() == null ? 0 : list.getExpenseItems().size(), values);
+    }
+
+    private UpdateItemRequest toEmbedded(ExpenseItemList list) {
+        int referenced = list.getExpenseIds() == null ? 0 : list.getExpenseIds().size();
+        hydrator.hydrate(Collections.singletonList(list));
+        List<AttributeValue> expenses = new ArrayList<>();
+        for (ExpenseItem expense : list.getExpenseItems()) {
+            expenses.add(new AttributeValue().withM(expenseModel.convert(expense)));
+        }
+        Map<String, AttributeValue> values = new HashMap<>();
+        values.put(":expenses", new AttributeValue().withL(expenses));
+        values.put(":storage", new AttributeValue(ListStorage.REFERENCES.name()));
+        String unchanged = "Storage = :storage AND " + sizeUnchanged("ExpenseIds", referenced, values);
+        return new UpdateItemRequest()
+                .withTableName(EXPENSE_LIST_TABLE_NAME)
+                .withKey(Collections.singletonMap("Id", new AttributeValue(list.getId())))
+                .withUpdateExpression("SET Expenses = :expenses REMOVE ExpenseIds, Storage")
+                .withConditionExpression(unchanged)
+                .withExpressionAttributeValues(values);
+    }
+
+    private static String sizeUnchanged(String attribute, int size, Map<String, AttributeValue> values) {
+        if (size == 0) {
+            return "(attribute_not_exists(" + attribute + ") OR size(" + attribute + ") = :size)";
+        }
+        values.put(":size", new AttributeValue().withN(Integer.toString(size)));
+        return "size(" + attribute + ") = :size";
+    }
+}
@@ -0,0 +1,109 @@
+package ata.unit.three.project.expense.dynamodb;
+
+import com.amazonaws.services.dynamodbv2.AmazonDynamoDBStreams;
+import com.amazonaws.services.dynamodbv2.datamodeling.DynamoDBMapper;
+import com.amazonaws.services.dynamodbv2.datamodeling.DynamoDBMapperTableModel;
+import com.amazonaws.services.dynamodbv2.model.DescribeStreamRequest;
+import com.amazonaws.services.dynamodbv2.model.GetRecordsRequest;
+import com.amazonaws.services.dynamodbv2.model.GetRecordsResult;
+import com.amazonaws.services.dynamodbv2.model.GetShardIteratorRequest;
+import com.amazonaws.services.dynamodbv2.model.Record;
+import com.amazonaws.services.dynamodbv2.model.Shard;
+import com.amazonaws.services.dynamodbv2.model.ShardIteratorType;
+import com.kenzie.ata.ExcludeFromJacocoGeneratedReport;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Stands in for the Lambda stream trigger when running against DynamoDB Local, which supports streams but
+ * cannot invoke functions:
+ * <pre>
+ * DYNAMODB_ENDPOINT=http://localhost:8000 java -cp Application.jar \
+ *     ata.unit.three.project.expense.dynamodb.LocalExpenseStream
+ * </pre>
+ * It polls every shard of the Expense table's stream and hands the changes to an {@link ExpenseChangePropagator}
+ * in the same way the PropagateExpenseChanges function does. Each shard's position is checkpointed in memory;
+ * when a change fails, the shard is read again from that change.
+ */
+@ExcludeFromJacocoGeneratedReport
+public class LocalExpenseStream {
+    static final Logger log = LogManager.getLogger();
+
+    private static final long POLL_MILLIS = 1000;
+
+    private final AmazonDynamoDBStreams streams;
+    private final String streamArn;
+    private final ExpenseChangePropagator propagator;
+    private final DynamoDBMapperTableModel<ExpenseItem> expenseModel;
+    private final Map<String, String> iterators = new HashMap<>();
+
+    public LocalExpenseStream(AmazonDynamoDBStreams streams, String streamArn, DynamoDBMapper mapper,
+                              ExpenseChangePropagator propagator) {
+        this.streams = streams;
+        this.streamArn = streamArn;
+        this.propagator = propagator;
+        this.expenseModel = mapper.getTableModel(ExpenseItem.class);
+    }
+
+    public static void main(String[] args) throws InterruptedException {
+        String streamArn = ExpenseTable.enableExpenseStreamIfMissing();
+        DynamoDBMapper mapper = new DynamoDBMapper(DynamoDBClientFactory.getClient());
+        LocalExpenseStream stream = new LocalExpenseStream(DynamoDBClientFactory.buildStreamsClient(), streamArn,
+                mapper, new ExpenseChangePropagator(DynamoDBClientFactory.getClient(), mapper));
+        log.info("Polling {}", streamArn);
+        while (!Thread.currentThread().isInterrupted()) {
+            stream.poll();
+            Thread.sleep(POLL_MILLIS);
+        }
+    }
+
+    /**
+     * Reads one batch from every open shard and propagates it.
+     */
+    public void poll() {
+        for (Shard shard : streams.describeStream(new DescribeStreamRequest().withStreamArn(streamArn))
+                .getStreamDescription().getShards()) {
+            String iterator = iterators.containsKey(shard.getShardId()) ? iterators.get(shard.getShardId()) :
+                    iterator(shard.getShardId(), ShardIteratorType.TRIM_HORIZON, null);
+            if (iterator == null) {
+                continue;
+            }
+            GetRecordsResult result = streams.getRecords(new GetRecordsRequest().withShardIterator(iterator));
+            List<ExpenseChange> changes = new ArrayList<>();
+            for (Record record : result.getRecords()) {
+                ExpenseChange change = toChange(record);
+                if (change != null) {
+                    changes.add(change);
+                }
+            }
+            String failed = propagator.propagate(changes);
+            iterators.put(shard.getShardId(), failed == null ? result.getNextShardIterator() :
+                    iterator(shard.getShardId(), ShardIteratorType.AT_SEQUENCE_NUMBER, failed));
+        }
+    }
+
+    private String iterator(String shardId, ShardIteratorType type, String sequenceNumber) {
+        return streams.getShardIterator(new GetShardIteratorRequest()
+                .withStreamArn(streamArn)
+                .withShardId(shardId)
+                .withShardIteratorType(type)
+                .withSequenceNumber(sequenceNumber)).getShardIterator();
+    }
+
+    private ExpenseChange toChange(Record record) {
+        String sequenceNumber = record.getDynamodb().getSequenceNumber();
+        String expenseId = record.getDynamodb().getKeys().get("Id").getS();
+        if ("REMOVE".equals(record.getEventName())) {
+            return new ExpenseChange(sequenceNumber, expenseId, null);
+        }
+        if (!"MODIFY".equals(record.getEventName())) {
+            return null;
+        }
+        return new ExpenseChange(sequenceNumber, expenseId, expenseModel.unconvert(record.getDynamodb().getNewImage()));
+    }
+}
@@ -0,0 +1,70 @@
+package ata.unit.three.project.expense.dynamodb;
+
+import ata.unit.three.project.expense.service.SharedRateCounter;
+import ata.unit.three.project.expense.service.exceptions.ServiceOverloadedException;
+
+import com.amazonaws.SdkClientException;
+import com.amazonaws.services.dynamodbv2.AmazonDynamoDB;
+import com.amazonaws.services.dynamodbv2.model.AttributeValue;
+import com.amazonaws.services.dynamodbv2.model.ConditionalCheckFailedException;
+import com.amazonaws.services.dynamodbv2.model.UpdateItemRequest;
+import com.kenzie.ata.ExcludeFromJacocoGeneratedReport;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import static ata.unit.three.project.expense.dynamodb.ExpenseTable.RATE_LIMIT_TABLE_NAME;
+
+/**
+ * Keeps the shared rate limit counters in DynamoDB, one item per email and window.
+ *
+ * A mutation is counted with a single conditional ADD, so containers never have to read the counter first. If
+ * the counter table itself cannot be reached the mutation is let through: the local limit still applies, and
+ * the rate limiter should not become a new way for the service to fail.
+ */
+@ExcludeFromJacocoGeneratedReport
+public class RateLimitCounterTable implements SharedRateCounter {
+    static final Logger log = LogManager.getLogger();
+
+    private final AmazonDynamoDB client = DynamoDBClientFactory.getClient();
+
+    public RateLimitCounterTable() {
+        if (!ExpenseTable.doesExpenseTableExist(RATE_LIMIT_TABLE_NAME)) {
+            ExpenseTable.createRateLimitTable();
+        }
+    }
+
+    @Override
+    public boolean tryIncrement(String email, long windowStartSeconds, long windowSeconds, long limit) {
+        Map<String, AttributeValue> key = new HashMap<>();
+        key.put("Id", new AttributeValue(email + "#" + windowStartSeconds));
+
+        Map<String, String> names = new HashMap<>();
+        names.put("#count", "Count");
+        names.put("#expires", "ExpiresAt");
+
+        Map<String, AttributeValue> values = new HashMap<>();
+        values.put(":one", new AttributeValue().withN("1"));
+        values.put(":limit", new AttributeValue().withN(Long.toString(limit)));
+        values.put(":expires", new AttributeValue().withN(Long.toString(windowStartSeconds + 2 * windowSeconds)));
+
+        UpdateItemRequest request = new UpdateItemRequest()
+                .withTableName(RATE_LIMIT_TABLE_NAME)
+                .withKey(key)
+                .withUpdateExpression("ADD #count :one SET #expires = :expires")
+                .withConditionExpression("attribute_not_exists(#count) OR #count < :limit")
+                .withExpressionAttributeNames(names)
+                .withExpressionAttributeValues(values);
+        try {
+            client.updateItem(request);
+            return true;
+        } catch (ConditionalCheckFailedException e) {
+            return false;
+        } catch (ServiceOverloadedException | SdkClientException e) {
+            log.warn("Shared rate limit counter unavailable, allowing the request: {}", e.getMessage());
+            return true;
+        }
+    }
+}
@@ -0,0 +1,233 @@
+package ata.unit.three.project.expense.dynamodb;
+
+import ata.unit.three.project.expense.service.Deadline;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Sends a second copy of a slow idempotent read and returns whichever copy answers first.
+ *
+ * The hedge is sent once the first attempt has been outstanding for longer than the recent p95 read latency,
+ * so in steady state only about one read in twenty qualifies. A budget additionally caps hedges at a fixed
+ * percentage of reads, which keeps a slow table from doubling its own load.
+ *
+ * Hedging is opt-in: set DYNAMODB_HEDGED_READS=true (or the dynamodb.hedgedReads system property). The budget
+ * defaults to 5% and can be changed with DYNAMODB_HEDGE_BUDGET_PERCENT (or dynamodb.hedgeBudgetPercent).
+ */
+public class ReadHedger {
+    public static final String ENABLED_ENV = "DYNAMODB_HEDGED_READS";
+    public static final String ENABLED_PROPERTY = "dynamodb.hedgedReads";
+    public static final String BUDGET_ENV = "DYNAMODB_HEDGE_BUDGET_PERCENT";
+    public static final String BUDGET_PROPERTY = "dynamodb.hedgeBudgetPercent";
+
+    static final Logger log = LogManager.getLogger();
+
+    private static final long MIN_SAMPLES = 100;
+    private static final long MIN_HEDGE_DELAY_MICROS = 1000;
+    private static final long TOKEN = 1000;
+    private static final long MAX_TOKENS = 10 * TOKEN;
+    private static final long METRICS_INTERVAL = 1000;
+
+    private static volatile ReadHedger instance;
+
+    private final boolean enabled;
+    private final long creditPerRead;
+    private final ExecutorService executor;
+    private final LatencyTracker tracker = new LatencyTracker(95.0);
+    private final AtomicLong budget = new AtomicLong(MAX_TOKENS);
+    private final AtomicLong reads = new AtomicLong();
+    private final AtomicLong hedges = new AtomicLong();
+    private final AtomicLong hedgeWins = new AtomicLong();
+
+    /**
+     * Creates a hedger.
+     * @param enabled whether to hedge at all; when false reads run directly on the calling thread
+     * @param budgetPercent the largest share of reads, in percent, that may be hedged
+     * @param executor runs the attempts when hedging is enabled
+     */
+    public ReadHedger(boolean enabled, double budgetPercent, ExecutorService executor) {
+        this.enabled = enabled;
+        this.creditPerRead = Math.round(budgetPercent / 100.0 * TOKEN);
+        this.executor = executor;
+    }
+
+    /**
+     * Returns the hedger shared by every repository in this container.
+     * @return the shared hedger, configured from the environment
+     */
+    public static ReadHedger getInstance() {
+        ReadHedger current = instance;
+        if (current == null) {
+            synchronized (ReadHedger.class) {
+                current = instance;
+                if (current == null) {
+                    current = new ReadHedger(Boolean.parseBoolean(setting(ENABLED_PROPERTY, ENABLED_ENV, "false")),
+                            Double.parseDouble(setting(BUDGET_PROPERTY, BUDGET_ENV, "5")),
+                            Executors.newCachedThreadPool(runnable -> {
+                                Thread thread = new Thread(runnable, "hedged-read");
+                                thread.setDaemon(true);
+                                return thread;
+                            }));
+                    instance = current;
+                }
+            }
+        }
+        return current;
+    }
+
+    /**
+     * Performs a read, hedging it if it is slow and the budget allows.
+     * @param read the idempotent read
+     * @param <T> the result type
+     * @return the result of the first attempt to complete
+     */
+    public <T> T read(Supplier<T> read) {
+        reads.incrementAndGet();
+        budget.getAndUpdate(tokens -> Math.min(MAX_TOKENS, tokens + creditPerRead));
+        if (!enabled) {
+            return timed(read);
+        }
+
+        Deadline deadline = Deadline.current();
+        CompletableFuture<T> result = new CompletableFuture<>();
+        AtomicInteger outstanding = new AtomicInteger(1);
+        executor.execute(() -> attempt(read, deadline, result, outstanding, false));
+        try {
+            long delay = tracker.getSampleCount() < MIN_SAMPLES ? -1 :
+                    Math.max(MIN_HEDGE_DELAY_MICROS, tracker.getPercentileMicros());
+            if (delay < 0) {
+                return result.get();
+            }
+            try {
+                return result.get(delay, TimeUnit.MICROSECONDS);
+            } catch (TimeoutException e) {
+                if (!result.isDone() && outstanding.get() > 0 && tryAcquireBudget()) {
+                    if (!result.isDone() && joinAttempts(outstanding)) {
+                        hedges.incrementAndGet();
+                        executor.execute(() -> attempt(read, deadline, result, outstanding, true));
+                    } else {
+                        budget.getAndUpdate(tokens -> Math.min(MAX_TOKENS, tokens + TOKEN));
+                    }
+                }
+                return result.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for a read", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new IllegalStateException(e.getCause());
+        } finally {
+            if (reads.get() % METRICS_INTERVAL == 0) {
+                log.info(String.format("Hedged reads: reads=%d hedgeRate=%.4f winRate=%.4f p95Micros=%d",
+                        reads.get(), getHedgeRate(), getWinRate(), tracker.getPercentileMicros()));
+            }
+        }
+    }
+
+    public long getReadCount() {
+        return reads.get();
+    }
+
+    public long getHedgeCount() {
+        return hedges.get();
+    }
+
+    public long getHedgeWinCount() {
+        return hedgeWins.get();
+    }
+
+    /**
+     * Returns the share of reads that were hedged.
+     * @return hedges divided by reads
+     */
+    public double getHedgeRate() {
+        return hedges.get() / (double) Math.max(1, reads.get());
+    }
+
+    /**
+     * Returns the share of hedges that answered before the original attempt.
+     * @return hedge wins divided by hedges
+     */
+    public double getWinRate() {
+        return hedgeWins.get() / (double) Math.max(1, hedges.get());
+    }
+
+    /**
+     * Returns the latency after which a read is hedged.
+     * @return the tracked p95 read latency in microseconds, or -1 while warming up
+     */
+    public long getHedgeDelayMicros() {
+        return tracker.getPercentileMicros();
+    }
+
+    private <T> T timed(Supplier<T> read) {
+        long start = System.nanoTime();
+        T value = read.get();
+        tracker.record(TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - start));
+        return value;
+    }
+
+    private <T> void attempt(Supplier<T> read, Deadline deadline, CompletableFuture<T> result,
+                             AtomicInteger outstanding, boolean hedge) {
+        Deadline.Scope scope = Deadline.attach(deadline);
+        try {
+            T value = timed(read);
+            if (result.complete(value) && hedge) {
+                hedgeWins.incrementAndGet();
+            }
+        } catch (RuntimeException e) {
+            if (outstanding.decrementAndGet() == 0) {
+                result.completeExceptionally(e);
+            }
+        } finally {
+            scope.close();
+        }
+    }
+
+    private boolean tryAcquireBudget() {
+        long tokens = budget.get();
+        while (tokens >= TOKEN) {
+            if (budget.compareAndSet(tokens, tokens - TOKEN)) {
+                return true;
+            }
+            tokens = budget.get();
+        }
+        return false;
+    }
+
+    /**
+     * Counts one more attempt, unless every attempt has already failed.
+     */
+    private static boolean joinAttempts(AtomicInteger outstanding) {
+        int attempts = outstanding.get();
+        while (attempts > 0) {
+            if (outstanding.compareAndSet(attempts, attempts + 1)) {
+                return true;
+            }
+            attempts = outstanding.get();
+        }
+        return false;
+    }
+
+    private static String setting(String property, String env, String defaultValue) {
+        String value = System.getProperty(property);
+        if (value == null || value.isEmpty()) {
+            value = System.getenv(env);
+        }
+        return value == null || value.isEmpty() ? defaultValue : value;
+    }
+}
@@ -0,0 +1,191 @@
+package ata.unit.three.project.expense.dynamodb;
+
+import ata.unit.three.project.expense.service.exceptions.ServiceOverloadedException;
+
+import com.amazonaws.AmazonClientException;
+import com.amazonaws.AmazonServiceException;
+import com.amazonaws.AmazonWebServiceRequest;
+import com.amazonaws.SdkBaseException;
+import com.amazonaws.SdkClientException;
+import com.amazonaws.retry.RetryUtils;
+import com.amazonaws.services.dynamodbv2.AmazonDynamoDB;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+
+/**
+ * Sheds DynamoDB load when the tables are overloaded instead of piling up retries.
+ *
+ * Every call passes three checks before it is sent:
+ * <ul>
+ *     <li>a bulkhead: reads and writes each have their own limit on concurrent calls, so a backlog of slow writes
+ *     cannot starve reads or the other way around</li>
+ *     <li>an {@link AdaptiveRateLimiter} per table, which backs off when the table throttles</li>
+ *     <li>a {@link CircuitBreaker} per table and operation, which stops calling an operation that keeps failing</li>
+ * </ul>
+ * A call that fails a check, or is still throttled after its retries, is rejected with a
+ * {@link ServiceOverloadedException} that says when to retry. SDK retries of throttled calls also need a token
+ * from the table's limiter, see {@link #shouldRetry(AmazonWebServiceRequest, AmazonClientException, int)}.
+ */
+public final class ResilientDynamoDB implements InvocationHandler {
+    static final int MAX_CONCURRENT_READS = 32;
+    static final int MAX_CONCURRENT_WRITES = 16;
+    static final double MIN_RATE = 1;
+    static final double MAX_RATE = 1000;
+    static final Logger log = LogManager.getLogger();
+    private static final long BULKHEAD_RETRY_AFTER_MILLIS = 100;
+    private static final long THROTTLED_RETRY_AFTER_MILLIS = 1000;
+    private static final String NO_TABLE = "-";
+    private static final Set<String> READ_OPERATIONS = new HashSet<>(Arrays.asList("getItem", "batchGetItem",
+            "query", "scan", "transactGetItems", "describeTable", "listTables"));
+
+    private final Semaphore reads = new Semaphore(MAX_CONCURRENT_READS);
+    private final Semaphore writes = new Semaphore(MAX_CONCURRENT_WRITES);
+    private final Map<String, AdaptiveRateLimiter> limiters = new ConcurrentHashMap<>();
+    private final Map<String, CircuitBreaker> breakers = new ConcurrentHashMap<>();
+    private final Map<Class<?>, Optional<Method>> tableNameGetters = new ConcurrentHashMap<>();
+    private AmazonDynamoDB delegate;
+
+    /**
+     * Wraps a client; the returned client shares this instance's limiters and breakers.
+     * @param client the client to wrap
+     * @return a client that sheds load
+     */
+    public AmazonDynamoDB wrap(AmazonDynamoDB client) {
+        this.delegate = client;
+        return (AmazonDynamoDB) Proxy.newProxyInstance(AmazonDynamoDB.class.getClassLoader(),
+                new Class<?>[] {AmazonDynamoDB.class}, this);
+    }
+
+    @Override
+    public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+        if (args == null || args.length != 1 || !(args[0] instanceof AmazonWebServiceRequest)) {
+            return invokeDelegate(method, args);
+        }
+        String operation = method.getName();
+        String table = tableOf((AmazonWebServiceRequest) args[0]);
+        Semaphore bulkhead = READ_OPERATIONS.contains(operation) ? reads : writes;
+        if (!bulkhead.tryAcquire()) {
+            throw overloaded("Too many concurrent DynamoDB calls", BULKHEAD_RETRY_AFTER_MILLIS);
+        }
+        try {
+            long waitMillis = limiter(table).tryAcquire();
+            if (waitMillis > 0) {
+                throw overloaded("DynamoDB table " + table + " is throttling", waitMillis);
+            }
+            CircuitBreaker breaker = breakers.computeIfAbsent(table + ":" + operation, key -> new CircuitBreaker());
+            waitMillis = breaker.tryAcquire();
+            if (waitMillis > 0) {
+                throw overloaded("DynamoDB " + operation + " on " + table + " is failing", waitMillis);
+            }
+            return call(method, args, table, breaker);
+        } finally {
+            bulkhead.release();
+        }
+    }
+
+    /**
+     * Decides whether the SDK may retry a failed attempt. Throttled attempts lower the table's rate, and their
+     * retries have to fit within it.
+     * @param request the request being retried
+     * @param exception the failure
+     * @param retriesAttempted how many retries were already made
+     * @return true if the retry may be sent
+     */
+    public boolean shouldRetry(AmazonWebServiceRequest request, AmazonClientException exception,
+                               int retriesAttempted) {
+        if (!RetryUtils.isThrottlingException(exception)) {
+            return true;
+        }
+        AdaptiveRateLimiter limiter = limiter(tableOf(request));
+        limiter.onThrottle();
+        return limiter.tryAcquire() == 0;
+    }
+
+    private Object call(Method method, Object[] args, String table, CircuitBreaker breaker) throws Throwable {
+        try {
+            Object result = method.invoke(delegate, args);
+            breaker.onSuccess();
+            limiter(table).onSuccess();
+            return result;
+        } catch (InvocationTargetException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof SdkBaseException && RetryUtils.isThrottlingException((SdkBaseException) cause)) {
+                limiter(table).onThrottle();
+                breaker.onFailure();
+                throw overloaded("DynamoDB table " + table + " is throttling", THROTTLED_RETRY_AFTER_MILLIS);
+            } else if (isFailure(cause)) {
+                breaker.onFailure();
+            } else {
+                breaker.onSuccess();
+            }
+            throw cause;
+        }
+    }
+
+    private Object invokeDelegate(Method method, Object[] args) throws Throwable {
+        try {
+            return method.invoke(delegate, args);
+        } catch (InvocationTargetException e) {
+            throw e.getCause();
+        }
+    }
+
+    private AdaptiveRateLimiter limiter(String table) {
+        return limiters.computeIfAbsent(table, key -> new AdaptiveRateLimiter(MIN_RATE, MAX_RATE));
+    }
+
+    private static boolean isFailure(Throwable cause) {
+        if (cause instanceof AmazonServiceException) {
+            return ((AmazonServiceException) cause).getStatusCode() >= 500;
+        }
+        return cause instanceof SdkClientException;
+    }
+
+    private static ServiceOverloadedException overloaded(String message, long retryAfterMillis) {
+        log.warn(message);
+        return new ServiceOverloadedException(message, retryAfterMillis);
+    }
+
+    /**
+     * Finds the table a request targets: its TableName, or the first table of a batch request.
+     */
+    String tableOf(AmazonWebServiceRequest request) {
+        Optional<Method> getter = tableNameGetters.computeIfAbsent(request.getClass(),
+                ResilientDynamoDB::findTableGetter);
+        if (!getter.isPresent()) {
+            return NO_TABLE;
+        }
+        try {
+            Object value = getter.get().invoke(request);
+            if (value instanceof Map) {
+                Map<?, ?> items = (Map<?, ?>) value;
+                return items.isEmpty() ? NO_TABLE : String.valueOf(items.keySet().iterator().next());
+            }
+            return value == null ? NO_TABLE : value.toString();
+        } catch (ReflectiveOperationException e) {
+            return NO_TABLE;
+        }
+    }
+
+    private static Optional<Method> findTableGetter(Class<?> requestClass) {
+        for (Method method : requestClass.getMethods()) {
+            if (method.getParameterCount() == 0 &&
+                    ("getTableName".equals(method.getName()) || "getRequestItems".equals(method.getName()))) {
+                return Optional.of(method);
+            }
+        }
+        return Optional.empty();
+    }
+}
@@ -0,0 +1,123 @@
+package ata.unit.three.project.expense.dynamodb;
+
+import com.amazonaws.services.dynamodbv2.datamodeling.DynamoDBMapper;
+import com.amazonaws.services.dynamodbv2.datamodeling.DynamoDBSaveExpression;
+import com.amazonaws.services.dynamodbv2.datamodeling.DynamoDBScanExpression;
+import com.amazonaws.services.dynamodbv2.model.ConditionalCheckFailedException;
+import com.amazonaws.services.dynamodbv2.model.ExpectedAttributeValue;
+import com.kenzie.ata.ExcludeFromJacocoGeneratedReport;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.util.Collections;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static ata.unit.three.project.expense.dynamodb.ExpenseTable.EXPENSE_DATA_TABLE_NAME;
+
+/**
+ * Copies the Expense and ExpenseList tables into the single ExpenseData table while the service keeps running.
+ *
+ * Run it once DATA_MODEL_MODE=DUAL_WRITE is deployed everywhere:
+ * <pre>
+ * java -cp Application.jar ata.unit.three.project.expense.dynamodb.SingleTableMigration [segments]
+ * </pre>
+ * Records are only created where they are missing, so nothing the service has dual-written since is
+ * overwritten with older data. An item deleted while it was being copied is removed again afterwards. Each
+ * list's expenses, embedded or referenced, become membership records. When the run is done, switch to
+ * DUAL_WRITE_SINGLE_TABLE_READ, and to SINGLE_TABLE once the new layout has proven itself.
+ */
+@ExcludeFromJacocoGeneratedReport
+public class SingleTableMigration {
+    static final Logger log = LogManager.getLogger();
+
+    private static final int DEFAULT_SEGMENTS = 4;
+
+    private final DynamoDBMapper mapper;
+    private final SingleTableRepository singleTable;
+    private final ListHydrator hydrator;
+    private final int segments;
+    private final AtomicLong copied = new AtomicLong();
+    private final AtomicLong skipped = new AtomicLong();
+
+    public SingleTableMigration(DynamoDBMapper mapper, int segments) {
+        this.mapper = mapper;
+        this.singleTable = new SingleTableRepository(mapper);
+        this.hydrator = new ListHydrator(mapper, new ExpenseCache(0, 0));
+        this.segments = segments;
+    }
+
+    public static void main(String[] args) {
+        if (!DataModelMode.fromEnvironment().writesSingleTable()) {
+            log.warn("DATA_MODEL_MODE does not write the single table; changes made during the copy will be lost");
+        }
+        if (!ExpenseTable.doesExpenseTableExist(EXPENSE_DATA_TABLE_NAME)) {
+            ExpenseTable.createExpenseDataTable();
+        }
+        SingleTableMigration migration = new SingleTableMigration(new DynamoDBMapper(DynamoDBClientFactory.getClient()),
+                args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_SEGMENTS);
+        migration.copyExpenses();
+        migration.copyLists();
+        log.info("Single table migration done: copied {} records, {} already present", migration.copied.get(),
+                migration.skipped.get());
+    }
+
+    /**
+     * Copies every expense.
+     */
+    public void copyExpenses() {
+        for (ExpenseItem expense : mapper.parallelScan(ExpenseItem.class, new DynamoDBScanExpression(), segments)) {
+            if (expense.getEmail() == null || expense.getExpenseDate() == null) {
+                continue;
+            }
+            ExpenseDataRecord record = SingleTableRepository.toRecord(expense);
+            if (saveIfAbsent(record) && mapper.load(ExpenseItem.class, expense.getId()) == null) {
+                mapper.delete(record);
+            }
+        }
+    }
+
+    /**
+     * Copies every list and turns its embedded expenses into memberships.
+     */
+    public void copyLists() {
+        for (ExpenseItemList list : mapper.parallelScan(ExpenseItemList.class, new DynamoDBScanExpression(),
+                segments)) {
+            if (list.getEmail() == null) {
+                continue;
+            }
+            ExpenseDataRecord record = new ExpenseDataRecord();
+            record.setPk(list.getEmail());
+            record.setSk(ExpenseDataRecord.listSk(list.getId()));
+            record.setId(list.getId());
+            record.setTitle(list.getTitle());
+            saveIfAbsent(record);
+            hydrator.hydrate(Collections.singletonList(list));
+            if (list.getExpenseItems() != null) {
+                for (ExpenseItem expense : list.getExpenseItems()) {
+                    ExpenseDataRecord membership = new ExpenseDataRecord();
+                    membership.setPk(list.getEmail());
+                    membership.setSk(ExpenseDataRecord.listItemSk(list.getId(), expense.getId()));
+                    membership.setListId(list.getId());
+                    membership.setExpenseId(expense.getId());
+                    membership.setExpenseSk(ExpenseDataRecord.expenseSk(expense.getExpenseDate(), expense.getId()));
+                    saveIfAbsent(membership);
+                }
+            }
+            if (mapper.load(ExpenseItemList.class, list.getId()) == null) {
+                singleTable.deleteExpenseList(list.getId());
+            }
+        }
+    }
+
+    private boolean saveIfAbsent(ExpenseDataRecord record) {
+        try {
+            mapper.save(record, new DynamoDBSaveExpression().withExpected(
+                    Collections.singletonMap("PK", new ExpectedAttributeValue(false))));
+            copied.incrementAndGet();
+            return true;
+        } catch (ConditionalCheckFailedException e) {
+            skipped.incrementAndGet();
+            return false;
+        }
+    }
+}
@@ -0,0 +1,328 @@
+package ata.unit.three.project.expense.dynamodb;
+
+import com.amazonaws.services.dynamodbv2.datamodeling.DynamoDBDeleteExpression;
+import com.amazonaws.services.dynamodbv2.datamodeling.DynamoDBMapper;
+import com.amazonaws.services.dynamodbv2.datamodeling.DynamoDBQueryExpression;
+import com.amazonaws.services.dynamodbv2.model.AttributeValue;
+import com.amazonaws.services.dynamodbv2.model.ComparisonOperator;
+import com.amazonaws.services.dynamodbv2.model.ConditionalCheckFailedException;
+import com.amazonaws.services.dynamodbv2.model.Condition;
+import com.kenzie.ata.ExcludeFromJacocoGeneratedReport;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+
+import static ata.unit.three.project.expense.dynamodb.ExpenseDataRecord.EXPENSE_PREFIX;
+import static ata.unit.three.project.expense.dynamodb.ExpenseDataRecord.ID_INDEX;
+import static ata.unit.three.project.expense.dynamodb.ExpenseDataRecord.LIST_ITEM_PREFIX;
+import static ata.unit.three.project.expense.dynamodb.ExpenseDataRecord.LIST_PREFIX;
+
+/**
+ * Stores expenses, lists and list memberships in the single ExpenseData table, see {@link ExpenseDataRecord}.
+ *
+ * A list only holds references to its expenses, so an expense is stored once however many lists it is in, and
+ * a list is no longer limited by the 400 KB item size.
+ */
+@ExcludeFromJacocoGeneratedReport
+public class SingleTableRepository {
+    // Sorts after every expense sort key: '$' follows the '#' that ends the expense prefix.
+    private static final String EXPENSE_END = "EXP$";
+
+    private final DynamoDBMapper mapper;
+
+    public SingleTableRepository(DynamoDBMapper mapper) {
+        this.mapper = mapper;
+    }
+
+    public ExpenseItem getExpenseById(String expenseId) {
+        ExpenseDataRecord record = findById(expenseId, EXPENSE_PREFIX);
+        return record == null ? null : toExpenseItem(record);
+    }
+
+    /**
+     * Returns an email's expenses.
+     * @param email the email
+     * @return the expenses, newest first
+     */
+    public List<ExpenseItem> getExpensesByEmail(String email) {
+        List<ExpenseItem> expenses = new ArrayList<>();
+        for (ExpenseDataRecord record : queryPartition(email, beginsWith(EXPENSE_PREFIX), false)) {
+            expenses.add(toExpenseItem(record));
+        }
+        return expenses;
+    }
+
+    /**
+     * Returns an email's expenses from a date on, reading only those from the table.
+     * @param email the email
+     * @param since the earliest expense date, or a prefix of it such as yyyy-MM-dd
+     * @return the expenses, newest first
+     */
+    public List<ExpenseItem> getExpensesByEmailSince(String email, String since) {
+        List<ExpenseItem> expenses = new ArrayList<>();
+        Condition fromDate = new Condition()
+                .withComparisonOperator(ComparisonOperator.BETWEEN)
+                .withAttributeValueList(new AttributeValue(EXPENSE_PREFIX + since), new AttributeValue(EXPENSE_END));
+        for (ExpenseDataRecord record : queryPartition(email, fromDate, false)) {
+            expenses.add(toExpenseItem(record));
+        }
+        return expenses;
+    }
+
+    /**
+     * Returns everything an email owns with a single Query.
+     * @param email the email
+     * @return the email's expenses, lists and memberships
+     */
+    public UserDataset getUserDataset(String email) {
+        List<ExpenseItem> expenses = new ArrayList<>();
+        List<ExpenseItemList> lists = new ArrayList<>();
+        Map<String, List<String>> expenseIdsByList = new HashMap<>();
+        for (ExpenseDataRecord record : queryPartition(email, null, false)) {
+            String sk = record.getSk();
+            if (sk.startsWith(EXPENSE_PREFIX)) {
+                expenses.add(toExpenseItem(record));
+            } else if (sk.startsWith(LIST_ITEM_PREFIX)) {
+                expenseIdsByList.computeIfAbsent(record.getListId(), key -> new ArrayList<>())
+                        .add(record.getExpenseId());
+            } else if (sk.startsWith(LIST_PREFIX)) {
+                lists.add(toExpenseItemList(record));
+            }
+        }
+        return new UserDataset(expenses, lists, expenseIdsByList);
+    }
+
+    /**
+     * Returns a list together with its expenses.
+     * @param listId the list id
+     * @return the list, or null if there is none
+     */
+    public ExpenseItemList getExpenseListById(String listId) {
+        ExpenseDataRecord listRecord = findById(listId, LIST_PREFIX);
+        if (listRecord == null) {
+            return null;
+        }
+        ExpenseItemList list = toExpenseItemList(listRecord);
+        List<ExpenseDataRecord> memberships = queryPartition(listRecord.getPk(),
+                beginsWith(ExpenseDataRecord.listItemSk(listId, "")), true);
+        if (memberships.isEmpty()) {
+            return list;
+        }
+        List<Object> keys = new ArrayList<>(memberships.size());
+        for (ExpenseDataRecord membership : memberships) {
+            keys.add(key(listRecord.getPk(), membership.getExpenseSk()));
+        }
+        Map<String, ExpenseItem> expensesById = new HashMap<>();
+        for (List<Object> loaded : mapper.batchLoad(keys).values()) {
+            for (Object record : loaded) {
+                ExpenseItem expense = toExpenseItem((ExpenseDataRecord) record);
+                expensesById.put(expense.getId(), expense);
+            }
+        }
+        List<ExpenseItem> expenses = new LinkedList<>();
+        for (ExpenseDataRecord membership : memberships) {
+            ExpenseItem expense = expensesById.get(membership.getExpenseId());
+            if (expense != null) {
+                expenses.add(expense);
+            }
+        }
+        list.setExpenseItems(expenses);
+        return list;
+    }
+
+    /**
+     * Returns a list without its expenses.
+     * @param listId the list id
+     * @return the list, or null if there is none
+     */
+    public ExpenseItemList getExpenseListHeader(String listId) {
+        ExpenseDataRecord listRecord = findById(listId, LIST_PREFIX);
+        return listRecord == null ? null : toExpenseItemList(listRecord);
+    }
+
+    /**
+     * Tells whether an expense is in a list, with one GetItem of the membership record.
+     * @param email the owner of the list
+     * @param listId the list id
+     * @param expenseId the expense id
+     * @return true if the expense is in the list
+     */
+    public boolean hasListItem(String email, String listId, String expenseId) {
+        return mapper.load(ExpenseDataRecord.class, email, ExpenseDataRecord.listItemSk(listId, expenseId)) != null;
+    }
+
+    /**
+     * Returns the lists containing an expense, with one Query of the owner's memberships.
+     * @param expense the expense
+     * @return the ids of the lists
+     */
+    public List<String> getListIdsContaining(ExpenseItem expense) {
+        ExpenseDataRecord key = new ExpenseDataRecord();
+        key.setPk(expense.getEmail());
+        DynamoDBQueryExpression<ExpenseDataRecord> query = new DynamoDBQueryExpression<ExpenseDataRecord>()
+                .withHashKeyValues(key)
+                .withRangeKeyCondition("SK", beginsWith(LIST_ITEM_PREFIX))
+                .withFilterExpression("ExpenseId = :expenseId")
+                .withExpressionAttributeValues(Collections.singletonMap(":expenseId",
+                        new AttributeValue(expense.getId())));
+        List<String> listIds = new ArrayList<>();
+        for (ExpenseDataRecord membership : mapper.query(ExpenseDataRecord.class, query)) {
+            listIds.add(membership.getListId());
+        }
+        return listIds;
+    }
+
+    /**
+     * Deletes a list and its memberships; the expenses themselves are kept.
+     * @param listId the list id
+     * @return the email that owned the list, or null if there was no such list
+     */
+    public String deleteExpenseList(String listId) {
+        ExpenseDataRecord listRecord = findById(listId, LIST_PREFIX);
+        if (listRecord == null) {
+            return null;
+        }
+        List<ExpenseDataRecord> records = new ArrayList<>(queryPartition(listRecord.getPk(),
+                beginsWith(ExpenseDataRecord.listItemSk(listId, "")), true));
+        records.add(listRecord);
+        mapper.batchDelete(records);
+        return listRecord.getPk();
+    }
+
+    /**
+     * Deletes the memberships of a list whose record was deleted; the expenses themselves are kept.
+     * @param email the email that owned the list
+     * @param listId the list id
+     */
+    public void deleteListItems(String email, String listId) {
+        mapper.batchDelete(queryPartition(email, beginsWith(ExpenseDataRecord.listItemSk(listId, "")), true));
+    }
+
+    /**
+     * Removes an expense from a list.
+     * @param listId the list id
+     * @param expense the expense
+     * @return true if the expense was in the list
+     */
+    public boolean deleteListItem(String listId, ExpenseItem expense) {
+        try {
+            mapper.delete(key(expense.getEmail(), ExpenseDataRecord.listItemSk(listId, expense.getId())),
+                    new DynamoDBDeleteExpression().withConditionExpression("attribute_exists(SK)"));
+            return true;
+        } catch (ConditionalCheckFailedException e) {
+            return false;
+        }
+    }
+
+    static ExpenseDataRecord toRecord(ExpenseItem expense) {
+        ExpenseDataRecord record = key(expense.getEmail(),
+                ExpenseDataRecord.expenseSk(expense.getExpenseDate(), expense.getId()));
+        record.setId(expense.getId());
+        record.setExpenseDate(expense.getExpenseDate());
+        record.setTitle(expense.getTitle());
+        record.setAmountCents(expense.getAmountCents());
+        record.setTags(expense.getTags());
+        record.setChangeSeq(expense.getChangeSeq());
+        return record;
+    }
+
+    /**
+     * Returns the record of a new, empty list.
+     * @param listId the list id
+     * @param email the email owning the list
+     * @param title the title
+     * @param changeSeq the number of the change creating it
+     * @return the record
+     */
+    static ExpenseDataRecord listRecord(String listId, String email, String title, Long changeSeq) {
+        ExpenseDataRecord record = key(email, ExpenseDataRecord.listSk(listId));
+        record.setId(listId);
+        record.setTitle(title);
+        record.setChangeSeq(changeSeq);
+        record.setTotalCents(0L);
+        record.setExpenseCount(0L);
+        return record;
+    }
+
+    /**
+     * Returns the record that adds an expense to a list, a reference to it in the list owner's partition.
+     * @param listId the list id
+     * @param expense the expense, owned by the same email as the list
+     * @return the record
+     */
+    static ExpenseDataRecord listItemRecord(String listId, ExpenseItem expense) {
+        ExpenseDataRecord record = key(expense.getEmail(),
+                ExpenseDataRecord.listItemSk(listId, expense.getId()));
+        record.setListId(listId);
+        record.setExpenseId(expense.getId());
+        record.setExpenseSk(ExpenseDataRecord.expenseSk(expense.getExpenseDate(), expense.getId()));
+        return record;
+    }
+
+    static ExpenseItem toExpenseItem(ExpenseDataRecord record) {
+        ExpenseItem expense = new ExpenseItem();
+        expense.setId(record.getId());
+        expense.setEmail(record.getPk());
+        expense.setExpenseDate(record.getExpenseDate());
+        expense.setTitle(record.getTitle());
+        expense.setAmountCents(record.getAmountCents());
+        expense.setTags(record.getTags());
+        expense.setChangeSeq(record.getChangeSeq());
+        return expense;
+    }
+
+    private static ExpenseItemList toExpenseItemList(ExpenseDataRecord record) {
+        ExpenseItemList list = new ExpenseItemList();
+        list.setId(record.getId());
+        list.setEmail(record.getPk());
+        list.setTitle(record.getTitle());
+        list.setTotalCents(record.getTotalCents());
+        list.setExpenseCount(record.getExpenseCount());
+        list.setFirstExpenseDate(record.getFirstExpenseDate());
+        list.setLastExpenseDate(record.getLastExpenseDate());
+        list.setChangeSeq(record.getChangeSeq());
+        return list;
+    }
+
+    private static ExpenseDataRecord key(String email, String sk) {
+        ExpenseDataRecord record = new ExpenseDataRecord();
+        record.setPk(email);
+        record.setSk(sk);
+        return record;
+    }
+
+    private ExpenseDataRecord findById(String id, String skPrefix) {
+        ExpenseDataRecord key = new ExpenseDataRecord();
+        key.setId(id);
+        List<ExpenseDataRecord> found = mapper.query(ExpenseDataRecord.class,
+                new DynamoDBQueryExpression<ExpenseDataRecord>()
+                        .withIndexName(ID_INDEX)
+                        .withHashKeyValues(key)
+                        .withRangeKeyCondition("SK", beginsWith(skPrefix))
+                        .withConsistentRead(false)
+                        .withLimit(1));
+        return found.isEmpty() ? null : found.get(0);
+    }
+
+    private List<ExpenseDataRecord> queryPartition(String email, Condition skCondition, boolean ascending) {
+        ExpenseDataRecord key = new ExpenseDataRecord();
+        key.setPk(email);
+        DynamoDBQueryExpression<ExpenseDataRecord> query = new DynamoDBQueryExpression<ExpenseDataRecord>()
+                .withHashKeyValues(key)
+                .withScanIndexForward(ascending);
+        if (skCondition != null) {
+            query.withRangeKeyCondition("SK", skCondition);
+        }
+        return new ArrayList<>(mapper.query(ExpenseDataRecord.class, query));
+    }
+
+    private static Condition beginsWith(String prefix) {
+        return new Condition()
+                .withComparisonOperator(ComparisonOperator.BEGINS_WITH)
+                .withAttributeValueList(new AttributeValue(prefix));
+    }
+}
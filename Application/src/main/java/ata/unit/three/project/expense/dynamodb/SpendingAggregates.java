@@ -0,0 +1,204 @@
+package ata.unit.three.project.expense.dynamodb;
+
+import ata.unit.three.project.expense.service.model.Money;
+
+import com.amazonaws.services.dynamodbv2.AmazonDynamoDB;
+import com.amazonaws.services.dynamodbv2.model.AttributeValue;
+import com.amazonaws.services.dynamodbv2.model.ConditionalCheckFailedException;
+import com.amazonaws.services.dynamodbv2.model.TransactWriteItem;
+import com.amazonaws.services.dynamodbv2.model.Update;
+import com.amazonaws.services.dynamodbv2.model.UpdateItemRequest;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.time.Instant;
+import java.time.YearMonth;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static ata.unit.three.project.expense.dynamodb.ExpenseTable.EXPENSE_DATA_TABLE_NAME;
+import static ata.unit.three.project.expense.dynamodb.ExpenseTable.EXPENSE_LIST_TABLE_NAME;
+import static ata.unit.three.project.expense.dynamodb.ExpenseTable.SPENDING_SUMMARY_TABLE_NAME;
+
+/**
+ * Keeps running totals of expenses with atomic ADD updates, so that a total is read with one GetItem instead
+ * of by summing every expense:
+ * <ul>
+ *     <li>per list, on the list itself, see {@link ExpenseItemList#getTotalCents()};</li>
+ *     <li>per email and month, in the SpendingSummary table, see {@link SpendingSummary}.</li>
+ * </ul>
+ * The counts and totals are changed by writes made in the same transaction as the change that moves them, see
+ * {@link ChangeLog#record(String, ata.unit.three.project.expense.service.sync.SyncChange.Type, String, String,
+ * boolean, java.util.function.LongFunction)}, so they cannot drift from the expenses they count. The first and
+ * last expense dates are set by the same write when nothing was counted before, and otherwise moved once the
+ * transaction has committed, see {@link #moveMonthDates(ExpenseItem, long)}; they only move outwards, and are
+ * cleared once nothing is counted any more. Dates are compared as strings, the order the EmailShardIndex sorts
+ * them in. Amounts are added as the exact decimals of their cents, so the totals DynamoDB keeps carry no
+ * rounding error.
+ */
+public class SpendingAggregates {
+    static final Logger log = LogManager.getLogger();
+
+    private static final String ADD = "ADD ExpenseCount :count, Total :amount";
+
+    private final AmazonDynamoDB client;
+
+    public SpendingAggregates(AmazonDynamoDB client) {
+        this.client = client;
+    }
+
+    /**
+     * Returns the write that counts an expense in, or out of, the totals of its email and month.
+     * @param expense the expense
+     * @param count 1 when the expense is created, -1 when it is deleted, 0 when only its amount changes
+     * @param cents the amount to add to the total in cents, negative to subtract
+     * @return the write
+     */
+    public static TransactWriteItem monthTotals(ExpenseItem expense, long count, long cents) {
+        return totals(SPENDING_SUMMARY_TABLE_NAME, monthKey(expense), null, count, cents, expense.getExpenseDate(),
+                null);
+    }
+
+    /**
+     * Returns the write that counts an expense in, or out of, the totals of a list in the ExpenseList table.
+     * @param listId the list id
+     * @param expense the expense
+     * @param count 1 when the expense is added, -1 when it is removed, 0 when only its amount changes
+     * @param cents the amount to add to the total in cents, negative to subtract
+     * @param seq the number of the change to stamp the list with, or null to leave its stamp
+     * @return the write, which fails if the list was deleted
+     */
+    public static TransactWriteItem listTotals(String listId, ExpenseItem expense, long count, long cents,
+                                               Long seq) {
+        return totals(EXPENSE_LIST_TABLE_NAME, listKey(listId), "Id", count, cents, expense.getExpenseDate(), seq);
+    }
+
+    /**
+     * Returns the write that counts an expense in, or out of, the totals of a list record in the single
+     * ExpenseData table.
+     * @param listId the list id
+     * @param expense the expense, owned by the same email as the list
+     * @param count 1 when the expense is added, -1 when it is removed, 0 when only its amount changes
+     * @param cents the amount to add to the total in cents, negative to subtract
+     * @param seq the number of the change to stamp the list with, or null to leave its stamp
+     * @return the write, which fails if the list was deleted
+     */
+    public static TransactWriteItem listRecordTotals(String listId, ExpenseItem expense, long count, long cents,
+                                                     Long seq) {
+        return totals(EXPENSE_DATA_TABLE_NAME, listRecordKey(listId, expense), "PK", count, cents,
+                expense.getExpenseDate(), seq);
+    }
+
+    /**
+     * Moves the dates of an email's month once a {@link #monthTotals(ExpenseItem, long, long)} write committed.
+     * @param expense the expense
+     * @param count the count the write added
+     */
+    public void moveMonthDates(ExpenseItem expense, long count) {
+        moveDates(SPENDING_SUMMARY_TABLE_NAME, monthKey(expense), count, expense.getExpenseDate());
+    }
+
+    /**
+     * Moves the dates of a list once a {@link #listTotals(String, ExpenseItem, long, long, Long)} write
+     * committed.
+     * @param listId the list id
+     * @param expense the expense
+     * @param count the count the write added
+     */
+    public void moveListDates(String listId, ExpenseItem expense, long count) {
+        moveDates(EXPENSE_LIST_TABLE_NAME, listKey(listId), count, expense.getExpenseDate());
+    }
+
+    /**
+     * Moves the dates of a list record once a {@link #listRecordTotals(String, ExpenseItem, long, long, Long)}
+     * write committed.
+     * @param listId the list id
+     * @param expense the expense
+     * @param count the count the write added
+     */
+    public void moveListRecordDates(String listId, ExpenseItem expense, long count) {
+        moveDates(EXPENSE_DATA_TABLE_NAME, listRecordKey(listId, expense), count, expense.getExpenseDate());
+    }
+
+    /**
+     * Returns the month an expense is counted in.
+     * @param expenseDate the expense date, as an ISO-8601 instant
+     * @return the month, as yyyy-MM in UTC
+     */
+    public static String monthOf(String expenseDate) {
+        return YearMonth.from(Instant.parse(expenseDate).atZone(ZoneOffset.UTC)).toString();
+    }
+
+    private static TransactWriteItem totals(String table, Map<String, AttributeValue> key, String keyAttribute,
+                                            long count, long cents, String expenseDate, Long seq) {
+        Map<String, AttributeValue> values = new HashMap<>();
+        values.put(":count", new AttributeValue().withN(Long.toString(count)));
+        values.put(":amount", new AttributeValue().withN(Money.toDecimal(cents).toPlainString()));
+        List<String> sets = new ArrayList<>();
+        if (seq != null) {
+            sets.add("ChangeSeq = :seq");
+            values.put(":seq", new AttributeValue().withN(Long.toString(seq)));
+        }
+        if (count > 0 && expenseDate != null) {
+            sets.add("FirstExpenseDate = if_not_exists(FirstExpenseDate, :date)");
+            sets.add("LastExpenseDate = if_not_exists(LastExpenseDate, :date)");
+            values.put(":date", new AttributeValue(expenseDate));
+        }
+        return new TransactWriteItem().withUpdate(new Update()
+                .withTableName(table)
+                .withKey(key)
+                .withUpdateExpression(sets.isEmpty() ? ADD : ADD + " SET " + String.join(", ", sets))
+                .withConditionExpression(keyAttribute == null ? null : "attribute_exists(" + keyAttribute + ")")
+                .withExpressionAttributeValues(values));
+    }
+
+    private void moveDates(String table, Map<String, AttributeValue> key, long count, String expenseDate) {
+        if (count > 0 && expenseDate != null) {
+            Map<String, AttributeValue> date = Collections.singletonMap(":date", new AttributeValue(expenseDate));
+            if (!updateIf(table, key, "SET LastExpenseDate = :date", "LastExpenseDate < :date", date)) {
+                updateIf(table, key, "SET FirstExpenseDate = :date", "FirstExpenseDate > :date", date);
+            }
+        } else if (count < 0) {
+            updateIf(table, key, "REMOVE FirstExpenseDate, LastExpenseDate", "ExpenseCount = :zero",
+                    Collections.singletonMap(":zero", new AttributeValue().withN("0")));
+        }
+    }
+
+    private boolean updateIf(String table, Map<String, AttributeValue> key, String update, String condition,
+                             Map<String, AttributeValue> values) {
+        try {
+            client.updateItem(new UpdateItemRequest()
+                    .withTableName(table)
+                    .withKey(key)
+                    .withUpdateExpression(update)
+                    .withConditionExpression(condition)
+                    .withExpressionAttributeValues(values));
+            return true;
+        } catch (ConditionalCheckFailedException e) {
+            log.debug("{} {} needs no date moved", table, key);
+            return false;
+        }
+    }
+
+    private static Map<String, AttributeValue> monthKey(ExpenseItem expense) {
+        Map<String, AttributeValue> key = new HashMap<>();
+        key.put("Email", new AttributeValue(expense.getEmail()));
+        key.put("Month", new AttributeValue(monthOf(expense.getExpenseDate())));
+        return key;
+    }
+
+    private static Map<String, AttributeValue> listKey(String listId) {
+        return Collections.singletonMap("Id", new AttributeValue(listId));
+    }
+
+    private static Map<String, AttributeValue> listRecordKey(String listId, ExpenseItem expense) {
+        Map<String, AttributeValue> key = new HashMap<>();
+        key.put("PK", new AttributeValue(expense.getEmail()));
+        key.put("SK", new AttributeValue(ExpenseDataRecord.listSk(listId)));
+        return key;
+    }
+}
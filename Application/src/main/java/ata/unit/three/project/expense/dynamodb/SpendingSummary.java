@@ -0,0 +1,93 @@
+package ata.unit.three.project.expense.dynamodb;
+
+import ata.unit.three.project.expense.lambda.models.CentsAdapter;
+
+import com.amazonaws.services.dynamodbv2.datamodeling.DynamoDBAttribute;
+import com.amazonaws.services.dynamodbv2.datamodeling.DynamoDBHashKey;
+import com.amazonaws.services.dynamodbv2.datamodeling.DynamoDBRangeKey;
+import com.amazonaws.services.dynamodbv2.datamodeling.DynamoDBTable;
+import com.amazonaws.services.dynamodbv2.datamodeling.DynamoDBTypeConverted;
+import com.google.gson.annotations.JsonAdapter;
+import com.google.gson.annotations.SerializedName;
+import com.kenzie.ata.ExcludeFromJacocoGeneratedReport;
+
+/**
+ * Totals of an email's expenses in one month, kept up to date by {@link SpendingAggregates} as expenses are
+ * created, updated and deleted.
+ */
+@ExcludeFromJacocoGeneratedReport
+@DynamoDBTable(tableName = "SpendingSummary")
+public class SpendingSummary {
+    private String email;
+    private String month;
+    // Held in cents; stored and serialized as the decimal total.
+    @SerializedName("total")
+    @JsonAdapter(CentsAdapter.class)
+    private Long totalCents;
+    private Long expenseCount;
+    private String firstExpenseDate;
+    private String lastExpenseDate;
+
+    @DynamoDBHashKey(attributeName = "Email")
+    public String getEmail() {
+        return email;
+    }
+
+    public void setEmail(String email) {
+        this.email = email;
+    }
+
+    /**
+     * Returns the month the totals are for.
+     * @return the month, as yyyy-MM in UTC
+     */
+    @DynamoDBRangeKey(attributeName = "Month")
+    public String getMonth() {
+        return month;
+    }
+
+    public void setMonth(String month) {
+        this.month = month;
+    }
+
+    /**
+     * Returns the sum of the amounts of the month's expenses.
+     * @return the total in cents
+     */
+    @DynamoDBAttribute(attributeName = "Total")
+    @DynamoDBTypeConverted(converter = CentsConverter.class)
+    public Long getTotalCents() {
+        return totalCents;
+    }
+
+    public void setTotalCents(Long totalCents) {
+        this.totalCents = totalCents;
+    }
+
+    @DynamoDBAttribute(attributeName = "ExpenseCount")
+    public Long getExpenseCount() {
+        return expenseCount;
+    }
+
+    public void setExpenseCount(Long expenseCount) {
+        this.expenseCount = expenseCount;
+    }
+
+    @DynamoDBAttribute(attributeName = "FirstExpenseDate")
+    public String getFirstExpenseDate() {
+        return firstExpenseDate;
+    }
+
+    public void setFirstExpenseDate(String firstExpenseDate) {
+        this.firstExpenseDate = firstExpenseDate;
+    }
+
+    @DynamoDBAttribute(attributeName = "LastExpenseDate")
+    public String getLastExpenseDate() {
+        return lastExpenseDate;
+    }
+
+    public void setLastExpenseDate(String lastExpenseDate) {
+        this.lastExpenseDate = lastExpenseDate;
+    }
+}
@@ -0,0 +1,207 @@
+package ata.unit.three.project.expense.dynamodb;
+
+import ata.unit.three.project.expense.service.model.AmountAccumulator;
+import ata.unit.three.project.expense.service.model.Money;
+
+import com.amazonaws.services.dynamodbv2.AmazonDynamoDB;
+import com.amazonaws.services.dynamodbv2.datamodeling.DynamoDBMapper;
+import com.amazonaws.services.dynamodbv2.datamodeling.DynamoDBScanExpression;
+import com.amazonaws.services.dynamodbv2.model.AttributeValue;
+import com.amazonaws.services.dynamodbv2.model.ConditionalCheckFailedException;
+import com.amazonaws.services.dynamodbv2.model.UpdateItemRequest;
+import com.kenzie.ata.ExcludeFromJacocoGeneratedReport;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static ata.unit.three.project.expense.dynamodb.ExpenseTable.EXPENSE_DATA_TABLE_NAME;
+import static ata.unit.three.project.expense.dynamodb.ExpenseTable.EXPENSE_LIST_TABLE_NAME;
+import static ata.unit.three.project.expense.dynamodb.ExpenseTable.SPENDING_SUMMARY_TABLE_NAME;
+
+/**
+ * Computes the running totals kept by {@link SpendingAggregates} from scratch, for data written before they
+ * were kept or after they drifted:
+ * <pre>
+ * java -cp Application.jar ata.unit.three.project.expense.dynamodb.SpendingSummaryBackfill [segments]
+ * </pre>
+ * Monthly totals are computed from the tables the service reads, list totals from every table it writes, see
+ * {@link DataModelMode}. Deploy the repository that keeps the totals first, and run the tool when little is being
+ * written: a change made while its table is scanned may be counted twice or not at all.
+ */
+@ExcludeFromJacocoGeneratedReport
+public class SpendingSummaryBackfill {
+    static final Logger log = LogManager.getLogger();
+
+    private static final int DEFAULT_SEGMENTS = 4;
+
+    private final AmazonDynamoDB client;
+    private final DynamoDBMapper mapper;
+    private final int segments;
+
+    public SpendingSummaryBackfill(AmazonDynamoDB client, int segments) {
+        this.client = client;
+        this.mapper = new DynamoDBMapper(client);
+        this.segments = segments;
+    }
+
+    public static void main(String[] args) {
+        if (!ExpenseTable.doesExpenseTableExist(SPENDING_SUMMARY_TABLE_NAME)) {
+            ExpenseTable.createSpendingSummaryTable();
+        }
+        DataModelMode mode = DataModelMode.fromEnvironment();
+        SpendingSummaryBackfill backfill = new SpendingSummaryBackfill(DynamoDBClientFactory.getClient(),
+                args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_SEGMENTS);
+        backfill.backfillMonths(mode.readsSingleTable());
+        if (mode.writesLegacy()) {
+            backfill.backfillLists();
+        }
+        if (mode.writesSingleTable()) {
+            backfill.backfillListRecords();
+        }
+    }
+
+    /**
+     * Rewrites the monthly totals of every email.
+     * @param singleTable whether the expenses are read from the single ExpenseData table
+     */
+    public void backfillMonths(boolean singleTable) {
+        Map<String, SpendingSummary> months = new HashMap<>();
+        Map<String, Totals> totalsByMonth = new HashMap<>();
+        for (ExpenseItem expense : singleTable ? singleTableExpenses() :
+                mapper.parallelScan(ExpenseItem.class, new DynamoDBScanExpression(), segments)) {
+            String month = SpendingAggregates.monthOf(expense.getExpenseDate());
+            String key = expense.getEmail() + "#" + month;
+            months.computeIfAbsent(key, missing -> {
+                SpendingSummary summary = new SpendingSummary();
+                summary.setEmail(expense.getEmail());
+                summary.setMonth(month);
+                return summary;
+            });
+            totalsByMonth.computeIfAbsent(key, missing -> new Totals()).add(expense);
+        }
+        for (Map.Entry<String, SpendingSummary> month : months.entrySet()) {
+            Totals totals = totalsByMonth.get(month.getKey());
+            month.getValue().setTotalCents(totals.amounts.getSum());
+            month.getValue().setExpenseCount(totals.amounts.getCount());
+            month.getValue().setFirstExpenseDate(totals.first);
+            month.getValue().setLastExpenseDate(totals.last);
+        }
+        mapper.batchSave(months.values());
+        log.info("Wrote the totals of {} months", months.size());
+    }
+
+    /**
+     * Rewrites the totals of every list in the ExpenseList table.
+     */
+    public void backfillLists() {
+        ListHydrator hydrator = new ListHydrator(mapper, new ExpenseCache(0, 0));
+        int written = 0;
+        for (ExpenseItemList list : mapper.parallelScan(ExpenseItemList.class, new DynamoDBScanExpression(),
+                segments)) {
+            hydrator.hydrate(Collections.singletonList(list));
+            Totals totals = new Totals();
+            if (list.getExpenseItems() != null) {
+                list.getExpenseItems().forEach(totals::add);
+            }
+            written += setTotals(EXPENSE_LIST_TABLE_NAME, Collections.singletonMap("Id",
+                    new AttributeValue(list.getId())), "Id", totals) ? 1 : 0;
+        }
+        log.info("Wrote the totals of {} lists", written);
+    }
+
+    /**
+     * Rewrites the totals of every list in the single ExpenseData table.
+     */
+    public void backfillListRecords() {
+        Map<String, ExpenseDataRecord> expenses = new HashMap<>();
+        List<ExpenseDataRecord> memberships = new ArrayList<>();
+        List<ExpenseDataRecord> lists = new ArrayList<>();
+        for (ExpenseDataRecord record : mapper.parallelScan(ExpenseDataRecord.class, new DynamoDBScanExpression(),
+                segments)) {
+            if (record.getSk().startsWith(ExpenseDataRecord.EXPENSE_PREFIX)) {
+                expenses.put(record.getPk() + record.getSk(), record);
+            } else if (record.getSk().startsWith(ExpenseDataRecord.LIST_ITEM_PREFIX)) {
+                memberships.add(record);
+            } else if (record.getSk().startsWith(ExpenseDataRecord.LIST_PREFIX)) {
+                lists.add(record);
+            }
+        }
+        Map<String, Totals> totalsByList = new HashMap<>();
+        for (ExpenseDataRecord membership : memberships) {
+            ExpenseDataRecord expense = expenses.get(membership.getPk() + membership.getExpenseSk());
+            if (expense != null) {
+                totalsByList.computeIfAbsent(membership.getPk() + membership.getListId(),
+                        key -> new Totals()).add(SingleTableRepository.toExpenseItem(expense));
+            }
+        }
+        int written = 0;
+        for (ExpenseDataRecord list : lists) {
+            Map<String, AttributeValue> key = new HashMap<>();
+            key.put("PK", new AttributeValue(list.getPk()));
+            key.put("SK", new AttributeValue(list.getSk()));
+            written += setTotals(EXPENSE_DATA_TABLE_NAME, key, "PK", totalsByList.getOrDefault(
+                    list.getPk() + list.getId(), new Totals())) ? 1 : 0;
+        }
+        log.info("Wrote the totals of {} list records", written);
+    }
+
+    private Iterable<ExpenseItem> singleTableExpenses() {
+        List<ExpenseItem> expenses = new ArrayList<>();
+        DynamoDBScanExpression scan = new DynamoDBScanExpression()
+                .withFilterExpression("begins_with(SK, :prefix)")
+                .withExpressionAttributeValues(Collections.singletonMap(":prefix",
+                        new AttributeValue(ExpenseDataRecord.EXPENSE_PREFIX)));
+        for (ExpenseDataRecord record : mapper.parallelScan(ExpenseDataRecord.class, scan, segments)) {
+            expenses.add(SingleTableRepository.toExpenseItem(record));
+        }
+        return expenses;
+    }
+
+    private boolean setTotals(String table, Map<String, AttributeValue> key, String keyAttribute, Totals totals) {
+        Map<String, AttributeValue> values = new HashMap<>();
+        values.put(":total", new AttributeValue().withN(Money.toDecimal(totals.amounts.getSum()).toPlainString()));
+        values.put(":count", new AttributeValue().withN(Long.toString(totals.amounts.getCount())));
+        String update = "SET Total = :total, ExpenseCount = :count";
+        if (totals.amounts.getCount() > 0) {
+            values.put(":first", new AttributeValue(totals.first));
+            values.put(":last", new AttributeValue(totals.last));
+            update += ", FirstExpenseDate = :first, LastExpenseDate = :last";
+        } else {
+            update += " REMOVE FirstExpenseDate, LastExpenseDate";
+        }
+        try {
+            client.updateItem(new UpdateItemRequest()
+                    .withTableName(table)
+                    .withKey(key)
+                    .withUpdateExpression(update)
+                    .withConditionExpression("attribute_exists(" + keyAttribute + ")")
+                    .withExpressionAttributeValues(values));
+            return true;
+        } catch (ConditionalCheckFailedException e) {
+            log.debug("{} {} was deleted while its totals were computed", table, key);
+            return false;
+        }
+    }
+
+    private static class Totals {
+        private final AmountAccumulator amounts = new AmountAccumulator();
+        private String first;
+        private String last;
+
+        void add(ExpenseItem expense) {
+            amounts.add(expense.getAmountCents() == null ? 0 : expense.getAmountCents());
+            String date = expense.getExpenseDate();
+            if (date != null && (first == null || date.compareTo(first) < 0)) {
+                first = date;
+            }
+            if (date != null && (last == null || date.compareTo(last) > 0)) {
+                last = date;
+            }
+        }
+    }
+}
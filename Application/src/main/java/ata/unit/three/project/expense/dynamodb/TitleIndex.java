@@ -0,0 +1,248 @@
+package ata.unit.three.project.expense.dynamodb;
+
+import ata.unit.three.project.expense.service.search.TitlePostings;
+import ata.unit.three.project.expense.service.search.TitleTokens;
+
+import com.amazonaws.services.dynamodbv2.AmazonDynamoDB;
+import com.amazonaws.services.dynamodbv2.model.AttributeValue;
+import com.amazonaws.services.dynamodbv2.model.DeleteItemRequest;
+import com.amazonaws.services.dynamodbv2.model.PutItemRequest;
+import com.amazonaws.services.dynamodbv2.model.QueryRequest;
+import com.amazonaws.services.dynamodbv2.model.QueryResult;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+import static ata.unit.three.project.expense.dynamodb.ExpenseTable.TITLE_INDEX_TABLE_NAME;
+
+/**
+ * An inverted index from the tokens of expense titles to expense ids, kept per email in the ExpenseTitleIndex
+ * table. Each item is one posting, an expense whose title has a token, keyed by Email and Token with the token
+ * and the expense id as &lt;token&gt;#&lt;id&gt;, so a token used by any number of expenses never grows an item
+ * past the item size limit. Tokens are letters and digits, which all sort after #, so the postings of a token
+ * are next to each other and the tokens starting with a prefix are one begins_with Query, read until it has
+ * the postings of {@link #MAX_PREFIX_TOKENS} tokens.
+ *
+ * The repository updates the index when an expense is created, retitled or deleted; expenses that existed
+ * before it are added with {@link TitleIndexBackfill}. Postings read are cached in the container per email and
+ * prefix. The cache of an email is dropped when this container changes one of its expenses and expires after a
+ * short time otherwise. Its size, in emails, is set with TITLE_INDEX_CACHE_SIZE (or the
+ * dynamodb.titleIndexCacheSize system property, default 1000, 0 turns the cache off) and the lifetime with
+ * TITLE_INDEX_CACHE_TTL_MILLIS (dynamodb.titleIndexCacheTtlMillis, default 5000).
+ */
+public class TitleIndex {
+    public static final String CACHE_SIZE_ENV = "TITLE_INDEX_CACHE_SIZE";
+    public static final String CACHE_SIZE_PROPERTY = "dynamodb.titleIndexCacheSize";
+    public static final String CACHE_TTL_ENV = "TITLE_INDEX_CACHE_TTL_MILLIS";
+    public static final String CACHE_TTL_PROPERTY = "dynamodb.titleIndexCacheTtlMillis";
+    static final int MAX_PREFIX_TOKENS = 200;
+
+    private static final String SEPARATOR = "#";
+
+    private static volatile TitleIndex instance;
+
+    private final AmazonDynamoDB client;
+    private final int maxEmails;
+    private final long ttlNanos;
+    private final LongSupplier clock;
+    private final LinkedHashMap<String, CachedPostings> cache;
+
+    /**
+     * Creates an index with a cache configured from the environment.
+     * @param client the client to read and write with
+     */
+    public TitleIndex(AmazonDynamoDB client) {
+        this(client, Integer.parseInt(setting(CACHE_SIZE_PROPERTY, CACHE_SIZE_ENV, "1000")),
+                Long.parseLong(setting(CACHE_TTL_PROPERTY, CACHE_TTL_ENV, "5000")), System::nanoTime);
+    }
+
+    TitleIndex(AmazonDynamoDB client, int maxEmails, long ttlMillis, LongSupplier clock) {
+        this.client = client;
+        this.maxEmails = maxEmails;
+        this.ttlNanos = TimeUnit.MILLISECONDS.toNanos(ttlMillis);
+        this.clock = clock;
+        this.cache = new LinkedHashMap<String, CachedPostings>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, CachedPostings> eldest) {
+                return size() > TitleIndex.this.maxEmails;
+            }
+        };
+    }
+
+    /**
+     * Returns the index shared by every repository in this container, so that its cache outlives a request.
+     * @return the shared index, using the container's client and configured from the environment
+     */
+    public static TitleIndex getInstance() {
+        TitleIndex current = instance;
+        if (current == null) {
+            synchronized (TitleIndex.class) {
+                current = instance;
+                if (current == null) {
+                    current = new TitleIndex(DynamoDBClientFactory.getClient());
+                    instance = current;
+                }
+            }
+        }
+        return current;
+    }
+
+    /**
+     * Adds an expense under every token of its title.
+     * @param expense the expense
+     */
+    public void index(ExpenseItem expense) {
+        retitle(expense, null, expense.getTitle());
+    }
+
+    /**
+     * Moves an expense from the tokens of its old title to those of its new one. Tokens both titles have are
+     * left as they are. A failed write is thrown, leaving the postings written before it in place.
+     * @param expense the expense
+     * @param oldTitle the title the expense was indexed under
+     * @param newTitle the title to index it under
+     */
+    public void retitle(ExpenseItem expense, String oldTitle, String newTitle) {
+        Set<String> removed = TitleTokens.of(oldTitle);
+        Set<String> added = TitleTokens.of(newTitle);
+        Set<String> kept = new LinkedHashSet<>(removed);
+        kept.retainAll(added);
+        removed.removeAll(kept);
+        added.removeAll(kept);
+        if (removed.isEmpty() && added.isEmpty()) {
+            return;
+        }
+        try {
+            for (String token : added) {
+                client.putItem(new PutItemRequest()
+                        .withTableName(TITLE_INDEX_TABLE_NAME)
+                        .withItem(key(expense.getEmail(), token, expense.getId())));
+            }
+            for (String token : removed) {
+                client.deleteItem(new DeleteItemRequest()
+                        .withTableName(TITLE_INDEX_TABLE_NAME)
+                        .withKey(key(expense.getEmail(), token, expense.getId())));
+            }
+        } finally {
+            invalidate(expense.getEmail());
+        }
+    }
+
+    /**
+     * Removes an expense from every token of its title.
+     * @param expense the expense
+     */
+    public void remove(ExpenseItem expense) {
+        retitle(expense, expense.getTitle(), null);
+    }
+
+    /**
+     * Returns the ids of an email's expenses by the tokens starting with a prefix, the prefix itself included.
+     * @param email the email
+     * @param prefix the prefix, one token as returned by {@link TitleTokens#of(String)}
+     * @return the postings of up to {@link #MAX_PREFIX_TOKENS} tokens, those closest to the prefix first
+     */
+    public TitlePostings postings(String email, String prefix) {
+        TitlePostings postings = cached(email, prefix);
+        if (postings != null) {
+            return postings;
+        }
+        long loadedAt = clock.getAsLong();
+        postings = new TitlePostings(query(email, prefix));
+        if (maxEmails > 0) {
+            synchronized (cache) {
+                CachedPostings entry = cache.get(email);
+                if (entry == null || clock.getAsLong() - entry.loadedAtNanos >= ttlNanos) {
+                    entry = new CachedPostings(loadedAt);
+                    cache.put(email, entry);
+                }
+                entry.postings.put(prefix, postings);
+            }
+        }
+        return postings;
+    }
+
+    /**
+     * Drops the cached postings of an email.
+     * @param email the email
+     */
+    public void invalidate(String email) {
+        synchronized (cache) {
+            cache.remove(email);
+        }
+    }
+
+    private TitlePostings cached(String email, String prefix) {
+        synchronized (cache) {
+            CachedPostings entry = cache.get(email);
+            if (entry == null) {
+                return null;
+            }
+            if (clock.getAsLong() - entry.loadedAtNanos >= ttlNanos) {
+                cache.remove(email);
+                return null;
+            }
+            return entry.postings.get(prefix);
+        }
+    }
+
+    private Map<String, List<String>> query(String email, String prefix) {
+        Map<String, AttributeValue> values = new HashMap<>();
+        values.put(":email", new AttributeValue(email));
+        values.put(":prefix", new AttributeValue(prefix));
+        Map<String, List<String>> idsByToken = new LinkedHashMap<>();
+        Map<String, AttributeValue> start = null;
+        do {
+            QueryResult result = client.query(new QueryRequest()
+                    .withTableName(TITLE_INDEX_TABLE_NAME)
+                    .withKeyConditionExpression("Email = :email AND begins_with(#token, :prefix)")
+                    .withExpressionAttributeNames(Collections.singletonMap("#token", "Token"))
+                    .withExpressionAttributeValues(values)
+                    .withProjectionExpression("#token")
+                    .withExclusiveStartKey(start));
+            for (Map<String, AttributeValue> item : result.getItems()) {
+                String posting = item.get("Token").getS();
+                int separator = posting.lastIndexOf(SEPARATOR);
+                String token = posting.substring(0, separator);
+                if (!idsByToken.containsKey(token) && idsByToken.size() == MAX_PREFIX_TOKENS) {
+                    return idsByToken;
+                }
+                idsByToken.computeIfAbsent(token, t -> new ArrayList<>()).add(posting.substring(separator + 1));
+            }
+            start = result.getLastEvaluatedKey();
+        } while (start != null);
+        return idsByToken;
+    }
+
+    private static Map<String, AttributeValue> key(String email, String token, String expenseId) {
+        Map<String, AttributeValue> key = new HashMap<>();
+        key.put("Email", new AttributeValue(email));
+        key.put("Token", new AttributeValue(token + SEPARATOR + expenseId));
+        return key;
+    }
+
+    private static String setting(String property, String env, String defaultValue) {
+        String value = System.getProperty(property);
+        if (value == null || value.isEmpty()) {
+            value = System.getenv(env);
+        }
+        return value == null || value.isEmpty() ? defaultValue : value;
+    }
+
+    private static final class CachedPostings {
+        private final long loadedAtNanos;
+        private final Map<String, TitlePostings> postings = new HashMap<>();
+
+        private CachedPostings(long loadedAtNanos) {
+            this.loadedAtNanos = loadedAtNanos;
+        }
+    }
+}
@@ -0,0 +1,58 @@
+package ata.unit.three.project.expense.dynamodb;
+
+import com.amazonaws.services.dynamodbv2.AmazonDynamoDB;
+import com.amazonaws.services.dynamodbv2.datamodeling.DynamoDBMapper;
+import com.amazonaws.services.dynamodbv2.datamodeling.DynamoDBScanExpression;
+import com.amazonaws.services.dynamodbv2.model.AttributeValue;
+import com.kenzie.ata.ExcludeFromJacocoGeneratedReport;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.util.Collections;
+
+import static ata.unit.three.project.expense.dynamodb.ExpenseTable.TITLE_INDEX_TABLE_NAME;
+
+/**
+ * Adds the expenses created before the ExpenseTitleIndex table existed to the {@link TitleIndex}:
+ * <pre>
+ * java -cp Application.jar ata.unit.three.project.expense.dynamodb.TitleIndexBackfill [segments]
+ * </pre>
+ * Expenses are read from the tables the service reads, see {@link DataModelMode}. Deploy the repository that
+ * maintains the index first, so no expense is missed. Postings are put whole, so the tool can be run again at any
+ * time, but an expense retitled or deleted while it runs may be left under a token it no longer has; search
+ * skips such ids.
+ */
+@ExcludeFromJacocoGeneratedReport
+public class TitleIndexBackfill {
+    static final Logger log = LogManager.getLogger();
+
+    private static final int DEFAULT_SEGMENTS = 4;
+
+    public static void main(String[] args) {
+        if (!ExpenseTable.doesExpenseTableExist(TITLE_INDEX_TABLE_NAME)) {
+            ExpenseTable.createTitleIndexTable();
+        }
+        int segments = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_SEGMENTS;
+        AmazonDynamoDB client = DynamoDBClientFactory.getClient();
+        DynamoDBMapper mapper = new DynamoDBMapper(client);
+        TitleIndex index = new TitleIndex(client, 0, 0, System::nanoTime);
+        long indexed = 0;
+        if (DataModelMode.fromEnvironment().readsSingleTable()) {
+            DynamoDBScanExpression scan = new DynamoDBScanExpression()
+                    .withFilterExpression("begins_with(SK, :prefix)")
+                    .withExpressionAttributeValues(Collections.singletonMap(":prefix",
+                            new AttributeValue(ExpenseDataRecord.EXPENSE_PREFIX)));
+            for (ExpenseDataRecord record : mapper.parallelScan(ExpenseDataRecord.class, scan, segments)) {
+                index.index(SingleTableRepository.toExpenseItem(record));
+                indexed++;
+            }
+        } else {
+            for (ExpenseItem expense : mapper.parallelScan(ExpenseItem.class, new DynamoDBScanExpression(),
+                    segments)) {
+                index.index(expense);
+                indexed++;
+            }
+        }
+        log.info("Indexed the titles of {} expenses", indexed);
+    }
+}
@@ -0,0 +1,38 @@
+package ata.unit.three.project.expense.dynamodb;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Everything one email owns in the ExpenseData table, as returned by a single Query.
+ */
+public class UserDataset {
+    private final List<ExpenseItem> expenses;
+    private final List<ExpenseItemList> lists;
+    private final Map<String, List<String>> expenseIdsByList;
+
+    /**
+     * Creates a dataset.
+     * @param expenses the expenses, newest first
+     * @param lists the lists, without their expenses
+     * @param expenseIdsByList the ids of each list's expenses by list id
+     */
+    public UserDataset(List<ExpenseItem> expenses, List<ExpenseItemList> lists,
+                       Map<String, List<String>> expenseIdsByList) {
+        this.expenses = expenses;
+        this.lists = lists;
+        this.expenseIdsByList = expenseIdsByList;
+    }
+
+    public List<ExpenseItem> getExpenses() {
+        return expenses;
+    }
+
+    public List<ExpenseItemList> getLists() {
+        return lists;
+    }
+
+    public Map<String, List<String>> getExpenseIdsByList() {
+        return expenseIdsByList;
+    }
+}
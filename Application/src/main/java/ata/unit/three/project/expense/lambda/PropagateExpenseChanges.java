@@ -0,0 +1,100 @@
+package ata.unit.three.project.expense.lambda;
+
+import ata.unit.three.project.expense.dynamodb.DynamoDBClientFactory;
+import ata.unit.three.project.expense.dynamodb.ExpenseChange;
+import ata.unit.three.project.expense.dynamodb.ExpenseChangePropagator;
+import ata.unit.three.project.expense.dynamodb.ExpenseItem;
+import ata.unit.three.project.expense.lambda.models.StreamBatchResponse;
+import ata.unit.three.project.expense.service.model.Money;
+import com.amazonaws.services.dynamodbv2.datamodeling.DynamoDBMapper;
+import com.amazonaws.services.lambda.runtime.Context;
+import com.amazonaws.services.lambda.runtime.RequestHandler;
+import com.amazonaws.services.lambda.runtime.events.DynamodbEvent;
+import com.amazonaws.services.lambda.runtime.events.models.dynamodb.AttributeValue;
+import com.amazonaws.services.lambda.runtime.events.models.dynamodb.StreamRecord;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+
+/**
+ * Consumes the Expense table's stream and carries updates and deletes over to the lists containing the
+ * expenses, see {@link ExpenseChangePropagator}. Inserts are skipped, as a new expense is in no list yet.
+ *
+ * The function reports batch item failures, so Lambda checkpoints every record before the first one that
+ * could not be applied and retries the batch from there.
+ */
+public class PropagateExpenseChanges implements RequestHandler<DynamodbEvent, StreamBatchResponse> {
+
+    static final Logger log = LogManager.getLogger();
+
+    private static volatile ExpenseChangePropagator sharedPropagator;
+
+    private final ExpenseChangePropagator propagator;
+
+    public PropagateExpenseChanges() {
+        this(null);
+    }
+
+    PropagateExpenseChanges(ExpenseChangePropagator propagator) {
+        this.propagator = propagator;
+    }
+
+    @Override
+    public StreamBatchResponse handleRequest(DynamodbEvent input, Context context) {
+        List<ExpenseChange> changes = new ArrayList<>();
+        for (DynamodbEvent.DynamodbStreamRecord record : input.getRecords()) {
+            ExpenseChange change = toChange(record);
+            if (change != null) {
+                changes.add(change);
+            }
+        }
+        String failed = propagator().propagate(changes);
+        if (failed != null) {
+            log.warn("Expense changes will be retried from sequence number {}", failed);
+        }
+        return new StreamBatchResponse(failed);
+    }
+
+    static ExpenseChange toChange(DynamodbEvent.DynamodbStreamRecord record) {
+        StreamRecord data = record.getDynamodb();
+        String expenseId = data.getKeys().get("Id").getS();
+        if ("REMOVE".equals(record.getEventName())) {
+            return new ExpenseChange(data.getSequenceNumber(), expenseId, null);
+        }
+        if (!"MODIFY".equals(record.getEventName())) {
+            return null;
+        }
+        Map<String, AttributeValue> image = data.getNewImage();
+        ExpenseItem expense = new ExpenseItem();
+        expense.setId(expenseId);
+        expense.setEmail(string(image, "Email"));
+        expense.setExpenseDate(string(image, "ExpenseDate"));
+        expense.setTitle(string(image, "Title"));
+        String amount = image.containsKey("Amount") ? image.get("Amount").getN() : null;
+        expense.setAmountCents(amount == null ? null : Money.toCents(new BigDecimal(amount)));
+        expense.setTags(image.containsKey("Tags") ? new TreeSet<>(image.get("Tags").getSS()) : null);
+        return new ExpenseChange(data.getSequenceNumber(), expenseId, expense);
+    }
+
+    private ExpenseChangePropagator propagator() {
+        if (propagator != null) {
+            return propagator;
+        }
+        ExpenseChangePropagator current = sharedPropagator;
+        if (current == null) {
+            current = new ExpenseChangePropagator(DynamoDBClientFactory.getClient(),
+                    new DynamoDBMapper(DynamoDBClientFactory.getClient()));
+            sharedPropagator = current;
+        }
+        return current;
+    }
+
+    private static String string(Map<String, AttributeValue> image, String name) {
+        return image.containsKey(name) ? image.get(name).getS() : null;
+    }
+}
@@ -1,10 +1,14 @@
 package ata.unit.three.project.expense.lambda;
 
 import ata.unit.three.project.expense.service.DaggerExpenseServiceComponent;
+import ata.unit.three.project.expense.service.Deadline;
 import ata.unit.three.project.expense.service.ExpenseService;
 import ata.unit.three.project.expense.service.ExpenseServiceComponent;
+import ata.unit.three.project.expense.service.exceptions.DeadlineExceededException;
 import ata.unit.three.project.expense.service.exceptions.InvalidDataException;
 import ata.unit.three.project.expense.service.exceptions.ItemNotFoundException;
+import ata.unit.three.project.expense.service.exceptions.RateLimitedException;
+import ata.unit.three.project.expense.service.exceptions.ServiceOverloadedException;
 import com.amazonaws.services.lambda.runtime.Context;
 import com.amazonaws.services.lambda.runtime.RequestHandler;
 import com.amazonaws.services.lambda.runtime.events.APIGatewayProxyRequestEvent;
@@ -15,6 +19,7 @@ import com.kenzie.ata.ExcludeFromJacocoGeneratedReport;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
+import java.util.Collections;
 import java.util.Map;
 
 @ExcludeFromJacocoGeneratedReport
@@ -30,6 +35,30 @@ public class RemoveExpenseItemFromList
         // Logging the request json to make debugging easier.
         log.info(gson.toJson(input));
 
+        Deadline.Scope deadline = Deadline.attach(Deadline.forInvocation(context));
+        try {
+            return handle(input, gson);
+        } catch (DeadlineExceededException e) {
+            log.warn(e.getMessage());
+            return new APIGatewayProxyResponseEvent()
+                    .withStatusCode(503)
+                    .withBody(gson.toJson(e.errorPayload()));
+        } catch (ServiceOverloadedException e) {
+            return new APIGatewayProxyResponseEvent()
+                    .withStatusCode(503)
+                    .withHeaders(Collections.singletonMap("Retry-After", Long.toString(e.getRetryAfterSeconds())))
+                    .withBody(gson.toJson(e.errorPayload()));
+        } catch (RateLimitedException e) {
+            return new APIGatewayProxyResponseEvent()
+                    .withStatusCode(429)
+                    .withHeaders(Collections.singletonMap("Retry-After", Long.toString(e.getRetryAfterSeconds())))
+                    .withBody(gson.toJson(e.errorPayload()));
+        } finally {
+            deadline.close();
+        }
+    }
+
+    private APIGatewayProxyResponseEvent handle(APIGatewayProxyRequestEvent input, Gson gson) {
         APIGatewayProxyResponseEvent response = new APIGatewayProxyResponseEvent();
 
         ExpenseServiceComponent dagger = DaggerExpenseServiceComponent.create();
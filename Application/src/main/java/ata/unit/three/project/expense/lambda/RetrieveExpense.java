@@ -2,8 +2,12 @@ package ata.unit.three.project.expense.lambda;
 
 import ata.unit.three.project.expense.dynamodb.ExpenseItem;
 import ata.unit.three.project.expense.service.DaggerExpenseServiceComponent;
+import ata.unit.three.project.expense.service.Deadline;
 import ata.unit.three.project.expense.service.ExpenseService;
+import ata.unit.three.project.expense.service.exceptions.DeadlineExceededException;
 import ata.unit.three.project.expense.service.exceptions.InvalidDataException;
+import ata.unit.three.project.expense.service.exceptions.ServiceOverloadedException;
+import ata.unit.three.project.expense.service.model.ETags;
 import ata.unit.three.project.expense.service.ExpenseServiceComponent;
 
 import com.amazonaws.services.lambda.runtime.Context;
@@ -16,6 +20,7 @@ import com.kenzie.ata.ExcludeFromJacocoGeneratedReport;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
 
@@ -31,6 +36,25 @@ public class RetrieveExpense implements RequestHandler<APIGatewayProxyRequestEve
 
         log.info(gson.toJson(input));
 
+        Deadline.Scope deadline = Deadline.attach(Deadline.forInvocation(context));
+        try {
+            return handle(input, gson);
+        } catch (DeadlineExceededException e) {
+            log.warn(e.getMessage());
+            return new APIGatewayProxyResponseEvent()
+                    .withStatusCode(503)
+                    .withBody(gson.toJson(e.errorPayload()));
+        } catch (ServiceOverloadedException e) {
+            return new APIGatewayProxyResponseEvent()
+                    .withStatusCode(503)
+                    .withHeaders(Collections.singletonMap("Retry-After", Long.toString(e.getRetryAfterSeconds())))
+                    .withBody(gson.toJson(e.errorPayload()));
+        } finally {
+            deadline.close();
+        }
+    }
+
+    private APIGatewayProxyResponseEvent handle(APIGatewayProxyRequestEvent input, Gson gson) {
 //        ExpenseService expenseService = App.expenseService();
 
         ExpenseServiceComponent dagger = DaggerExpenseServiceComponent.create();
@@ -45,12 +69,24 @@ public class RetrieveExpense implements RequestHandler<APIGatewayProxyRequestEve
         String expenseId = input.getPathParameters().get("expenseId");
 
         try {
+            String ifNoneMatch = ETags.ifNoneMatch(input.getHeaders());
+            if (ifNoneMatch != null) {
+                String etag = expenseService.getExpenseETag(expenseId);
+                if (ETags.matches(ifNoneMatch, etag)) {
+                    headers.put(ETags.ETAG, etag);
+                    return response
+                            .withStatusCode(304);
+                }
+            }
             ExpenseItem expense = expenseService.getExpenseById(expenseId);
             if (expense == null) {
                 return response
                         .withStatusCode(404);
             }
             String output = gson.toJson(expense);
+            if (expense.getChangeSeq() != null) {
+                headers.put(ETags.ETAG, ETags.of(expense.getChangeSeq()));
+            }
 
             return response
                     .withStatusCode(200)
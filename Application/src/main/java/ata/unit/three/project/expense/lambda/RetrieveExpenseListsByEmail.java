@@ -2,8 +2,12 @@ package ata.unit.three.project.expense.lambda;
 
 import ata.unit.three.project.App;
 import ata.unit.three.project.expense.service.DaggerExpenseServiceComponent;
+import ata.unit.three.project.expense.service.Deadline;
 import ata.unit.three.project.expense.service.ExpenseService;
+import ata.unit.three.project.expense.service.exceptions.DeadlineExceededException;
 import ata.unit.three.project.expense.service.exceptions.InvalidDataException;
+import ata.unit.three.project.expense.service.exceptions.ServiceOverloadedException;
+import ata.unit.three.project.expense.service.model.ETags;
 import ata.unit.three.project.expense.service.ExpenseServiceComponent;
 
 import com.amazonaws.services.lambda.runtime.Context;
@@ -16,6 +20,7 @@ import com.kenzie.ata.ExcludeFromJacocoGeneratedReport;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
 
@@ -24,6 +29,8 @@ public class RetrieveExpenseListsByEmail
         implements RequestHandler<APIGatewayProxyRequestEvent, APIGatewayProxyResponseEvent> {
 
 
+    static final String EMBEDDED = "embedded";
+    static final String NORMALIZED = "normalized";
     static final Logger log = LogManager.getLogger();
 
     @Override
@@ -33,6 +40,25 @@ public class RetrieveExpenseListsByEmail
 
         log.info(gson.toJson(input));
 
+        Deadline.Scope deadline = Deadline.attach(Deadline.forInvocation(context));
+        try {
+            return handle(input, gson);
+        } catch (DeadlineExceededException e) {
+            log.warn(e.getMessage());
+            return new APIGatewayProxyResponseEvent()
+                    .withStatusCode(503)
+                    .withBody(gson.toJson(e.errorPayload()));
+        } catch (ServiceOverloadedException e) {
+            return new APIGatewayProxyResponseEvent()
+                    .withStatusCode(503)
+                    .withHeaders(Collections.singletonMap("Retry-After", Long.toString(e.getRetryAfterSeconds())))
+                    .withBody(gson.toJson(e.errorPayload()));
+        } finally {
+            deadline.close();
+        }
+    }
+
+    private APIGatewayProxyResponseEvent handle(APIGatewayProxyRequestEvent input, Gson gson) {
         ExpenseServiceComponent dagger = DaggerExpenseServiceComponent.create();
         ExpenseService expenseService = dagger.expenseService();
 
@@ -44,9 +70,21 @@ public class RetrieveExpenseListsByEmail
                 .withHeaders(headers);
 
         String email = input.getQueryStringParameters().get("email");
+        String format = input.getQueryStringParameters().get("format");
 
         try {
-            String output = gson.toJson(expenseService.getExpenseListByEmail(email));
+            if (format != null && !EMBEDDED.equals(format) && !NORMALIZED.equals(format)) {
+                throw new InvalidDataException("Format must be " + EMBEDDED + " or " + NORMALIZED);
+            }
+            String output = NORMALIZED.equals(format) ?
+                    gson.toJson(expenseService.getNormalizedExpenseLists(email)) :
+                    gson.toJson(expenseService.getExpenseListByEmail(email));
+            String etag = ETags.ofBody(output);
+            headers.put(ETags.ETAG, etag);
+            if (ETags.matches(ETags.ifNoneMatch(input.getHeaders()), etag)) {
+                return response
+                        .withStatusCode(304);
+            }
             return response
                     .withStatusCode(200)
                     .withBody(output);
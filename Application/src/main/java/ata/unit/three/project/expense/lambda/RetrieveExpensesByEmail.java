@@ -2,9 +2,12 @@ package ata.unit.three.project.expense.lambda;
 
 import ata.unit.three.project.expense.dynamodb.ExpenseItem;
 import ata.unit.three.project.expense.service.DaggerExpenseServiceComponent;
+import ata.unit.three.project.expense.service.Deadline;
 import ata.unit.three.project.expense.service.ExpenseService;
 import ata.unit.three.project.expense.service.ExpenseServiceComponent;
+import ata.unit.three.project.expense.service.exceptions.DeadlineExceededException;
 import ata.unit.three.project.expense.service.exceptions.InvalidDataException;
+import ata.unit.three.project.expense.service.exceptions.ServiceOverloadedException;
 import com.amazonaws.services.lambda.runtime.Context;
 import com.amazonaws.services.lambda.runtime.RequestHandler;
 import com.amazonaws.services.lambda.runtime.events.APIGatewayProxyRequestEvent;
@@ -15,6 +18,7 @@ import com.kenzie.ata.ExcludeFromJacocoGeneratedReport;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -33,6 +37,25 @@ public class RetrieveExpensesByEmail
         // Logging the request json to make debugging easier.
         log.info(gson.toJson(input));
 
+        Deadline.Scope deadline = Deadline.attach(Deadline.forInvocation(context));
+        try {
+            return handle(input, gson);
+        } catch (DeadlineExceededException e) {
+            log.warn(e.getMessage());
+            return new APIGatewayProxyResponseEvent()
+                    .withStatusCode(503)
+                    .withBody(gson.toJson(e.errorPayload()));
+        } catch (ServiceOverloadedException e) {
+            return new APIGatewayProxyResponseEvent()
+                    .withStatusCode(503)
+                    .withHeaders(Collections.singletonMap("Retry-After", Long.toString(e.getRetryAfterSeconds())))
+                    .withBody(gson.toJson(e.errorPayload()));
+        } finally {
+            deadline.close();
+        }
+    }
+
+    private APIGatewayProxyResponseEvent handle(APIGatewayProxyRequestEvent input, Gson gson) {
         Map<String, String> headers = new HashMap<>();
         headers.put("Content-Type", "application/json");
 
@@ -40,6 +63,9 @@ public class RetrieveExpensesByEmail
                 .withHeaders(headers);
 
         String email = input.getQueryStringParameters().get("email");
+        String top = input.getQueryStringParameters().get("top");
+        String minAmount = input.getQueryStringParameters().get("minAmount");
+        String maxAmount = input.getQueryStringParameters().get("maxAmount");
 
         ExpenseServiceComponent dagger = DaggerExpenseServiceComponent.create();
         ExpenseService expenseService = dagger.expenseService();
@@ -47,7 +73,14 @@ public class RetrieveExpensesByEmail
         // Your Code Here
         try {
 //        ExpenseService expenseService = App.expenseService();
-        List<ExpenseItem> items = expenseService.getExpensesByEmail(email);
+            List<ExpenseItem> items;
+            if (top != null) {
+                items = expenseService.getLargestExpenses(email, top);
+            } else if (minAmount != null || maxAmount != null) {
+                items = expenseService.getExpensesByAmount(email, minAmount, maxAmount);
+            } else {
+                items = expenseService.getExpensesByEmail(email);
+            }
 
             String output = gson.toJson(items);
 
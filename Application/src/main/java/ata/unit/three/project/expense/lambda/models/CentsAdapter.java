@@ -0,0 +1,42 @@
+package ata.unit.three.project.expense.lambda.models;
+
+import ata.unit.three.project.expense.service.model.Money;
+
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+
+/**
+ * Reads and writes an amount held in cents as the decimal number clients have always sent and received, for
+ * example 12.5 for 1250 cents. A value that is not a number, or too large to hold in cents, is read as no
+ * amount, which request validation then rejects.
+ */
+public class CentsAdapter extends TypeAdapter<Long> {
+
+    @Override
+    public void write(JsonWriter out, Long cents) throws IOException {
+        if (cents == null) {
+            out.nullValue();
+        } else {
+            out.value(Money.toDouble(cents));
+        }
+    }
+
+    @Override
+    public Long read(JsonReader in) throws IOException {
+        JsonToken token = in.peek();
+        if (token != JsonToken.NUMBER && token != JsonToken.STRING) {
+            in.skipValue();
+            return null;
+        }
+        try {
+            return Money.toCents(new BigDecimal(in.nextString()));
+        } catch (NumberFormatException | ArithmeticException e) {
+            return null;
+        }
+    }
+}
@@ -1,18 +1,28 @@
 package ata.unit.three.project.expense.lambda.models;
 
+import ata.unit.three.project.expense.service.model.Money;
+
+import com.google.gson.annotations.JsonAdapter;
+import com.google.gson.annotations.SerializedName;
 import com.kenzie.ata.ExcludeFromJacocoGeneratedReport;
 
+import java.util.List;
+
 @ExcludeFromJacocoGeneratedReport
 public class Expense {
 
     private String email;
     private String title;
-    private Double amount;
+    // Held in cents; the request body carries the decimal amount.
+    @SerializedName("amount")
+    @JsonAdapter(CentsAdapter.class)
+    private Long amountCents;
+    private List<String> tags;
 
     public Expense(String email, String title, Double amount) {
         this.email = email;
         this.title = title;
-        this.amount = amount;
+        this.amountCents = Money.toCents(amount);
     }
 
     public String getEmail() {
@@ -32,10 +42,31 @@ public class Expense {
     }
 
     public Double getAmount() {
-        return amount;
+        return Money.toDouble(amountCents);
     }
 
     public void setAmount(Double amount) {
-        this.amount = amount;
+        this.amountCents = Money.toCents(amount);
+    }
+
+    public Long getAmountCents() {
+        return amountCents;
+    }
+
+    public void setAmountCents(Long amountCents) {
+        this.amountCents = amountCents;
+    }
+
+    /**
+     * Returns the tags the expense is filed under. On an update, no tags leave the expense's tags as they are and
+     * an empty list removes them.
+     * @return the tags, or null if none were sent
+     */
+    public List<String> getTags() {
+        return tags;
+    }
+
+    public void setTags(List<String> tags) {
+        this.tags = tags;
     }
 }
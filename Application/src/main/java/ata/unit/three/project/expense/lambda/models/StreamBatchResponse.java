@@ -0,0 +1,52 @@
+package ata.unit.three.project.expense.lambda.models;
+
+import com.kenzie.ata.ExcludeFromJacocoGeneratedReport;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The response of a stream handler that reports batch item failures. Lambda retries the batch from the first
+ * reported record and treats the records before it as processed.
+ */
+@ExcludeFromJacocoGeneratedReport
+public class StreamBatchResponse {
+    private List<BatchItemFailure> batchItemFailures = new ArrayList<>();
+
+    public StreamBatchResponse() {
+    }
+
+    public StreamBatchResponse(String failedSequenceNumber) {
+        if (failedSequenceNumber != null) {
+            batchItemFailures.add(new BatchItemFailure(failedSequenceNumber));
+        }
+    }
+
+    public List<BatchItemFailure> getBatchItemFailures() {
+        return batchItemFailures;
+    }
+
+    public void setBatchItemFailures(List<BatchItemFailure> batchItemFailures) {
+        this.batchItemFailures = batchItemFailures;
+    }
+
+    @ExcludeFromJacocoGeneratedReport
+    public static class BatchItemFailure {
+        private String itemIdentifier;
+
+        public BatchItemFailure() {
+        }
+
+        public BatchItemFailure(String itemIdentifier) {
+            this.itemIdentifier = itemIdentifier;
+        }
+
+        public String getItemIdentifier() {
+            return itemIdentifier;
+        }
+
+        public void setItemIdentifier(String itemIdentifier) {
+            this.itemIdentifier = itemIdentifier;
+        }
+    }
+}
@@ -0,0 +1,95 @@
+package ata.unit.three.project.expense.service;
+
+import com.amazonaws.services.lambda.runtime.Context;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The point in time by which the current request has to be answered.
+ *
+ * Handlers attach a deadline derived from the Lambda context for the duration of a request. The DynamoDB client
+ * reads it on every call to size its timeouts and retries, so a slow table fails the request while there is
+ * still time to return a response instead of running into the function timeout.
+ */
+public final class Deadline {
+    /**
+     * Time kept back from the Lambda's remaining time to serialize the response and return it.
+     */
+    public static final long RESPONSE_RESERVE_MILLIS = 250;
+
+    private static final ThreadLocal<Deadline> CURRENT = new ThreadLocal<>();
+
+    private final long expiresAtNanos;
+
+    private Deadline(long expiresAtNanos) {
+        this.expiresAtNanos = expiresAtNanos;
+    }
+
+    /**
+     * Creates a deadline a fixed amount of time from now.
+     * @param millis the time budget in milliseconds
+     * @return the deadline
+     */
+    public static Deadline after(long millis) {
+        return new Deadline(System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(millis));
+    }
+
+    /**
+     * Creates the deadline for a Lambda invocation.
+     * @param context the invocation context, may be null outside Lambda
+     * @return a deadline shortly before the function times out, or null when there is no context
+     */
+    public static Deadline forInvocation(Context context) {
+        if (context == null) {
+            return null;
+        }
+        return after(Math.max(0, context.getRemainingTimeInMillis() - RESPONSE_RESERVE_MILLIS));
+    }
+
+    /**
+     * Returns the deadline attached to the calling thread.
+     * @return the current deadline, or null if the request has none
+     */
+    public static Deadline current() {
+        return CURRENT.get();
+    }
+
+    /**
+     * Makes a deadline the current one until the returned scope is closed.
+     * @param deadline the deadline, or null to run without one
+     * @return a scope that restores the previous deadline when closed
+     */
+    public static Scope attach(Deadline deadline) {
+        Deadline previous = CURRENT.get();
+        CURRENT.set(deadline);
+        return new Scope(previous);
+    }
+
+    public long remainingMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(expiresAtNanos - System.nanoTime());
+    }
+
+    public boolean isExpired() {
+        return expiresAtNanos - System.nanoTime() <= 0;
+    }
+
+    /**
+     * Restores the previously attached deadline.
+     */
+    public static final class Scope implements AutoCloseable {
+        private final Deadline previous;
+
+        private Scope(Deadline previous) {
+            this.previous = previous;
+        }
+
+        @Override
+        public void close() {
+            if (previous == null) {
+                CURRENT.remove();
+            } else {
+                CURRENT.set(previous);
+            }
+        }
+    }
+}
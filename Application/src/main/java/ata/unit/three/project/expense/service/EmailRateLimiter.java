@@ -0,0 +1,287 @@
+package ata.unit.three.project.expense.service;
+
+import ata.unit.three.project.expense.dynamodb.RateLimitCounterTable;
+import ata.unit.three.project.expense.service.exceptions.RateLimitedException;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+/**
+ * Limits how fast a single email can create and change expenses and lists, so that one noisy account cannot
+ * throttle the EmailIndex partition everybody else shares.
+ *
+ * Each email has a token bucket whose rate and burst come from its tier. Tiers are configured with
+ * EXPENSE_RATE_LIMITS (or the expense.rateLimits system property) as comma separated name=ratePerSecond:burst
+ * entries, e.g. "default=5:20,bulk=50:200"; a tier set to "unlimited" is not limited. Emails use the "default"
+ * tier unless EXPENSE_RATE_LIMIT_TIERS (expense.rateLimitTiers) assigns them another, e.g.
+ * "importer@example.com=bulk".
+ *
+ * The buckets live in the container, so every container enforces the limit on its own. Setting
+ * EXPENSE_RATE_LIMIT_SHARED=true (expense.rateLimitShared) also counts each accepted mutation in a
+ * {@link SharedRateCounter} per email and minute, which bounds an email across all containers.
+ */
+public class EmailRateLimiter {
+    public static final String LIMITS_ENV = "EXPENSE_RATE_LIMITS";
+    public static final String LIMITS_PROPERTY = "expense.rateLimits";
+    public static final String TIERS_ENV = "EXPENSE_RATE_LIMIT_TIERS";
+    public static final String TIERS_PROPERTY = "expense.rateLimitTiers";
+    public static final String SHARED_ENV = "EXPENSE_RATE_LIMIT_SHARED";
+    public static final String SHARED_PROPERTY = "expense.rateLimitShared";
+    public static final String DEFAULT_TIER = "default";
+
+    static final String DEFAULT_LIMITS = "default=10:50";
+    static final int MAX_TRACKED_EMAILS = 10_000;
+    static final long EVICTION_INTERVAL_MILLIS = 1000;
+    static final long SHARED_WINDOW_SECONDS = 60;
+    static final Logger log = LogManager.getLogger();
+
+    private static final long REPORT_INTERVAL = 100;
+    private static final int REPORTED_OFFENDERS = 5;
+
+    private static volatile EmailRateLimiter instance;
+
+    private final Map<String, Tier> tiers;
+    private final Map<String, String> emailTiers;
+    private final SharedRateCounter sharedCounter;
+    private final LongSupplier clock;
+    private final Map<String, Bucket> buckets = new ConcurrentHashMap<>();
+    private final Map<String, LongAdder> rejections = new ConcurrentHashMap<>();
+    private final AtomicLong rejected = new AtomicLong();
+    private final AtomicLong nextEvictionNanos;
+
+    /**
+     * Creates a limiter.
+     * @param tiers the limits by tier name; must contain {@link #DEFAULT_TIER}
+     * @param emailTiers the tier of every email that does not use the default one
+     * @param sharedCounter counts mutations across containers, or null to only limit locally
+     */
+    public EmailRateLimiter(Map<String, Tier> tiers, Map<String, String> emailTiers,
+                            SharedRateCounter sharedCounter) {
+        this(tiers, emailTiers, sharedCounter, System::nanoTime);
+    }
+
+    EmailRateLimiter(Map<String, Tier> tiers, Map<String, String> emailTiers, SharedRateCounter sharedCounter,
+                     LongSupplier clock) {
+        if (!tiers.containsKey(DEFAULT_TIER)) {
+            throw new IllegalArgumentException("Rate limits need a \"" + DEFAULT_TIER + "\" tier");
+        }
+        this.tiers = new HashMap<>(tiers);
+        this.emailTiers = new HashMap<>(emailTiers);
+        this.sharedCounter = sharedCounter;
+        this.clock = clock;
+        this.nextEvictionNanos = new AtomicLong(clock.getAsLong());
+    }
+
+    /**
+     * Returns the limiter shared by every service in this container.
+     * @return the shared limiter, configured from the environment
+     */
+    public static EmailRateLimiter getInstance() {
+        EmailRateLimiter current = instance;
+        if (current == null) {
+            synchronized (EmailRateLimiter.class) {
+                current = instance;
+                if (current == null) {
+                    boolean shared = Boolean.parseBoolean(setting(SHARED_PROPERTY, SHARED_ENV, "false"));
+                    current = new EmailRateLimiter(parseTiers(setting(LIMITS_PROPERTY, LIMITS_ENV, DEFAULT_LIMITS)),
+                            parseAssignments(setting(TIERS_PROPERTY, TIERS_ENV, "")),
+                            shared ? new RateLimitCounterTable() : null);
+                    instance = current;
+                }
+            }
+        }
+        return current;
+    }
+
+    /**
+     * Parses tier limits such as "default=10:50,bulk=100:500,internal=unlimited".
+     * @param spec comma separated name=ratePerSecond:burst entries
+     * @return the limits by tier name
+     */
+    public static Map<String, Tier> parseTiers(String spec) {
+        Map<String, Tier> parsed = new HashMap<>();
+        for (Map.Entry<String, String> entry : parseAssignments(spec).entrySet()) {
+            String value = entry.getValue();
+            if ("unlimited".equalsIgnoreCase(value)) {
+                parsed.put(entry.getKey(), Tier.UNLIMITED);
+                continue;
+            }
+            String[] parts = value.split(":");
+            double rate = Double.parseDouble(parts[0]);
+            double burst = parts.length > 1 ? Double.parseDouble(parts[1]) : Math.max(1, rate);
+            parsed.put(entry.getKey(), new Tier(rate, burst));
+        }
+        return parsed;
+    }
+
+    static Map<String, String> parseAssignments(String spec) {
+        Map<String, String> parsed = new HashMap<>();
+        for (String entry : spec.split(",")) {
+            String trimmed = entry.trim();
+            if (trimmed.isEmpty()) {
+                continue;
+            }
+            int separator = trimmed.lastIndexOf('=');
+            if (separator <= 0) {
+                throw new IllegalArgumentException("Expected name=value but got \"" + trimmed + "\"");
+            }
+            parsed.put(trimmed.substring(0, separator).trim(), trimmed.substring(separator + 1).trim());
+        }
+        return parsed;
+    }
+
+    /**
+     * Takes a token for one mutation by the email.
+     * @param email the email making the mutation; missing emails are left to validation
+     * @throws RateLimitedException if the email is over its limit
+     */
+    public void acquire(String email) {
+        if (email == null || email.isEmpty()) {
+            return;
+        }
+        Tier tier = tierOf(email);
+        if (tier == Tier.UNLIMITED) {
+            return;
+        }
+        Bucket bucket = buckets.computeIfAbsent(email, key -> new Bucket(tier, clock.getAsLong()));
+        long waitMillis = bucket.tryAcquire(clock.getAsLong());
+        if (waitMillis > 0) {
+            throw reject(email, waitMillis);
+        }
+        if (sharedCounter != null) {
+            long nowMillis = System.currentTimeMillis();
+            long windowStart = TimeUnit.MILLISECONDS.toSeconds(nowMillis) / SHARED_WINDOW_SECONDS *
+                    SHARED_WINDOW_SECONDS;
+            long limit = (long) Math.ceil(tier.burst + tier.ratePerSecond * SHARED_WINDOW_SECONDS);
+            if (!sharedCounter.tryIncrement(email, windowStart, SHARED_WINDOW_SECONDS, limit)) {
+                throw reject(email, TimeUnit.SECONDS.toMillis(windowStart + SHARED_WINDOW_SECONDS) - nowMillis);
+            }
+        }
+        if (buckets.size() > MAX_TRACKED_EMAILS) {
+            evictIdleBuckets();
+        }
+    }
+
+    /**
+     * Returns the emails rejected most often since the counts were last reset.
+     * @param limit how many emails to return
+     * @return email and rejection count pairs, most rejected first
+     */
+    public List<Map.Entry<String, Long>> getTopOffenders(int limit) {
+        List<Map.Entry<String, Long>> offenders = new ArrayList<>();
+        for (Map.Entry<String, LongAdder> entry : rejections.entrySet()) {
+            offenders.add(new AbstractMap.SimpleImmutableEntry<>(entry.getKey(), entry.getValue().sum()));
+        }
+        offenders.sort(Collections.reverseOrder(Map.Entry.comparingByValue()));
+        return offenders.subList(0, Math.min(limit, offenders.size()));
+    }
+
+    public long getRejectedCount() {
+        return rejected.get();
+    }
+
+    int getTrackedEmailCount() {
+        return buckets.size();
+    }
+
+    private Tier tierOf(String email) {
+        Tier tier = tiers.get(emailTiers.getOrDefault(email, DEFAULT_TIER));
+        return tier == null ? tiers.get(DEFAULT_TIER) : tier;
+    }
+
+    private RateLimitedException reject(String email, long waitMillis) {
+        rejections.computeIfAbsent(email, key -> new LongAdder()).increment();
+        if (rejected.incrementAndGet() % REPORT_INTERVAL == 0) {
+            log.warn("Rate limited {} mutations; top offenders: {}", rejected.get(),
+                    getTopOffenders(REPORTED_OFFENDERS));
+            if (rejections.size() > MAX_TRACKED_EMAILS) {
+                rejections.clear();
+            }
+        }
+        return new RateLimitedException("Too many changes for " + email + ", slow down", waitMillis);
+    }
+
+    /**
+     * Drops buckets that have refilled completely; a full bucket behaves exactly like a new one. The sweep reads
+     * every bucket, so it runs at most once per {@link #EVICTION_INTERVAL_MILLIS} however many calls find the
+     * limiter over {@link #MAX_TRACKED_EMAILS}.
+     */
+    private void evictIdleBuckets() {
+        long now = clock.getAsLong();
+        long next = nextEvictionNanos.get();
+        if (now - next < 0 || !nextEvictionNanos.compareAndSet(next,
+                now + TimeUnit.MILLISECONDS.toNanos(EVICTION_INTERVAL_MILLIS))) {
+            return;
+        }
+        buckets.values().removeIf(bucket -> bucket.isFull(now));
+    }
+
+    private static String setting(String property, String env, String defaultValue) {
+        String value = System.getProperty(property);
+        if (value == null || value.isEmpty()) {
+            value = System.getenv(env);
+        }
+        return value == null || value.isEmpty() ? defaultValue : value;
+    }
+
+    public static final class Tier {
+        static final Tier UNLIMITED = new Tier(Double.POSITIVE_INFINITY, Double.POSITIVE_INFINITY);
+
+        private final double ratePerSecond;
+        private final double burst;
+
+        /**
+         * Creates a tier.
+         * @param ratePerSecond the sustained number of mutations per second
+         * @param burst how many mutations may be made at once after a quiet period
+         */
+        public Tier(double ratePerSecond, double burst) {
+            this.ratePerSecond = ratePerSecond;
+            this.burst = burst;
+        }
+    }
+
+    private static final class Bucket {
+        private final Tier tier;
+        private double tokens;
+        private long refilledAtNanos;
+
+        private Bucket(Tier tier, long now) {
+            this.tier = tier;
+            this.tokens = tier.burst;
+            this.refilledAtNanos = now;
+        }
+
+        private synchronized long tryAcquire(long now) {
+            refill(now);
+            if (tokens >= 1) {
+                tokens--;
+                return 0;
+            }
+            return Math.max(1, (long) Math.ceil((1 - tokens) / tier.ratePerSecond * 1000));
+        }
+
+        private synchronized boolean isFull(long now) {
+            refill(now);
+            return tokens >= tier.burst;
+        }
+
+        private void refill(long now) {
+            double elapsedSeconds = (now - refilledAtNanos) / 1e9;
+            tokens = Math.min(tier.burst, tokens + elapsedSeconds * tier.ratePerSecond);
+            refilledAtNanos = now;
+        }
+    }
+}
@@ -3,33 +3,89 @@ package ata.unit.three.project.expense.service;
 import ata.unit.three.project.expense.dynamodb.ExpenseItem;
 import ata.unit.three.project.expense.dynamodb.ExpenseItemList;
 import ata.unit.three.project.expense.dynamodb.ExpenseServiceRepository;
+import ata.unit.three.project.expense.dynamodb.SpendingSummary;
+import ata.unit.three.project.expense.dynamodb.UserDataset;
 import ata.unit.three.project.expense.lambda.models.Expense;
+import ata.unit.three.project.expense.lambda.models.ExpenseList;
+import ata.unit.three.project.expense.service.analytics.Granularity;
+import ata.unit.three.project.expense.service.analytics.SpendingBucket;
+import ata.unit.three.project.expense.service.analytics.TagTotal;
 import ata.unit.three.project.expense.service.exceptions.InvalidDataException;
 import ata.unit.three.project.expense.service.exceptions.InvalidExpenseException;
 import ata.unit.three.project.expense.service.exceptions.ItemNotFoundException;
+import ata.unit.three.project.expense.service.model.ETags;
 import ata.unit.three.project.expense.service.model.ExpenseItemConverter;
+import ata.unit.three.project.expense.service.model.ExpensePage;
+import ata.unit.three.project.expense.service.model.IdGenerator;
+import ata.unit.three.project.expense.service.model.Money;
+import ata.unit.three.project.expense.service.model.NormalizedExpenseLists;
+import ata.unit.three.project.expense.service.model.Tags;
+import ata.unit.three.project.expense.service.search.ExpenseSearchResult;
+import ata.unit.three.project.expense.service.search.TitlePostings;
+import ata.unit.three.project.expense.service.search.TitleRanking;
+import ata.unit.three.project.expense.service.search.TitleTokens;
+import ata.unit.three.project.expense.service.sync.SyncChange;
+import ata.unit.three.project.expense.service.sync.SyncPage;
+import ata.unit.three.project.expense.service.validation.RequestRules;
+import ata.unit.three.project.expense.service.validation.Validation;
 
 import org.apache.commons.lang3.StringUtils;
 
+import java.math.BigDecimal;
 import java.time.Instant;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedList;
 import java.util.List;
+import java.util.Map;
 import javax.inject.Inject;
 
-import static java.util.UUID.fromString;
-import static java.util.UUID.randomUUID;
 
 public class ExpenseService {
+    private static final int DEFAULT_ANALYTICS_YEARS = 3;
+    private static final int MAX_ANALYTICS_YEARS = 10;
+    private static final int DEFAULT_TOP_EXPENSES = 20;
+    private static final int MAX_TOP_EXPENSES = 100;
+    private static final int DEFAULT_SEARCH_RESULTS = 20;
+    private static final int MAX_SEARCH_RESULTS = 100;
+    private static final int MAX_SUGGESTIONS = 10;
+    private static final int DEFAULT_TAG_PAGE = 20;
+    private static final int MAX_TAG_PAGE = 100;
+    private static final int DEFAULT_SYNC_CHANGES = 100;
+    private static final int MAX_SYNC_CHANGES = 1000;
 
     private ExpenseServiceRepository expenseServiceRepository;
     private ExpenseItemConverter expenseItemConverter;
+    private EmailRateLimiter emailRateLimiter;
+    private IdGenerator idGenerator;
 
     @Inject
     public ExpenseService(ExpenseServiceRepository expenseServiceRepository,
                           ExpenseItemConverter expenseItemConverter) {
+        this(expenseServiceRepository, expenseItemConverter, EmailRateLimiter.getInstance());
+    }
+
+    public ExpenseService(ExpenseServiceRepository expenseServiceRepository,
+                          ExpenseItemConverter expenseItemConverter,
+                          EmailRateLimiter emailRateLimiter) {
+        this(expenseServiceRepository, expenseItemConverter, emailRateLimiter, IdGenerator.fromEnvironment());
+    }
+
+    public ExpenseService(ExpenseServiceRepository expenseServiceRepository,
+                          ExpenseItemConverter expenseItemConverter,
+                          EmailRateLimiter emailRateLimiter,
+                          IdGenerator idGenerator) {
         this.expenseServiceRepository = expenseServiceRepository;
         this.expenseItemConverter = expenseItemConverter;
+        this.emailRateLimiter = emailRateLimiter;
+        this.idGenerator = idGenerator;
     }
 
     public ExpenseItem getExpenseById(String expenseId) {
@@ -39,15 +95,252 @@ public class ExpenseService {
         return expenseServiceRepository.getExpenseById(expenseId);
     }
 
+    /**
+     * Returns the entity tag of an expense without reading the expense, for conditional reads.
+     * @param expenseId the expense id
+     * @return the tag, or null if the expense does not exist or has no version yet
+     */
+    public String getExpenseETag(String expenseId) {
+        if (isInvalidUuid(expenseId)) {
+            throw new InvalidDataException("Expense id is not present");
+        }
+        return ETags.of(expenseServiceRepository.getExpenseChangeSeq(expenseId));
+    }
+
     public List<ExpenseItem> getExpensesByEmail(String email) {
-        if (StringUtils.isEmpty(email)) {
-            throw new InvalidDataException("Email is not present");
+        if (!Validation.isEmail(email)) {
+            throw new InvalidDataException("Email is not valid");
         }
         return expenseServiceRepository.getExpensesByEmail(email);
     }
 
+    /**
+     * Returns an email's largest expenses.
+     * @param email the email
+     * @param limit how many expenses to return, up to 100; 20 if not given
+     * @return the expenses, largest amount first
+     */
+    public List<ExpenseItem> getLargestExpenses(String email, String limit) {
+        if (!Validation.isEmail(email)) {
+            throw new InvalidDataException("Email is not valid");
+        }
+        int count;
+        try {
+            count = limit == null ? DEFAULT_TOP_EXPENSES : Integer.parseInt(limit);
+        } catch (NumberFormatException e) {
+            count = 0;
+        }
+        if (count < 1 || count > MAX_TOP_EXPENSES) {
+            throw new InvalidDataException("Top must be a whole number from 1 to " + MAX_TOP_EXPENSES);
+        }
+        return expenseServiceRepository.getLargestExpenses(email, count);
+    }
+
+    /**
+     * Returns an email's expenses with amounts in a range, both ends included.
+     * @param email the email
+     * @param minAmount the smallest amount, as a decimal; 0 if not given
+     * @param maxAmount the largest amount, as a decimal; the largest amount allowed if not given
+     * @return the expenses, smallest amount first
+     */
+    public List<ExpenseItem> getExpensesByAmount(String email, String minAmount, String maxAmount) {
+        if (!Validation.isEmail(email)) {
+            throw new InvalidDataException("Email is not valid");
+        }
+        long minCents = parseAmount(minAmount, 0);
+        long maxCents = parseAmount(maxAmount, RequestRules.MAX_AMOUNT_CENTS);
+        if (minCents > maxCents) {
+            throw new InvalidDataException("Minimum amount must not be above the maximum amount");
+        }
+        return expenseServiceRepository.getExpensesByAmount(email, minCents, maxCents);
+    }
+
+    /**
+     * Finds an email's expenses by title. Every word of the query matches titles with the same word, and the last
+     * one also titles with a word it begins, so results show while it is still being typed. Titles matching more
+     * words come first, and among those exact words count for more than the start of one.
+     * @param email the email
+     * @param query the words to look for
+     * @param limit how many expenses a page holds, up to 100; 20 if not given
+     * @param page the page, as returned by {@link ExpenseSearchResult#getNextPage()}; the first if not given
+     * @return the page of expenses, best match first
+     */
+    public ExpenseSearchResult searchExpenses(String email, String query, String limit, String page) {
+        if (!Validation.isEmail(email)) {
+            throw new InvalidDataException("Email is not valid");
+        }
+        List<String> tokens = new ArrayList<>(TitleTokens.of(query));
+        if (tokens.isEmpty()) {
+            throw new InvalidDataException("Query must contain a letter or a digit");
+        }
+        int count;
+        int offset;
+        try {
+            count = limit == null ? DEFAULT_SEARCH_RESULTS : Integer.parseInt(limit);
+            offset = page == null ? 0 : Integer.parseInt(page);
+        } catch (NumberFormatException e) {
+            throw new InvalidDataException("Limit and page must be whole numbers");
+        }
+        if (count < 1 || count > MAX_SEARCH_RESULTS || offset < 0) {
+            throw new InvalidDataException("Limit must be from 1 to " + MAX_SEARCH_RESULTS +
+                    " and page must not be negative");
+        }
+        TitleRanking ranking = new TitleRanking();
+        for (int i = 0; i < tokens.size(); i++) {
+            String token = tokens.get(i);
+            TitlePostings postings = expenseServiceRepository.getTitlePostings(email, token);
+            ranking.add(postings.exact(token), i == tokens.size() - 1 ? postings.withPrefix(token) :
+                    Collections.emptyList());
+        }
+        List<String> ranked = ranking.ranked();
+        List<String> pageIds = ranked.subList(Math.min(offset, ranked.size()),
+                (int) Math.min((long) offset + count, ranked.size()));
+        List<ExpenseItem> expenses = new ArrayList<>();
+        for (ExpenseItem expense : expenseServiceRepository.getExpensesByIds(pageIds)) {
+            if (email.equals(expense.getEmail())) {
+                expenses.add(expense);
+            }
+        }
+        String nextPage = (long) offset + count < ranked.size() ? Integer.toString(offset + count) : null;
+        return new ExpenseSearchResult(expenses, ranked.size(), nextPage);
+    }
+
+    /**
+     * Suggests the title words an email has used that begin with what is being typed.
+     * @param email the email
+     * @param prefix the text typed so far; its last word is completed
+     * @return up to 10 words, those in the most titles first
+     */
+    public List<String> suggestTitles(String email, String prefix) {
+        if (!Validation.isEmail(email)) {
+            throw new InvalidDataException("Email is not valid");
+        }
+        List<String> tokens = new ArrayList<>(TitleTokens.of(prefix));
+        if (tokens.isEmpty()) {
+            throw new InvalidDataException("Prefix must contain a letter or a digit");
+        }
+        String last = tokens.get(tokens.size() - 1);
+        return expenseServiceRepository.getTitlePostings(email, last).complete(last, MAX_SUGGESTIONS);
+    }
+
+    /**
+     * Returns one page of the expenses an email filed under a tag, newest first.
+     * @param email the email
+     * @param tag the tag
+     * @param from the first day, as yyyy-MM-dd in UTC; the oldest expense if not given
+     * @param to the last day, as yyyy-MM-dd in UTC; the newest expense if not given
+     * @param limit how many expenses a page holds, up to 100; 20 if not given
+     * @param page the page, as returned by {@link ExpensePage#getNextPage()}; the first if not given
+     * @return the page of expenses
+     */
+    public ExpensePage getExpensesByTag(String email, String tag, String from, String to, String limit,
+                                        String page) {
+        if (!Validation.isEmail(email)) {
+            throw new InvalidDataException("Email is not valid");
+        }
+        if (tag == null || !Validation.areTags(Collections.singletonList(tag), 1, RequestRules.MAX_TAG_LENGTH)) {
+            throw new InvalidDataException("Tag is not valid");
+        }
+        LocalDate[] range = parseDateRange(from, to);
+        int count;
+        try {
+            count = limit == null ? DEFAULT_TAG_PAGE : Integer.parseInt(limit);
+        } catch (NumberFormatException e) {
+            count = 0;
+        }
+        if (count < 1 || count > MAX_TAG_PAGE) {
+            throw new InvalidDataException("Limit must be a whole number from 1 to " + MAX_TAG_PAGE);
+        }
+        try {
+            return expenseServiceRepository.getExpensesByTag(email, Tags.normalize(tag), range[0], range[1], count,
+                    page);
+        } catch (IllegalArgumentException e) {
+            throw new InvalidDataException("Page is not valid for these dates");
+        }
+    }
+
+    /**
+     * Returns the totals of every tag an email uses.
+     * @param email the email
+     * @param from the first day, as yyyy-MM-dd in UTC; the oldest expense if not given
+     * @param to the last day, as yyyy-MM-dd in UTC; the newest expense if not given
+     * @return the totals of the tags with expenses in the range, by tag
+     */
+    public List<TagTotal> getTagTotals(String email, String from, String to) {
+        if (!Validation.isEmail(email)) {
+            throw new InvalidDataException("Email is not valid");
+        }
+        LocalDate[] range = parseDateRange(from, to);
+        return expenseServiceRepository.getTagTotals(email, range[0], range[1]);
+    }
+
+    /**
+     * Returns the changes to an email's expenses, lists and list memberships since a client's checkpoint. Without
+     * a checkpoint, or with one the change log cannot continue from, the page asks the client to download
+     * everything again and gives the checkpoint to sync from afterwards.
+     * @param email the email
+     * @param since the token of the last sync; none for a first sync
+     * @param limit how many changes to read, up to 1000; 100 if not given
+     * @return the changes, oldest first, each with the expense or list as it is now
+     */
+    public SyncPage sync(String email, String since, String limit) {
+        if (!Validation.isEmail(email)) {
+            throw new InvalidDataException("Email is not valid");
+        }
+        int count;
+        try {
+            count = limit == null ? DEFAULT_SYNC_CHANGES : Integer.parseInt(limit);
+        } catch (NumberFormatException e) {
+            count = 0;
+        }
+        if (count < 1 || count > MAX_SYNC_CHANGES) {
+            throw new InvalidDataException("Limit must be a whole number from 1 to " + MAX_SYNC_CHANGES);
+        }
+        Long sinceSeq = null;
+        if (StringUtils.isNotEmpty(since)) {
+            try {
+                sinceSeq = Long.parseLong(since);
+            } catch (NumberFormatException e) {
+                sinceSeq = -1L;
+            }
+            if (sinceSeq < 0) {
+                throw new InvalidDataException("Since is not a valid sync token");
+            }
+        }
+        long lastSeq = expenseServiceRepository.getLastChange(email);
+        if (sinceSeq == null || sinceSeq > lastSeq) {
+            return new SyncPage(Collections.emptyList(), Long.toString(lastSeq), false, true);
+        }
+        SyncPage page = expenseServiceRepository.getChanges(email, sinceSeq, count);
+        List<String> expenseIds = new ArrayList<>();
+        for (SyncChange change : page.getChanges()) {
+            if (change.getType() == SyncChange.Type.EXPENSE && !change.isDeleted()) {
+                expenseIds.add(change.getId());
+            }
+        }
+        Map<String, ExpenseItem> expenses = new HashMap<>();
+        for (ExpenseItem expense : expenseServiceRepository.getExpensesByIds(expenseIds)) {
+            expenses.put(expense.getId(), expense);
+        }
+        for (SyncChange change : page.getChanges()) {
+            if (change.isDeleted()) {
+                continue;
+            }
+            if (change.getType() == SyncChange.Type.EXPENSE) {
+                change.setExpense(expenses.get(change.getId()));
+                change.setDeleted(change.getExpense() == null);
+            } else if (change.getType() == SyncChange.Type.LIST) {
+                change.setList(listHeader(expenseServiceRepository.getExpenseListHeader(change.getId())));
+                change.setDeleted(change.getList() == null);
+            }
+        }
+        return page;
+    }
+
     public String createExpense(Expense expense) {
+        RequestRules.EXPENSE.validate(expense);
         ExpenseItem expenseItem = expenseItemConverter.convert(expense);
+        emailRateLimiter.acquire(expenseItem.getEmail());
         expenseServiceRepository.createExpense(expenseItem);
         return expenseItem.getId();
     }
@@ -56,25 +349,35 @@ public class ExpenseService {
         if (isInvalidUuid(expenseId)) {
             throw new InvalidDataException("Expense id is not present");
         }
+        RequestRules.EXPENSE_UPDATE.validate(updateExpense);
         ExpenseItem item = expenseServiceRepository.getExpenseById(expenseId);
         if (item == null) {
             throw new ItemNotFoundException("Expense does not exist");
         }
+        emailRateLimiter.acquire(item.getEmail());
         expenseServiceRepository.updateExpense(expenseId,
                 updateExpense.getTitle(),
-                updateExpense.getAmount());
+                updateExpense.getAmountCents(),
+                Tags.of(updateExpense.getTags()));
     }
 
     public void deleteExpense(String expenseId) {
         if (StringUtils.isEmpty(expenseId) || isInvalidUuid(expenseId)) {
             throw new InvalidDataException("Expense id is not present");
         }
+        ExpenseItem expense = expenseServiceRepository.getExpenseById(expenseId);
+        if (expense != null) {
+            for (String listId : expenseServiceRepository.getListIdsContaining(expense)) {
+                expenseServiceRepository.removeExpenseItemToList(listId, expense);
+            }
+        }
         expenseServiceRepository.deleteExpense(expenseId);
     }
 
     public String createExpenseList(String email, String title) {
-//        String expenseListId = randomUUID().toString();
-        String expenseListId = "c5156c9f-4306-45b6-9b39-2eeb180a702a";
+        RequestRules.EXPENSE_LIST.validate(new ExpenseList(email, title));
+        String expenseListId = idGenerator.newId();
+        emailRateLimiter.acquire(email);
         expenseServiceRepository.createExpenseList(expenseListId, email, title);
         return expenseListId;
     }
@@ -92,7 +395,7 @@ public class ExpenseService {
         }
 
         ExpenseItem expenseItem = expenseServiceRepository.getExpenseById(expenseId);
-        ExpenseItemList expenseItemList = expenseServiceRepository.getExpenseListById(id);
+        ExpenseItemList expenseItemList = expenseServiceRepository.getExpenseListHeader(id);
 
         //check if expenseItem exists
         if(expenseItem == null) {
@@ -105,12 +408,12 @@ public class ExpenseService {
         if(!expenseItem.getEmail().equals(expenseItemList.getEmail())) {
             throw new ItemNotFoundException("Email doesn't match");
         }
-        //check if expense id in expenseIdList
-        //check if expenseItemList is null
-        if(expenseItemList.getExpenseItems() != null && expenseItemList.getExpenseItems().contains(expenseItem)) {
+        //check if expense id in expenseIdList, through the membership index rather than the list's expenses
+        if(expenseServiceRepository.isExpenseInList(expenseItemList, expenseId)) {
             throw new ItemNotFoundException("Already in list");
         }
 
+        emailRateLimiter.acquire(expenseItemList.getEmail());
         expenseServiceRepository.addExpenseItemToList(id, expenseItem);
     }
 
@@ -127,7 +430,7 @@ public class ExpenseService {
         }
 
         ExpenseItem expenseItem = expenseServiceRepository.getExpenseById(expenseId);
-        ExpenseItemList expenseItemList = expenseServiceRepository.getExpenseListById(id);
+        ExpenseItemList expenseItemList = expenseServiceRepository.getExpenseListHeader(id);
 
         //check if expenseItem exists
         if(expenseItem == null) {
@@ -140,21 +443,23 @@ public class ExpenseService {
         if(!expenseItem.getEmail().equals(expenseItemList.getEmail())) {
             throw new ItemNotFoundException("Email doesn't match");
         }
-        //check if expense id in expenseIdList
-        //check if expenseItemList is null
-        if(expenseItemList.getExpenseItems() != null && !expenseItemList.getExpenseItems().contains(expenseItem)) {
-            throw new ItemNotFoundException("Already in list");
+        //check if expense id in expenseIdList, through the membership index rather than the list's expenses
+        if(!expenseServiceRepository.isExpenseInList(expenseItemList, expenseId)) {
+            throw new ItemNotFoundException("Not in list");
         }
 
+        emailRateLimiter.acquire(expenseItemList.getEmail());
         expenseServiceRepository.removeExpenseItemToList(id, expenseItem);
     }
 
     public List<ExpenseItemList> getExpenseListByEmail(String email) {
-        if (StringUtils.isEmpty(email)) {
-            throw new InvalidDataException("Email is not present");
+        if (!Validation.isEmail(email)) {
+            throw new InvalidDataException("Email is not valid");
         }
         Comparator<ExpenseItem> expenseItemComparator = new ExpenseItemComparator();
-        List<ExpenseItemList> sortList = expenseServiceRepository.getExpenseListsByEmail(email);
+        List<ExpenseItemList> sortList = expenseServiceRepository.readsSingleTable() ?
+                assembleLists(expenseServiceRepository.getUserDataset(email)) :
+                expenseServiceRepository.getExpenseListsByEmail(email);
         for (ExpenseItemList sortListItems : sortList) {
             if(sortListItems.getExpenseItems() != null) {
                 Collections.sort(sortListItems.getExpenseItems(), expenseItemComparator);
@@ -165,13 +470,155 @@ public class ExpenseService {
         return sortList;
     }
 
-    private boolean isInvalidUuid(String uuid) {
+    /**
+     * Returns an email's lists with each expense sent once, however many lists it is in. The expenses are
+     * collected in an identity map by id, in the order they are first met, and each list names its own by id.
+     * When lists hold different copies of one expense, the copy of the first list is kept.
+     * @param email the email
+     * @return the expenses by id and the lists, in the order of {@link #getExpenseListByEmail(String)}
+     */
+    public NormalizedExpenseLists getNormalizedExpenseLists(String email) {
+        List<ExpenseItemList> expenseLists = getExpenseListByEmail(email);
+        Map<String, ExpenseItem> expenses = new LinkedHashMap<>();
+        List<NormalizedExpenseLists.ListReference> lists = new ArrayList<>(expenseLists.size());
+        for (ExpenseItemList list : expenseLists) {
+            List<String> expenseIds = new ArrayList<>();
+            if (list.getExpenseItems() != null) {
+                for (ExpenseItem expense : list.getExpenseItems()) {
+                    expenses.putIfAbsent(expense.getId(), expense);
+                    expenseIds.add(expense.getId());
+                }
+            }
+            lists.add(new NormalizedExpenseLists.ListReference(list, expenseIds));
+        }
+        return new NormalizedExpenseLists(expenses, lists);
+    }
+
+    /**
+     * Returns an email's spending per month from the running totals, without reading any expense.
+     * @param email the email
+     * @param month the month, as yyyy-MM, or null for every month
+     * @return the totals, oldest month first
+     */
+    public List<SpendingSummary> getSpendingSummary(String email, String month) {
+        if (!Validation.isEmail(email)) {
+            throw new InvalidDataException("Email is not valid");
+        }
+        if (month != null) {
+            try {
+                YearMonth.parse(month);
+            } catch (DateTimeParseException e) {
+                throw new InvalidDataException("Month must be given as yyyy-MM");
+            }
+        }
+        return expenseServiceRepository.getSpendingSummaries(email, month);
+    }
+
+    /**
+     * Returns an email's spending per day, week or month over the last years, computed from its expenses.
+     * @param email the email
+     * @param period day, week or month; month if not given
+     * @param years how many years of whole months to cover, up to and including the current month; 3 if not
+     *     given
+     * @return the totals of every period with expenses, oldest first
+     */
+    public List<SpendingBucket> getSpendingByPeriod(String email, String period, String years) {
+        if (!Validation.isEmail(email)) {
+            throw new InvalidDataException("Email is not valid");
+        }
+        Granularity granularity;
         try {
-            fromString(uuid);
-        } catch (IllegalArgumentException exception) {
-            return true;
+            granularity = period == null ? Granularity.MONTH : Granularity.parse(period);
+        } catch (IllegalArgumentException e) {
+            throw new InvalidDataException("Period must be day, week or month");
         }
-        return false;
+        int span;
+        try {
+            span = years == null ? DEFAULT_ANALYTICS_YEARS : Integer.parseInt(years);
+        } catch (NumberFormatException e) {
+            span = 0;
+        }
+        if (span < 1 || span > MAX_ANALYTICS_YEARS) {
+            throw new InvalidDataException("Years must be a whole number from 1 to " + MAX_ANALYTICS_YEARS);
+        }
+        LocalDate from = YearMonth.now(ZoneOffset.UTC).minusMonths(span * 12L - 1).atDay(1);
+        return expenseServiceRepository.getExpenseColumns(email, from.toString())
+                .between(from.atStartOfDay(ZoneOffset.UTC).toInstant().toEpochMilli(), Long.MAX_VALUE)
+                .sumBy(granularity);
+    }
+
+    /**
+     * Puts an email's lists together from the records of the single table: each list gets the expenses its
+     * memberships point at. Memberships of deleted expenses are skipped.
+     */
+    private List<ExpenseItemList> assembleLists(UserDataset dataset) {
+        Map<String, ExpenseItem> expensesById = new HashMap<>();
+        for (ExpenseItem expense : dataset.getExpenses()) {
+            expensesById.put(expense.getId(), expense);
+        }
+        for (ExpenseItemList list : dataset.getLists()) {
+            List<ExpenseItem> expenses = new LinkedList<>();
+            for (String expenseId : dataset.getExpenseIdsByList().getOrDefault(list.getId(),
+                    Collections.emptyList())) {
+                ExpenseItem expense = expensesById.get(expenseId);
+                if (expense != null) {
+                    expenses.add(expense);
+                }
+            }
+            list.setExpenseItems(expenses);
+        }
+        return dataset.getLists();
+    }
+
+    private static LocalDate[] parseDateRange(String from, String to) {
+        LocalDate[] range = new LocalDate[2];
+        try {
+            range[0] = from == null ? null : LocalDate.parse(from);
+            range[1] = to == null ? null : LocalDate.parse(to);
+        } catch (DateTimeParseException e) {
+            throw new InvalidDataException("Dates must be given as yyyy-MM-dd");
+        }
+        if (range[0] != null && range[1] != null && range[0].isAfter(range[1])) {
+            throw new InvalidDataException("From must not be after to");
+        }
+        return range;
+    }
+
+    /**
+     * Copies what a sync sends of a list, leaving out its expenses, which are sent as changes of their own.
+     */
+    private static ExpenseItemList listHeader(ExpenseItemList list) {
+        if (list == null) {
+            return null;
+        }
+        ExpenseItemList header = new ExpenseItemList();
+        header.setId(list.getId());
+        header.setEmail(list.getEmail());
+        header.setTitle(list.getTitle());
+        header.setTotalCents(list.getTotalCents());
+        header.setExpenseCount(list.getExpenseCount());
+        header.setChangeSeq(list.getChangeSeq());
+        return header;
+    }
+
+    private static long parseAmount(String amount, long defaultCents) {
+        if (amount == null) {
+            return defaultCents;
+        }
+        Long cents;
+        try {
+            cents = Money.toCents(new BigDecimal(amount));
+        } catch (NumberFormatException | ArithmeticException e) {
+            cents = null;
+        }
+        if (!Validation.isBetween(cents, 0, RequestRules.MAX_AMOUNT_CENTS)) {
+            throw new InvalidDataException("Amounts must be between 0 and " + RequestRules.MAX_AMOUNT);
+        }
+        return cents;
+    }
+
+    private boolean isInvalidUuid(String uuid) {
+        return !Validation.isUuid(uuid);
     }
 
     public class ExpenseItemComparator implements Comparator<ExpenseItem> {
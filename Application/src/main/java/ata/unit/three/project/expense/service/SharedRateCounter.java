@@ -0,0 +1,17 @@
+package ata.unit.three.project.expense.service;
+
+/**
+ * A counter shared by every container, used to bound an email's mutations across the whole fleet.
+ */
+public interface SharedRateCounter {
+
+    /**
+     * Counts one mutation by the email in the given window, unless the window already holds the limit.
+     * @param email the email making the mutation
+     * @param windowStartSeconds the start of the window, in epoch seconds
+     * @param windowSeconds the length of the window
+     * @param limit the most mutations the window may hold
+     * @return true if the mutation was counted, false if the window is full
+     */
+    boolean tryIncrement(String email, long windowStartSeconds, long windowSeconds, long limit);
+}
@@ -0,0 +1,390 @@
+package ata.unit.three.project.expense.service.analytics;
+
+import ata.unit.three.project.expense.dynamodb.ExpenseItem;
+import ata.unit.three.project.expense.service.model.AmountAccumulator;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * A set of expenses held column by column: dates as epoch milliseconds and amounts as cents in primitive arrays,
+ * and titles as codes into a dictionary of the distinct titles. An expense costs 20 bytes plus its id here,
+ * where an {@link ExpenseItem} with its boxed amount and date string costs several times that, and the operators
+ * below walk the arrays in tight loops the JIT can unroll and vectorize.
+ *
+ * Columns are immutable once built; filters return new columns sharing the title dictionary. Aggregations over
+ * more than {@link #PARALLEL_THRESHOLD} expenses are split across the common fork/join pool.
+ */
+public final class ExpenseColumns {
+    static final int PARALLEL_THRESHOLD = 1 << 14;
+    /**
+     * The most periods one grouping may span, about 2,800 years of days.
+     */
+    static final int MAX_PERIODS = 1 << 20;
+
+    private final int size;
+    private final String[] ids;
+    private final long[] dates;
+    private final long[] cents;
+    private final int[] titleCodes;
+    private final String[] titles;
+
+    private ExpenseColumns(int size, String[] ids, long[] dates, long[] cents, int[] titleCodes, String[] titles) {
+        this.size = size;
+        this.ids = ids;
+        this.dates = dates;
+        this.cents = cents;
+        this.titleCodes = titleCodes;
+        this.titles = titles;
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * Builds columns from expenses; expenses without a date are left out.
+     * @param expenses the expenses
+     * @return the columns
+     */
+    public static ExpenseColumns of(Iterable<ExpenseItem> expenses) {
+        Builder builder = builder();
+        for (ExpenseItem expense : expenses) {
+            builder.add(expense);
+        }
+        return builder.build();
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Keeps the expenses dated within a range.
+     * @param fromMillis the first instant kept, in epoch milliseconds
+     * @param toMillis the instant after the last one kept, in epoch milliseconds
+     * @return the expenses in the range
+     */
+    public ExpenseColumns between(long fromMillis, long toMillis) {
+        int[] selected = new int[size];
+        int count = 0;
+        for (int i = 0; i < size; i++) {
+            selected[count] = i;
+            count += dates[i] >= fromMillis && dates[i] < toMillis ? 1 : 0;
+        }
+        return select(selected, count);
+    }
+
+    /**
+     * Keeps the expenses with a title, compared as one int per expense.
+     * @param title the title
+     * @return the expenses with the title
+     */
+    public ExpenseColumns withTitle(String title) {
+        int code = Arrays.asList(titles).indexOf(title);
+        int[] selected = new int[size];
+        int count = 0;
+        for (int i = 0; i < size && code >= 0; i++) {
+            selected[count] = i;
+            count += titleCodes[i] == code ? 1 : 0;
+        }
+        return select(selected, count);
+    }
+
+    /**
+     * Counts and sums every amount and finds the smallest and largest.
+     * @return the totals
+     */
+    public AmountAccumulator summarize() {
+        if (size > PARALLEL_THRESHOLD) {
+            return ForkJoinPool.commonPool().invoke(new SummaryTask(cents, 0, size));
+        }
+        return new AmountAccumulator().addAll(cents, 0, size);
+    }
+
+    /**
+     * Totals the expenses per period.
+     * @param granularity the periods to group by
+     * @return the totals of every period with expenses, oldest first
+     * @throws IllegalArgumentException if the expenses span more than {@link #MAX_PERIODS} periods
+     */
+    public List<SpendingBucket> sumBy(Granularity granularity) {
+        if (size == 0) {
+            return new ArrayList<>();
+        }
+        long[] periods = new long[size];
+        long first = Long.MAX_VALUE;
+        long last = Long.MIN_VALUE;
+        for (int i = 0; i < size; i++) {
+            periods[i] = granularity.periodOf(dates[i]);
+            first = Math.min(first, periods[i]);
+            last = Math.max(last, periods[i]);
+        }
+        if (last - first >= MAX_PERIODS) {
+            throw new IllegalArgumentException("Expenses span more than " + MAX_PERIODS + " periods");
+        }
+        int span = (int) (last - first + 1);
+        long[] totals = size > PARALLEL_THRESHOLD ?
+                ForkJoinPool.commonPool().invoke(new PeriodTask(periods, cents, first, span, 0, size)) :
+                sumByPeriod(periods, cents, first, span, 0, size);
+        List<SpendingBucket> buckets = new ArrayList<>();
+        for (int period = 0; period < span; period++) {
+            if (totals[span + period] > 0) {
+                buckets.add(new SpendingBucket(granularity.label(first + period), totals[period],
+                        totals[span + period]));
+            }
+        }
+        return buckets;
+    }
+
+    /**
+     * Finds the expenses with the largest amounts, keeping at most n candidates on a heap of row numbers.
+     * @param n how many expenses to find
+     * @return the rows of up to n expenses, largest amount first, newest first among equal amounts
+     */
+    public int[] topN(int n) {
+        int[] heap = new int[Math.max(0, Math.min(n, size))];
+        int count = 0;
+        for (int i = 0; i < size && heap.length > 0; i++) {
+            if (count < heap.length) {
+                heap[count] = i;
+                siftUp(heap, count++);
+            } else if (before(i, heap[0])) {
+                heap[0] = i;
+                siftDown(heap, 0, count);
+            }
+        }
+        for (int end = count - 1; end > 0; end--) {
+            int smallest = heap[0];
+            heap[0] = heap[end];
+            heap[end] = smallest;
+            siftDown(heap, 0, end);
+        }
+        return heap;
+    }
+
+    /**
+     * Returns the amount a given share of the expenses are at or below, by the nearest-rank method.
+     * @param percent the share, from 0 to 100
+     * @return the amount in cents, or 0 if there are no expenses
+     */
+    public long percentile(double percent) {
+        if (percent < 0 || percent > 100) {
+            throw new IllegalArgumentException("Percentile must be between 0 and 100");
+        }
+        if (size == 0) {
+            return 0;
+        }
+        long[] sorted = Arrays.copyOf(cents, size);
+        Arrays.sort(sorted);
+        int rank = (int) Math.ceil(percent / 100 * size);
+        return sorted[Math.max(0, rank - 1)];
+    }
+
+    /**
+     * Turns one row back into an expense.
+     * @param row the row
+     * @return the expense; its email is not kept in the columns and is not set
+     */
+    public ExpenseItem row(int row) {
+        ExpenseItem expense = new ExpenseItem();
+        expense.setId(ids[row]);
+        expense.setExpenseDate(Instant.ofEpochMilli(dates[row]).toString());
+        expense.setTitle(titles[titleCodes[row]]);
+        expense.setAmountCents(cents[row]);
+        return expense;
+    }
+
+    public long dateOf(int row) {
+        return dates[row];
+    }
+
+    public long centsOf(int row) {
+        return cents[row];
+    }
+
+    private ExpenseColumns select(int[] selected, int count) {
+        String[] selectedIds = new String[count];
+        long[] selectedDates = new long[count];
+        long[] selectedCents = new long[count];
+        int[] selectedTitles = new int[count];
+        for (int i = 0; i < count; i++) {
+            int row = selected[i];
+            selectedIds[i] = ids[row];
+            selectedDates[i] = dates[row];
+            selectedCents[i] = cents[row];
+            selectedTitles[i] = titleCodes[row];
+        }
+        return new ExpenseColumns(count, selectedIds, selectedDates, selectedCents, selectedTitles, titles);
+    }
+
+    /**
+     * Tells whether one row ranks before another: a larger amount, or the same amount and a later date.
+     */
+    private boolean before(int row, int other) {
+        return cents[row] != cents[other] ? cents[row] > cents[other] : dates[row] > dates[other];
+    }
+
+    // The heap keeps the lowest ranked row at the top, so it is the one replaced by a better row.
+    private void siftUp(int[] heap, int index) {
+        int child = index;
+        while (child > 0) {
+            int parent = (child - 1) / 2;
+            if (!before(heap[parent], heap[child])) {
+                return;
+            }
+            swap(heap, parent, child);
+            child = parent;
+        }
+    }
+
+    private void siftDown(int[] heap, int index, int count) {
+        int parent = index;
+        while (2 * parent + 1 < count) {
+            int child = 2 * parent + 1;
+            if (child + 1 < count && before(heap[child], heap[child + 1])) {
+                child++;
+            }
+            if (!before(heap[parent], heap[child])) {
+                return;
+            }
+            swap(heap, parent, child);
+            parent = child;
+        }
+    }
+
+    private static void swap(int[] heap, int a, int b) {
+        int swapped = heap[a];
+        heap[a] = heap[b];
+        heap[b] = swapped;
+    }
+
+    /**
+     * Returns the totals of rows from to to in one array: the sums of the span periods, then their counts.
+     */
+    private static long[] sumByPeriod(long[] periods, long[] cents, long first, int span, int from, int to) {
+        long[] totals = new long[2 * span];
+        for (int i = from; i < to; i++) {
+            int period = (int) (periods[i] - first);
+            totals[period] = Math.addExact(totals[period], cents[i]);
+            totals[span + period]++;
+        }
+        return totals;
+    }
+
+    /**
+     * Collects expenses into columns. Titles are interned into the dictionary as they are added.
+     */
+    public static final class Builder {
+        private int size;
+        private String[] ids = new String[16];
+        private long[] dates = new long[16];
+        private long[] cents = new long[16];
+        private int[] titleCodes = new int[16];
+        private final List<String> titles = new ArrayList<>();
+        private final Map<String, Integer> titleCodesByTitle = new HashMap<>();
+
+        private Builder() {
+        }
+
+        /**
+         * Adds an expense, unless it has no date.
+         * @param expense the expense
+         * @return this builder
+         */
+        public Builder add(ExpenseItem expense) {
+            if (expense.getExpenseDate() == null) {
+                return this;
+            }
+            if (size == dates.length) {
+                int capacity = size * 2;
+                ids = Arrays.copyOf(ids, capacity);
+                dates = Arrays.copyOf(dates, capacity);
+                cents = Arrays.copyOf(cents, capacity);
+                titleCodes = Arrays.copyOf(titleCodes, capacity);
+            }
+            ids[size] = expense.getId();
+            dates[size] = Instant.parse(expense.getExpenseDate()).toEpochMilli();
+            cents[size] = expense.getAmountCents() == null ? 0 : expense.getAmountCents();
+            titleCodes[size] = titleCodesByTitle.computeIfAbsent(expense.getTitle(), title -> {
+                titles.add(title);
+                return titles.size() - 1;
+            });
+            size++;
+            return this;
+        }
+
+        public ExpenseColumns build() {
+            return new ExpenseColumns(size, Arrays.copyOf(ids, size), Arrays.copyOf(dates, size),
+                    Arrays.copyOf(cents, size), Arrays.copyOf(titleCodes, size), titles.toArray(new String[0]));
+        }
+    }
+
+    private static final class SummaryTask extends RecursiveTask<AmountAccumulator> {
+        private static final long serialVersionUID = 1L;
+
+        private final long[] cents;
+        private final int from;
+        private final int to;
+
+        private SummaryTask(long[] cents, int from, int to) {
+            this.cents = cents;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected AmountAccumulator compute() {
+            if (to - from <= PARALLEL_THRESHOLD) {
+                return new AmountAccumulator().addAll(cents, from, to);
+            }
+            int middle = (from + to) >>> 1;
+            SummaryTask left = new SummaryTask(cents, from, middle);
+            left.fork();
+            AmountAccumulator right = new SummaryTask(cents, middle, to).compute();
+            return left.join().merge(right);
+        }
+    }
+
+    private static final class PeriodTask extends RecursiveTask<long[]> {
+        private static final long serialVersionUID = 1L;
+
+        private final long[] periods;
+        private final long[] cents;
+        private final long first;
+        private final int span;
+        private final int from;
+        private final int to;
+
+        private PeriodTask(long[] periods, long[] cents, long first, int span, int from, int to) {
+            this.periods = periods;
+            this.cents = cents;
+            this.first = first;
+            this.span = span;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected long[] compute() {
+            if (to - from <= PARALLEL_THRESHOLD) {
+                return sumByPeriod(periods, cents, first, span, from, to);
+            }
+            int middle = (from + to) >>> 1;
+            PeriodTask left = new PeriodTask(periods, cents, first, span, from, middle);
+            left.fork();
+            long[] right = new PeriodTask(periods, cents, first, span, middle, to).compute();
+            long[] totals = left.join();
+            for (int i = 0; i < totals.length; i++) {
+                totals[i] = Math.addExact(totals[i], right[i]);
+            }
+            return totals;
+        }
+    }
+}
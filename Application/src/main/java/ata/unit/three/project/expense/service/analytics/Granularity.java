@@ -0,0 +1,95 @@
+package ata.unit.three.project.expense.service.analytics;
+
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.Locale;
+
+/**
+ * The periods expenses can be grouped by. Every period is in UTC, as the monthly totals are, see
+ * {@link ata.unit.three.project.expense.dynamodb.SpendingAggregates#monthOf(String)}.
+ *
+ * A period is numbered so that consecutive periods have consecutive numbers; computing the number of an
+ * instant is plain long arithmetic, with no date objects, so grouping allocates nothing per expense.
+ */
+public enum Granularity {
+    DAY {
+        @Override
+        public long periodOf(long epochMillis) {
+            return Math.floorDiv(epochMillis, MILLIS_PER_DAY);
+        }
+
+        @Override
+        public String label(long period) {
+            return LocalDate.ofEpochDay(period).toString();
+        }
+    },
+    /**
+     * ISO weeks, Monday to Sunday, labelled with their Monday.
+     */
+    WEEK {
+        @Override
+        public long periodOf(long epochMillis) {
+            return Math.floorDiv(Math.floorDiv(epochMillis, MILLIS_PER_DAY) + MONDAY_OFFSET, 7);
+        }
+
+        @Override
+        public String label(long period) {
+            return LocalDate.ofEpochDay(period * 7 - MONDAY_OFFSET).toString();
+        }
+    },
+    MONTH {
+        @Override
+        public long periodOf(long epochMillis) {
+            return monthOfEpochDay(Math.floorDiv(epochMillis, MILLIS_PER_DAY));
+        }
+
+        @Override
+        public String label(long period) {
+            return YearMonth.of((int) Math.floorDiv(period, 12), (int) Math.floorMod(period, 12) + 1).toString();
+        }
+    };
+
+    private static final long MILLIS_PER_DAY = 86_400_000L;
+    // 1970-01-01 was a Thursday, three days after the Monday that starts its week.
+    private static final long MONDAY_OFFSET = 3;
+
+    /**
+     * Returns the number of the period an instant falls in.
+     * @param epochMillis the instant, in milliseconds since the epoch
+     * @return the period number
+     */
+    public abstract long periodOf(long epochMillis);
+
+    /**
+     * Returns the name of a period: yyyy-MM-dd for days and weeks, yyyy-MM for months.
+     * @param period the period number
+     * @return the name
+     */
+    public abstract String label(long period);
+
+    /**
+     * Reads a granularity from a request.
+     * @param value day, week or month, in any case
+     * @return the granularity
+     * @throws IllegalArgumentException if the value is none of them
+     */
+    public static Granularity parse(String value) {
+        return valueOf(value.toUpperCase(Locale.ROOT));
+    }
+
+    /**
+     * Returns year * 12 + month - 1 of a day, using the proleptic Gregorian calendar as {@link LocalDate} does.
+     */
+    static long monthOfEpochDay(long epochDay) {
+        // Counts from 0000-03-01 so that leap days fall at the end of each year.
+        long days = epochDay + 719_468;
+        long era = Math.floorDiv(days, 146_097);
+        long dayOfEra = days - era * 146_097;
+        long yearOfEra = (dayOfEra - dayOfEra / 1_460 + dayOfEra / 36_524 - dayOfEra / 146_096) / 365;
+        long dayOfYear = dayOfEra - (365 * yearOfEra + yearOfEra / 4 - yearOfEra / 100);
+        long marchBasedMonth = (5 * dayOfYear + 2) / 153;
+        long month = marchBasedMonth < 10 ? marchBasedMonth + 3 : marchBasedMonth - 9;
+        long year = yearOfEra + era * 400 + (month <= 2 ? 1 : 0);
+        return year * 12 + month - 1;
+    }
+}
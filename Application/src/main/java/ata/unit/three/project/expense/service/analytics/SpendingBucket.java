@@ -0,0 +1,42 @@
+package ata.unit.three.project.expense.service.analytics;
+
+import ata.unit.three.project.expense.lambda.models.CentsAdapter;
+
+import com.google.gson.annotations.JsonAdapter;
+import com.google.gson.annotations.SerializedName;
+import com.kenzie.ata.ExcludeFromJacocoGeneratedReport;
+
+/**
+ * Totals of the expenses in one day, week or month.
+ */
+@ExcludeFromJacocoGeneratedReport
+public class SpendingBucket {
+    private final String period;
+    // Held in cents; serialized as the decimal total.
+    @SerializedName("total")
+    @JsonAdapter(CentsAdapter.class)
+    private final Long totalCents;
+    private final long expenseCount;
+
+    public SpendingBucket(String period, long totalCents, long expenseCount) {
+        this.period = period;
+        this.totalCents = totalCents;
+        this.expenseCount = expenseCount;
+    }
+
+    /**
+     * Returns the period the totals are for.
+     * @return the period, see {@link Granularity#label(long)}
+     */
+    public String getPeriod() {
+        return period;
+    }
+
+    public Long getTotalCents() {
+        return totalCents;
+    }
+
+    public long getExpenseCount() {
+        return expenseCount;
+    }
+}
@@ -0,0 +1,38 @@
+package ata.unit.three.project.expense.service.analytics;
+
+import ata.unit.three.project.expense.lambda.models.CentsAdapter;
+
+import com.google.gson.annotations.JsonAdapter;
+import com.google.gson.annotations.SerializedName;
+import com.kenzie.ata.ExcludeFromJacocoGeneratedReport;
+
+/**
+ * Totals of the expenses filed under one tag.
+ */
+@ExcludeFromJacocoGeneratedReport
+public class TagTotal {
+    private final String tag;
+    // Held in cents; serialized as the decimal total.
+    @SerializedName("total")
+    @JsonAdapter(CentsAdapter.class)
+    private final Long totalCents;
+    private final long expenseCount;
+
+    public TagTotal(String tag, long totalCents, long expenseCount) {
+        this.tag = tag;
+        this.totalCents = totalCents;
+        this.expenseCount = expenseCount;
+    }
+
+    public String getTag() {
+        return tag;
+    }
+
+    public Long getTotalCents() {
+        return totalCents;
+    }
+
+    public long getExpenseCount() {
+        return expenseCount;
+    }
+}
@@ -0,0 +1,50 @@
+package ata.unit.three.project.expense.service.analytics;
+
+import ata.unit.three.project.expense.dynamodb.ExpenseItem;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+
+/**
+ * Picks the largest expenses out of a stream of expenses while holding no more than the expenses picked, so a
+ * long history can be read page by page without being kept.
+ */
+public final class TopExpenses {
+    /**
+     * Orders expenses by amount, a missing amount counting as 0, and equal amounts by date.
+     */
+    public static final Comparator<ExpenseItem> BY_AMOUNT = Comparator
+            .comparingLong((ExpenseItem expense) -> expense.getAmountCents() == null ? 0 : expense.getAmountCents())
+            .thenComparing(ExpenseItem::getExpenseDate, Comparator.nullsFirst(Comparator.naturalOrder()));
+
+    private TopExpenses() {
+    }
+
+    /**
+     * Returns the n largest expenses.
+     * @param expenses the expenses, read once
+     * @param n how many expenses to return
+     * @return up to n expenses, largest amount first, newest first among equal amounts
+     */
+    public static List<ExpenseItem> largest(Iterable<ExpenseItem> expenses, int n) {
+        if (n <= 0) {
+            return new ArrayList<>();
+        }
+        // The smallest expense picked so far is at the head, ready to make room for a larger one.
+        PriorityQueue<ExpenseItem> picked = new PriorityQueue<>(n, BY_AMOUNT);
+        for (ExpenseItem expense : expenses) {
+            if (picked.size() < n) {
+                picked.add(expense);
+            } else if (BY_AMOUNT.compare(expense, picked.peek()) > 0) {
+                picked.poll();
+                picked.add(expense);
+            }
+        }
+        List<ExpenseItem> largest = new ArrayList<>(picked);
+        largest.sort(Collections.reverseOrder(BY_AMOUNT));
+        return largest;
+    }
+}
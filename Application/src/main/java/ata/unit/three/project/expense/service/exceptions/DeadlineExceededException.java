@@ -0,0 +1,22 @@
+package ata.unit.three.project.expense.service.exceptions;
+
+import java.util.HashMap;
+import java.util.Map;
+
+public class DeadlineExceededException extends RuntimeException {
+
+    public DeadlineExceededException(String message) {
+        super(message);
+    }
+
+    public DeadlineExceededException(String message, Throwable cause) {
+        super(message, cause);
+    }
+
+    public Map<String, Object> errorPayload() {
+        Map<String, Object> errorPayload = new HashMap();
+        errorPayload.put("errorType", "deadline_exceeded");
+        errorPayload.put("message", this.getMessage());
+        return errorPayload;
+    }
+}
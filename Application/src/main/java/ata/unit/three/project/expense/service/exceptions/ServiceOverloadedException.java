@@ -0,0 +1,29 @@
+package ata.unit.three.project.expense.service.exceptions;
+
+import java.util.HashMap;
+import java.util.Map;
+
+public class ServiceOverloadedException extends RuntimeException {
+
+    private final long retryAfterMillis;
+
+    public ServiceOverloadedException(String message, long retryAfterMillis) {
+        super(message);
+        this.retryAfterMillis = retryAfterMillis;
+    }
+
+    /**
+     * Returns the value for the Retry-After header.
+     * @return the number of whole seconds the caller should wait, at least 1
+     */
+    public long getRetryAfterSeconds() {
+        return Math.max(1, (retryAfterMillis + 999) / 1000);
+    }
+
+    public Map<String, Object> errorPayload() {
+        Map<String, Object> errorPayload = new HashMap();
+        errorPayload.put("errorType", "service_overloaded");
+        errorPayload.put("message", this.getMessage());
+        return errorPayload;
+    }
+}
@@ -0,0 +1,47 @@
+package ata.unit.three.project.expense.service.exceptions;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Thrown when a request fails validation, listing every field that is wrong rather than only the first.
+ */
+public class ValidationException extends InvalidDataException {
+
+    private final String errorType;
+    private final Map<String, String> errors;
+
+    /**
+     * Creates the exception.
+     * @param errorType the error type reported to the client
+     * @param errors what is wrong with each field that failed, in the order the fields were checked
+     */
+    public ValidationException(String errorType, Map<String, String> errors) {
+        super("Invalid " + String.join(", ", errors.keySet()));
+        this.errorType = errorType;
+        this.errors = errors;
+    }
+
+    public Map<String, String> getErrors() {
+        return errors;
+    }
+
+    @Override
+    public Map<String, Object> errorPayload() {
+        Map<String, Object> errorPayload = new HashMap();
+        errorPayload.put("errorType", errorType);
+        errorPayload.put("message", this.getMessage());
+        errorPayload.put("errors", errors);
+        return errorPayload;
+    }
+
+    /**
+     * Skips the stack trace, which says nothing about a bad request and is the most expensive part of
+     * rejecting one.
+     * @return this exception
+     */
+    @Override
+    public synchronized Throwable fillInStackTrace() {
+        return this;
+    }
+}
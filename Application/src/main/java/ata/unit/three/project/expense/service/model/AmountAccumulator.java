@@ -0,0 +1,81 @@
+package ata.unit.three.project.expense.service.model;
+
+/**
+ * Counts and sums amounts in cents, and tracks the smallest and largest, in primitive fields. Adding an amount
+ * allocates nothing, so a summary over a long history costs one pass over the amounts. Sums are exact; an
+ * overflow of the long sum fails rather than wraps.
+ *
+ * An accumulator is not thread-safe; accumulate in one per thread and {@link #merge(AmountAccumulator)} them.
+ */
+public final class AmountAccumulator {
+    private long count;
+    private long sum;
+    private long min = Long.MAX_VALUE;
+    private long max = Long.MIN_VALUE;
+
+    /**
+     * Adds an amount.
+     * @param cents the amount in cents
+     * @return this accumulator
+     */
+    public AmountAccumulator add(long cents) {
+        count++;
+        sum = Math.addExact(sum, cents);
+        min = Math.min(min, cents);
+        max = Math.max(max, cents);
+        return this;
+    }
+
+    /**
+     * Adds a range of amounts.
+     * @param cents the amounts in cents
+     * @param from the index of the first amount to add
+     * @param to the index after the last amount to add
+     * @return this accumulator
+     */
+    public AmountAccumulator addAll(long[] cents, int from, int to) {
+        for (int i = from; i < to; i++) {
+            add(cents[i]);
+        }
+        return this;
+    }
+
+    /**
+     * Adds everything another accumulator has counted.
+     * @param other the other accumulator
+     * @return this accumulator
+     */
+    public AmountAccumulator merge(AmountAccumulator other) {
+        if (other.count > 0) {
+            count += other.count;
+            sum = Math.addExact(sum, other.sum);
+            min = Math.min(min, other.min);
+            max = Math.max(max, other.max);
+        }
+        return this;
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    public long getSum() {
+        return sum;
+    }
+
+    /**
+     * Returns the smallest amount added.
+     * @return the smallest amount in cents, or 0 if nothing was added
+     */
+    public long getMin() {
+        return count == 0 ? 0 : min;
+    }
+
+    /**
+     * Returns the largest amount added.
+     * @return the largest amount in cents, or 0 if nothing was added
+     */
+    public long getMax() {
+        return count == 0 ? 0 : max;
+    }
+}
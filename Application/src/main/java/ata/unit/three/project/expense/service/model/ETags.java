@@ -0,0 +1,90 @@
+package ata.unit.three.project.expense.service.model;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Map;
+
+/**
+ * Entity tags for conditional reads. A single expense's tag is the number of its latest change, read
+ * consistently, so comparing tags only needs that number, not the resource. Responses put together from
+ * eventually consistent reads are tagged with a digest of the body actually sent instead, so that a tag is
+ * never paired with an older body than the one it names.
+ */
+public final class ETags {
+    public static final String ETAG = "ETag";
+    public static final String IF_NONE_MATCH = "If-None-Match";
+
+    private static final int DIGEST_BYTES = 16;
+
+    private ETags() {
+    }
+
+    /**
+     * Returns the entity tag of a version.
+     * @param version the number of the latest change, may be null
+     * @return the quoted tag, or null if there is no version
+     */
+    public static String of(Long version) {
+        return version == null ? null : "\"" + version + "\"";
+    }
+
+    /**
+     * Returns the entity tag of a response body.
+     * @param body the body as sent
+     * @return the quoted tag, the first 16 bytes of the body's SHA-256 digest in hex
+     */
+    public static String ofBody(String body) {
+        byte[] digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256").digest(body.getBytes(StandardCharsets.UTF_8));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+        StringBuilder tag = new StringBuilder("\"");
+        for (int i = 0; i < DIGEST_BYTES; i++) {
+            tag.append(Character.forDigit((digest[i] >> 4) & 0xf, 16))
+                    .append(Character.forDigit(digest[i] & 0xf, 16));
+        }
+        return tag.append('"').toString();
+    }
+
+    /**
+     * Tells whether an If-None-Match header names a tag, comparing weakly as HTTP does for GET.
+     * @param ifNoneMatch the header value, may be null
+     * @param etag the current tag, may be null
+     * @return true if the client's copy is current and a 304 can be sent
+     */
+    public static boolean matches(String ifNoneMatch, String etag) {
+        if (ifNoneMatch == null || etag == null) {
+            return false;
+        }
+        for (String candidate : ifNoneMatch.split(",")) {
+            String tag = candidate.trim();
+            if (tag.startsWith("W/")) {
+                tag = tag.substring(2);
+            }
+            if ("*".equals(tag) || tag.equals(etag)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Returns the If-None-Match header of a request, whatever the case of its name.
+     * @param headers the request headers, may be null
+     * @return the header value, or null if it was not sent
+     */
+    public static String ifNoneMatch(Map<String, String> headers) {
+        if (headers == null) {
+            return null;
+        }
+        for (Map.Entry<String, String> header : headers.entrySet()) {
+            if (IF_NONE_MATCH.equalsIgnoreCase(header.getKey())) {
+                return header.getValue();
+            }
+        }
+        return null;
+    }
+}
@@ -5,21 +5,29 @@ import ata.unit.three.project.expense.lambda.models.Expense;
 
 import javax.inject.Inject;
 import java.time.Instant;
-import java.util.UUID;
+import java.util.Set;
 
 
 public class ExpenseItemConverter {
-    
+
+    private final IdGenerator idGenerator;
+
     public ExpenseItemConverter() {
+        this(IdGenerator.fromEnvironment());
+    }
 
+    public ExpenseItemConverter(IdGenerator idGenerator) {
+        this.idGenerator = idGenerator;
     }
 
     public  ExpenseItem convert(Expense expense) {
         ExpenseItem expenseItem = new ExpenseItem();
-        expenseItem.setId(UUID.randomUUID().toString());
+        expenseItem.setId(idGenerator.newId());
         expenseItem.setEmail(expense.getEmail());
         expenseItem.setTitle(expense.getTitle());
-        expenseItem.setAmount(expense.getAmount());
+        expenseItem.setAmountCents(expense.getAmountCents());
+        Set<String> tags = Tags.of(expense.getTags());
+        expenseItem.setTags(tags == null || tags.isEmpty() ? null : tags);
         expenseItem.setExpenseDate(Instant.now().toString());
         return expenseItem;
     }
@@ -0,0 +1,33 @@
+package ata.unit.three.project.expense.service.model;
+
+import ata.unit.three.project.expense.dynamodb.ExpenseItem;
+
+import com.kenzie.ata.ExcludeFromJacocoGeneratedReport;
+
+import java.util.List;
+
+/**
+ * One page of expenses read from a single partition.
+ */
+@ExcludeFromJacocoGeneratedReport
+public class ExpensePage {
+    private final List<ExpenseItem> expenses;
+    private final String nextPage;
+
+    public ExpensePage(List<ExpenseItem> expenses, String nextPage) {
+        this.expenses = expenses;
+        this.nextPage = nextPage;
+    }
+
+    public List<ExpenseItem> getExpenses() {
+        return expenses;
+    }
+
+    /**
+     * Returns the page parameter that reads the next page.
+     * @return the next page, or null if this is the last page
+     */
+    public String getNextPage() {
+        return nextPage;
+    }
+}
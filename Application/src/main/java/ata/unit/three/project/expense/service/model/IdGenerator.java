@@ -0,0 +1,37 @@
+package ata.unit.three.project.expense.service.model;
+
+import java.util.UUID;
+
+/**
+ * Creates the ids of new expenses and lists. Every generator creates UUID strings, so ids of any generator pass
+ * the same validation. EXPENSE_ID_GENERATOR (expense.idGenerator) picks the generator: "time-ordered", the
+ * default, see {@link TimeOrderedIdGenerator}, or "random" for {@link UUID#randomUUID()}.
+ */
+public interface IdGenerator {
+    String GENERATOR_ENV = "EXPENSE_ID_GENERATOR";
+    String GENERATOR_PROPERTY = "expense.idGenerator";
+
+    /**
+     * Creates an id.
+     * @return a new id, in UUID string form
+     */
+    String newId();
+
+    /**
+     * Returns the configured generator.
+     * @return the generator named by EXPENSE_ID_GENERATOR, the time-ordered one if none is set
+     */
+    static IdGenerator fromEnvironment() {
+        String value = System.getProperty(GENERATOR_PROPERTY);
+        if (value == null || value.isEmpty()) {
+            value = System.getenv(GENERATOR_ENV);
+        }
+        if (value == null || value.isEmpty() || "time-ordered".equalsIgnoreCase(value.trim())) {
+            return TimeOrderedIdGenerator.getInstance();
+        }
+        if ("random".equalsIgnoreCase(value.trim())) {
+            return () -> UUID.randomUUID().toString();
+        }
+        throw new IllegalArgumentException("Unknown id generator " + value);
+    }
+}
@@ -0,0 +1,76 @@
+package ata.unit.three.project.expense.service.model;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
+/**
+ * Amounts are held as a whole number of cents in a long, so that sums and comparisons are exact and need no
+ * boxing. Decimal amounts coming in are rounded to the nearest cent, ties to the even cent; amounts going out
+ * are written as decimals again, so DynamoDB items and JSON bodies keep their shape.
+ */
+public final class Money {
+    public static final int SCALE = 2;
+
+    /**
+     * The most whole-number digits an amount can have and still fit in a long number of cents. Larger amounts
+     * are refused before rounding, because rounding a number with a huge exponent takes time in the exponent.
+     */
+    static final int MAX_WHOLE_DIGITS = 17;
+
+    private Money() {
+    }
+
+    /**
+     * Converts a decimal amount to cents.
+     * @param amount the amount
+     * @return the amount in cents, or null if there is no amount
+     * @throws ArithmeticException if the amount does not fit in a long number of cents
+     */
+    public static Long toCents(BigDecimal amount) {
+        if (amount == null) {
+            return null;
+        }
+        if (amount.signum() == 0) {
+            return 0L;
+        }
+        int wholeDigits = amount.precision() - amount.scale();
+        if (wholeDigits > MAX_WHOLE_DIGITS) {
+            throw new ArithmeticException("Amount has more than " + MAX_WHOLE_DIGITS + " whole digits");
+        }
+        if (wholeDigits < -SCALE) {
+            return 0L;
+        }
+        return amount.setScale(SCALE, RoundingMode.HALF_EVEN).unscaledValue().longValueExact();
+    }
+
+    /**
+     * Converts a floating-point amount to cents, reading it as the shortest decimal that is that double.
+     * @param amount the amount
+     * @return the amount in cents, or null if there is no amount or it is not a finite number
+     * @throws ArithmeticException if the amount does not fit in a long number of cents
+     */
+    public static Long toCents(Double amount) {
+        if (amount == null || amount.isNaN() || amount.isInfinite()) {
+            return null;
+        }
+        return toCents(BigDecimal.valueOf(amount));
+    }
+
+    /**
+     * Converts cents to an exact decimal amount.
+     * @param cents the amount in cents
+     * @return the amount, with two decimal places
+     */
+    public static BigDecimal toDecimal(long cents) {
+        return BigDecimal.valueOf(cents, SCALE);
+    }
+
+    /**
+     * Converts cents to the nearest double, for callers that still work with floating-point amounts.
+     * @param cents the amount in cents, or null
+     * @return the amount, or null if there is no amount
+     */
+    public static Double toDouble(Long cents) {
+        return cents == null ? null : cents / 100.0;
+    }
+}
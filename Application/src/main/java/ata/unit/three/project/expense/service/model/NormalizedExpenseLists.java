@@ -0,0 +1,111 @@
+package ata.unit.three.project.expense.service.model;
+
+import ata.unit.three.project.expense.dynamodb.ExpenseItem;
+import ata.unit.three.project.expense.dynamodb.ExpenseItemList;
+import ata.unit.three.project.expense.lambda.models.CentsAdapter;
+
+import com.google.gson.annotations.JsonAdapter;
+import com.google.gson.annotations.SerializedName;
+import com.kenzie.ata.ExcludeFromJacocoGeneratedReport;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * An email's lists with every expense sent once: the expenses by id, and lists that name their expenses by id,
+ * in order. An expense in several lists is serialized once instead of once per list.
+ */
+@ExcludeFromJacocoGeneratedReport
+public class NormalizedExpenseLists {
+    private final Map<String, ExpenseItem> expenses;
+    private final List<ListReference> lists;
+
+    public NormalizedExpenseLists(Map<String, ExpenseItem> expenses, List<ListReference> lists) {
+        this.expenses = expenses;
+        this.lists = lists;
+    }
+
+    public Map<String, ExpenseItem> getExpenses() {
+        return expenses;
+    }
+
+    public List<ListReference> getLists() {
+        return lists;
+    }
+
+    /**
+     * A list that names its expenses by id.
+     */
+    @ExcludeFromJacocoGeneratedReport
+    public static class ListReference {
+        private final String id;
+        private final String title;
+        private final String email;
+        // Held in cents; serialized as the decimal total.
+        @SerializedName("total")
+        @JsonAdapter(CentsAdapter.class)
+        private final Long totalCents;
+        private final Long expenseCount;
+        private final String firstExpenseDate;
+        private final String lastExpenseDate;
+        private final Long changeSeq;
+        private final List<String> expenseIds;
+
+        /**
+         * Creates the reference to a list.
+         * @param list the list, whose expenses are left out
+         * @param expenseIds the ids of its expenses, in order
+         */
+        public ListReference(ExpenseItemList list, List<String> expenseIds) {
+            this.id = list.getId();
+            this.title = list.getTitle();
+            this.email = list.getEmail();
+            this.totalCents = list.getTotalCents();
+            this.expenseCount = list.getExpenseCount();
+            this.firstExpenseDate = list.getFirstExpenseDate();
+            this.lastExpenseDate = list.getLastExpenseDate();
+            this.changeSeq = list.getChangeSeq();
+            this.expenseIds = expenseIds;
+        }
+
+        public String getId() {
+            return id;
+        }
+
+        public String getTitle() {
+            return title;
+        }
+
+        public String getEmail() {
+            return email;
+        }
+
+        public Long getTotalCents() {
+            return totalCents;
+        }
+
+        public Long getExpenseCount() {
+            return expenseCount;
+        }
+
+        public String getFirstExpenseDate() {
+            return firstExpenseDate;
+        }
+
+        public String getLastExpenseDate() {
+            return lastExpenseDate;
+        }
+
+        public Long getChangeSeq() {
+            return changeSeq;
+        }
+
+        /**
+         * Returns the ids of the list's expenses, each a key of {@link NormalizedExpenseLists#getExpenses()}.
+         * @return the ids, in the list's order
+         */
+        public List<String> getExpenseIds() {
+            return expenseIds;
+        }
+    }
+}
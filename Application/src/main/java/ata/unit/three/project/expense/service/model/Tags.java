@@ -0,0 +1,40 @@
+package ata.unit.three.project.expense.service.model;
+
+import java.util.Collection;
+import java.util.Locale;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * Tags are kept lower-cased, so that "Food" and "food" are the same category.
+ */
+public final class Tags {
+
+    private Tags() {
+    }
+
+    /**
+     * Normalizes the tags of a request.
+     * @param tags the tags as sent, may be null
+     * @return the distinct lower-cased tags, sorted, or null if none were sent
+     */
+    public static Set<String> of(Collection<String> tags) {
+        if (tags == null) {
+            return null;
+        }
+        Set<String> normalized = new TreeSet<>();
+        for (String tag : tags) {
+            normalized.add(normalize(tag));
+        }
+        return normalized;
+    }
+
+    /**
+     * Normalizes one tag.
+     * @param tag the tag as sent
+     * @return the tag, lower-cased
+     */
+    public static String normalize(String tag) {
+        return tag.toLowerCase(Locale.ROOT);
+    }
+}
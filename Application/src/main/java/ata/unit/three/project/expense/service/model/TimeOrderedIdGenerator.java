@@ -0,0 +1,49 @@
+package ata.unit.three.project.expense.service.model;
+
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+/**
+ * Creates version 7 UUIDs: the first 48 bits are the creation time in milliseconds, so ids sort by creation
+ * time both as UUIDs and as strings.
+ *
+ * The 12 bits after the version count ids created in the same millisecond, which keeps the ids of one container
+ * strictly increasing; a container creating more than 4096 ids in a millisecond borrows from the next one. The
+ * time and counter are advanced together with a compare-and-set, and the remaining 62 bits come from
+ * {@link ThreadLocalRandom}, so creating an id neither locks nor waits on a shared {@code SecureRandom} the way
+ * {@link UUID#randomUUID()} does. The random bits keep ids of different containers apart.
+ */
+public final class TimeOrderedIdGenerator implements IdGenerator {
+    private static final TimeOrderedIdGenerator INSTANCE = new TimeOrderedIdGenerator(System::currentTimeMillis);
+    private static final int COUNTER_BITS = 12;
+    private static final long COUNTER_MASK = (1L << COUNTER_BITS) - 1;
+    private static final long VERSION_7 = 0x7000L;
+    private static final long RANDOM_MASK = 0x3FFFFFFFFFFFFFFFL;
+    private static final long VARIANT = 0x8000000000000000L;
+
+    private final LongSupplier clock;
+    private final AtomicLong last = new AtomicLong();
+
+    TimeOrderedIdGenerator(LongSupplier clock) {
+        this.clock = clock;
+    }
+
+    /**
+     * Returns the generator shared by the container, so that all of its ids are ordered.
+     * @return the generator
+     */
+    public static TimeOrderedIdGenerator getInstance() {
+        return INSTANCE;
+    }
+
+    @Override
+    public String newId() {
+        long now = clock.getAsLong() << COUNTER_BITS;
+        long next = last.updateAndGet(previous -> Math.max(now, previous + 1));
+        long mostSignificant = ((next >>> COUNTER_BITS) << 16) | VERSION_7 | (next & COUNTER_MASK);
+        long leastSignificant = (ThreadLocalRandom.current().nextLong() & RANDOM_MASK) | VARIANT;
+        return new UUID(mostSignificant, leastSignificant).toString();
+    }
+}
@@ -0,0 +1,47 @@
+package ata.unit.three.project.expense.service.search;
+
+import ata.unit.three.project.expense.dynamodb.ExpenseItem;
+
+import com.kenzie.ata.ExcludeFromJacocoGeneratedReport;
+
+import java.util.List;
+
+/**
+ * One page of title search results.
+ */
+@ExcludeFromJacocoGeneratedReport
+public class ExpenseSearchResult {
+    private final List<ExpenseItem> expenses;
+    private final int matches;
+    private final String nextPage;
+
+    public ExpenseSearchResult(List<ExpenseItem> expenses, int matches, String nextPage) {
+        this.expenses = expenses;
+        this.matches = matches;
+        this.nextPage = nextPage;
+    }
+
+    /**
+     * Returns the expenses of the page, best match first.
+     * @return the expenses
+     */
+    public List<ExpenseItem> getExpenses() {
+        return expenses;
+    }
+
+    /**
+     * Returns how many expenses matched in all.
+     * @return the number of matches
+     */
+    public int getMatches() {
+        return matches;
+    }
+
+    /**
+     * Returns the page parameter that reads the next page.
+     * @return the next page, or null if this is the last page
+     */
+    public String getNextPage() {
+        return nextPage;
+    }
+}
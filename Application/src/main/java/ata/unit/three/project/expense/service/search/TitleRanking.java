@@ -0,0 +1,49 @@
+package ata.unit.three.project.expense.service.search;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Ranks expenses by how well their titles match the tokens of a query. For every query token an expense scores
+ * {@link #EXACT} if its title has the token and {@link #PREFIX} if it only has a longer token starting with it;
+ * the scores of all query tokens are added up.
+ */
+public final class TitleRanking {
+    static final int EXACT = 2;
+    static final int PREFIX = 1;
+
+    private final Map<String, Integer> scores = new HashMap<>();
+
+    /**
+     * Scores the matches of one query token.
+     * @param exact the ids of the expenses with the token
+     * @param prefixed the ids of the expenses with longer tokens starting with it, by token; may overlap
+     */
+    public void add(String[] exact, List<String[]> prefixed) {
+        Map<String, Integer> best = new HashMap<>();
+        for (String[] ids : prefixed) {
+            for (String id : ids) {
+                best.put(id, PREFIX);
+            }
+        }
+        for (String id : exact) {
+            best.put(id, EXACT);
+        }
+        best.forEach((id, score) -> scores.merge(id, score, Integer::sum));
+    }
+
+    /**
+     * Returns the ids of every expense that matched, best first; equal scores are ordered by id, descending,
+     * which puts newer expenses first since ids are time-ordered.
+     * @return the ranked ids
+     */
+    public List<String> ranked() {
+        List<String> ids = new ArrayList<>(scores.keySet());
+        ids.sort(Comparator.comparing((String id) -> scores.get(id)).reversed()
+                .thenComparing(Comparator.reverseOrder()));
+        return ids;
+    }
+}
@@ -0,0 +1,40 @@
+package ata.unit.three.project.expense.service.search;
+
+import java.util.LinkedHashSet;
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * Splits titles and search queries into the tokens the title index is keyed by: runs of letters and digits,
+ * lower-cased, each cut to {@link #MAX_TOKEN_LENGTH} characters.
+ */
+public final class TitleTokens {
+    public static final int MAX_TOKEN_LENGTH = 40;
+    public static final int MAX_TOKENS = 32;
+
+    private TitleTokens() {
+    }
+
+    /**
+     * Returns the distinct tokens of a text, in the order they first appear.
+     * @param text the title or query, may be null
+     * @return up to {@link #MAX_TOKENS} tokens
+     */
+    public static Set<String> of(String text) {
+        Set<String> tokens = new LinkedHashSet<>();
+        if (text == null) {
+            return tokens;
+        }
+        int start = -1;
+        for (int i = 0; i <= text.length() && tokens.size() < MAX_TOKENS; i++) {
+            boolean inToken = i < text.length() && Character.isLetterOrDigit(text.charAt(i));
+            if (inToken && start < 0) {
+                start = i;
+            } else if (!inToken && start >= 0) {
+                tokens.add(text.substring(start, Math.min(i, start + MAX_TOKEN_LENGTH)).toLowerCase(Locale.ROOT));
+                start = -1;
+            }
+        }
+        return tokens;
+    }
+}
@@ -0,0 +1,92 @@
+package ata.unit.three.project.expense.service.sync;
+
+import ata.unit.three.project.expense.dynamodb.ExpenseItem;
+import ata.unit.three.project.expense.dynamodb.ExpenseItemList;
+
+import com.google.gson.annotations.SerializedName;
+import com.kenzie.ata.ExcludeFromJacocoGeneratedReport;
+
+/**
+ * One change to an email's data, as read from the change log. An expense or list change carries the expense or
+ * list as it is now, or is a tombstone if it was deleted; a list item change tells that an expense was added to
+ * or removed from a list.
+ */
+@ExcludeFromJacocoGeneratedReport
+public class SyncChange {
+
+    /**
+     * What changed.
+     */
+    public enum Type {
+        @SerializedName("expense")
+        EXPENSE,
+        @SerializedName("list")
+        LIST,
+        @SerializedName("listItem")
+        LIST_ITEM
+    }
+
+    private final long seq;
+    private final Type type;
+    private final String id;
+    private final String listId;
+    private boolean deleted;
+    private ExpenseItem expense;
+    private ExpenseItemList list;
+
+    /**
+     * Creates a change.
+     * @param seq the sequence number of the change
+     * @param type what changed
+     * @param id the id of the expense or list; for a list item, the id of the expense
+     * @param listId the id of the list of a list item, otherwise null
+     * @param deleted true if the expense or list was deleted, or the expense removed from the list
+     */
+    public SyncChange(long seq, Type type, String id, String listId, boolean deleted) {
+        this.seq = seq;
+        this.type = type;
+        this.id = id;
+        this.listId = listId;
+        this.deleted = deleted;
+    }
+
+    public long getSeq() {
+        return seq;
+    }
+
+    public Type getType() {
+        return type;
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public String getListId() {
+        return listId;
+    }
+
+    public boolean isDeleted() {
+        return deleted;
+    }
+
+    public ExpenseItem getExpense() {
+        return expense;
+    }
+
+    public ExpenseItemList getList() {
+        return list;
+    }
+
+    public void setDeleted(boolean deleted) {
+        this.deleted = deleted;
+    }
+
+    public void setExpense(ExpenseItem expense) {
+        this.expense = expense;
+    }
+
+    public void setList(ExpenseItemList list) {
+        this.list = list;
+    }
+}
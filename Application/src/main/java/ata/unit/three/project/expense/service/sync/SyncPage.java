@@ -0,0 +1,52 @@
+package ata.unit.three.project.expense.service.sync;
+
+import com.kenzie.ata.ExcludeFromJacocoGeneratedReport;
+
+import java.util.List;
+
+/**
+ * The changes to an email's data since a client's checkpoint, oldest first.
+ */
+@ExcludeFromJacocoGeneratedReport
+public class SyncPage {
+    private final List<SyncChange> changes;
+    private final String token;
+    private final boolean hasMore;
+    private final boolean reset;
+
+    public SyncPage(List<SyncChange> changes, String token, boolean hasMore, boolean reset) {
+        this.changes = changes;
+        this.token = token;
+        this.hasMore = hasMore;
+        this.reset = reset;
+    }
+
+    public List<SyncChange> getChanges() {
+        return changes;
+    }
+
+    /**
+     * Returns the checkpoint to send as since on the next sync.
+     * @return the token
+     */
+    public String getToken() {
+        return token;
+    }
+
+    /**
+     * Tells whether more changes can be read right away with the new token.
+     * @return true if there are more changes
+     */
+    public boolean isHasMore() {
+        return hasMore;
+    }
+
+    /**
+     * Tells whether the client has to download everything again, because it sent no checkpoint or one the log
+     * cannot continue from. The token is then the checkpoint to sync from after the download.
+     * @return true if the client has to start over
+     */
+    public boolean isReset() {
+        return reset;
+    }
+}
@@ -0,0 +1,51 @@
+package ata.unit.three.project.expense.service.validation;
+
+import ata.unit.three.project.expense.lambda.models.Expense;
+import ata.unit.three.project.expense.lambda.models.ExpenseList;
+
+/**
+ * The rules request bodies must pass before the service reads or writes anything.
+ */
+public final class RequestRules {
+    public static final int MAX_TITLE_LENGTH = 200;
+    public static final long MAX_AMOUNT = 1_000_000;
+    public static final long MAX_AMOUNT_CENTS = MAX_AMOUNT * 100;
+    public static final int MAX_TAGS = 10;
+    public static final int MAX_TAG_LENGTH = 30;
+
+    /**
+     * A new expense.
+     */
+    public static final Validator<Expense> EXPENSE = Validator.<Expense>reporting("invalid_expense")
+            .rule("email", expense -> Validation.isEmail(expense.getEmail()), "must be an email address")
+            .rule("title", expense -> Validation.hasText(expense.getTitle(), MAX_TITLE_LENGTH),
+                    "must have text and at most " + MAX_TITLE_LENGTH + " characters")
+            .rule("amount", expense -> Validation.isBetween(expense.getAmountCents(), 0, MAX_AMOUNT_CENTS),
+                    "must be between 0 and " + MAX_AMOUNT)
+            .rule("tags", expense -> Validation.areTags(expense.getTags(), MAX_TAGS, MAX_TAG_LENGTH),
+                    "must be at most " + MAX_TAGS + " tags of 1 to " + MAX_TAG_LENGTH +
+                            " letters, digits, hyphens or underscores");
+
+    /**
+     * The new title, amount and tags of an existing expense; its email cannot change.
+     */
+    public static final Validator<Expense> EXPENSE_UPDATE = Validator.<Expense>reporting("invalid_expense")
+            .rule("title", expense -> Validation.hasText(expense.getTitle(), MAX_TITLE_LENGTH),
+                    "must have text and at most " + MAX_TITLE_LENGTH + " characters")
+            .rule("amount", expense -> Validation.isBetween(expense.getAmountCents(), 0, MAX_AMOUNT_CENTS),
+                    "must be between 0 and " + MAX_AMOUNT)
+            .rule("tags", expense -> Validation.areTags(expense.getTags(), MAX_TAGS, MAX_TAG_LENGTH),
+                    "must be at most " + MAX_TAGS + " tags of 1 to " + MAX_TAG_LENGTH +
+                            " letters, digits, hyphens or underscores");
+
+    /**
+     * A new expense list.
+     */
+    public static final Validator<ExpenseList> EXPENSE_LIST = Validator.<ExpenseList>reporting("invalid_data")
+            .rule("email", list -> Validation.isEmail(list.getEmail()), "must be an email address")
+            .rule("title", list -> Validation.hasText(list.getTitle(), MAX_TITLE_LENGTH),
+                    "must have text and at most " + MAX_TITLE_LENGTH + " characters");
+
+    private RequestRules() {
+    }
+}
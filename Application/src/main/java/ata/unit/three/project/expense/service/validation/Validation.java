@@ -0,0 +1,127 @@
+package ata.unit.three.project.expense.service.validation;
+
+import java.util.Collection;
+
+/**
+ * Checks of single request values. The checks walk the characters of a value once and allocate nothing, so
+ * that rejecting a bad request costs no more than accepting a good one.
+ */
+public final class Validation {
+    public static final int MAX_EMAIL_LENGTH = 254;
+
+    private static final int UUID_LENGTH = 36;
+    private static final int MAX_EMAIL_LOCAL_LENGTH = 64;
+
+    private Validation() {
+    }
+
+    /**
+     * Tells whether a value is a UUID in its canonical 8-4-4-4-12 hexadecimal form, the form every id is
+     * created in.
+     * @param value the value
+     * @return true if the value is a UUID
+     */
+    public static boolean isUuid(CharSequence value) {
+        if (value == null || value.length() != UUID_LENGTH) {
+            return false;
+        }
+        for (int i = 0; i < UUID_LENGTH; i++) {
+            char c = value.charAt(i);
+            boolean valid = i == 8 || i == 13 || i == 18 || i == 23 ? c == '-' : isHexDigit(c);
+            if (!valid) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Tells whether a value looks like an email address: one @ with up to 64 characters before it, and a
+     * domain of dot-separated, non-empty labels after it, with no whitespace or control characters anywhere.
+     * @param value the value
+     * @return true if the value looks like an email address
+     */
+    public static boolean isEmail(CharSequence value) {
+        if (value == null || value.length() > MAX_EMAIL_LENGTH) {
+            return false;
+        }
+        int at = -1;
+        int lastDot = -1;
+        boolean valid = true;
+        for (int i = 0; i < value.length() && valid; i++) {
+            char c = value.charAt(i);
+            if (c <= ' ' || c == 0x7F) {
+                valid = false;
+            } else if (c == '@') {
+                valid = at < 0;
+                at = i;
+            } else if (c == '.' && at >= 0) {
+                valid = i > at + 1 && i > lastDot + 1;
+                lastDot = i;
+            }
+        }
+        return valid && at > 0 && at <= MAX_EMAIL_LOCAL_LENGTH && lastDot > at && lastDot < value.length() - 1;
+    }
+
+    /**
+     * Tells whether a value has some text that is not whitespace, and is no longer than the given length.
+     * @param value the value
+     * @param maxLength the greatest length allowed
+     * @return true if the value has text within the length
+     */
+    public static boolean hasText(CharSequence value, int maxLength) {
+        if (value == null || value.length() > maxLength) {
+            return false;
+        }
+        for (int i = 0; i < value.length(); i++) {
+            if (!Character.isWhitespace(value.charAt(i))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Tells whether a value is given and within the given bounds.
+     * @param value the value
+     * @param min the least value allowed
+     * @param max the greatest value allowed
+     * @return true if the value is within the bounds
+     */
+    public static boolean isBetween(Long value, long min, long max) {
+        return value != null && value >= min && value <= max;
+    }
+
+    /**
+     * Tells whether values are valid tags: at most the given number of them, each 1 to the given number of
+     * letters, digits, hyphens and underscores. No tags at all are valid.
+     * @param values the values, may be null
+     * @param maxCount the most tags allowed
+     * @param maxLength the greatest length of a tag
+     * @return true if the values are valid tags
+     */
+    public static boolean areTags(Collection<String> values, int maxCount, int maxLength) {
+        if (values == null) {
+            return true;
+        }
+        if (values.size() > maxCount) {
+            return false;
+        }
+        for (String value : values) {
+            if (value == null || value.isEmpty() || value.length() > maxLength) {
+                return false;
+            }
+            for (int i = 0; i < value.length(); i++) {
+                char c = value.charAt(i);
+                if (!Character.isLetterOrDigit(c) && c != '-' && c != '_') {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    private static boolean isHexDigit(char c) {
+        return c >= '0' && c <= '9' || c >= 'a' && c <= 'f' || c >= 'A' && c <= 'F';
+    }
+}
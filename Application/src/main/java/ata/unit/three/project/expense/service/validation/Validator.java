@@ -0,0 +1,73 @@
+package ata.unit.three.project.expense.service.validation;
+
+import ata.unit.three.project.expense.service.exceptions.ValidationException;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Predicate;
+
+/**
+ * Validates request bodies of one type against a list of rules, see {@link RequestRules}. Every rule is checked,
+ * so the client learns about all of its mistakes at once. A body that passes allocates nothing.
+ * @param <T> the type of the request body
+ */
+public final class Validator<T> {
+    private final String errorType;
+    private final List<String> fields = new ArrayList<>();
+    private final List<Predicate<T>> checks = new ArrayList<>();
+    private final List<String> messages = new ArrayList<>();
+
+    private Validator(String errorType) {
+        this.errorType = errorType;
+    }
+
+    /**
+     * Starts a validator without rules.
+     * @param errorType the error type reported when a body fails
+     * @param <T> the type of the request body
+     * @return the validator
+     */
+    public static <T> Validator<T> reporting(String errorType) {
+        return new Validator<>(errorType);
+    }
+
+    /**
+     * Adds a rule; rules are checked in the order they were added.
+     * @param field the field the rule is about
+     * @param check tells whether a body passes
+     * @param message what is wrong with the field when the body fails
+     * @return this validator
+     */
+    public Validator<T> rule(String field, Predicate<T> check, String message) {
+        fields.add(field);
+        checks.add(check);
+        messages.add(message);
+        return this;
+    }
+
+    /**
+     * Checks a body against every rule.
+     * @param body the body, which may be null when the request had none
+     * @throws ValidationException listing every field that failed
+     */
+    public void validate(T body) {
+        if (body == null) {
+            throw new ValidationException(errorType, Collections.singletonMap("body", "must be given"));
+        }
+        Map<String, String> errors = null;
+        for (int i = 0; i < checks.size(); i++) {
+            if (!checks.get(i).test(body)) {
+                if (errors == null) {
+                    errors = new LinkedHashMap<>();
+                }
+                errors.putIfAbsent(fields.get(i), messages.get(i));
+            }
+        }
+        if (errors != null) {
+            throw new ValidationException(errorType, errors);
+        }
+    }
+}
@@ -0,0 +1,74 @@
+package ata.unit.three.project.expense.dynamodb;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class AdaptiveRateLimiterTest {
+
+    private final AtomicLong now = new AtomicLong();
+
+    @Test
+    void onThrottle_burstOfThrottles_decreasesRateOnce() {
+        //GIVEN
+        AdaptiveRateLimiter limiter = new AdaptiveRateLimiter(1, 100, now::get);
+
+        //WHEN
+        limiter.onThrottle();
+        limiter.onThrottle();
+        limiter.onThrottle();
+
+        //THEN
+        assertEquals(70, limiter.getRate(), 0.001);
+    }
+
+    @Test
+    void onThrottle_repeatedSignals_neverGoesBelowMinimum() {
+        //GIVEN
+        AdaptiveRateLimiter limiter = new AdaptiveRateLimiter(2, 100, now::get);
+
+        //WHEN
+        for (int i = 0; i < 50; i++) {
+            now.addAndGet(TimeUnit.MILLISECONDS.toNanos(AdaptiveRateLimiter.DECREASE_INTERVAL_MILLIS));
+            limiter.onThrottle();
+        }
+
+        //THEN
+        assertEquals(2, limiter.getRate(), 0.001);
+    }
+
+    @Test
+    void onSuccess_afterThrottle_increasesRateAdditively() {
+        //GIVEN
+        AdaptiveRateLimiter limiter = new AdaptiveRateLimiter(1, 100, now::get);
+        limiter.onThrottle();
+
+        //WHEN
+        limiter.onSuccess();
+        limiter.onSuccess();
+
+        //THEN
+        assertEquals(71, limiter.getRate(), 0.001);
+    }
+
+    @Test
+    void tryAcquire_emptyBucket_rejectsUntilRefilled() {
+        //GIVEN
+        AdaptiveRateLimiter limiter = new AdaptiveRateLimiter(1, 10, now::get);
+        for (int i = 0; i < 10; i++) {
+            assertEquals(0, limiter.tryAcquire());
+        }
+
+        //WHEN
+        long wait = limiter.tryAcquire();
+        now.addAndGet(TimeUnit.MILLISECONDS.toNanos(wait));
+
+        //THEN
+        assertTrue(wait > 0);
+        assertEquals(0, limiter.tryAcquire());
+    }
+}
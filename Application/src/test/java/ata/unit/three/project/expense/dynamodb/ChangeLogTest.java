@@ -0,0 +1,180 @@
+package ata.unit.three.project.expense.dynamodb;
+
+import ata.unit.three.project.expense.service.exceptions.ServiceOverloadedException;
+import ata.unit.three.project.expense.service.sync.SyncChange;
+import ata.unit.three.project.expense.service.sync.SyncPage;
+
+import com.amazonaws.services.dynamodbv2.AmazonDynamoDB;
+import com.amazonaws.services.dynamodbv2.model.AttributeValue;
+import com.amazonaws.services.dynamodbv2.model.CancellationReason;
+import com.amazonaws.services.dynamodbv2.model.GetItemRequest;
+import com.amazonaws.services.dynamodbv2.model.GetItemResult;
+import com.amazonaws.services.dynamodbv2.model.Put;
+import com.amazonaws.services.dynamodbv2.model.QueryRequest;
+import com.amazonaws.services.dynamodbv2.model.QueryResult;
+import com.amazonaws.services.dynamodbv2.model.TransactWriteItem;
+import com.amazonaws.services.dynamodbv2.model.TransactWriteItemsRequest;
+import com.amazonaws.services.dynamodbv2.model.TransactWriteItemsResult;
+import com.amazonaws.services.dynamodbv2.model.TransactionCanceledException;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class ChangeLogTest {
+
+    private static final long NOW = 100_000;
+
+    private final AmazonDynamoDB client = mock(AmazonDynamoDB.class);
+    private final ChangeLog changeLog = new ChangeLog(client, () -> NOW);
+
+    @Test
+    void read_sameExpenseChangedTwice_keepsLastChange() {
+        //GIVEN
+        when(client.query(any(QueryRequest.class))).thenReturn(new QueryResult().withItems(
+                item(4, "EXPENSE", "a", null, false, NOW),
+                item(5, "LIST_ITEM", "a", "list", false, NOW),
+                item(6, "EXPENSE", "a", null, true, NOW)));
+
+        //WHEN
+        SyncPage page = changeLog.read("a@b.com", 3, 10);
+
+        //THEN
+        List<SyncChange> changes = page.getChanges();
+        assertEquals(2, changes.size());
+        assertEquals(SyncChange.Type.LIST_ITEM, changes.get(0).getType());
+        assertEquals("list", changes.get(0).getListId());
+        assertEquals(6, changes.get(1).getSeq());
+        assertTrue(changes.get(1).isDeleted());
+        assertEquals("6", page.getToken());
+        assertFalse(page.isHasMore());
+    }
+
+    @Test
+    void record_firstChange_writesCounterAndChangeWithTheWrites() {
+        //GIVEN
+        when(client.getItem(any(GetItemRequest.class))).thenReturn(new GetItemResult());
+        TransactWriteItem write = new TransactWriteItem().withPut(new Put().withTableName("Expense"));
+
+        //WHEN
+        long seq = changeLog.record("a@b.com", SyncChange.Type.EXPENSE, "a", null, false,
+                number -> Collections.singletonList(write));
+
+        //THEN
+        assertEquals(1, seq);
+        List<TransactWriteItem> writes = transaction(1).getTransactItems();
+        assertEquals(3, writes.size());
+        assertEquals(write, writes.get(0));
+        assertEquals("attribute_not_exists(LastSeq)", writes.get(1).getUpdate().getConditionExpression());
+        assertEquals("1", writes.get(2).getPut().getItem().get("Seq").getN());
+        assertEquals("EXPENSE", writes.get(2).getPut().getItem().get("Type").getS());
+    }
+
+    @Test
+    void record_numberTakenByAnotherChange_retriesWithTheNextNumber() {
+        //GIVEN
+        when(client.getItem(any(GetItemRequest.class)))
+                .thenReturn(counter(4))
+                .thenReturn(counter(5));
+        when(client.transactWriteItems(any(TransactWriteItemsRequest.class)))
+                .thenThrow(cancelled("None", "ConditionalCheckFailed", "None"))
+                .thenReturn(new TransactWriteItemsResult());
+        List<Long> numbers = new ArrayList<>();
+
+        //WHEN
+        long seq = changeLog.record("a@b.com", SyncChange.Type.LIST, "list", null, true, number -> {
+            numbers.add(number);
+            return Collections.singletonList(new TransactWriteItem().withPut(new Put().withTableName("ExpenseList")));
+        });
+
+        //THEN
+        assertEquals(6, seq);
+        assertEquals(Arrays.asList(5L, 6L), numbers);
+        assertEquals("LastSeq = :last", transaction(2).getTransactItems().get(1).getUpdate()
+                .getConditionExpression());
+    }
+
+    @Test
+    void record_everyNumberTaken_throwsOverloaded() {
+        //GIVEN
+        when(client.getItem(any(GetItemRequest.class))).thenReturn(counter(4));
+        when(client.transactWriteItems(any(TransactWriteItemsRequest.class)))
+                .thenThrow(cancelled("TransactionConflict", "None"));
+
+        //WHEN
+        ServiceOverloadedException e = assertThrows(ServiceOverloadedException.class, () -> changeLog.record(
+                "a@b.com", SyncChange.Type.LIST, "list", null, true, number -> Collections.emptyList()));
+
+        //THEN
+        assertEquals(1, e.getRetryAfterSeconds());
+        transaction(ChangeLog.MAX_ATTEMPTS);
+    }
+
+    @Test
+    void record_writeFailsItsCondition_throwsWithoutRetrying() {
+        //GIVEN
+        when(client.getItem(any(GetItemRequest.class))).thenReturn(counter(4));
+        when(client.transactWriteItems(any(TransactWriteItemsRequest.class)))
+                .thenThrow(cancelled("ConditionalCheckFailed", "None", "None"));
+
+        //WHEN - THEN
+        assertThrows(TransactionCanceledException.class, () -> changeLog.record("a@b.com",
+                SyncChange.Type.LIST_ITEM, "a", "list", false,
+                number -> Collections.singletonList(ChangeLog.listStamp("list", number))));
+        transaction(1);
+    }
+
+    private TransactWriteItemsRequest transaction(int times) {
+        ArgumentCaptor<TransactWriteItemsRequest> transaction =
+                ArgumentCaptor.forClass(TransactWriteItemsRequest.class);
+        verify(client, times(times)).transactWriteItems(transaction.capture());
+        return transaction.getValue();
+    }
+
+    private static GetItemResult counter(long lastSeq) {
+        return new GetItemResult().withItem(Collections.singletonMap("LastSeq",
+                new AttributeValue().withN(Long.toString(lastSeq))));
+    }
+
+    private static TransactionCanceledException cancelled(String... codes) {
+        TransactionCanceledException e = new TransactionCanceledException("cancelled");
+        List<CancellationReason> reasons = new ArrayList<>();
+        for (String code : codes) {
+            reasons.add(new CancellationReason().withCode(code));
+        }
+        e.setCancellationReasons(reasons);
+        return e;
+    }
+
+    private static Map<String, AttributeValue> item(long seq, String type, String id, String listId,
+                                                    boolean deleted, long at) {
+        Map<String, AttributeValue> item = new HashMap<>();
+        item.put("Email", new AttributeValue("a@b.com"));
+        item.put("Seq", new AttributeValue().withN(Long.toString(seq)));
+        item.put("Type", new AttributeValue(type));
+        item.put("Id", new AttributeValue(id));
+        if (listId != null) {
+            item.put("ListId", new AttributeValue(listId));
+        }
+        if (deleted) {
+            item.put("Deleted", new AttributeValue().withBOOL(true));
+        }
+        item.put("At", new AttributeValue().withN(Long.toString(at)));
+        return item;
+    }
+}
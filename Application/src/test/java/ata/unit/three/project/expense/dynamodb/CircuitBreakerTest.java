@@ -0,0 +1,83 @@
+package ata.unit.three.project.expense.dynamodb;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CircuitBreakerTest {
+
+    private final AtomicLong now = new AtomicLong();
+
+    @Test
+    void onFailure_consecutiveFailures_opensBreaker() {
+        //GIVEN
+        CircuitBreaker breaker = new CircuitBreaker(now::get);
+
+        //WHEN
+        for (int i = 0; i < CircuitBreaker.CONSECUTIVE_FAILURES; i++) {
+            breaker.onFailure();
+        }
+
+        //THEN
+        assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+        assertTrue(breaker.tryAcquire() > 0);
+    }
+
+    @Test
+    void onFailure_interleavedSuccesses_keepsBreakerClosedBelowFailureRate() {
+        //GIVEN
+        CircuitBreaker breaker = new CircuitBreaker(now::get);
+
+        //WHEN
+        for (int i = 0; i < CircuitBreaker.MIN_CALLS * 2; i++) {
+            breaker.onSuccess();
+            breaker.onSuccess();
+            breaker.onFailure();
+        }
+
+        //THEN
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+        assertEquals(0, breaker.tryAcquire());
+    }
+
+    @Test
+    void tryAcquire_afterOpenPeriod_letsOneProbeThroughAndClosesOnSuccess() {
+        //GIVEN
+        CircuitBreaker breaker = new CircuitBreaker(now::get);
+        for (int i = 0; i < CircuitBreaker.CONSECUTIVE_FAILURES; i++) {
+            breaker.onFailure();
+        }
+        now.addAndGet(TimeUnit.MILLISECONDS.toNanos(CircuitBreaker.OPEN_MILLIS));
+
+        //WHEN
+        long probe = breaker.tryAcquire();
+        long second = breaker.tryAcquire();
+        breaker.onSuccess();
+
+        //THEN
+        assertEquals(0, probe);
+        assertTrue(second > 0);
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+    }
+
+    @Test
+    void onFailure_failedProbe_reopensBreaker() {
+        //GIVEN
+        CircuitBreaker breaker = new CircuitBreaker(now::get);
+        for (int i = 0; i < CircuitBreaker.CONSECUTIVE_FAILURES; i++) {
+            breaker.onFailure();
+        }
+        now.addAndGet(TimeUnit.MILLISECONDS.toNanos(CircuitBreaker.OPEN_MILLIS));
+        breaker.tryAcquire();
+
+        //WHEN
+        breaker.onFailure();
+
+        //THEN
+        assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+    }
+}
@@ -0,0 +1,148 @@
+package ata.unit.three.project.expense.dynamodb;
+
+import ata.unit.three.project.expense.service.Deadline;
+import ata.unit.three.project.expense.service.exceptions.DeadlineExceededException;
+
+import com.amazonaws.AmazonServiceException;
+import com.amazonaws.AmazonWebServiceRequest;
+import com.amazonaws.SdkClientException;
+import com.amazonaws.http.timers.client.ClientExecutionTimeoutException;
+import com.amazonaws.services.dynamodbv2.AmazonDynamoDB;
+import com.amazonaws.services.dynamodbv2.model.GetItemRequest;
+import com.amazonaws.services.dynamodbv2.model.GetItemResult;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class DeadlineAwareDynamoDBTest {
+
+    private final List<AmazonWebServiceRequest> calls = new ArrayList<>();
+    private RuntimeException failure;
+    private Deadline.Scope scope;
+
+    private final AmazonDynamoDB stub = (AmazonDynamoDB) Proxy.newProxyInstance(
+            AmazonDynamoDB.class.getClassLoader(), new Class<?>[] {AmazonDynamoDB.class}, (proxy, method, args) -> {
+                calls.add((AmazonWebServiceRequest) args[0]);
+                if (failure != null) {
+                    throw failure;
+                }
+                return new GetItemResult();
+            });
+    private final AmazonDynamoDB client = DeadlineAwareDynamoDB.wrap(stub);
+
+    @AfterEach
+    void detach() {
+        if (scope != null) {
+            scope.close();
+        }
+    }
+
+    @Test
+    void call_noDeadline_leavesTimeoutsUnset() {
+        //WHEN
+        client.getItem(new GetItemRequest());
+
+        //THEN
+        assertEquals(1, calls.size());
+        assertNull(calls.get(0).getSdkClientExecutionTimeout());
+        assertNull(calls.get(0).getSdkRequestTimeout());
+    }
+
+    @Test
+    void call_shortDeadline_limitsBothTimeoutsToTheTimeLeft() {
+        //GIVEN
+        attach(1000);
+
+        //WHEN
+        client.getItem(new GetItemRequest());
+
+        //THEN
+        int executionTimeout = calls.get(0).getSdkClientExecutionTimeout();
+        assertTrue(executionTimeout <= 1000 && executionTimeout > 500, "execution timeout " + executionTimeout);
+        assertEquals(executionTimeout, (int) calls.get(0).getSdkRequestTimeout());
+    }
+
+    @Test
+    void call_longDeadline_limitsEachAttemptToTheAttemptTimeout() {
+        //GIVEN
+        attach(60_000);
+
+        //WHEN
+        client.getItem(new GetItemRequest());
+
+        //THEN
+        assertTrue(calls.get(0).getSdkClientExecutionTimeout() > 2000);
+        assertEquals(2000, (int) calls.get(0).getSdkRequestTimeout());
+    }
+
+    @Test
+    void call_lessThanOneAttemptLeft_failsWithoutCalling() {
+        //GIVEN
+        attach(DeadlineRetryPolicy.MIN_ATTEMPT_MILLIS - 1);
+
+        //WHEN - THEN
+        assertThrows(DeadlineExceededException.class, () -> client.getItem(new GetItemRequest()));
+        assertTrue(calls.isEmpty());
+    }
+
+    @Test
+    void call_clientExecutionTimeout_throwsDeadlineExceeded() {
+        //GIVEN
+        attach(1000);
+        failure = new ClientExecutionTimeoutException("timed out");
+
+        //WHEN
+        DeadlineExceededException e = assertThrows(DeadlineExceededException.class,
+                () -> client.getItem(new GetItemRequest()));
+
+        //THEN
+        assertSame(failure, e.getCause());
+    }
+
+    @Test
+    void call_clientErrorWithTimeLeft_rethrowsIt() {
+        //GIVEN
+        attach(60_000);
+        failure = new SdkClientException("connection reset");
+
+        //WHEN - THEN
+        assertSame(failure, assertThrows(SdkClientException.class, () -> client.getItem(new GetItemRequest())));
+    }
+
+    @Test
+    void call_clientErrorAtTheDeadline_throwsDeadlineExceeded() {
+        //GIVEN
+        attach(DeadlineRetryPolicy.MIN_ATTEMPT_MILLIS + 10);
+        failure = new SdkClientException("connection reset");
+
+        //WHEN
+        DeadlineExceededException e = assertThrows(DeadlineExceededException.class,
+                () -> client.getItem(new GetItemRequest()));
+
+        //THEN
+        assertSame(failure, e.getCause());
+    }
+
+    @Test
+    void call_serviceErrorAtTheDeadline_rethrowsIt() {
+        //GIVEN
+        attach(DeadlineRetryPolicy.MIN_ATTEMPT_MILLIS + 10);
+        failure = new AmazonServiceException("throttled");
+
+        //WHEN - THEN
+        assertSame(failure, assertThrows(AmazonServiceException.class, () -> client.getItem(new GetItemRequest())));
+    }
+
+    private void attach(long millis) {
+        scope = Deadline.attach(Deadline.after(millis));
+    }
+}
@@ -0,0 +1,91 @@
+package ata.unit.three.project.expense.dynamodb;
+
+import ata.unit.three.project.expense.service.Deadline;
+
+import com.amazonaws.AmazonServiceException;
+import com.amazonaws.retry.RetryPolicy;
+import com.amazonaws.services.dynamodbv2.model.GetItemRequest;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class DeadlineRetryPolicyTest {
+
+    private final GetItemRequest request = new GetItemRequest();
+    private final AmazonServiceException throttled = throttled();
+    private Deadline.Scope scope;
+
+    @AfterEach
+    void detach() {
+        if (scope != null) {
+            scope.close();
+        }
+    }
+
+    @Test
+    void shouldRetry_timeLeft_retriesRetryableErrors() {
+        //GIVEN
+        attach(10_000);
+
+        //WHEN - THEN
+        assertTrue(DeadlineRetryPolicy.create((r, e, n) -> true).getRetryCondition()
+                .shouldRetry(request, throttled, 0));
+    }
+
+    @Test
+    void shouldRetry_lessThanTwoAttemptsLeft_stops() {
+        //GIVEN
+        attach(2 * DeadlineRetryPolicy.MIN_ATTEMPT_MILLIS - 1);
+
+        //WHEN - THEN
+        assertFalse(DeadlineRetryPolicy.create((r, e, n) -> true).getRetryCondition()
+                .shouldRetry(request, throttled, 0));
+    }
+
+    @Test
+    void shouldRetry_gateRefuses_stops() {
+        //GIVEN
+        attach(10_000);
+
+        //WHEN - THEN
+        assertFalse(DeadlineRetryPolicy.create((r, e, n) -> false).getRetryCondition()
+                .shouldRetry(request, throttled, 0));
+    }
+
+    @Test
+    void delayBeforeNextRetry_nearDeadline_leavesTimeForOneAttempt() {
+        //GIVEN
+        attach(DeadlineRetryPolicy.MIN_ATTEMPT_MILLIS + 5);
+        RetryPolicy policy = DeadlineRetryPolicy.create((r, e, n) -> true);
+
+        //WHEN
+        long delay = policy.getBackoffStrategy().delayBeforeNextRetry(request, throttled, 8);
+
+        //THEN
+        assertTrue(delay <= 5, "delay " + delay);
+    }
+
+    @Test
+    void delayBeforeNextRetry_pastTheLastAttempt_isZero() {
+        //GIVEN
+        attach(DeadlineRetryPolicy.MIN_ATTEMPT_MILLIS - 10);
+        RetryPolicy policy = DeadlineRetryPolicy.create((r, e, n) -> true);
+
+        //WHEN - THEN
+        assertEquals(0, policy.getBackoffStrategy().delayBeforeNextRetry(request, throttled, 8));
+    }
+
+    private void attach(long millis) {
+        scope = Deadline.attach(Deadline.after(millis));
+    }
+
+    private static AmazonServiceException throttled() {
+        AmazonServiceException e = new AmazonServiceException("throttled");
+        e.setErrorCode("ThrottlingException");
+        e.setStatusCode(400);
+        return e;
+    }
+}
@@ -0,0 +1,69 @@
+package ata.unit.three.project.expense.dynamodb;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class EmailShardsTest {
+
+    @Test
+    void shardKey_configuredEmail_staysWithinItsShards() {
+        //GIVEN
+        EmailShards shards = new EmailShards(EmailShards.Mode.WRITE,
+                EmailShards.parseShards("default=1,big@example.com=8"));
+
+        //WHEN - THEN
+        for (int i = 0; i < 100; i++) {
+            String key = shards.shardKey("big@example.com", UUID.randomUUID().toString());
+            assertTrue(shards.shardKeys("big@example.com").contains(key), key);
+        }
+        assertEquals(Collections.singletonList("small@example.com#0"), shards.shardKeys("small@example.com"));
+    }
+
+    @Test
+    void shardKey_sameId_returnsSameShard() {
+        //GIVEN
+        EmailShards shards = new EmailShards(EmailShards.Mode.READ, EmailShards.parseShards("default=4"));
+        String id = UUID.randomUUID().toString();
+
+        //WHEN - THEN
+        assertEquals(shards.shardKey("user@example.com", id), shards.shardKey("user@example.com", id));
+    }
+
+    @Test
+    void constructor_tooManyShards_throws() {
+        assertThrows(IllegalArgumentException.class, () ->
+                new EmailShards(EmailShards.Mode.OFF, EmailShards.parseShards("default=1000")));
+    }
+
+    @Test
+    void mergeNewestFirst_sortedShards_returnsOneSortedList() {
+        //GIVEN
+        List<ExpenseItem> first = Arrays.asList(item("2021-03-01T00:00:00Z"), item("2021-01-01T00:00:00Z"));
+        List<ExpenseItem> second = Arrays.asList(item("2021-04-01T00:00:00Z"), item("2021-02-01T00:00:00Z"));
+        List<ExpenseItem> empty = Collections.emptyList();
+
+        //WHEN
+        List<ExpenseItem> merged = EmailShardIndex.mergeNewestFirst(Arrays.asList(first, empty, second));
+
+        //THEN
+        assertEquals(4, merged.size());
+        for (int i = 1; i < merged.size(); i++) {
+            assertTrue(merged.get(i - 1).getExpenseDate().compareTo(merged.get(i).getExpenseDate()) > 0);
+        }
+    }
+
+    private static ExpenseItem item(String expenseDate) {
+        ExpenseItem item = new ExpenseItem();
+        item.setId(UUID.randomUUID().toString());
+        item.setExpenseDate(expenseDate);
+        return item;
+    }
+}
@@ -0,0 +1,70 @@
+package ata.unit.three.project.expense.dynamodb;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class ExpenseCacheTest {
+
+    private final AtomicLong now = new AtomicLong();
+
+    @Test
+    void get_afterTtl_returnsNull() {
+        //GIVEN
+        ExpenseCache cache = new ExpenseCache(10, 1000, now::get);
+        cache.put(expense("a"));
+
+        //WHEN
+        ExpenseItem fresh = cache.get("a");
+        now.addAndGet(TimeUnit.MILLISECONDS.toNanos(1000));
+        ExpenseItem expired = cache.get("a");
+
+        //THEN
+        assertNotNull(fresh);
+        assertNull(expired);
+    }
+
+    @Test
+    void put_overMaxSize_dropsLeastRecentlyUsed() {
+        //GIVEN
+        ExpenseCache cache = new ExpenseCache(2, 1000, now::get);
+        cache.put(expense("a"));
+        cache.put(expense("b"));
+        cache.get("a");
+
+        //WHEN
+        cache.put(expense("c"));
+
+        //THEN
+        assertEquals(2, cache.getAll(Arrays.asList("a", "b", "c")).size());
+        assertNull(cache.get("b"));
+    }
+
+    @Test
+    void get_changedCopy_doesNotChangeCachedExpense() {
+        //GIVEN
+        ExpenseCache cache = new ExpenseCache(10, 1000, now::get);
+        cache.put(expense("a"));
+
+        //WHEN
+        cache.get("a").setTitle("changed");
+
+        //THEN
+        assertEquals("title", cache.get("a").getTitle());
+    }
+
+    private static ExpenseItem expense(String id) {
+        ExpenseItem expense = new ExpenseItem();
+        expense.setId(id);
+        expense.setEmail("a@b.com");
+        expense.setTitle("title");
+        expense.setAmount(1.0);
+        return expense;
+    }
+}
@@ -0,0 +1,146 @@
+package ata.unit.three.project.expense.dynamodb;
+
+import com.amazonaws.services.dynamodbv2.AmazonDynamoDB;
+import com.amazonaws.services.dynamodbv2.datamodeling.DynamoDBMapper;
+import com.amazonaws.services.dynamodbv2.model.GetItemRequest;
+import com.amazonaws.services.dynamodbv2.model.GetItemResult;
+import com.amazonaws.services.dynamodbv2.model.TransactWriteItem;
+import com.amazonaws.services.dynamodbv2.model.TransactWriteItemsRequest;
+import com.amazonaws.services.dynamodbv2.model.Update;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class ExpenseChangePropagatorTest {
+
+    private final AmazonDynamoDB client = mock(AmazonDynamoDB.class);
+    private final DynamoDBMapper mapper = new DynamoDBMapper(client);
+    private final ListMemberships memberships = mock(ListMemberships.class);
+    private final ExpenseChangePropagator propagator = new ExpenseChangePropagator(mapper, memberships,
+            mock(ListChunks.class), new ChangeLog(client));
+
+    @Test
+    void propagate_updatedExpense_replacesEmbeddedCopy() {
+        //GIVEN
+        givenList(embeddedList(expense("e1", "a"), expense("e2", "b")));
+
+        //WHEN
+        String failed = propagator.propagate(Collections.singletonList(new ExpenseChange("1", "e2",
+                expense("e2", "c"))));
+
+        //THEN
+        assertNull(failed);
+        Update update = update();
+        assertEquals("SET Expenses[1] = :copy, ChangeSeq = :seq", update.getUpdateExpression());
+        assertEquals("Expenses[1].Id = :id", update.getConditionExpression());
+        assertEquals("c", update.getExpressionAttributeValues().get(":copy").getM().get("Title").getS());
+        assertEquals("1", update.getExpressionAttributeValues().get(":seq").getN());
+    }
+
+    @Test
+    void propagate_updatedExpense_recordsChangeInTheSameTransaction() {
+        //GIVEN
+        givenList(embeddedList(expense("e1", "a")));
+
+        //WHEN
+        propagator.propagate(Collections.singletonList(new ExpenseChange("1", "e1", expense("e1", "b"))));
+
+        //THEN
+        List<TransactWriteItem> writes = transaction().getTransactItems();
+        assertEquals(3, writes.size());
+        TransactWriteItem entry = writes.get(2);
+        assertEquals("ExpenseChangeLog", entry.getPut().getTableName());
+        assertEquals("1", entry.getPut().getItem().get("Seq").getN());
+        assertEquals("LIST", entry.getPut().getItem().get("Type").getS());
+    }
+
+    @Test
+    void propagate_severalChangesToOneExpense_appliesOnlyTheLast() {
+        //GIVEN
+        givenList(embeddedList(expense("e1", "a")));
+
+        //WHEN
+        propagator.propagate(Arrays.asList(new ExpenseChange("1", "e1", expense("e1", "b")),
+                new ExpenseChange("2", "e1", expense("e1", "c"))));
+
+        //THEN
+        assertEquals("c", update().getExpressionAttributeValues().get(":copy").getM().get("Title").getS());
+    }
+
+    @Test
+    void propagate_deletedExpense_removesReferenceAndMembership() {
+        //GIVEN
+        ExpenseItemList list = new ExpenseItemList();
+        list.setId("list");
+        list.setStorage(ListStorage.REFERENCES.name());
+        list.setExpenseIds(Arrays.asList("e1", "e2"));
+        givenList(list);
+
+        //WHEN
+        propagator.propagate(Collections.singletonList(new ExpenseChange("1", "e1", null)));
+
+        //THEN
+        assertEquals("REMOVE ExpenseIds[0] SET ChangeSeq = :seq", update().getUpdateExpression());
+        verify(memberships).remove("e1", "list");
+    }
+
+    @Test
+    void propagate_failingChange_returnsItsSequenceNumberAndStops() {
+        //GIVEN
+        when(memberships.listIdsOf("e1")).thenThrow(new IllegalStateException("unavailable"));
+
+        //WHEN
+        String failed = propagator.propagate(Arrays.asList(new ExpenseChange("1", "e1", null),
+                new ExpenseChange("2", "e2", null)));
+
+        //THEN
+        assertEquals("1", failed);
+        verify(memberships, never()).listIdsOf("e2");
+    }
+
+    private void givenList(ExpenseItemList list) {
+        when(memberships.listIdsOf(any(String.class))).thenReturn(Collections.singletonList(list.getId()));
+        when(client.getItem(any(GetItemRequest.class))).thenReturn(new GetItemResult()
+                .withItem(mapper.getTableModel(ExpenseItemList.class).convert(list)));
+    }
+
+    private Update update() {
+        return transaction().getTransactItems().get(0).getUpdate();
+    }
+
+    private TransactWriteItemsRequest transaction() {
+        ArgumentCaptor<TransactWriteItemsRequest> transaction =
+                ArgumentCaptor.forClass(TransactWriteItemsRequest.class);
+        verify(client, times(1)).transactWriteItems(transaction.capture());
+        return transaction.getValue();
+    }
+
+    private static ExpenseItemList embeddedList(ExpenseItem... expenses) {
+        ExpenseItemList list = new ExpenseItemList();
+        list.setId("list");
+        list.setExpenseItems(Arrays.asList(expenses));
+        return list;
+    }
+
+    private static ExpenseItem expense(String id, String title) {
+        ExpenseItem expense = new ExpenseItem();
+        expense.setId(id);
+        expense.setEmail("a@b.com");
+        expense.setExpenseDate("2021-01-01");
+        expense.setTitle(title);
+        expense.setAmount(1.0);
+        return expense;
+    }
+}
@@ -0,0 +1,88 @@
+package ata.unit.three.project.expense.dynamodb;
+
+import com.amazonaws.services.dynamodbv2.AmazonDynamoDB;
+import com.amazonaws.services.dynamodbv2.model.TransactWriteItem;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+
+class ExpenseTagsTest {
+
+    private final ExpenseTags tags = new ExpenseTags(mock(AmazonDynamoDB.class));
+
+    @Test
+    void writes_retaggedExpense_movesItemsAndTotals() {
+        //GIVEN
+        ExpenseItem before = expense(1000, "food", "work");
+        ExpenseItem after = expense(1200, "food", "travel");
+
+        //WHEN
+        List<TransactWriteItem> writes = tags.writes(before, after);
+
+        //THEN
+        Map<String, TransactWriteItem> puts = new HashMap<>();
+        Map<String, TransactWriteItem> deletes = new HashMap<>();
+        Map<String, TransactWriteItem> totals = new HashMap<>();
+        for (TransactWriteItem write : writes) {
+            if (write.getPut() != null) {
+                puts.put(write.getPut().getItem().get("TagKey").getS(), write);
+            } else if (write.getDelete() != null) {
+                deletes.put(write.getDelete().getKey().get("TagKey").getS(), write);
+            } else {
+                totals.put(write.getUpdate().getKey().get("ExpenseKey").getS(), write);
+            }
+        }
+        assertEquals(2, puts.size());
+        assertEquals("12.00", puts.get("TAG#a@b.com#travel").getPut().getItem().get("Amount").getN());
+        assertEquals("2021-01-02T00:00:00Z#id",
+                puts.get("TAG#a@b.com#food").getPut().getItem().get("ExpenseKey").getS());
+        assertEquals(1, deletes.size());
+        assertNotNull(deletes.get("TAG#a@b.com#work"));
+        assertEquals(3, totals.size());
+        assertEquals("0", count(totals.get("food")));
+        assertEquals("2.00", amount(totals.get("food")));
+        assertEquals("1", count(totals.get("travel")));
+        assertEquals("-1", count(totals.get("work")));
+        assertEquals("-10.00", amount(totals.get("work")));
+    }
+
+    @Test
+    void writes_deletedExpense_removesEveryTag() {
+        //WHEN
+        List<TransactWriteItem> writes = tags.writes(expense(500, "food"), null);
+
+        //THEN
+        assertEquals(2, writes.size());
+        assertNotNull(writes.get(0).getDelete());
+        assertTrue(writes.get(1).getUpdate().getKey().get("TagKey").getS().startsWith("TAGS#"));
+        assertEquals("-5.00", amount(writes.get(1)));
+    }
+
+    private static String count(TransactWriteItem write) {
+        return write.getUpdate().getExpressionAttributeValues().get(":count").getN();
+    }
+
+    private static String amount(TransactWriteItem write) {
+        return write.getUpdate().getExpressionAttributeValues().get(":amount").getN();
+    }
+
+    private static ExpenseItem expense(long cents, String... tags) {
+        ExpenseItem expense = new ExpenseItem();
+        expense.setId("id");
+        expense.setEmail("a@b.com");
+        expense.setExpenseDate("2021-01-02T00:00:00Z");
+        expense.setTitle("Lunch");
+        expense.setAmountCents(cents);
+        expense.setTags(new TreeSet<>(Arrays.asList(tags)));
+        return expense;
+    }
+}
@@ -0,0 +1,118 @@
+package ata.unit.three.project.expense.dynamodb;
+
+import com.amazonaws.services.dynamodbv2.AmazonDynamoDB;
+import com.amazonaws.services.dynamodbv2.datamodeling.DynamoDBMapper;
+import com.amazonaws.services.dynamodbv2.datamodeling.DynamoDBMapperConfig;
+import com.amazonaws.services.dynamodbv2.model.AttributeValue;
+import com.amazonaws.services.dynamodbv2.model.ConditionalCheckFailedException;
+import com.amazonaws.services.dynamodbv2.model.TransactWriteItem;
+import com.amazonaws.services.dynamodbv2.model.TransactWriteItemsRequest;
+import com.amazonaws.services.dynamodbv2.model.UpdateItemRequest;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyList;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class ListChunksTest {
+
+    private final AmazonDynamoDB client = mock(AmazonDynamoDB.class);
+    private final DynamoDBMapper mapper = mock(DynamoDBMapper.class);
+    private final ListChunks listChunks = new ListChunks(client, mapper);
+
+    @Test
+    void append_tailChunkFull_splitsOffNewChunk() {
+        //GIVEN
+        givenList(0L);
+        when(client.updateItem(any(UpdateItemRequest.class))).thenThrow(new ConditionalCheckFailedException("full"));
+
+        //WHEN
+        listChunks.append("list", "expense");
+
+        //THEN
+        List<TransactWriteItem> items = transaction();
+        assertEquals(2, items.size());
+        assertEquals("1", items.get(0).getPut().getItem().get("Seq").getN());
+        assertEquals("expense", items.get(0).getPut().getItem().get("ExpenseIds").getL().get(0).getS());
+        assertNotNull(items.get(1).getUpdate());
+    }
+
+    @Test
+    void remove_chunkBecomesSmall_mergesIntoPreviousChunk() {
+        //GIVEN
+        givenList(0L, 1L);
+        givenChunks(chunk(0L, "a", "b"), chunk(1L, "c"));
+
+        //WHEN
+        listChunks.remove("list", "c");
+
+        //THEN
+        ArgumentCaptor<UpdateItemRequest> removal = ArgumentCaptor.forClass(UpdateItemRequest.class);
+        verify(client).updateItem(removal.capture());
+        assertEquals("REMOVE ExpenseIds[0]", removal.getValue().getUpdateExpression());
+        assertEquals("1", removal.getValue().getKey().get("Seq").getN());
+        List<TransactWriteItem> items = transaction();
+        assertEquals(2, items.get(0).getUpdate().getExpressionAttributeValues().get(":merged").getL().size());
+        assertEquals("1", items.get(1).getDelete().getKey().get("Seq").getN());
+        assertEquals("REMOVE Chunks[1]", items.get(2).getUpdate().getUpdateExpression());
+    }
+
+    @Test
+    void loadExpenseIds_chunkedList_concatenatesChunksInListOrder() {
+        //GIVEN
+        ExpenseItemList list = list(1L, 0L);
+        givenChunks(chunk(0L, "c"), chunk(1L, "a", "b"));
+
+        //WHEN
+        ListChunks.loadExpenseIds(mapper, Collections.singletonList(list));
+
+        //THEN
+        assertEquals(Arrays.asList("a", "b", "c"), list.getExpenseIds());
+    }
+
+    private void givenList(Long... chunks) {
+        ExpenseItemList list = list(chunks);
+        when(mapper.load(eq(ExpenseItemList.class), eq("list"), any(DynamoDBMapperConfig.class))).thenReturn(list);
+    }
+
+    private void givenChunks(ExpenseListChunk... chunks) {
+        Map<String, List<Object>> loaded = new HashMap<>();
+        loaded.put("ExpenseListChunk", new ArrayList<>(Arrays.asList((Object[]) chunks)));
+        when(mapper.batchLoad(anyList(), any(DynamoDBMapperConfig.class))).thenReturn(loaded);
+    }
+
+    private List<TransactWriteItem> transaction() {
+        ArgumentCaptor<TransactWriteItemsRequest> request = ArgumentCaptor.forClass(TransactWriteItemsRequest.class);
+        verify(client).transactWriteItems(request.capture());
+        return request.getValue().getTransactItems();
+    }
+
+    private static ExpenseItemList list(Long... chunks) {
+        ExpenseItemList list = new ExpenseItemList();
+        list.setId("list");
+        list.setStorage(ListStorage.CHUNKED.name());
+        list.setChunks(new ArrayList<>(Arrays.asList(chunks)));
+        return list;
+    }
+
+    private static ExpenseListChunk chunk(Long seq, String... ids) {
+        ExpenseListChunk chunk = new ExpenseListChunk();
+        chunk.setListId("list");
+        chunk.setSeq(seq);
+        chunk.setExpenseIds(new ArrayList<>(Arrays.asList(ids)));
+        return chunk;
+    }
+}
@@ -0,0 +1,97 @@
+package ata.unit.three.project.expense.dynamodb;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class ReadHedgerTest {
+
+    private final ExecutorService executor = Executors.newCachedThreadPool();
+
+    @AfterEach
+    void shutdown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    void read_disabled_runsOnceWithoutHedging() {
+        //GIVEN
+        ReadHedger hedger = new ReadHedger(false, 5, executor);
+        AtomicInteger calls = new AtomicInteger();
+
+        //WHEN
+        String result = hedger.read(() -> "value" + calls.incrementAndGet());
+
+        //THEN
+        assertEquals("value1", result);
+        assertEquals(1, hedger.getReadCount());
+        assertEquals(0, hedger.getHedgeCount());
+    }
+
+    @Test
+    void read_slowFirstAttempt_returnsHedgedResult() {
+        //GIVEN
+        ReadHedger hedger = warmedUp(5);
+        long hedges = hedger.getHedgeCount();
+        long wins = hedger.getHedgeWinCount();
+        AtomicInteger calls = new AtomicInteger();
+
+        //WHEN
+        String result = hedger.read(() -> calls.incrementAndGet() == 1 ? sleepThen(2000, "slow") : "fast");
+
+        //THEN
+        assertEquals("fast", result);
+        assertEquals(hedges + 1, hedger.getHedgeCount());
+        assertEquals(wins + 1, hedger.getHedgeWinCount());
+    }
+
+    @Test
+    void read_budgetExhausted_stopsHedging() {
+        //GIVEN
+        ReadHedger hedger = warmedUp(0);
+
+        //WHEN
+        for (int i = 0; i < 12; i++) {
+            hedger.read(() -> sleepThen(20, "slow"));
+        }
+
+        //THEN - the initial budget of ten hedges is never refilled
+        assertEquals(10, hedger.getHedgeCount());
+    }
+
+    @Test
+    void read_failingRead_propagatesException() {
+        //GIVEN
+        ReadHedger hedger = warmedUp(5);
+        Supplier<String> read = () -> {
+            throw new IllegalArgumentException("broken");
+        };
+
+        //WHEN - THEN
+        assertThrows(IllegalArgumentException.class, () -> hedger.read(read));
+    }
+
+    private ReadHedger warmedUp(double budgetPercent) {
+        ReadHedger hedger = new ReadHedger(true, budgetPercent, executor);
+        for (int i = 0; i < 200; i++) {
+            hedger.read(() -> "warm");
+        }
+        return hedger;
+    }
+
+    private static String sleepThen(long millis, String value) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        return value;
+    }
+}
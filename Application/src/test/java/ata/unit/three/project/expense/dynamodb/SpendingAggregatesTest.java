@@ -0,0 +1,104 @@
+package ata.unit.three.project.expense.dynamodb;
+
+import com.amazonaws.services.dynamodbv2.AmazonDynamoDB;
+import com.amazonaws.services.dynamodbv2.model.ConditionalCheckFailedException;
+import com.amazonaws.services.dynamodbv2.model.Update;
+import com.amazonaws.services.dynamodbv2.model.UpdateItemRequest;
+import com.amazonaws.services.dynamodbv2.model.UpdateItemResult;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class SpendingAggregatesTest {
+
+    private final AmazonDynamoDB client = mock(AmazonDynamoDB.class);
+    private final SpendingAggregates aggregates = new SpendingAggregates(client);
+
+    @Test
+    void monthTotals_newExpense_countsAndSetsDatesIfNoneInOneWrite() {
+        //GIVEN
+        ExpenseItem expense = expense("2021-03-04T05:06:07Z", 12.5);
+
+        //WHEN
+        Update update = SpendingAggregates.monthTotals(expense, 1, 1250).getUpdate();
+
+        //THEN
+        assertEquals("SpendingSummary", update.getTableName());
+        assertEquals("2021-03", update.getKey().get("Month").getS());
+        assertEquals("ADD ExpenseCount :count, Total :amount SET FirstExpenseDate = if_not_exists(FirstExpenseDate, " +
+                ":date), LastExpenseDate = if_not_exists(LastExpenseDate, :date)", update.getUpdateExpression());
+        assertEquals("12.50", update.getExpressionAttributeValues().get(":amount").getN());
+        assertNull(update.getConditionExpression());
+    }
+
+    @Test
+    void listTotals_removedExpense_subtractsAndStampsExistingList() {
+        //GIVEN
+        ExpenseItem expense = expense("2021-01-01T00:00:00Z", 3.0);
+
+        //WHEN
+        Update update = SpendingAggregates.listTotals("list", expense, -1, -300, 7L).getUpdate();
+
+        //THEN
+        assertEquals("ADD ExpenseCount :count, Total :amount SET ChangeSeq = :seq", update.getUpdateExpression());
+        assertEquals("attribute_exists(Id)", update.getConditionExpression());
+        assertEquals("-3.00", update.getExpressionAttributeValues().get(":amount").getN());
+        assertNull(update.getExpressionAttributeValues().get(":date"));
+    }
+
+    @Test
+    void moveListDates_olderExpense_movesFirstDate() {
+        //GIVEN
+        ExpenseItem expense = expense("2021-01-01T00:00:00Z", 3.0);
+        when(client.updateItem(any(UpdateItemRequest.class)))
+                .thenThrow(new ConditionalCheckFailedException("older"))
+                .thenReturn(new UpdateItemResult());
+
+        //WHEN
+        aggregates.moveListDates("list", expense, 1);
+
+        //THEN
+        List<UpdateItemRequest> updates = updates(2);
+        assertEquals("SET LastExpenseDate = :date", updates.get(0).getUpdateExpression());
+        assertEquals("SET FirstExpenseDate = :date", updates.get(1).getUpdateExpression());
+        assertEquals("FirstExpenseDate > :date", updates.get(1).getConditionExpression());
+    }
+
+    @Test
+    void moveMonthDates_expenseDeleted_clearsDatesIfNothingCounted() {
+        //GIVEN
+        ExpenseItem expense = expense("2021-01-01T00:00:00Z", 3.0);
+
+        //WHEN
+        aggregates.moveMonthDates(expense, -1);
+
+        //THEN
+        UpdateItemRequest update = updates(1).get(0);
+        assertEquals("REMOVE FirstExpenseDate, LastExpenseDate", update.getUpdateExpression());
+        assertEquals("ExpenseCount = :zero", update.getConditionExpression());
+    }
+
+    private List<UpdateItemRequest> updates(int count) {
+        ArgumentCaptor<UpdateItemRequest> updates = ArgumentCaptor.forClass(UpdateItemRequest.class);
+        verify(client, times(count)).updateItem(updates.capture());
+        return updates.getAllValues();
+    }
+
+    private static ExpenseItem expense(String expenseDate, Double amount) {
+        ExpenseItem expense = new ExpenseItem();
+        expense.setId("expense");
+        expense.setEmail("someone@example.com");
+        expense.setExpenseDate(expenseDate);
+        expense.setAmount(amount);
+        return expense;
+    }
+}
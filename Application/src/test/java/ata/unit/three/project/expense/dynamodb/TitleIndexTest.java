@@ -0,0 +1,105 @@
+package ata.unit.three.project.expense.dynamodb;
+
+import ata.unit.three.project.expense.service.search.TitlePostings;
+
+import com.amazonaws.services.dynamodbv2.AmazonDynamoDB;
+import com.amazonaws.services.dynamodbv2.model.AmazonDynamoDBException;
+import com.amazonaws.services.dynamodbv2.model.AttributeValue;
+import com.amazonaws.services.dynamodbv2.model.DeleteItemRequest;
+import com.amazonaws.services.dynamodbv2.model.PutItemRequest;
+import com.amazonaws.services.dynamodbv2.model.QueryRequest;
+import com.amazonaws.services.dynamodbv2.model.QueryResult;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class TitleIndexTest {
+
+    private final AmazonDynamoDB client = mock(AmazonDynamoDB.class);
+    private final TitleIndex index = new TitleIndex(client, 0, 0, System::nanoTime);
+
+    @Test
+    void postings_postingsAcrossPages_groupsIdsByToken() {
+        //GIVEN
+        Map<String, AttributeValue> lastKey = item("coffee#b");
+        when(client.query(any(QueryRequest.class)))
+                .thenReturn(new QueryResult().withItems(item("coffee#a"), item("coffee#b"))
+                        .withLastEvaluatedKey(lastKey))
+                .thenReturn(new QueryResult().withItems(item("coffee#c"), item("coffeemaker#a")));
+
+        //WHEN
+        TitlePostings postings = index.postings("a@b.com", "coffee");
+
+        //THEN
+        assertArrayEquals(new String[] {"a", "b", "c"}, postings.exact("coffee"));
+        assertArrayEquals(new String[] {"a"}, postings.exact("coffeemaker"));
+    }
+
+    @Test
+    void postings_moreTokensThanTheCap_stopsAtTheCap() {
+        //GIVEN
+        List<Map<String, AttributeValue>> items = new ArrayList<>();
+        for (int i = 0; i <= TitleIndex.MAX_PREFIX_TOKENS; i++) {
+            items.add(item(String.format("t%04d#id", i)));
+        }
+        when(client.query(any(QueryRequest.class))).thenReturn(new QueryResult().withItems(items));
+
+        //WHEN
+        TitlePostings postings = index.postings("a@b.com", "t");
+
+        //THEN
+        assertEquals(TitleIndex.MAX_PREFIX_TOKENS, postings.withPrefix("t").size());
+    }
+
+    @Test
+    void retitle_changedTitle_putsNewPostingsAndDeletesOldOnes() {
+        //GIVEN
+        ExpenseItem expense = expense();
+
+        //WHEN
+        index.retitle(expense, "Coffee beans", "Coffee mugs");
+
+        //THEN
+        ArgumentCaptor<PutItemRequest> put = ArgumentCaptor.forClass(PutItemRequest.class);
+        verify(client).putItem(put.capture());
+        assertEquals("mugs#id", put.getValue().getItem().get("Token").getS());
+        ArgumentCaptor<DeleteItemRequest> delete = ArgumentCaptor.forClass(DeleteItemRequest.class);
+        verify(client).deleteItem(delete.capture());
+        assertEquals("beans#id", delete.getValue().getKey().get("Token").getS());
+    }
+
+    @Test
+    void index_writeFails_throws() {
+        //GIVEN
+        when(client.putItem(any(PutItemRequest.class))).thenThrow(new AmazonDynamoDBException("failed"));
+
+        //WHEN - THEN
+        assertThrows(AmazonDynamoDBException.class, () -> index.index(expense()));
+        verify(client, times(1)).putItem(any(PutItemRequest.class));
+    }
+
+    private static ExpenseItem expense() {
+        ExpenseItem expense = new ExpenseItem();
+        expense.setId("id");
+        expense.setEmail("a@b.com");
+        expense.setTitle("Coffee beans");
+        return expense;
+    }
+
+    private static Map<String, AttributeValue> item(String token) {
+        return Collections.singletonMap("Token", new AttributeValue(token));
+    }
+}
@@ -0,0 +1,74 @@
+package ata.unit.three.project.expense.service;
+
+import com.amazonaws.services.lambda.runtime.Context;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class DeadlineTest {
+
+    @Test
+    void attach_nestedScopes_restoresPreviousDeadlineOnClose() {
+        //GIVEN
+        Deadline outer = Deadline.after(1000);
+        Deadline inner = Deadline.after(500);
+
+        //WHEN
+        Deadline.Scope outerScope = Deadline.attach(outer);
+        Deadline.Scope innerScope = Deadline.attach(inner);
+        Deadline duringInner = Deadline.current();
+        innerScope.close();
+        Deadline afterInner = Deadline.current();
+        outerScope.close();
+
+        //THEN
+        assertSame(inner, duringInner);
+        assertSame(outer, afterInner);
+        assertNull(Deadline.current());
+    }
+
+    @Test
+    void forInvocation_context_keepsResponseReserveBack() {
+        //GIVEN
+        Context context = mock(Context.class);
+        when(context.getRemainingTimeInMillis()).thenReturn(3000);
+
+        //WHEN
+        Deadline deadline = Deadline.forInvocation(context);
+
+        //THEN
+        long remaining = deadline.remainingMillis();
+        assertTrue(remaining <= 3000 - Deadline.RESPONSE_RESERVE_MILLIS, "remaining " + remaining);
+        assertTrue(remaining > 2000, "remaining " + remaining);
+    }
+
+    @Test
+    void forInvocation_lessTimeThanTheReserve_isExpired() {
+        //GIVEN
+        Context context = mock(Context.class);
+        when(context.getRemainingTimeInMillis()).thenReturn((int) Deadline.RESPONSE_RESERVE_MILLIS - 1);
+
+        //WHEN
+        Deadline deadline = Deadline.forInvocation(context);
+
+        //THEN
+        assertTrue(deadline.isExpired());
+    }
+
+    @Test
+    void forInvocation_noContext_returnsNull() {
+        //WHEN - THEN
+        assertNull(Deadline.forInvocation(null));
+    }
+
+    @Test
+    void isExpired_timeLeft_returnsFalse() {
+        //WHEN - THEN
+        assertFalse(Deadline.after(1000).isExpired());
+    }
+}
@@ -0,0 +1,130 @@
+package ata.unit.three.project.expense.service;
+
+import ata.unit.three.project.expense.service.exceptions.RateLimitedException;
+import org.junit.jupiter.api.Test;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class EmailRateLimiterTest {
+
+    private final AtomicLong now = new AtomicLong();
+
+    @Test
+    void acquire_overBurst_throwsWithRetryAfter() {
+        //GIVEN
+        EmailRateLimiter limiter = new EmailRateLimiter(EmailRateLimiter.parseTiers("default=2:3"),
+                Collections.emptyMap(), null, now::get);
+        for (int i = 0; i < 3; i++) {
+            limiter.acquire("noisy@example.com");
+        }
+
+        //WHEN
+        RateLimitedException exception = assertThrows(RateLimitedException.class,
+            () -> limiter.acquire("noisy@example.com"));
+
+        //THEN
+        assertEquals(1, exception.getRetryAfterSeconds());
+        limiter.acquire("quiet@example.com");
+    }
+
+    @Test
+    void acquire_afterRefill_allowsAgain() {
+        //GIVEN
+        EmailRateLimiter limiter = new EmailRateLimiter(EmailRateLimiter.parseTiers("default=2:1"),
+                Collections.emptyMap(), null, now::get);
+        limiter.acquire("user@example.com");
+
+        //WHEN
+        now.addAndGet(TimeUnit.MILLISECONDS.toNanos(500));
+
+        //THEN
+        limiter.acquire("user@example.com");
+    }
+
+    @Test
+    void acquire_assignedTier_usesTierLimits() {
+        //GIVEN
+        EmailRateLimiter limiter = new EmailRateLimiter(
+                EmailRateLimiter.parseTiers("default=1:1,bulk=100:100,internal=unlimited"),
+                EmailRateLimiter.parseAssignments("importer@example.com=bulk,ops@example.com=internal"),
+                null, now::get);
+
+        //WHEN - THEN
+        for (int i = 0; i < 100; i++) {
+            limiter.acquire("importer@example.com");
+        }
+        for (int i = 0; i < 1000; i++) {
+            limiter.acquire("ops@example.com");
+        }
+        assertThrows(RateLimitedException.class, () -> limiter.acquire("importer@example.com"));
+    }
+
+    @Test
+    void acquire_sharedCounterFull_throws() {
+        //GIVEN
+        EmailRateLimiter limiter = new EmailRateLimiter(EmailRateLimiter.parseTiers("default=10:10"),
+                Collections.emptyMap(), (email, windowStart, windowSeconds, limit) -> false, now::get);
+
+        //WHEN - THEN
+        RateLimitedException exception = assertThrows(RateLimitedException.class,
+            () -> limiter.acquire("user@example.com"));
+        assertTrue(exception.getRetryAfterSeconds() <= EmailRateLimiter.SHARED_WINDOW_SECONDS);
+    }
+
+    @Test
+    void getTopOffenders_ordersByRejections() {
+        //GIVEN
+        EmailRateLimiter limiter = new EmailRateLimiter(EmailRateLimiter.parseTiers("default=1:1"),
+                Collections.emptyMap(), null, now::get);
+
+        //WHEN
+        for (int i = 0; i < 4; i++) {
+            rejectQuietly(limiter, "worst@example.com");
+        }
+        for (int i = 0; i < 2; i++) {
+            rejectQuietly(limiter, "bad@example.com");
+        }
+
+        //THEN
+        Map.Entry<String, Long> top = limiter.getTopOffenders(1).get(0);
+        assertEquals("worst@example.com", top.getKey());
+        assertEquals(3L, top.getValue());
+        assertEquals(4, limiter.getRejectedCount());
+    }
+
+    @Test
+    void acquire_overTrackedEmails_sweepsIdleBucketsOncePerInterval() {
+        //GIVEN
+        EmailRateLimiter limiter = new EmailRateLimiter(EmailRateLimiter.parseTiers("default=10:1"),
+                Collections.emptyMap(), null, now::get);
+        for (int i = 0; i <= EmailRateLimiter.MAX_TRACKED_EMAILS; i++) {
+            limiter.acquire("user" + i + "@example.com");
+        }
+        now.addAndGet(TimeUnit.MILLISECONDS.toNanos(200));
+
+        //WHEN
+        limiter.acquire("early@example.com");
+        int beforeInterval = limiter.getTrackedEmailCount();
+        now.addAndGet(TimeUnit.MILLISECONDS.toNanos(EmailRateLimiter.EVICTION_INTERVAL_MILLIS));
+        limiter.acquire("late@example.com");
+
+        //THEN
+        assertEquals(EmailRateLimiter.MAX_TRACKED_EMAILS + 2, beforeInterval);
+        assertEquals(1, limiter.getTrackedEmailCount());
+    }
+
+    private static void rejectQuietly(EmailRateLimiter limiter, String email) {
+        try {
+            limiter.acquire(email);
+        } catch (RateLimitedException e) {
+            // expected once the burst is used up
+        }
+    }
+}
@@ -3,15 +3,29 @@ package ata.unit.three.project.expense.service;
 import ata.unit.three.project.expense.dynamodb.ExpenseItem;
 import ata.unit.three.project.expense.dynamodb.ExpenseItemList;
 import ata.unit.three.project.expense.dynamodb.ExpenseServiceRepository;
+import ata.unit.three.project.expense.dynamodb.UserDataset;
 import ata.unit.three.project.expense.lambda.models.Expense;
+import ata.unit.three.project.expense.service.analytics.ExpenseColumns;
+import ata.unit.three.project.expense.service.analytics.SpendingBucket;
 import ata.unit.three.project.expense.service.exceptions.InvalidDataException;
 import ata.unit.three.project.expense.service.exceptions.ItemNotFoundException;
+import ata.unit.three.project.expense.service.exceptions.RateLimitedException;
+import ata.unit.three.project.expense.service.exceptions.ValidationException;
 import ata.unit.three.project.expense.service.model.ExpenseItemConverter;
+import ata.unit.three.project.expense.service.model.NormalizedExpenseLists;
+import ata.unit.three.project.expense.service.search.ExpenseSearchResult;
+import ata.unit.three.project.expense.service.search.TitlePostings;
+import ata.unit.three.project.expense.service.sync.SyncChange;
+import ata.unit.three.project.expense.service.sync.SyncPage;
 import net.andreinc.mockneat.MockNeat;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.Test;
+import org.mockito.InOrder;
 
 import java.time.Instant;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.time.ZoneOffset;
 import java.util.*;
 
 import static java.util.UUID.randomUUID;
@@ -81,6 +95,23 @@ class ExpenseServiceTest {
         assertEquals(id, returnedExpenseItem, "These should have matched");
     }
 
+    @Test
+    void create_expense_invalid_body_reports_every_field() {
+        //GIVEN
+        ExpenseServiceRepository expenseServiceRepository = mock(ExpenseServiceRepository.class);
+        ExpenseItemConverter expenseItemConverter = mock(ExpenseItemConverter.class);
+        ExpenseService expenseService = new ExpenseService(expenseServiceRepository, expenseItemConverter);
+        Expense expense = new Expense("not an email", " ", -1.0);
+
+        //WHEN
+        ValidationException exception = assertThrows(ValidationException.class,
+                () -> expenseService.createExpense(expense));
+
+        //THEN
+        assertEquals(Arrays.asList("email", "title", "amount"), new ArrayList<>(exception.getErrors().keySet()));
+        verifyZeroInteractions(expenseItemConverter, expenseServiceRepository);
+    }
+
     // Write additional tests here
 
     /** ------------------------------------------------------------------------
@@ -134,6 +165,169 @@ class ExpenseServiceTest {
 
     }
 
+    @Test
+    void get_spending_summary_bad_month() {
+        //GIVEN
+        ExpenseServiceRepository expenseServiceRepository = mock(ExpenseServiceRepository.class);
+        ExpenseItemConverter expenseItemConverter = mock(ExpenseItemConverter.class);
+        ExpenseService expenseService = new ExpenseService(expenseServiceRepository, expenseItemConverter);
+        String email = mockNeat.emails().val();
+
+        //THEN
+        assertThrows(InvalidDataException.class, () -> expenseService.getSpendingSummary(email, "2021-13"),
+                "Expected to throw invalid data exception - no exception thrown");
+        verify(expenseServiceRepository, never()).getSpendingSummaries(anyString(), anyString());
+    }
+
+    @Test
+    void get_spending_by_period_totals_recent_months() {
+        //GIVEN
+        ExpenseServiceRepository expenseServiceRepository = mock(ExpenseServiceRepository.class);
+        ExpenseItemConverter expenseItemConverter = mock(ExpenseItemConverter.class);
+        ExpenseService expenseService = new ExpenseService(expenseServiceRepository, expenseItemConverter);
+        String email = mockNeat.emails().val();
+        ExpenseColumns.Builder columns = ExpenseColumns.builder();
+        String now = Instant.now().toString();
+        for (String date : Arrays.asList(now, now, "2001-01-01T00:00:00Z")) {
+            ExpenseItem expense = new ExpenseItem();
+            expense.setId(UUID.randomUUID().toString());
+            expense.setExpenseDate(date);
+            expense.setAmount(2.5);
+            columns.add(expense);
+        }
+        when(expenseServiceRepository.getExpenseColumns(eq(email), anyString())).thenReturn(columns.build());
+
+        //WHEN
+        List<SpendingBucket> buckets = expenseService.getSpendingByPeriod(email, null, "1");
+
+        //THEN
+        assertEquals(1, buckets.size());
+        assertEquals(YearMonth.now(ZoneOffset.UTC).toString(), buckets.get(0).getPeriod());
+        assertEquals(500L, buckets.get(0).getTotalCents());
+        assertEquals(2, buckets.get(0).getExpenseCount());
+        assertThrows(InvalidDataException.class, () -> expenseService.getSpendingByPeriod(email, "year", null));
+        assertThrows(InvalidDataException.class, () -> expenseService.getSpendingByPeriod(email, null, "11"));
+    }
+
+    @Test
+    void get_largest_expenses_defaults_to_twenty() {
+        //GIVEN
+        ExpenseServiceRepository expenseServiceRepository = mock(ExpenseServiceRepository.class);
+        ExpenseItemConverter expenseItemConverter = mock(ExpenseItemConverter.class);
+        ExpenseService expenseService = new ExpenseService(expenseServiceRepository, expenseItemConverter);
+        String email = mockNeat.emails().val();
+
+        //WHEN
+        expenseService.getLargestExpenses(email, null);
+
+        //THEN
+        verify(expenseServiceRepository).getLargestExpenses(email, 20);
+        assertThrows(InvalidDataException.class, () -> expenseService.getLargestExpenses(email, "101"));
+    }
+
+    @Test
+    void get_expenses_by_amount_parses_decimal_bounds() {
+        //GIVEN
+        ExpenseServiceRepository expenseServiceRepository = mock(ExpenseServiceRepository.class);
+        ExpenseItemConverter expenseItemConverter = mock(ExpenseItemConverter.class);
+        ExpenseService expenseService = new ExpenseService(expenseServiceRepository, expenseItemConverter);
+        String email = mockNeat.emails().val();
+
+        //WHEN
+        expenseService.getExpensesByAmount(email, "500", "5000.5");
+
+        //THEN
+        verify(expenseServiceRepository).getExpensesByAmount(email, 50_000L, 500_050L);
+        assertThrows(InvalidDataException.class, () -> expenseService.getExpensesByAmount(email, "10", "5"));
+        assertThrows(InvalidDataException.class, () -> expenseService.getExpensesByAmount(email, "-1", null));
+    }
+
+    @Test
+    void search_expenses_ranks_exact_words_first() {
+        //GIVEN
+        ExpenseServiceRepository expenseServiceRepository = mock(ExpenseServiceRepository.class);
+        ExpenseItemConverter expenseItemConverter = mock(ExpenseItemConverter.class);
+        ExpenseService expenseService = new ExpenseService(expenseServiceRepository, expenseItemConverter);
+        String email = mockNeat.emails().val();
+        Map<String, List<String>> coffee = new HashMap<>();
+        coffee.put("coffee", Arrays.asList("a", "b"));
+        Map<String, List<String>> sh = new HashMap<>();
+        sh.put("shop", Collections.singletonList("b"));
+        sh.put("shake", Collections.singletonList("c"));
+        when(expenseServiceRepository.getTitlePostings(email, "coffee")).thenReturn(new TitlePostings(coffee));
+        when(expenseServiceRepository.getTitlePostings(email, "sh")).thenReturn(new TitlePostings(sh));
+        List<ExpenseItem> found = new ArrayList<>();
+        for (String id : Arrays.asList("b", "a")) {
+            ExpenseItem expense = new ExpenseItem();
+            expense.setId(id);
+            expense.setEmail(email);
+            found.add(expense);
+        }
+        when(expenseServiceRepository.getExpensesByIds(Arrays.asList("b", "a"))).thenReturn(found);
+
+        //WHEN
+        ExpenseSearchResult result = expenseService.searchExpenses(email, "Coffee sh", "2", null);
+
+        //THEN
+        assertEquals(3, result.getMatches());
+        assertEquals("b", result.getExpenses().get(0).getId());
+        assertEquals("a", result.getExpenses().get(1).getId());
+        assertEquals("2", result.getNextPage());
+        assertThrows(InvalidDataException.class, () -> expenseService.searchExpenses(email, "--", null, null));
+        assertThrows(InvalidDataException.class, () -> expenseService.searchExpenses(email, "a", "0", null));
+    }
+
+    @Test
+    void get_expenses_by_tag_reads_one_day_range() {
+        //GIVEN
+        ExpenseServiceRepository expenseServiceRepository = mock(ExpenseServiceRepository.class);
+        ExpenseItemConverter expenseItemConverter = mock(ExpenseItemConverter.class);
+        ExpenseService expenseService = new ExpenseService(expenseServiceRepository, expenseItemConverter);
+        String email = mockNeat.emails().val();
+
+        //WHEN
+        expenseService.getExpensesByTag(email, "Food", "2021-01-01", "2021-01-31", null, null);
+
+        //THEN
+        verify(expenseServiceRepository).getExpensesByTag(email, "food", LocalDate.of(2021, 1, 1),
+                LocalDate.of(2021, 1, 31), 20, null);
+        assertThrows(InvalidDataException.class, () ->
+                expenseService.getExpensesByTag(email, "food#1", null, null, null, null));
+        assertThrows(InvalidDataException.class, () ->
+                expenseService.getTagTotals(email, "2021-02-01", "2021-01-01"));
+    }
+
+    @Test
+    void sync_returns_current_expenses_and_tombstones() {
+        //GIVEN
+        ExpenseServiceRepository expenseServiceRepository = mock(ExpenseServiceRepository.class);
+        ExpenseItemConverter expenseItemConverter = mock(ExpenseItemConverter.class);
+        ExpenseService expenseService = new ExpenseService(expenseServiceRepository, expenseItemConverter);
+        String email = mockNeat.emails().val();
+        ExpenseItem kept = new ExpenseItem();
+        kept.setId("kept");
+        List<SyncChange> changes = Arrays.asList(
+                new SyncChange(4, SyncChange.Type.EXPENSE, "kept", null, false),
+                new SyncChange(5, SyncChange.Type.EXPENSE, "gone", null, false),
+                new SyncChange(6, SyncChange.Type.LIST_ITEM, "kept", "list", true));
+        when(expenseServiceRepository.getLastChange(email)).thenReturn(6L);
+        when(expenseServiceRepository.getChanges(email, 3, 100)).thenReturn(new SyncPage(changes, "6", false, false));
+        when(expenseServiceRepository.getExpensesByIds(Arrays.asList("kept", "gone")))
+                .thenReturn(Collections.singletonList(kept));
+
+        //WHEN
+        SyncPage page = expenseService.sync(email, "3", null);
+        SyncPage first = expenseService.sync(email, null, null);
+
+        //THEN
+        assertEquals(kept, page.getChanges().get(0).getExpense());
+        Assertions.assertTrue(page.getChanges().get(1).isDeleted());
+        Assertions.assertTrue(page.getChanges().get(2).isDeleted());
+        Assertions.assertTrue(first.isReset());
+        assertEquals("6", first.getToken());
+        assertThrows(InvalidDataException.class, () -> expenseService.sync(email, "-1", null));
+    }
+
     // Write additional tests here
 
     /** ------------------------------------------------------------------------
@@ -164,7 +358,7 @@ class ExpenseServiceTest {
 
         expenseService.updateExpense(id, expense);
 
-        verify(expenseServiceRepository).updateExpense(id, testTitle, amount);
+        verify(expenseServiceRepository).updateExpense(id, testTitle, 0L, null);
 
     }
 
@@ -229,6 +423,33 @@ class ExpenseServiceTest {
 
     }
 
+    @Test
+    void delete_expense_removes_it_from_lists_first() {
+        //GIVEN
+        ExpenseServiceRepository expenseServiceRepository = mock(ExpenseServiceRepository.class);
+        ExpenseItemConverter expenseItemConverter = mock(ExpenseItemConverter.class);
+        ExpenseService expenseService = new ExpenseService(expenseServiceRepository, expenseItemConverter);
+
+        ExpenseItem expenseItem = new ExpenseItem();
+        String id = UUID.randomUUID().toString();
+        expenseItem.setId(id);
+        expenseItem.setEmail(mockNeat.emails().val());
+        String firstListId = UUID.randomUUID().toString();
+        String secondListId = UUID.randomUUID().toString();
+        when(expenseServiceRepository.getExpenseById(id)).thenReturn(expenseItem);
+        when(expenseServiceRepository.getListIdsContaining(expenseItem))
+                .thenReturn(Arrays.asList(firstListId, secondListId));
+
+        //WHEN
+        expenseService.deleteExpense(id);
+
+        //THEN
+        InOrder inOrder = inOrder(expenseServiceRepository);
+        inOrder.verify(expenseServiceRepository).removeExpenseItemToList(firstListId, expenseItem);
+        inOrder.verify(expenseServiceRepository).removeExpenseItemToList(secondListId, expenseItem);
+        inOrder.verify(expenseServiceRepository).deleteExpense(id);
+    }
+
     @Test
     void delete_expense_unhappy_case() {
         //GIVEN
@@ -410,7 +631,7 @@ class ExpenseServiceTest {
 //        List<ExpenseItemList> list = Collections.singletonList(expenseItemList);
 
         when(expenseServiceRepository.getExpenseById(expenseId)).thenReturn(expenseItem);
-        when(expenseServiceRepository.getExpenseListById(id)).thenReturn(expenseItemList);
+        when(expenseServiceRepository.getExpenseListHeader(id)).thenReturn(expenseItemList);
 
         //THEN
         expenseService.addExpenseItemToList(id, expenseId);
@@ -444,7 +665,7 @@ class ExpenseServiceTest {
 //        List<ExpenseItemList> list = Collections.singletonList(expenseItemList);
 
         when(expenseServiceRepository.getExpenseById(expenseId)).thenReturn(expenseItem);
-        when(expenseServiceRepository.getExpenseListById(id)).thenReturn(expenseItemList);
+        when(expenseServiceRepository.getExpenseListHeader(id)).thenReturn(expenseItemList);
 
         //THEN
 //        expenseService.addExpenseItemToList(id, expenseId);
@@ -481,7 +702,7 @@ class ExpenseServiceTest {
 //        List<ExpenseItemList> list = Collections.singletonList(expenseItemList);
 
         when(expenseServiceRepository.getExpenseById(expenseId)).thenReturn(expenseItem);
-        when(expenseServiceRepository.getExpenseListById(id)).thenReturn(expenseItemList);
+        when(expenseServiceRepository.getExpenseListHeader(id)).thenReturn(expenseItemList);
 
         //THEN
 //        expenseService.addExpenseItemToList(id, expenseId);
@@ -518,7 +739,7 @@ class ExpenseServiceTest {
 //        List<ExpenseItemList> list = Collections.singletonList(expenseItemList);
 
         when(expenseServiceRepository.getExpenseById(expenseId)).thenReturn(expenseItem);
-        when(expenseServiceRepository.getExpenseListById(id)).thenReturn(expenseItemList);
+        when(expenseServiceRepository.getExpenseListHeader(id)).thenReturn(expenseItemList);
 
         //THEN
 //        expenseService.addExpenseItemToList(id, expenseId);
@@ -555,7 +776,7 @@ class ExpenseServiceTest {
 //        List<ExpenseItemList> list = Collections.singletonList(expenseItemList);
 
         when(expenseServiceRepository.getExpenseById(expenseId)).thenReturn(expenseItem);
-        when(expenseServiceRepository.getExpenseListById(id)).thenReturn(expenseItemList);
+        when(expenseServiceRepository.getExpenseListHeader(id)).thenReturn(expenseItemList);
 
         //THEN
 //        expenseService.addExpenseItemToList(id, expenseId);
@@ -593,7 +814,7 @@ class ExpenseServiceTest {
 //        List<ExpenseItemList> list = Collections.singletonList(expenseItemList);
 
         when(expenseServiceRepository.getExpenseById(expenseId)).thenReturn(expenseItem);
-        when(expenseServiceRepository.getExpenseListById(id)).thenReturn(expenseItemList);
+        when(expenseServiceRepository.getExpenseListHeader(id)).thenReturn(expenseItemList);
 
         //THEN
 //        expenseService.addExpenseItemToList(id, expenseId);
@@ -631,7 +852,8 @@ class ExpenseServiceTest {
         List<ExpenseItemList> list = Collections.singletonList(expenseItemList);
 
         when(expenseServiceRepository.getExpenseById(expenseId)).thenReturn(expenseItem);
-        when(expenseServiceRepository.getExpenseListById(id)).thenReturn(expenseItemList);
+        when(expenseServiceRepository.getExpenseListHeader(id)).thenReturn(expenseItemList);
+        when(expenseServiceRepository.isExpenseInList(expenseItemList, expenseId)).thenReturn(true);
 
         //THEN
 //        expenseService.removeExpenseItemToList(id, expenseId);
@@ -668,7 +890,7 @@ class ExpenseServiceTest {
 //        List<ExpenseItemList> list = Collections.singletonList(expenseItemList);
 
         when(expenseServiceRepository.getExpenseById(expenseId)).thenReturn(expenseItem);
-        when(expenseServiceRepository.getExpenseListById(id)).thenReturn(expenseItemList);
+        when(expenseServiceRepository.getExpenseListHeader(id)).thenReturn(expenseItemList);
 
         //THEN
 //        expenseService.addExpenseItemToList(id, expenseId);
@@ -710,7 +932,8 @@ class ExpenseServiceTest {
         List<ExpenseItemList> list = Collections.singletonList(expenseItemList);
 
         when(expenseServiceRepository.getExpenseById(expenseId)).thenReturn(expenseItem);
-        when(expenseServiceRepository.getExpenseListById(id)).thenReturn(expenseItemList);
+        when(expenseServiceRepository.getExpenseListHeader(id)).thenReturn(expenseItemList);
+        when(expenseServiceRepository.isExpenseInList(expenseItemList, expenseId)).thenReturn(true);
 
         //THEN
         expenseService.removeExpenseItemToList(id, expenseId);
@@ -745,7 +968,8 @@ class ExpenseServiceTest {
         List<ExpenseItemList> list = Collections.singletonList(expenseItemList);
 
         when(expenseServiceRepository.getExpenseById(expenseId)).thenReturn(expenseItem);
-        when(expenseServiceRepository.getExpenseListById(id)).thenReturn(expenseItemList);
+        when(expenseServiceRepository.getExpenseListHeader(id)).thenReturn(expenseItemList);
+        when(expenseServiceRepository.isExpenseInList(expenseItemList, expenseId)).thenReturn(true);
 
         //THEN
 //        expenseService.removeExpenseItemToList(id, expenseId);
@@ -782,7 +1006,8 @@ class ExpenseServiceTest {
         List<ExpenseItemList> list = Collections.singletonList(expenseItemList);
 
         when(expenseServiceRepository.getExpenseById(expenseId)).thenReturn(expenseItem);
-        when(expenseServiceRepository.getExpenseListById(id)).thenReturn(expenseItemList);
+        when(expenseServiceRepository.getExpenseListHeader(id)).thenReturn(expenseItemList);
+        when(expenseServiceRepository.isExpenseInList(expenseItemList, expenseId)).thenReturn(true);
 
         //THEN
 //        expenseService.removeExpenseItemToList(id, expenseId);
@@ -819,7 +1044,8 @@ class ExpenseServiceTest {
         List<ExpenseItemList> list = Collections.singletonList(expenseItemList);
 
         when(expenseServiceRepository.getExpenseById(expenseId)).thenReturn(expenseItem);
-        when(expenseServiceRepository.getExpenseListById(id)).thenReturn(expenseItemList);
+        when(expenseServiceRepository.getExpenseListHeader(id)).thenReturn(expenseItemList);
+        when(expenseServiceRepository.isExpenseInList(expenseItemList, expenseId)).thenReturn(true);
 
         //THEN
 //        expenseService.removeExpenseItemToList(id, expenseId);
@@ -856,7 +1082,7 @@ class ExpenseServiceTest {
 //        List<ExpenseItemList> list = Collections.singletonList(expenseItemList);
 
         when(expenseServiceRepository.getExpenseById(expenseId)).thenReturn(expenseItem);
-        when(expenseServiceRepository.getExpenseListById(id)).thenReturn(expenseItemList);
+        when(expenseServiceRepository.getExpenseListHeader(id)).thenReturn(expenseItemList);
 
         //THEN
 //        expenseService.removeExpenseItemToList(id, expenseId);
@@ -894,7 +1120,8 @@ class ExpenseServiceTest {
         List<ExpenseItemList> list = Collections.singletonList(expenseItemList);
 
         when(expenseServiceRepository.getExpenseById(expenseId)).thenReturn(expenseItem);
-        when(expenseServiceRepository.getExpenseListById(id)).thenReturn(expenseItemList);
+        when(expenseServiceRepository.getExpenseListHeader(id)).thenReturn(expenseItemList);
+        when(expenseServiceRepository.isExpenseInList(expenseItemList, expenseId)).thenReturn(true);
 
         //THEN
 //        expenseService.removeExpenseItemToList(id, expenseId);
@@ -932,7 +1159,7 @@ class ExpenseServiceTest {
         List<ExpenseItemList> list = Collections.singletonList(expenseItemList);
 
         when(expenseServiceRepository.getExpenseById(expenseId)).thenReturn(expenseItem);
-        when(expenseServiceRepository.getExpenseListById(id)).thenReturn(expenseItemList);
+        when(expenseServiceRepository.getExpenseListHeader(id)).thenReturn(expenseItemList);
 
         //THEN
 //        expenseService.removeExpenseItemToList(id, expenseId);
@@ -969,7 +1196,8 @@ class ExpenseServiceTest {
         List<ExpenseItemList> list = Collections.singletonList(expenseItemList);
 
         when(expenseServiceRepository.getExpenseById(expenseId)).thenReturn(expenseItem);
-        when(expenseServiceRepository.getExpenseListById(id)).thenReturn(expenseItemList);
+        when(expenseServiceRepository.getExpenseListHeader(id)).thenReturn(expenseItemList);
+        when(expenseServiceRepository.isExpenseInList(expenseItemList, expenseId)).thenReturn(true);
 
         //THEN
 //        expenseService.removeExpenseItemToList(id, expenseId);
@@ -1063,7 +1291,6 @@ class ExpenseServiceTest {
         String title = mockNeat.strings().val();
         expenseItem.setTitle(title);
         Double amount = new Double(0.0);
-        String expenseListId = "c5156c9f-4306-45b6-9b39-2eeb180a702a";
 
 
         Expense expense = new Expense(email, title, amount);
@@ -1071,10 +1298,99 @@ class ExpenseServiceTest {
         //WHEN
 //        when(expenseServiceRepository.createExpenseList()).thenReturn(expenseListId, email, testTitle);
 
-        expenseService.createExpenseList(email, title);
+        String expenseListId = expenseService.createExpenseList(email, title);
 
         //THEN
         verify(expenseServiceRepository).createExpenseList(expenseListId, email, title);
+        Assertions.assertNotEquals(expenseListId, expenseService.createExpenseList(email, title),
+                "Every list should get its own id");
     }
 
-}
\ No newline at end of file
+    @Test
+    void create_expense_rate_limited() {
+        //GIVEN
+        ExpenseServiceRepository expenseServiceRepository = mock(ExpenseServiceRepository.class);
+        ExpenseItemConverter expenseItemConverter = mock(ExpenseItemConverter.class);
+        EmailRateLimiter emailRateLimiter = new EmailRateLimiter(EmailRateLimiter.parseTiers("default=1:1"),
+                Collections.emptyMap(), null);
+        ExpenseService expenseService = new ExpenseService(expenseServiceRepository, expenseItemConverter,
+                emailRateLimiter);
+
+        String email = mockNeat.emails().val();
+        ExpenseItem expenseItem = new ExpenseItem();
+        expenseItem.setId(UUID.randomUUID().toString());
+        expenseItem.setEmail(email);
+        Expense expense = new Expense(email, mockNeat.strings().val(), 1.0);
+        when(expenseItemConverter.convert(expense)).thenReturn(expenseItem);
+        expenseService.createExpense(expense);
+
+        //WHEN - THEN
+        assertThrows(RateLimitedException.class, () -> expenseService.createExpense(expense));
+        verify(expenseServiceRepository, times(1)).createExpense(expenseItem);
+    }
+
+    @Test
+    void get_expense_list_by_email_single_table() {
+        //GIVEN
+        ExpenseServiceRepository expenseServiceRepository = mock(ExpenseServiceRepository.class);
+        ExpenseItemConverter expenseItemConverter = mock(ExpenseItemConverter.class);
+        ExpenseService expenseService = new ExpenseService(expenseServiceRepository, expenseItemConverter);
+
+        String email = mockNeat.emails().val();
+        ExpenseItem older = new ExpenseItem();
+        older.setId(UUID.randomUUID().toString());
+        older.setEmail(email);
+        older.setExpenseDate("2021-01-01T00:00:00Z");
+        ExpenseItem newer = new ExpenseItem();
+        newer.setId(UUID.randomUUID().toString());
+        newer.setEmail(email);
+        newer.setExpenseDate("2021-02-01T00:00:00Z");
+        ExpenseItemList list = new ExpenseItemList();
+        list.setId(UUID.randomUUID().toString());
+        list.setEmail(email);
+        String deletedExpenseId = UUID.randomUUID().toString();
+        UserDataset dataset = new UserDataset(Arrays.asList(newer, older), Collections.singletonList(list),
+                Collections.singletonMap(list.getId(), Arrays.asList(older.getId(), deletedExpenseId, newer.getId())));
+
+        //WHEN
+        when(expenseServiceRepository.readsSingleTable()).thenReturn(true);
+        when(expenseServiceRepository.getUserDataset(email)).thenReturn(dataset);
+        List<ExpenseItemList> lists = expenseService.getExpenseListByEmail(email);
+
+        //THEN
+        assertEquals(1, lists.size());
+        assertEquals(Arrays.asList(newer, older), lists.get(0).getExpenseItems());
+        verify(expenseServiceRepository, never()).getExpenseListsByEmail(email);
+    }
+
+    @Test
+    void get_normalized_expense_lists_sends_shared_expense_once() {
+        //GIVEN
+        ExpenseServiceRepository expenseServiceRepository = mock(ExpenseServiceRepository.class);
+        ExpenseItemConverter expenseItemConverter = mock(ExpenseItemConverter.class);
+        ExpenseService expenseService = new ExpenseService(expenseServiceRepository, expenseItemConverter);
+
+        String email = mockNeat.emails().val();
+        ExpenseItem shared = new ExpenseItem();
+        shared.setId(UUID.randomUUID().toString());
+        shared.setExpenseDate("2021-01-01T00:00:00Z");
+        ExpenseItem own = new ExpenseItem();
+        own.setId(UUID.randomUUID().toString());
+        own.setExpenseDate("2021-02-01T00:00:00Z");
+        ExpenseItemList first = new ExpenseItemList();
+        first.setId(UUID.randomUUID().toString());
+        first.setExpenseItems(new ArrayList<>(Arrays.asList(shared, own)));
+        ExpenseItemList second = new ExpenseItemList();
+        second.setId(UUID.randomUUID().toString());
+        second.setExpenseItems(new ArrayList<>(Collections.singletonList(shared)));
+
+        //WHEN
+        when(expenseServiceRepository.getExpenseListsByEmail(email)).thenReturn(Arrays.asList(first, second));
+        NormalizedExpenseLists lists = expenseService.getNormalizedExpenseLists(email);
+
+        //THEN
+        assertEquals(Arrays.asList(own.getId(), shared.getId()), new ArrayList<>(lists.getExpenses().keySet()));
+        assertEquals(Arrays.asList(own.getId(), shared.getId()), lists.getLists().get(0).getExpenseIds());
+        assertEquals(Collections.singletonList(shared.getId()), lists.getLists().get(1).getExpenseIds());
+    }
+}
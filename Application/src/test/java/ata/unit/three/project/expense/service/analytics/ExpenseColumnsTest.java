@@ -0,0 +1,85 @@
+package ata.unit.three.project.expense.service.analytics;
+
+import ata.unit.three.project.expense.dynamodb.ExpenseItem;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class ExpenseColumnsTest {
+
+    @Test
+    void monthOfEpochDay_matchesCalendar() {
+        for (long day = LocalDate.of(1899, 12, 1).toEpochDay(); day < LocalDate.of(2101, 3, 1).toEpochDay(); day++) {
+            YearMonth month = YearMonth.from(LocalDate.ofEpochDay(day));
+            assertEquals(month.getYear() * 12L + month.getMonthValue() - 1, Granularity.monthOfEpochDay(day));
+        }
+        assertEquals("2021-03-01", Granularity.WEEK.label(Granularity.WEEK.periodOf(
+                Instant.parse("2021-03-07T23:59:59Z").toEpochMilli())));
+    }
+
+    @Test
+    void sumBy_largeHistory_sameTotalsInParallel() {
+        //GIVEN
+        ExpenseColumns.Builder builder = ExpenseColumns.builder();
+        int count = ExpenseColumns.PARALLEL_THRESHOLD * 4 + 1;
+        for (int i = 0; i < count; i++) {
+            builder.add(expense(i, Instant.parse("2020-01-01T00:00:00Z").plusSeconds(i * 1_000L).toString(), i % 7,
+                    "title " + i % 3));
+        }
+        ExpenseColumns columns = builder.build();
+
+        //WHEN
+        List<SpendingBucket> buckets = columns.sumBy(Granularity.MONTH);
+
+        //THEN
+        long total = 0;
+        long expenses = 0;
+        for (SpendingBucket bucket : buckets) {
+            total += bucket.getTotalCents();
+            expenses += bucket.getExpenseCount();
+        }
+        assertEquals("2020-01", buckets.get(0).getPeriod());
+        assertEquals(count, expenses);
+        assertEquals(columns.summarize().getSum(), total);
+        assertEquals(count / 3 + 1, columns.withTitle("title 0").size());
+    }
+
+    @Test
+    void topN_and_percentile() {
+        //GIVEN
+        ExpenseColumns.Builder builder = ExpenseColumns.builder();
+        long[] amounts = {500, 100, 900, 300, 900, 700};
+        for (int i = 0; i < amounts.length; i++) {
+            builder.add(expense(i, Instant.ofEpochSecond(i).toString(), amounts[i], "t"));
+        }
+        ExpenseColumns columns = builder.build();
+
+        //WHEN
+        int[] top = columns.topN(3);
+
+        //THEN
+        assertArrayEquals(new int[] {4, 2, 5}, top);
+        assertEquals("4", columns.row(top[0]).getId());
+        assertEquals(500, columns.percentile(50));
+        assertEquals(900, columns.percentile(100));
+        assertEquals(100, columns.percentile(0));
+        assertEquals(2, columns.between(Instant.ofEpochSecond(1).toEpochMilli(),
+                Instant.ofEpochSecond(3).toEpochMilli()).size());
+    }
+
+    private static ExpenseItem expense(int id, String date, long cents, String title) {
+        ExpenseItem expense = new ExpenseItem();
+        expense.setId(Integer.toString(id));
+        expense.setExpenseDate(date);
+        expense.setAmountCents(cents);
+        expense.setTitle(title);
+        return expense;
+    }
+}
@@ -0,0 +1,36 @@
+package ata.unit.three.project.expense.service.analytics;
+
+import ata.unit.three.project.expense.dynamodb.ExpenseItem;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class TopExpensesTest {
+
+    @Test
+    void largest_keepsLargestNewestFirst() {
+        //GIVEN
+        List<ExpenseItem> expenses = new ArrayList<>();
+        long[] amounts = {500, 100, 900, 300, 900, 700};
+        for (int i = 0; i < amounts.length; i++) {
+            ExpenseItem expense = new ExpenseItem();
+            expense.setId(Integer.toString(i));
+            expense.setExpenseDate("2021-01-0" + (i + 1) + "T00:00:00Z");
+            expense.setAmountCents(amounts[i]);
+            expenses.add(expense);
+        }
+
+        //WHEN
+        List<ExpenseItem> largest = TopExpenses.largest(expenses, 3);
+
+        //THEN
+        assertEquals(3, largest.size());
+        assertEquals("4", largest.get(0).getId());
+        assertEquals("2", largest.get(1).getId());
+        assertEquals("5", largest.get(2).getId());
+    }
+}
@@ -0,0 +1,47 @@
+package ata.unit.three.project.expense.service.model;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Collections;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ETagsTest {
+
+    @Test
+    void matches_listOfTags_comparesWeakly() {
+        //GIVEN
+        String etag = ETags.of(42L);
+
+        //WHEN + THEN
+        assertEquals("\"42\"", etag);
+        assertTrue(ETags.matches("\"41\", W/\"42\"", etag));
+        assertTrue(ETags.matches("*", etag));
+        assertFalse(ETags.matches("\"4\"", etag));
+        assertFalse(ETags.matches("*", null));
+    }
+
+    @Test
+    void ofBody_sameBody_sameTag() {
+        //WHEN
+        String etag = ETags.ofBody("[{\"id\":\"a\"}]");
+
+        //THEN
+        assertEquals(34, etag.length());
+        assertEquals(etag, ETags.ofBody("[{\"id\":\"a\"}]"));
+        assertNotEquals(etag, ETags.ofBody("[{\"id\":\"b\"}]"));
+        assertTrue(ETags.matches("W/" + etag, etag));
+    }
+
+    @Test
+    void ifNoneMatch_headerInAnyCase_isFound() {
+        //WHEN + THEN
+        assertEquals("\"7\"", ETags.ifNoneMatch(Collections.singletonMap("if-none-match", "\"7\"")));
+        assertNull(ETags.ifNoneMatch(null));
+        assertNull(ETags.of(null));
+    }
+}
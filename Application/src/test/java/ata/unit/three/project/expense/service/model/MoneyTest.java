@@ -0,0 +1,71 @@
+package ata.unit.three.project.expense.service.model;
+
+import ata.unit.three.project.expense.lambda.models.Expense;
+
+import com.google.gson.Gson;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+
+class MoneyTest {
+
+    @Test
+    void toCents_roundsToNearestCentTiesToEven() {
+        assertEquals(1250L, Money.toCents(new BigDecimal("12.5")));
+        assertEquals(2L, Money.toCents(new BigDecimal("0.015")));
+        assertEquals(2L, Money.toCents(new BigDecimal("0.025")));
+        assertEquals(10L, Money.toCents(0.1));
+        assertNull(Money.toCents(Double.NaN));
+    }
+
+    @Test
+    void toCents_hugeOrTinyExponent_answersWithoutRounding() {
+        assertTimeoutPreemptively(Duration.ofMillis(500), () -> {
+            assertThrows(ArithmeticException.class, () -> Money.toCents(new BigDecimal("1e10000000")));
+            assertThrows(ArithmeticException.class, () -> Money.toCents(new BigDecimal("-1e18")));
+            assertEquals(0L, Money.toCents(new BigDecimal("1e-10000000")));
+            assertEquals(0L, Money.toCents(new BigDecimal("0e10000000")));
+            assertNull(new Gson().fromJson("{\"amount\":1e10000000}", Expense.class).getAmountCents());
+        });
+        assertEquals(1_000_000_000_000_000_000L, Money.toCents(new BigDecimal("1e16")));
+    }
+
+    @Test
+    void expenseJson_keepsDecimalAmount() {
+        //GIVEN
+        Gson gson = new Gson();
+
+        //WHEN
+        Expense expense = gson.fromJson("{\"email\":\"a@b.c\",\"title\":\"t\",\"amount\":19.99}", Expense.class);
+        Expense notANumber = gson.fromJson("{\"amount\":\"lots\"}", Expense.class);
+
+        //THEN
+        assertEquals(1999L, expense.getAmountCents());
+        assertEquals("{\"email\":\"a@b.c\",\"title\":\"t\",\"amount\":19.99}", gson.toJson(expense));
+        assertNull(notANumber.getAmountCents());
+    }
+
+    @Test
+    void accumulator_sumsExactly() {
+        //GIVEN
+        AmountAccumulator amounts = new AmountAccumulator();
+
+        //WHEN
+        for (int i = 0; i < 10; i++) {
+            amounts.add(Money.toCents(0.1));
+        }
+        amounts.merge(new AmountAccumulator().add(5));
+
+        //THEN
+        assertEquals(105L, amounts.getSum());
+        assertEquals(11L, amounts.getCount());
+        assertEquals(5L, amounts.getMin());
+        assertEquals(10L, amounts.getMax());
+    }
+}
@@ -0,0 +1,57 @@
+package ata.unit.three.project.expense.service.model;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TimeOrderedIdGeneratorTest {
+
+    @Test
+    void newId_sameMillisecond_idsStillIncrease() {
+        //GIVEN
+        TimeOrderedIdGenerator generator = new TimeOrderedIdGenerator(() -> 1_600_000_000_000L);
+        String previous = generator.newId();
+
+        for (int i = 0; i < 10_000; i++) {
+            //WHEN
+            String id = generator.newId();
+
+            //THEN
+            assertTrue(id.compareTo(previous) > 0, id + " should sort after " + previous);
+            previous = id;
+        }
+    }
+
+    @Test
+    void newId_isVersion7UuidCarryingItsCreationTime() {
+        //GIVEN
+        long millis = 1_600_000_000_123L;
+        TimeOrderedIdGenerator generator = new TimeOrderedIdGenerator(() -> millis);
+
+        //WHEN
+        UUID id = UUID.fromString(generator.newId());
+
+        //THEN
+        assertEquals(7, id.version());
+        assertEquals(2, id.variant());
+        assertEquals(millis, id.getMostSignificantBits() >>> 16);
+    }
+
+    @Test
+    void newId_clockMovesBack_idsStillIncrease() {
+        //GIVEN
+        long[] now = {1_600_000_000_500L};
+        TimeOrderedIdGenerator generator = new TimeOrderedIdGenerator(() -> now[0]);
+        String first = generator.newId();
+        now[0] -= 100;
+
+        //WHEN
+        String second = generator.newId();
+
+        //THEN
+        assertTrue(second.compareTo(first) > 0);
+    }
+}
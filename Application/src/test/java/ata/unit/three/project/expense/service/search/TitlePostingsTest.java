@@ -0,0 +1,45 @@
+package ata.unit.three.project.expense.service.search;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class TitlePostingsTest {
+
+    @Test
+    void of_splitsLowerCasedWords() {
+        //WHEN
+        List<String> tokens = Arrays.asList(TitleTokens.of("Coffee @ Joe's, coffee-2GO").toArray(new String[0]));
+
+        //THEN
+        assertEquals(Arrays.asList("coffee", "joe", "s", "2go"), tokens);
+    }
+
+    @Test
+    void withPrefix_findsEveryTokenStartingWithPrefix() {
+        //GIVEN
+        Map<String, List<String>> idsByToken = new HashMap<>();
+        idsByToken.put("car", Collections.singletonList("1"));
+        idsByToken.put("cart", Arrays.asList("2", "3"));
+        idsByToken.put("cab", Collections.singletonList("4"));
+        idsByToken.put("dog", Collections.singletonList("5"));
+        TitlePostings postings = new TitlePostings(idsByToken);
+
+        //WHEN
+        List<String[]> found = postings.withPrefix("car");
+
+        //THEN
+        assertEquals(2, found.size());
+        assertArrayEquals(new String[] {"1"}, found.get(0));
+        assertArrayEquals(new String[] {"2", "3"}, found.get(1));
+        assertArrayEquals(new String[0], postings.exact("ca"));
+        assertEquals(Arrays.asList("cart", "cab"), postings.complete("ca", 2));
+    }
+}
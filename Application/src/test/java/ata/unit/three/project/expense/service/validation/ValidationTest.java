@@ -0,0 +1,46 @@
+package ata.unit.three.project.expense.service.validation;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ValidationTest {
+
+    @Test
+    void isUuid_acceptsOnlyCanonicalUuids() {
+        assertTrue(Validation.isUuid(UUID.randomUUID().toString()));
+        assertTrue(Validation.isUuid("C5156C9F-4306-45B6-9B39-2EEB180A702A"));
+        assertFalse(Validation.isUuid(null));
+        assertFalse(Validation.isUuid("bob"));
+        assertFalse(Validation.isUuid("1-2-3-4-5"));
+        assertFalse(Validation.isUuid("c5156c9f-4306-45b6-9b39-2eeb180a702g"));
+        assertFalse(Validation.isUuid("c5156c9f-4306-45b6-9b39x2eeb180a702a"));
+    }
+
+    @Test
+    void isEmail_checksTheShapeOfTheAddress() {
+        assertTrue(Validation.isEmail("someone@example.com"));
+        assertTrue(Validation.isEmail("first.last+tag@mail.example.co.uk"));
+        assertFalse(Validation.isEmail(null));
+        assertFalse(Validation.isEmail(""));
+        assertFalse(Validation.isEmail("someone"));
+        assertFalse(Validation.isEmail("@example.com"));
+        assertFalse(Validation.isEmail("someone@example"));
+        assertFalse(Validation.isEmail("someone@.example.com"));
+        assertFalse(Validation.isEmail("someone@example..com"));
+        assertFalse(Validation.isEmail("someone@example.com."));
+        assertFalse(Validation.isEmail("some one@example.com"));
+        assertFalse(Validation.isEmail("someone@other@example.com"));
+    }
+
+    @Test
+    void hasText_rejectsBlankAndLongValues() {
+        assertTrue(Validation.hasText("Lunch", 5));
+        assertFalse(Validation.hasText("Lunch!", 5));
+        assertFalse(Validation.hasText(" \t", 5));
+        assertFalse(Validation.hasText(null, 5));
+    }
+}
@@ -0,0 +1,89 @@
+package ata.unit.three.project.perf.dataset;
+
+import ata.unit.three.project.expense.dynamodb.ExpenseItem;
+import ata.unit.three.project.expense.dynamodb.ExpenseItemList;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * A generated dataset held in primitive arrays, so millions of expenses fit in a few tens of megabytes.
+ *
+ * Expenses and lists are materialized as mapper items only while they are being loaded or written.
+ */
+public class Dataset {
+    final String[] emails;
+    final String[] titles;
+
+    final long[] expenseIdHigh;
+    final long[] expenseIdLow;
+    final int[] expenseUser;
+    final long[] expenseDateMillis;
+    final int[] expenseTitle;
+    final long[] expenseCents;
+
+    final long[] listIdHigh;
+    final long[] listIdLow;
+    final int[] listUser;
+    final int[] listTitle;
+    final int[][] listMembers;
+
+    Dataset(String[] emails, String[] titles, int expenseCount, int listCount) {
+        this.emails = emails;
+        this.titles = titles;
+        expenseIdHigh = new long[expenseCount];
+        expenseIdLow = new long[expenseCount];
+        expenseUser = new int[expenseCount];
+        expenseDateMillis = new long[expenseCount];
+        expenseTitle = new int[expenseCount];
+        expenseCents = new long[expenseCount];
+        listIdHigh = new long[listCount];
+        listIdLow = new long[listCount];
+        listUser = new int[listCount];
+        listTitle = new int[listCount];
+        listMembers = new int[listCount][];
+    }
+
+    public int getExpenseCount() {
+        return expenseIdHigh.length;
+    }
+
+    public int getListCount() {
+        return listIdHigh.length;
+    }
+
+    /**
+     * Builds the mapper item for one expense.
+     * @param index the expense index
+     * @return the expense item
+     */
+    public ExpenseItem expenseItem(int index) {
+        ExpenseItem item = new ExpenseItem();
+        item.setId(new UUID(expenseIdHigh[index], expenseIdLow[index]).toString());
+        item.setEmail(emails[expenseUser[index]]);
+        item.setExpenseDate(Instant.ofEpochMilli(expenseDateMillis[index]).toString());
+        item.setTitle(titles[expenseTitle[index]]);
+        item.setAmountCents(expenseCents[index]);
+        return item;
+    }
+
+    /**
+     * Builds the mapper item for one list, with its expenses embedded the way the repository stores them.
+     * @param index the list index
+     * @return the list item
+     */
+    public ExpenseItemList expenseItemList(int index) {
+        ExpenseItemList list = new ExpenseItemList();
+        list.setId(new UUID(listIdHigh[index], listIdLow[index]).toString());
+        list.setEmail(emails[listUser[index]]);
+        list.setTitle(titles[listTitle[index]]);
+        List<ExpenseItem> items = new ArrayList<>(listMembers[index].length);
+        for (int member : listMembers[index]) {
+            items.add(expenseItem(member));
+        }
+        list.setExpenseItems(items.isEmpty() ? null : items);
+        return list;
+    }
+}
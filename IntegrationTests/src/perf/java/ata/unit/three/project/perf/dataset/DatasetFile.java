@@ -0,0 +1,114 @@
+package ata.unit.three.project.perf.dataset;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Reads and writes datasets in a compact binary format.
+ *
+ * Emails and titles are written once as dictionaries and referenced by index, IDs are two longs and amounts are
+ * integer cents, so a million expenses take roughly 20 MB before compression. Reloading a file is much faster
+ * than regenerating the dataset and guarantees every run uses exactly the same data.
+ */
+public final class DatasetFile {
+    private static final String MAGIC = "EXPDS1";
+
+    private DatasetFile() {
+    }
+
+    /**
+     * Writes a dataset to a gzip-compressed file.
+     * @param dataset the dataset
+     * @param file the file to write
+     * @throws IOException if the file cannot be written
+     */
+    public static void write(Dataset dataset, File file) throws IOException {
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(
+                new GZIPOutputStream(new FileOutputStream(file)), 1 << 16))) {
+            out.writeUTF(MAGIC);
+            writeStrings(out, dataset.emails);
+            writeStrings(out, dataset.titles);
+            out.writeInt(dataset.getExpenseCount());
+            out.writeInt(dataset.getListCount());
+            for (int i = 0; i < dataset.getExpenseCount(); i++) {
+                out.writeLong(dataset.expenseIdHigh[i]);
+                out.writeLong(dataset.expenseIdLow[i]);
+                out.writeInt(dataset.expenseUser[i]);
+                out.writeLong(dataset.expenseDateMillis[i]);
+                out.writeInt(dataset.expenseTitle[i]);
+                out.writeLong(dataset.expenseCents[i]);
+            }
+            for (int i = 0; i < dataset.getListCount(); i++) {
+                out.writeLong(dataset.listIdHigh[i]);
+                out.writeLong(dataset.listIdLow[i]);
+                out.writeInt(dataset.listUser[i]);
+                out.writeInt(dataset.listTitle[i]);
+                out.writeInt(dataset.listMembers[i].length);
+                for (int member : dataset.listMembers[i]) {
+                    out.writeInt(member);
+                }
+            }
+        }
+    }
+
+    /**
+     * Reads a dataset written by {@link #write(Dataset, File)}.
+     * @param file the file to read
+     * @return the dataset
+     * @throws IOException if the file cannot be read or is not a dataset file
+     */
+    public static Dataset read(File file) throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(
+                new GZIPInputStream(new FileInputStream(file)), 1 << 16))) {
+            if (!MAGIC.equals(in.readUTF())) {
+                throw new IOException(file + " is not a dataset file");
+            }
+            String[] emails = readStrings(in);
+            String[] titles = readStrings(in);
+            Dataset dataset = new Dataset(emails, titles, in.readInt(), in.readInt());
+            for (int i = 0; i < dataset.getExpenseCount(); i++) {
+                dataset.expenseIdHigh[i] = in.readLong();
+                dataset.expenseIdLow[i] = in.readLong();
+                dataset.expenseUser[i] = in.readInt();
+                dataset.expenseDateMillis[i] = in.readLong();
+                dataset.expenseTitle[i] = in.readInt();
+                dataset.expenseCents[i] = in.readLong();
+            }
+            for (int i = 0; i < dataset.getListCount(); i++) {
+                dataset.listIdHigh[i] = in.readLong();
+                dataset.listIdLow[i] = in.readLong();
+                dataset.listUser[i] = in.readInt();
+                dataset.listTitle[i] = in.readInt();
+                int[] members = new int[in.readInt()];
+                for (int m = 0; m < members.length; m++) {
+                    members[m] = in.readInt();
+                }
+                dataset.listMembers[i] = members;
+            }
+            return dataset;
+        }
+    }
+
+    private static void writeStrings(DataOutputStream out, String[] values) throws IOException {
+        out.writeInt(values.length);
+        for (String value : values) {
+            out.writeUTF(value);
+        }
+    }
+
+    private static String[] readStrings(DataInputStream in) throws IOException {
+        String[] values = new String[in.readInt()];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = in.readUTF();
+        }
+        return values;
+    }
+}
@@ -0,0 +1,213 @@
+package ata.unit.three.project.perf.dataset;
+
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Generates reproducible, production-shaped datasets.
+ *
+ * Expenses are spread over users by a Zipf distribution, so a handful of accounts own a large share of all
+ * expenses (the hot-partition case for the EmailIndex). Titles are also Zipf-distributed, amounts are log-normal
+ * around $25 and dates are uniform over the last few years. Each user gets a geometric number of lists with
+ * geometric sizes, and the heaviest users additionally get a few very large lists.
+ *
+ * The same seed and settings always produce the same dataset, IDs included.
+ */
+public class DatasetGenerator {
+    private static final String[] MERCHANTS = {
+        "Gas", "Groceries", "Coffee", "Rent", "Electric bill", "Internet", "Phone", "Lunch", "Dinner", "Parking",
+        "Train ticket", "Flight", "Hotel", "Taxi", "Books", "Office supplies", "Gym", "Pharmacy", "Insurance",
+        "Streaming", "Hardware store", "Clothing", "Car repair", "Conference", "Software license"
+    };
+    private static final String[] QUALIFIERS = {
+        "", " for work", " for client visit", " - personal", " (shared)", " weekly", " monthly", " refund"
+    };
+    private static final double MEDIAN_CENTS = 2500;
+    private static final double AMOUNT_SIGMA = 1.2;
+    private static final long MAX_CENTS = 10_000_000L;
+
+    private long seed = 42;
+    private int users = 10_000;
+    private int expenses = 1_000_000;
+    private double userSkew = 1.1;
+    private double titleSkew = 1.0;
+    private int years = 3;
+    private double meanListsPerUser = 1.5;
+    private double meanListSize = 8;
+    private int giantLists = 5;
+    private int giantListSize = 2_000;
+    private long nowMillis = System.currentTimeMillis();
+
+    public DatasetGenerator withSeed(long value) {
+        this.seed = value;
+        return this;
+    }
+
+    public DatasetGenerator withUsers(int value) {
+        this.users = value;
+        return this;
+    }
+
+    public DatasetGenerator withExpenses(int value) {
+        this.expenses = value;
+        return this;
+    }
+
+    public DatasetGenerator withUserSkew(double value) {
+        this.userSkew = value;
+        return this;
+    }
+
+    public DatasetGenerator withYears(int value) {
+        this.years = value;
+        return this;
+    }
+
+    public DatasetGenerator withMeanListsPerUser(double value) {
+        this.meanListsPerUser = value;
+        return this;
+    }
+
+    public DatasetGenerator withMeanListSize(double value) {
+        this.meanListSize = value;
+        return this;
+    }
+
+    /**
+     * Configures the very large lists given to the heaviest users.
+     * The default size stays under the 400 KB item limit for lists that embed their expenses.
+     * @param count how many giant lists
+     * @param size how many expenses each giant list holds, capped by what its owner has
+     * @return this generator
+     */
+    public DatasetGenerator withGiantLists(int count, int size) {
+        this.giantLists = count;
+        this.giantListSize = size;
+        return this;
+    }
+
+    /**
+     * Fixes the "current" time so generated dates are reproducible too.
+     * @param epochMillis the reference time
+     * @return this generator
+     */
+    public DatasetGenerator withNow(long epochMillis) {
+        this.nowMillis = epochMillis;
+        return this;
+    }
+
+    /**
+     * Generates the dataset.
+     * @return the dataset
+     */
+    public Dataset generate() {
+        Random random = new Random(seed);
+        String[] emails = new String[users];
+        for (int u = 0; u < users; u++) {
+            emails[u] = String.format("user-%07d@example.com", u);
+        }
+        String[] titles = new String[MERCHANTS.length * QUALIFIERS.length];
+        for (int m = 0; m < MERCHANTS.length; m++) {
+            for (int q = 0; q < QUALIFIERS.length; q++) {
+                titles[m * QUALIFIERS.length + q] = MERCHANTS[m] + QUALIFIERS[q];
+            }
+        }
+
+        int[] listCounts = new int[users];
+        int listTotal = 0;
+        Random listRandom = new Random(seed ^ 0x5DEECE66DL);
+        for (int u = 0; u < users; u++) {
+            listCounts[u] = geometric(listRandom, meanListsPerUser) + (u < giantLists ? 1 : 0);
+            listTotal += listCounts[u];
+        }
+
+        Dataset dataset = new Dataset(emails, titles, expenses, listTotal);
+        generateExpenses(dataset, random);
+        generateLists(dataset, listCounts, listRandom);
+        return dataset;
+    }
+
+    private void generateExpenses(Dataset dataset, Random random) {
+        ZipfSampler userSampler = new ZipfSampler(users, userSkew);
+        ZipfSampler titleSampler = new ZipfSampler(dataset.titles.length, titleSkew);
+        long window = TimeUnit.DAYS.toMillis(365L * years);
+        for (int i = 0; i < expenses; i++) {
+            dataset.expenseIdHigh[i] = (random.nextLong() & ~0xF000L) | 0x4000L;
+            dataset.expenseIdLow[i] = (random.nextLong() & 0x3FFFFFFFFFFFFFFFL) | 0x8000000000000000L;
+            dataset.expenseUser[i] = userSampler.sample(random);
+            dataset.expenseDateMillis[i] = nowMillis - (long) (random.nextDouble() * window);
+            dataset.expenseTitle[i] = titleSampler.sample(random);
+            long cents = Math.round(Math.exp(Math.log(MEDIAN_CENTS) + AMOUNT_SIGMA * random.nextGaussian()));
+            dataset.expenseCents[i] = Math.max(1, Math.min(MAX_CENTS, cents));
+        }
+    }
+
+    private void generateLists(Dataset dataset, int[] listCounts, Random random) {
+        int[][] expensesByUser = groupExpensesByUser(dataset);
+        int list = 0;
+        for (int u = 0; u < users; u++) {
+            for (int l = 0; l < listCounts[u]; l++) {
+                boolean giant = u < giantLists && l == listCounts[u] - 1;
+                int size = giant ? giantListSize : geometric(random, meanListSize);
+                dataset.listIdHigh[list] = (random.nextLong() & ~0xF000L) | 0x4000L;
+                dataset.listIdLow[list] = (random.nextLong() & 0x3FFFFFFFFFFFFFFFL) | 0x8000000000000000L;
+                dataset.listUser[list] = u;
+                dataset.listTitle[list] = random.nextInt(dataset.titles.length);
+                dataset.listMembers[list] = sample(expensesByUser[u], size, random);
+                list++;
+            }
+        }
+    }
+
+    private int[][] groupExpensesByUser(Dataset dataset) {
+        int[] counts = new int[users];
+        for (int user : dataset.expenseUser) {
+            counts[user]++;
+        }
+        int[][] byUser = new int[users][];
+        for (int u = 0; u < users; u++) {
+            byUser[u] = new int[counts[u]];
+            counts[u] = 0;
+        }
+        for (int i = 0; i < dataset.expenseUser.length; i++) {
+            int user = dataset.expenseUser[i];
+            byUser[user][counts[user]++] = i;
+        }
+        return byUser;
+    }
+
+    private static int[] sample(int[] candidates, int size, Random random) {
+        int count = Math.min(size, candidates.length);
+        int[] picked = new int[count];
+        if (count * 4 < candidates.length) {
+            Set<Integer> seen = new HashSet<>();
+            int i = 0;
+            while (i < count) {
+                int candidate = candidates[random.nextInt(candidates.length)];
+                if (seen.add(candidate)) {
+                    picked[i++] = candidate;
+                }
+            }
+            return picked;
+        }
+        int[] copy = candidates.clone();
+        for (int i = 0; i < count; i++) {
+            int j = i + random.nextInt(copy.length - i);
+            int swap = copy[i];
+            copy[i] = copy[j];
+            copy[j] = swap;
+            picked[i] = copy[i];
+        }
+        return picked;
+    }
+
+    private static int geometric(Random random, double mean) {
+        if (mean <= 0) {
+            return 0;
+        }
+        double p = 1.0 / (mean + 1.0);
+        return (int) Math.floor(Math.log(1.0 - random.nextDouble()) / Math.log(1.0 - p));
+    }
+}
@@ -0,0 +1,83 @@
+package ata.unit.three.project.perf.dataset;
+
+import ata.unit.three.project.expense.dynamodb.DynamoDBClientFactory;
+
+import java.io.File;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Generates, saves and loads benchmark datasets.
+ *
+ * <pre>
+ * --seed 42 --users 10000 --expenses 1000000   dataset size; the seed makes it reproducible
+ * --user-skew 1.1   Zipf exponent for expenses per user
+ * --years 3   expense dates are spread uniformly over this many years
+ * --lists-per-user 1.5 --list-size 8   means of the geometric list count and list size
+ * --giant-lists 5 --giant-size 2000   very large lists given to the heaviest users
+ * --from build/dataset.bin   read a previously written dataset instead of generating one
+ * --out build/dataset.bin   write the dataset to a file
+ * --load http://localhost:8000   batch-load the dataset into DynamoDB at this endpoint
+ * --threads 16   concurrent batch writers used by --load
+ * </pre>
+ */
+public final class DatasetMain {
+    private DatasetMain() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = new HashMap<>();
+        for (int i = 0; i + 1 < args.length; i += 2) {
+            options.put(args[i].replaceFirst("^--", ""), args[i + 1]);
+        }
+
+        long start = System.nanoTime();
+        Dataset dataset;
+        if (options.containsKey("from")) {
+            dataset = DatasetFile.read(new File(options.get("from")));
+        } else {
+            dataset = new DatasetGenerator()
+                    .withSeed(Long.parseLong(options.getOrDefault("seed", "42")))
+                    .withUsers(Integer.parseInt(options.getOrDefault("users", "10000")))
+                    .withExpenses(Integer.parseInt(options.getOrDefault("expenses", "1000000")))
+                    .withUserSkew(Double.parseDouble(options.getOrDefault("user-skew", "1.1")))
+                    .withYears(Integer.parseInt(options.getOrDefault("years", "3")))
+                    .withMeanListsPerUser(Double.parseDouble(options.getOrDefault("lists-per-user", "1.5")))
+                    .withMeanListSize(Double.parseDouble(options.getOrDefault("list-size", "8")))
+                    .withGiantLists(Integer.parseInt(options.getOrDefault("giant-lists", "5")),
+                            Integer.parseInt(options.getOrDefault("giant-size", "2000")))
+                    .withNow(Long.parseLong(options.getOrDefault("now", "1640995200000")))
+                    .generate();
+        }
+        System.out.printf("%d expenses, %d lists ready in %.1f s%n", dataset.getExpenseCount(),
+                dataset.getListCount(), (System.nanoTime() - start) / 1_000_000_000.0);
+        printShape(dataset);
+
+        if (options.containsKey("out")) {
+            File out = new File(options.get("out"));
+            DatasetFile.write(dataset, out);
+            System.out.printf("Wrote %s (%d bytes)%n", out, out.length());
+        }
+        if (options.containsKey("load")) {
+            System.setProperty(DynamoDBClientFactory.ENDPOINT_PROPERTY, options.get("load"));
+            DynamoDBLoader loader = new DynamoDBLoader(Integer.parseInt(options.getOrDefault("threads", "16")));
+            loader.load(dataset);
+            if (loader.getFailedCount() > 0) {
+                System.exit(1);
+            }
+        }
+    }
+
+    private static void printShape(Dataset dataset) {
+        int[] perUser = new int[dataset.emails.length];
+        for (int user : dataset.expenseUser) {
+            perUser[user]++;
+        }
+        int largestList = 0;
+        for (int[] members : dataset.listMembers) {
+            largestList = Math.max(largestList, members.length);
+        }
+        System.out.printf("Heaviest user owns %d expenses (%.1f%%), largest list holds %d expenses%n",
+                perUser[0], 100.0 * perUser[0] / Math.max(1, dataset.getExpenseCount()), largestList);
+    }
+}
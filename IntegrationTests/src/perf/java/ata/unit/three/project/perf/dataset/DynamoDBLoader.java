@@ -0,0 +1,99 @@
+package ata.unit.three.project.perf.dataset;
+
+import ata.unit.three.project.expense.dynamodb.DynamoDBClientFactory;
+import ata.unit.three.project.expense.dynamodb.ExpenseServiceRepository;
+
+import com.amazonaws.services.dynamodbv2.datamodeling.DynamoDBMapper;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.IntFunction;
+
+/**
+ * Loads a dataset into DynamoDB (normally DynamoDB Local) with parallel batch writes.
+ *
+ * Items are written in chunks of 25, the BatchWriteItem limit, spread over a fixed pool of threads. Batches the
+ * service throttles or rejects are retried with backoff; whatever still fails is counted and reported.
+ */
+public class DynamoDBLoader {
+    private static final int BATCH_SIZE = 25;
+    private static final int MAX_ATTEMPTS = 5;
+    private static final int PROGRESS_EVERY = 100_000;
+
+    private final DynamoDBMapper mapper;
+    private final int threads;
+    private final AtomicLong written = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+
+    /**
+     * Creates a loader for the endpoint configured on {@link DynamoDBClientFactory}.
+     * The Expense and ExpenseList tables are created if they do not exist yet.
+     * @param threads how many batches to write concurrently
+     */
+    public DynamoDBLoader(int threads) {
+        new ExpenseServiceRepository();
+        this.mapper = new DynamoDBMapper(DynamoDBClientFactory.getClient());
+        this.threads = threads;
+    }
+
+    /**
+     * Writes every expense, then every list.
+     * @param dataset the dataset to load
+     * @throws InterruptedException if interrupted while waiting for the writers
+     */
+    public void load(Dataset dataset) throws InterruptedException {
+        long start = System.nanoTime();
+        loadAll("expenses", dataset.getExpenseCount(), dataset::expenseItem);
+        loadAll("lists", dataset.getListCount(), dataset::expenseItemList);
+        System.out.printf("Loaded %d items in %.1f s, %d failed%n", written.get(),
+                (System.nanoTime() - start) / 1_000_000_000.0, failed.get());
+    }
+
+    public long getFailedCount() {
+        return failed.get();
+    }
+
+    private void loadAll(String name, int count, IntFunction<Object> itemAt) throws InterruptedException {
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        for (int from = 0; from < count; from += BATCH_SIZE) {
+            int start = from;
+            int end = Math.min(count, from + BATCH_SIZE);
+            executor.execute(() -> writeBatch(name, itemAt, start, end));
+        }
+        executor.shutdown();
+        executor.awaitTermination(1, TimeUnit.DAYS);
+    }
+
+    private void writeBatch(String name, IntFunction<Object> itemAt, int start, int end) {
+        List<Object> items = new ArrayList<>(end - start);
+        for (int i = start; i < end; i++) {
+            items.add(itemAt.apply(i));
+        }
+        for (int attempt = 1; attempt <= MAX_ATTEMPTS; attempt++) {
+            try {
+                if (mapper.batchSave(items).isEmpty()) {
+                    long total = written.addAndGet(items.size());
+                    if (total / PROGRESS_EVERY != (total - items.size()) / PROGRESS_EVERY) {
+                        System.out.printf("... %d items written (%s)%n", total, name);
+                    }
+                    return;
+                }
+            } catch (RuntimeException e) {
+                if (attempt == MAX_ATTEMPTS) {
+                    System.err.printf("Batch %s[%d..%d) failed: %s%n", name, start, end, e.getMessage());
+                }
+            }
+            try {
+                Thread.sleep(50L << attempt);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+        }
+        failed.addAndGet(items.size());
+    }
+}
@@ -0,0 +1,42 @@
+package ata.unit.three.project.perf.dataset;
+
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Samples ranks 0..n-1 from a Zipf distribution: rank k is drawn with probability proportional to 1/(k+1)^s.
+ *
+ * The cumulative distribution is precomputed once, so each sample is a binary search. With s around 1 a few
+ * ranks (users, titles) account for a large share of all draws, which is what production traffic looks like.
+ */
+public class ZipfSampler {
+    private final double[] cumulative;
+
+    /**
+     * Creates a sampler.
+     * @param n the number of ranks
+     * @param exponent the skew; 0 is uniform, larger values concentrate draws on the first ranks
+     */
+    public ZipfSampler(int n, double exponent) {
+        cumulative = new double[n];
+        double sum = 0;
+        for (int k = 0; k < n; k++) {
+            sum += 1.0 / Math.pow(k + 1, exponent);
+            cumulative[k] = sum;
+        }
+        for (int k = 0; k < n; k++) {
+            cumulative[k] /= sum;
+        }
+    }
+
+    /**
+     * Draws one rank.
+     * @param random the random source
+     * @return a rank between 0 and n-1
+     */
+    public int sample(Random random) {
+        int index = Arrays.binarySearch(cumulative, random.nextDouble());
+        int rank = index >= 0 ? index : -index - 1;
+        return Math.min(rank, cumulative.length - 1);
+    }
+}
@@ -0,0 +1,323 @@
+package ata.unit.three.project.perf.faults;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.net.HttpURLConnection;
+import java.net.InetSocketAddress;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.zip.CRC32;
+
+/**
+ * An HTTP proxy in front of DynamoDB Local that injects latency, throttling, transient server errors and
+ * partial batch results according to a {@link FaultProfile}.
+ *
+ * The service is pointed at the proxy through the usual endpoint setting, so requests go through the real SDK
+ * client, its retry policy and the mapper's batch retries exactly as they would against the regional service:
+ * <pre>
+ * ./gradlew :IntegrationTests:faultProxy -PfaultProxyArgs="--port 8001 --upstream http://localhost:8000
+ *     --faults Query/Expense:latency=lognormal:8:0.7,throttle=0.05;*:error=0.01"
+ * DYNAMODB_ENDPOINT=http://localhost:8001 ...
+ * </pre>
+ * DynamoDB Local does not verify request signatures, so the proxy can rewrite batch request bodies.
+ */
+public class FaultInjectingProxy {
+    private static final String JSON_CONTENT_TYPE = "application/x-amz-json-1.0";
+    private static final String ERROR_PREFIX = "com.amazonaws.dynamodb.v20120810#";
+    private static final int REQUESTS = 0;
+    private static final int THROTTLED = 1;
+    private static final int ERRORS = 2;
+    private static final int UNPROCESSED = 3;
+    private static final int DELAY_MILLIS = 4;
+
+    private final HttpServer server;
+    private final ExecutorService executor;
+    private final String upstream;
+    private final FaultProfile profile;
+    private final Map<String, AtomicLongArray> stats = new ConcurrentHashMap<>();
+
+    static {
+        // Without TCP_NODELAY, responses written as headers plus body stall on delayed ACKs for ~40 ms.
+        if (System.getProperty("sun.net.httpserver.nodelay") == null) {
+            System.setProperty("sun.net.httpserver.nodelay", "true");
+        }
+    }
+
+    /**
+     * Creates a proxy; call {@link #start()} to begin serving.
+     * @param port the port to listen on, or 0 for any free port
+     * @param upstream the DynamoDB Local endpoint, for example http://localhost:8000
+     * @param profile the faults to inject
+     * @throws IOException if the port cannot be bound
+     */
+    public FaultInjectingProxy(int port, String upstream, FaultProfile profile) throws IOException {
+        this.upstream = upstream;
+        this.profile = profile;
+        server = HttpServer.create(new InetSocketAddress("localhost", port), 1024);
+        executor = Executors.newCachedThreadPool();
+        server.setExecutor(executor);
+        server.createContext("/", this::handle);
+    }
+
+    public static void main(String[] args) throws IOException {
+        Map<String, String> options = new HashMap<>();
+        for (int i = 0; i + 1 < args.length; i += 2) {
+            options.put(args[i].replaceFirst("^--", ""), args[i + 1]);
+        }
+        FaultInjectingProxy proxy = new FaultInjectingProxy(Integer.parseInt(options.getOrDefault("port", "8001")),
+                options.getOrDefault("upstream", "http://localhost:8000"),
+                FaultProfile.parse(options.getOrDefault("faults", "")));
+        proxy.start();
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> proxy.printStats(System.out)));
+        System.out.println("Injecting faults on " + proxy.getEndpoint() + " for " + proxy.upstream);
+        for (FaultRule rule : proxy.profile.getRules()) {
+            System.out.println("  " + rule);
+        }
+    }
+
+    public void start() {
+        server.start();
+    }
+
+    /**
+     * Stops the proxy.
+     */
+    public void stop() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+
+    public String getEndpoint() {
+        return "http://localhost:" + server.getAddress().getPort();
+    }
+
+    /**
+     * Prints how many requests each operation received and which faults were injected into them.
+     * @param out where to print
+     */
+    public void printStats(PrintStream out) {
+        out.printf("%-20s %9s %9s %9s %12s %14s%n", "operation", "requests", "throttled", "errors",
+                "unprocessed", "avg delay(ms)");
+        for (Map.Entry<String, AtomicLongArray> entry : new TreeMap<>(stats).entrySet()) {
+            AtomicLongArray counts = entry.getValue();
+            out.printf("%-20s %9d %9d %9d %12d %14.1f%n", entry.getKey(), counts.get(REQUESTS),
+                    counts.get(THROTTLED), counts.get(ERRORS), counts.get(UNPROCESSED),
+                    counts.get(DELAY_MILLIS) / (double) Math.max(1, counts.get(REQUESTS)));
+        }
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try {
+            String target = exchange.getRequestHeaders().getFirst("X-Amz-Target");
+            String operation = target == null ? "unknown" : target.substring(target.indexOf('.') + 1);
+            byte[] body = readAll(exchange.getRequestBody());
+            JsonObject request = body.length == 0 ? new JsonObject() :
+                    JsonParser.parseString(new String(body, StandardCharsets.UTF_8)).getAsJsonObject();
+            FaultRule rule = profile.ruleFor(operation, tablesOf(request));
+            AtomicLongArray counts = stats.computeIfAbsent(operation, o -> new AtomicLongArray(5));
+            counts.incrementAndGet(REQUESTS);
+            Random random = ThreadLocalRandom.current();
+
+            long delay = rule.getLatency().sampleMillis(random);
+            if (delay > 0) {
+                counts.addAndGet(DELAY_MILLIS, delay);
+                Thread.sleep(delay);
+            }
+            if (random.nextDouble() < rule.getThrottleRate()) {
+                counts.incrementAndGet(THROTTLED);
+                respondError(exchange, 400, ERROR_PREFIX + "ProvisionedThroughputExceededException",
+                        "The level of configured provisioned throughput for the table was exceeded.");
+                return;
+            }
+            if (random.nextDouble() < rule.getErrorRate()) {
+                counts.incrementAndGet(ERRORS);
+                if (random.nextBoolean()) {
+                    respondError(exchange, 500, ERROR_PREFIX + "InternalServerError", "Internal server error");
+                } else {
+                    respondError(exchange, 503, "com.amazon.coral.availability#ServiceUnavailableException",
+                            "Service unavailable");
+                }
+                return;
+            }
+            if (rule.getUnprocessedRate() > 0 && isBatch(operation)) {
+                forwardPartially(exchange, operation, request, rule.getUnprocessedRate(), counts);
+            } else {
+                forward(exchange, body, null, null);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            exchange.close();
+        }
+    }
+
+    /**
+     * Holds back part of a BatchWriteItem or BatchGetItem request and reports it as unprocessed, the way the
+     * service does when a partition is over its throughput.
+     */
+    private void forwardPartially(HttpExchange exchange, String operation, JsonObject request, double rate,
+                                  AtomicLongArray counts) throws IOException {
+        boolean write = "BatchWriteItem".equals(operation);
+        JsonObject requestItems = request.getAsJsonObject("RequestItems");
+        JsonObject unprocessed = new JsonObject();
+        JsonObject forwarded = new JsonObject();
+        Random random = ThreadLocalRandom.current();
+        for (Map.Entry<String, JsonElement> table : requestItems.entrySet()) {
+            JsonArray entries = write ? table.getValue().getAsJsonArray() :
+                    table.getValue().getAsJsonObject().getAsJsonArray("Keys");
+            JsonArray kept = new JsonArray();
+            JsonArray held = new JsonArray();
+            for (JsonElement entry : entries) {
+                (random.nextDouble() < rate ? held : kept).add(entry);
+            }
+            counts.addAndGet(UNPROCESSED, held.size());
+            putEntries(forwarded, table, kept, write);
+            putEntries(unprocessed, table, held, write);
+        }
+
+        String unprocessedKey = write ? "UnprocessedItems" : "UnprocessedKeys";
+        if (forwarded.size() == 0) {
+            JsonObject response = new JsonObject();
+            if (!write) {
+                response.add("Responses", new JsonObject());
+            }
+            response.add(unprocessedKey, unprocessed);
+            respond(exchange, 200, response.toString().getBytes(StandardCharsets.UTF_8));
+            return;
+        }
+        request.add("RequestItems", forwarded);
+        forward(exchange, request.toString().getBytes(StandardCharsets.UTF_8), unprocessedKey, unprocessed);
+    }
+
+    private static void putEntries(JsonObject items, Map.Entry<String, JsonElement> table, JsonArray entries,
+                                   boolean write) {
+        if (entries.size() == 0) {
+            return;
+        }
+        if (write) {
+            items.add(table.getKey(), entries);
+            return;
+        }
+        JsonObject keysAndAttributes = table.getValue().getAsJsonObject().deepCopy();
+        keysAndAttributes.add("Keys", entries);
+        items.add(table.getKey(), keysAndAttributes);
+    }
+
+    private void forward(HttpExchange exchange, byte[] body, String unprocessedKey, JsonObject unprocessed)
+            throws IOException {
+        URL url = new URL(upstream + exchange.getRequestURI());
+        HttpURLConnection connection = (HttpURLConnection) url.openConnection();
+        connection.setRequestMethod(exchange.getRequestMethod());
+        for (Map.Entry<String, List<String>> header : exchange.getRequestHeaders().entrySet()) {
+            String name = header.getKey();
+            if (!"Host".equalsIgnoreCase(name) && !"Content-Length".equalsIgnoreCase(name) &&
+                    !"Connection".equalsIgnoreCase(name) && !"Accept-Encoding".equalsIgnoreCase(name)) {
+                connection.setRequestProperty(name, String.join(",", header.getValue()));
+            }
+        }
+        connection.setDoOutput(true);
+        try (OutputStream out = connection.getOutputStream()) {
+            out.write(body);
+        }
+        int status = connection.getResponseCode();
+        InputStream in = status >= 400 ? connection.getErrorStream() : connection.getInputStream();
+        byte[] response = in == null ? new byte[0] : readAll(in);
+        String requestId = connection.getHeaderField("x-amzn-RequestId");
+        if (requestId != null) {
+            exchange.getResponseHeaders().set("x-amzn-RequestId", requestId);
+        }
+        if (unprocessed != null && status == 200) {
+            JsonObject result = JsonParser.parseString(new String(response, StandardCharsets.UTF_8))
+                    .getAsJsonObject();
+            JsonObject merged = result.has(unprocessedKey) ? result.getAsJsonObject(unprocessedKey) :
+                    new JsonObject();
+            for (Map.Entry<String, JsonElement> table : unprocessed.entrySet()) {
+                merged.add(table.getKey(), table.getValue());
+            }
+            result.add(unprocessedKey, merged);
+            response = result.toString().getBytes(StandardCharsets.UTF_8);
+        }
+        respond(exchange, status, response);
+    }
+
+    private static void respondError(HttpExchange exchange, int status, String type, String message)
+            throws IOException {
+        JsonObject error = new JsonObject();
+        error.addProperty("__type", type);
+        error.addProperty("message", message);
+        exchange.getResponseHeaders().set("x-amzn-RequestId", UUID.randomUUID().toString());
+        respond(exchange, status, error.toString().getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static void respond(HttpExchange exchange, int status, byte[] body) throws IOException {
+        CRC32 crc = new CRC32();
+        crc.update(body);
+        exchange.getResponseHeaders().set("Content-Type", JSON_CONTENT_TYPE);
+        exchange.getResponseHeaders().set("x-amz-crc32", Long.toString(crc.getValue()));
+        exchange.sendResponseHeaders(status, body.length == 0 ? -1 : body.length);
+        if (body.length > 0) {
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        }
+    }
+
+    private static Set<String> tablesOf(JsonObject request) {
+        Set<String> tables = new LinkedHashSet<>();
+        if (request.has("TableName")) {
+            tables.add(request.get("TableName").getAsString());
+        }
+        if (request.has("RequestItems")) {
+            tables.addAll(request.getAsJsonObject("RequestItems").keySet());
+        }
+        if (request.has("TransactItems")) {
+            for (JsonElement item : request.getAsJsonArray("TransactItems")) {
+                for (Map.Entry<String, JsonElement> action : item.getAsJsonObject().entrySet()) {
+                    JsonElement table = action.getValue().getAsJsonObject().get("TableName");
+                    if (table != null) {
+                        tables.add(table.getAsString());
+                    }
+                }
+            }
+        }
+        return tables;
+    }
+
+    private static boolean isBatch(String operation) {
+        return "BatchWriteItem".equals(operation) || "BatchGetItem".equals(operation);
+    }
+
+    private static byte[] readAll(InputStream in) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] buffer = new byte[8192];
+        int read = in.read(buffer);
+        while (read != -1) {
+            out.write(buffer, 0, read);
+            read = in.read(buffer);
+        }
+        return out.toByteArray();
+    }
+}
@@ -0,0 +1,63 @@
+package ata.unit.three.project.perf.faults;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * An ordered set of {@link FaultRule}s; the first rule matching a request decides its faults.
+ *
+ * Rules are separated by ';' or newlines. A specification starting with '@' is read from that file, where
+ * blank lines and lines starting with '#' are ignored.
+ */
+public class FaultProfile {
+    private static final FaultRule NO_FAULTS = new FaultRule("*", "*");
+
+    private final List<FaultRule> rules;
+
+    public FaultProfile(List<FaultRule> rules) {
+        this.rules = rules;
+    }
+
+    /**
+     * Parses a profile.
+     * @param spec the rules, or "@path" to read them from a file
+     * @return the profile
+     * @throws IOException if the rules file cannot be read
+     */
+    public static FaultProfile parse(String spec) throws IOException {
+        String text = spec.startsWith("@") ?
+                new String(Files.readAllBytes(Paths.get(spec.substring(1))), StandardCharsets.UTF_8) : spec;
+        List<FaultRule> rules = new ArrayList<>();
+        for (String line : text.split("[;\\n]")) {
+            String trimmed = line.trim();
+            if (!trimmed.isEmpty() && !trimmed.startsWith("#")) {
+                rules.add(FaultRule.parse(trimmed));
+            }
+        }
+        return new FaultProfile(rules);
+    }
+
+    /**
+     * Finds the rule for a request.
+     * @param operation the DynamoDB operation
+     * @param tables the tables the request touches
+     * @return the first matching rule, or a rule that injects nothing
+     */
+    public FaultRule ruleFor(String operation, Collection<String> tables) {
+        for (FaultRule rule : rules) {
+            if (rule.matches(operation, tables)) {
+                return rule;
+            }
+        }
+        return NO_FAULTS;
+    }
+
+    public List<FaultRule> getRules() {
+        return rules;
+    }
+}
@@ -0,0 +1,117 @@
+package ata.unit.three.project.perf.faults;
+
+import java.util.Collection;
+import java.util.Locale;
+
+/**
+ * The faults injected into requests for one operation on one table.
+ *
+ * Written as "Operation/Table:key=value,...", where either name may be "*":
+ * <pre>
+ * Query/Expense:latency=lognormal:8:0.7,throttle=0.05
+ * BatchWriteItem/*:unprocessed=0.3
+ * PutItem/*:error=0.01
+ * </pre>
+ * <ul>
+ *     <li>latency - a {@link LatencyDistribution} added before the request is forwarded</li>
+ *     <li>throttle - probability of a ProvisionedThroughputExceededException (HTTP 400)</li>
+ *     <li>error - probability of a transient InternalServerError (HTTP 500) or ServiceUnavailable (HTTP 503)</li>
+ *     <li>unprocessed - per-item probability that a BatchWriteItem or BatchGetItem entry is handed back
+ *     as UnprocessedItems or UnprocessedKeys instead of being executed</li>
+ * </ul>
+ */
+public class FaultRule {
+    private static final String ANY = "*";
+
+    private final String operation;
+    private final String table;
+    private LatencyDistribution latency = LatencyDistribution.NONE;
+    private double throttleRate;
+    private double errorRate;
+    private double unprocessedRate;
+
+    public FaultRule(String operation, String table) {
+        this.operation = operation;
+        this.table = table;
+    }
+
+    /**
+     * Parses one rule.
+     * @param spec the rule, see the class comment
+     * @return the rule
+     */
+    public static FaultRule parse(String spec) {
+        int colon = spec.indexOf(':');
+        String target = colon < 0 ? spec : spec.substring(0, colon);
+        String[] names = target.trim().split("/");
+        FaultRule rule = new FaultRule(names[0].trim(), names.length > 1 ? names[1].trim() : ANY);
+        if (colon < 0) {
+            return rule;
+        }
+        for (String setting : spec.substring(colon + 1).split(",")) {
+            int equals = setting.indexOf('=');
+            String key = setting.substring(0, equals).trim().toLowerCase(Locale.ROOT);
+            String value = setting.substring(equals + 1).trim();
+            switch (key) {
+                case "latency":
+                    rule.latency = LatencyDistribution.parse(value);
+                    break;
+                case "throttle":
+                    rule.throttleRate = Double.parseDouble(value);
+                    break;
+                case "error":
+                    rule.errorRate = Double.parseDouble(value);
+                    break;
+                case "unprocessed":
+                    rule.unprocessedRate = Double.parseDouble(value);
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unknown fault setting: " + setting);
+            }
+        }
+        return rule;
+    }
+
+    /**
+     * Checks whether this rule applies to a request.
+     * @param requestOperation the DynamoDB operation, for example "Query"
+     * @param tables the tables the request touches
+     * @return true if both the operation and at least one table match
+     */
+    public boolean matches(String requestOperation, Collection<String> tables) {
+        if (!ANY.equals(operation) && !operation.equalsIgnoreCase(requestOperation)) {
+            return false;
+        }
+        if (ANY.equals(table)) {
+            return true;
+        }
+        for (String name : tables) {
+            if (table.equalsIgnoreCase(name)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public LatencyDistribution getLatency() {
+        return latency;
+    }
+
+    public double getThrottleRate() {
+        return throttleRate;
+    }
+
+    public double getErrorRate() {
+        return errorRate;
+    }
+
+    public double getUnprocessedRate() {
+        return unprocessedRate;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%s/%s: latency=%s, throttle=%.3f, error=%.3f, unprocessed=%.3f", operation, table,
+                latency, throttleRate, errorRate, unprocessedRate);
+    }
+}
@@ -0,0 +1,67 @@
+package ata.unit.three.project.perf.faults;
+
+import java.util.Locale;
+import java.util.Random;
+
+/**
+ * An injected latency distribution, for example "fixed:5", "uniform:2:20" or "lognormal:8:0.7".
+ *
+ * Log-normal is the usual choice: the first parameter is the median in milliseconds and the second the shape,
+ * where 0.5 gives a p99 around 3x the median and 1.0 around 10x.
+ */
+public final class LatencyDistribution {
+    public static final LatencyDistribution NONE = new LatencyDistribution("none", 0, 0);
+
+    private final String kind;
+    private final double first;
+    private final double second;
+
+    private LatencyDistribution(String kind, double first, double second) {
+        this.kind = kind;
+        this.first = first;
+        this.second = second;
+    }
+
+    /**
+     * Parses a distribution specification.
+     * @param spec "none", "fixed:ms", "uniform:minMs:maxMs" or "lognormal:medianMs:sigma"
+     * @return the distribution
+     */
+    public static LatencyDistribution parse(String spec) {
+        String[] parts = spec.trim().toLowerCase(Locale.ROOT).split(":");
+        switch (parts[0]) {
+            case "none":
+                return NONE;
+            case "fixed":
+                return new LatencyDistribution("fixed", Double.parseDouble(parts[1]), 0);
+            case "uniform":
+            case "lognormal":
+                return new LatencyDistribution(parts[0], Double.parseDouble(parts[1]), Double.parseDouble(parts[2]));
+            default:
+                throw new IllegalArgumentException("Unknown latency distribution: " + spec);
+        }
+    }
+
+    /**
+     * Draws one delay.
+     * @param random the random source
+     * @return the delay in milliseconds
+     */
+    public long sampleMillis(Random random) {
+        switch (kind) {
+            case "fixed":
+                return Math.round(first);
+            case "uniform":
+                return Math.round(first + random.nextDouble() * (second - first));
+            case "lognormal":
+                return Math.round(Math.exp(Math.log(first) + second * random.nextGaussian()));
+            default:
+                return 0;
+        }
+    }
+
+    @Override
+    public String toString() {
+        return NONE.equals(this) ? kind : kind + ":" + first + (second == 0 ? "" : ":" + second);
+    }
+}
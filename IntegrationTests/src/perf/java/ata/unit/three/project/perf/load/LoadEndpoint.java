@@ -0,0 +1,118 @@
+package ata.unit.three.project.perf.load;
+
+import ata.unit.three.project.perf.replay.HttpTarget;
+
+import com.amazonaws.services.lambda.runtime.events.APIGatewayProxyRequestEvent;
+import com.google.gson.Gson;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * The API endpoints the load test can drive, and how to build a request for each from the fixture.
+ */
+public enum LoadEndpoint {
+    CREATE("POST", "/expenses"),
+    RETRIEVE("GET", "/expenses/{expenseId}"),
+    UPDATE("PUT", "/expenses/{expenseId}"),
+    DELETE("DELETE", "/expenses/{expenseId}"),
+    BY_EMAIL("GET", "/expenses"),
+    CREATE_LIST("POST", "/expenselists"),
+    LISTS_BY_EMAIL("GET", "/expenselists"),
+    LIST_ADD("POST", "/expenselists/expenseitems"),
+    LIST_REMOVE("DELETE", "/expenselists/expenseitems");
+
+    private static final Gson GSON = new Gson();
+
+    private final String method;
+    private final String resource;
+
+    LoadEndpoint(String method, String resource) {
+        this.method = method;
+        this.resource = resource;
+    }
+
+    public String getRoute() {
+        return method + " " + resource;
+    }
+
+    /**
+     * Whether the response body is needed to keep the fixture up to date.
+     * @return true for requests whose response carries a new ID
+     */
+    public boolean needsResponseBody() {
+        return this == CREATE;
+    }
+
+    /**
+     * Builds the next request for this endpoint.
+     * @param fixture the seeded data
+     * @return the request event
+     */
+    public APIGatewayProxyRequestEvent buildRequest(LoadFixture fixture) {
+        LoadFixture.User user = fixture.randomUser();
+        Map<String, Object> body = new HashMap<>();
+        switch (this) {
+            case CREATE:
+                body.put("email", user.getEmail());
+                body.put("title", "Load test expense");
+                body.put("amount", ThreadLocalRandom.current().nextInt(1, 1000));
+                return event(resource, null, body);
+            case RETRIEVE:
+                return event("/expenses/" + user.randomExpenseId(), null, null);
+            case UPDATE:
+                body.put("title", "Updated load test expense");
+                body.put("amount", ThreadLocalRandom.current().nextInt(1, 1000));
+                return event("/expenses/" + user.randomExpenseId(), null, body);
+            case DELETE:
+                return event("/expenses/" + fixture.takeDisposableExpense(), null, null);
+            case BY_EMAIL:
+            case LISTS_BY_EMAIL:
+                return event(resource, Collections.singletonMap("email", user.getEmail()), null);
+            case CREATE_LIST:
+                body.put("email", user.getEmail());
+                body.put("title", "Load test list");
+                return event(resource, null, body);
+            case LIST_ADD:
+                body.put("expenseListId", user.randomListId());
+                body.put("expenseItemId", user.randomExpenseId());
+                return event(resource, null, body);
+            case LIST_REMOVE:
+                String[] membership = fixture.takeMembership();
+                body.put("expenseListId", membership != null ? membership[0] : user.randomListId());
+                body.put("expenseItemId", membership != null ? membership[1] : user.randomExpenseId());
+                return event(resource, null, body);
+            default:
+                throw new IllegalStateException("Unknown endpoint " + this);
+        }
+    }
+
+    /**
+     * Feeds the outcome of a request back into the fixture.
+     * @param fixture the seeded data
+     * @param request the request that was sent
+     * @param result the response
+     */
+    public void onResponse(LoadFixture fixture, APIGatewayProxyRequestEvent request, HttpTarget.HttpResult result) {
+        if (result.getStatusCode() >= 300) {
+            return;
+        }
+        if (this == CREATE && result.getBody() != null) {
+            fixture.addDisposableExpense(result.getBody());
+        } else if (this == LIST_ADD) {
+            Map<?, ?> body = GSON.fromJson(request.getBody(), Map.class);
+            fixture.recordMembership((String) body.get("expenseListId"), (String) body.get("expenseItemId"));
+        }
+    }
+
+    private APIGatewayProxyRequestEvent event(String path, Map<String, String> query, Map<String, Object> body) {
+        return new APIGatewayProxyRequestEvent()
+                .withHttpMethod(method)
+                .withResource(resource)
+                .withPath(path)
+                .withQueryStringParameters(query)
+                .withBody(body == null ? null : GSON.toJson(body));
+    }
+}
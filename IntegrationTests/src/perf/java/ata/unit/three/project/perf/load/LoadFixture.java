@@ -0,0 +1,135 @@
+package ata.unit.three.project.perf.load;
+
+import ata.unit.three.project.perf.replay.HttpTarget;
+
+import com.amazonaws.services.lambda.runtime.events.APIGatewayProxyRequestEvent;
+import com.google.gson.Gson;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * The users, expenses and lists the load scenarios operate on.
+ *
+ * The fixture is seeded through the API itself before a run so every ID it hands out exists in the target.
+ * Deletes consume IDs from a separate pool of disposable expenses so they never remove data other scenarios
+ * still read, and list removals only use pairs that an earlier add put in place.
+ */
+public class LoadFixture {
+    private final Gson gson = new Gson();
+    private final List<User> users = new CopyOnWriteArrayList<>();
+    private final ConcurrentLinkedQueue<String> disposableExpenseIds = new ConcurrentLinkedQueue<>();
+    private final ConcurrentLinkedQueue<String[]> listMemberships = new ConcurrentLinkedQueue<>();
+
+    /**
+     * Seeds the target.
+     * @param target the API to seed through
+     * @param userCount how many users to create
+     * @param expensesPerUser how many expenses each user gets
+     * @param disposableCount how many extra expenses to create for the delete scenario
+     * @throws IOException if the target cannot be reached
+     */
+    public void seed(HttpTarget target, int userCount, int expensesPerUser, int disposableCount) throws IOException {
+        for (int u = 0; u < userCount; u++) {
+            User user = new User("load-" + UUID.randomUUID() + "@example.com");
+            for (int e = 0; e < expensesPerUser; e++) {
+                user.expenseIds.add(createExpense(target, user.email));
+            }
+            user.listIds.add(createList(target, user.email));
+            users.add(user);
+        }
+        for (int d = 0; d < disposableCount; d++) {
+            disposableExpenseIds.add(createExpense(target, users.get(d % users.size()).email));
+        }
+    }
+
+    public User randomUser() {
+        return users.get(ThreadLocalRandom.current().nextInt(users.size()));
+    }
+
+    /**
+     * Hands out an expense that may be deleted.
+     * @return an expense ID, or a fresh random ID once the pool is exhausted
+     */
+    public String takeDisposableExpense() {
+        String id = disposableExpenseIds.poll();
+        return id != null ? id : UUID.randomUUID().toString();
+    }
+
+    public void addDisposableExpense(String expenseId) {
+        disposableExpenseIds.add(expenseId);
+    }
+
+    public void recordMembership(String listId, String expenseId) {
+        listMemberships.add(new String[] {listId, expenseId});
+    }
+
+    /**
+     * Takes a list/expense pair previously added to a list.
+     * @return the pair, or null if none is left
+     */
+    public String[] takeMembership() {
+        return listMemberships.poll();
+    }
+
+    private String createExpense(HttpTarget target, String email) throws IOException {
+        Map<String, Object> body = new HashMap<>();
+        body.put("email", email);
+        body.put("title", "Load test expense");
+        body.put("amount", ThreadLocalRandom.current().nextInt(1, 1000));
+        return post(target, "/expenses", body);
+    }
+
+    private String createList(HttpTarget target, String email) throws IOException {
+        Map<String, Object> body = new HashMap<>();
+        body.put("email", email);
+        body.put("title", "Load test list");
+        return post(target, "/expenselists", body);
+    }
+
+    private String post(HttpTarget target, String path, Map<String, Object> body) throws IOException {
+        APIGatewayProxyRequestEvent event = new APIGatewayProxyRequestEvent()
+                .withHttpMethod("POST")
+                .withResource(path)
+                .withPath(path)
+                .withBody(gson.toJson(body));
+        HttpTarget.HttpResult result = target.execute(event, true);
+        if (result.getStatusCode() != 200) {
+            throw new IOException("Seeding " + path + " failed with status " + result.getStatusCode());
+        }
+        return result.getBody();
+    }
+
+    /**
+     * A seeded user and the IDs that belong to it.
+     */
+    public static class User {
+        private final String email;
+        private final List<String> expenseIds = Collections.synchronizedList(new ArrayList<>());
+        private final List<String> listIds = Collections.synchronizedList(new ArrayList<>());
+
+        User(String email) {
+            this.email = email;
+        }
+
+        public String getEmail() {
+            return email;
+        }
+
+        public String randomExpenseId() {
+            return expenseIds.get(ThreadLocalRandom.current().nextInt(expenseIds.size()));
+        }
+
+        public String randomListId() {
+            return listIds.get(ThreadLocalRandom.current().nextInt(listIds.size()));
+        }
+    }
+}
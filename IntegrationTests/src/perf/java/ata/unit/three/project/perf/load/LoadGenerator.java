@@ -0,0 +1,125 @@
+package ata.unit.three.project.perf.load;
+
+import ata.unit.three.project.perf.replay.HttpTarget;
+import ata.unit.three.project.perf.report.RouteLatencyReport;
+
+import com.amazonaws.services.lambda.runtime.events.APIGatewayProxyRequestEvent;
+
+import java.io.IOException;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Drives a {@link LoadMix} against a target in either of two models.
+ *
+ * Open model: requests arrive as a Poisson process at a fixed rate regardless of how fast the target answers,
+ * which is how independent users behave. Latency is measured from each request's scheduled arrival, so queueing
+ * in front of a saturated target counts against it. Requests that would queue beyond {@code maxBacklog} are
+ * dropped and reported as failures so an overloaded run ends instead of exhausting memory.
+ *
+ * Closed model: a fixed number of workers send requests back to back, which finds the maximum throughput at a
+ * given concurrency.
+ */
+public class LoadGenerator {
+    private final HttpTarget target;
+    private final LoadFixture fixture;
+    private final LoadMix mix;
+
+    public LoadGenerator(HttpTarget target, LoadFixture fixture, LoadMix mix) {
+        this.target = target;
+        this.fixture = fixture;
+        this.mix = mix;
+    }
+
+    /**
+     * Runs an open-model step.
+     * @param ratePerSecond the mean arrival rate
+     * @param durationSeconds how long to generate arrivals
+     * @param maxConcurrency the maximum number of requests in flight
+     * @param maxBacklog the maximum number of arrivals waiting for a free worker
+     * @param seed seed for the arrival process, so steps are reproducible
+     * @return the latency report for this step
+     * @throws InterruptedException if interrupted while waiting for the step to drain
+     */
+    public RouteLatencyReport runOpen(double ratePerSecond, int durationSeconds, int maxConcurrency, int maxBacklog,
+                                      long seed) throws InterruptedException {
+        RouteLatencyReport report = new RouteLatencyReport();
+        ThreadPoolExecutor workers = new ThreadPoolExecutor(maxConcurrency, maxConcurrency, 0L,
+                TimeUnit.MILLISECONDS, new LinkedBlockingQueue<>());
+        Random arrivals = new Random(seed);
+        long start = System.nanoTime();
+        long end = start + TimeUnit.SECONDS.toNanos(durationSeconds);
+        long next = start;
+        try {
+            while (next < end) {
+                sleepUntil(next);
+                LoadEndpoint endpoint = mix.next();
+                long due = next;
+                if (workers.getQueue().size() >= maxBacklog) {
+                    report.record(endpoint.getRoute(), System.nanoTime() - due, 0);
+                } else {
+                    workers.execute(() -> send(endpoint, due, report));
+                }
+                double gapSeconds = -Math.log(1.0 - arrivals.nextDouble()) / ratePerSecond;
+                next += (long) (gapSeconds * 1_000_000_000L);
+            }
+        } finally {
+            drain(workers, report);
+        }
+        return report;
+    }
+
+    /**
+     * Runs a closed-model step.
+     * @param concurrency the number of workers sending back to back
+     * @param durationSeconds how long the workers run
+     * @return the latency report for this step
+     * @throws InterruptedException if interrupted while waiting for the workers
+     */
+    public RouteLatencyReport runClosed(int concurrency, int durationSeconds) throws InterruptedException {
+        RouteLatencyReport report = new RouteLatencyReport();
+        ExecutorService workers = new ThreadPoolExecutor(concurrency, concurrency, 0L,
+                TimeUnit.MILLISECONDS, new LinkedBlockingQueue<>());
+        long end = System.nanoTime() + TimeUnit.SECONDS.toNanos(durationSeconds);
+        for (int i = 0; i < concurrency; i++) {
+            workers.execute(() -> {
+                while (System.nanoTime() < end) {
+                    send(mix.next(), System.nanoTime(), report);
+                }
+            });
+        }
+        drain(workers, report);
+        return report;
+    }
+
+    private void send(LoadEndpoint endpoint, long due, RouteLatencyReport report) {
+        int status;
+        try {
+            APIGatewayProxyRequestEvent request = endpoint.buildRequest(fixture);
+            HttpTarget.HttpResult result = target.execute(request, endpoint.needsResponseBody());
+            status = result.getStatusCode();
+            endpoint.onResponse(fixture, request, result);
+        } catch (IOException | RuntimeException e) {
+            status = 0;
+        }
+        report.record(endpoint.getRoute(), System.nanoTime() - due, status);
+    }
+
+    private static void drain(ExecutorService workers, RouteLatencyReport report) throws InterruptedException {
+        workers.shutdown();
+        workers.awaitTermination(10, TimeUnit.MINUTES);
+        report.finish();
+    }
+
+    private static void sleepUntil(long deadlineNanos) {
+        long remaining = deadlineNanos - System.nanoTime();
+        while (remaining > 0) {
+            LockSupport.parkNanos(remaining);
+            remaining = deadlineNanos - System.nanoTime();
+        }
+    }
+}
@@ -0,0 +1,86 @@
+package ata.unit.three.project.perf.load;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * A weighted mix of endpoints, for example "retrieve=6,by_email=2,create=1,update=1".
+ */
+public class LoadMix {
+    private final List<LoadEndpoint> endpoints = new ArrayList<>();
+    private final double[] cumulativeWeights;
+    private final String name;
+
+    public LoadMix(Map<LoadEndpoint, Double> weights) {
+        double total = 0;
+        for (double weight : weights.values()) {
+            total += weight;
+        }
+        cumulativeWeights = new double[weights.size()];
+        double running = 0;
+        int i = 0;
+        StringBuilder description = new StringBuilder();
+        for (Map.Entry<LoadEndpoint, Double> entry : weights.entrySet()) {
+            running += entry.getValue() / total;
+            cumulativeWeights[i++] = running;
+            endpoints.add(entry.getKey());
+            if (description.length() > 0) {
+                description.append('+');
+            }
+            description.append(entry.getKey().name().toLowerCase(Locale.ROOT));
+        }
+        name = description.toString();
+    }
+
+    /**
+     * Parses a mix specification.
+     * @param spec comma separated endpoint=weight pairs; a bare endpoint name has weight 1
+     * @return the mix
+     */
+    public static LoadMix parse(String spec) {
+        Map<LoadEndpoint, Double> weights = new LinkedHashMap<>();
+        for (String part : spec.split(",")) {
+            String[] pair = part.trim().split("=");
+            LoadEndpoint endpoint = LoadEndpoint.valueOf(pair[0].trim().toUpperCase(Locale.ROOT));
+            weights.put(endpoint, pair.length > 1 ? Double.parseDouble(pair[1]) : 1.0);
+        }
+        return new LoadMix(weights);
+    }
+
+    /**
+     * A mix that only drives one endpoint.
+     * @param endpoint the endpoint
+     * @return the mix
+     */
+    public static LoadMix of(LoadEndpoint endpoint) {
+        Map<LoadEndpoint, Double> weights = new LinkedHashMap<>();
+        weights.put(endpoint, 1.0);
+        return new LoadMix(weights);
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public List<LoadEndpoint> getEndpoints() {
+        return endpoints;
+    }
+
+    /**
+     * Picks the endpoint for the next request.
+     * @return an endpoint chosen according to the weights
+     */
+    public LoadEndpoint next() {
+        double r = ThreadLocalRandom.current().nextDouble();
+        for (int i = 0; i < cumulativeWeights.length; i++) {
+            if (r < cumulativeWeights[i]) {
+                return endpoints.get(i);
+            }
+        }
+        return endpoints.get(endpoints.size() - 1);
+    }
+}
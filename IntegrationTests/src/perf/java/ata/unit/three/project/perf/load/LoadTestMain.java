@@ -0,0 +1,215 @@
+package ata.unit.three.project.perf.load;
+
+import ata.unit.three.project.expense.dynamodb.DynamoDBClientFactory;
+import ata.unit.three.project.expense.dynamodb.ReadHedger;
+import ata.unit.three.project.expense.service.EmailRateLimiter;
+import ata.unit.three.project.perf.faults.FaultInjectingProxy;
+import ata.unit.three.project.perf.faults.FaultProfile;
+import ata.unit.three.project.perf.local.LocalApiServer;
+import ata.unit.three.project.perf.replay.HttpTarget;
+import ata.unit.three.project.perf.report.RouteLatencyReport;
+
+import org.HdrHistogram.Histogram;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Runs rate or concurrency sweeps against the API and writes throughput-vs-latency results.
+ *
+ * <pre>
+ * --target local|http://host:port/stage   local starts a LocalApiServer in this JVM (default local)
+ * --dynamodb-endpoint http://localhost:8000   DynamoDB Local endpoint used by the local server
+ * --faults "Query/Expense:throttle=0.05"   put a FaultInjectingProxy between the local server and DynamoDB Local
+ * --hedged-reads true   enable hedged reads in the local server and report hedge and win rates
+ * --rate-limits default=10:50   per-email write limits of the local server (default: unlimited)
+ * --mix retrieve=6,by_email=2,create=1,update=1   endpoint weights (default: every endpoint, equal weight)
+ * --per-endpoint true   sweep each endpoint of the mix on its own instead of the whole mix
+ * --rates 10,25,50,100,200   open-model arrival rates per second
+ * --concurrency 1,2,4,8,16,32   closed-model concurrency levels (used when --rates is absent)
+ * --duration 30 --warmup 5   seconds per step and untimed warm-up before the sweep
+ * --max-concurrency 256   in-flight limit for open-model steps
+ * --users 50 --expenses 20   fixture size
+ * --out build/loadtest   where sweep.csv and the per-step HDR logs go
+ * </pre>
+ *
+ * A step counts as saturated when the achieved throughput falls below 95% of the offered rate (open model) or
+ * when more concurrency stops buying throughput while p99 keeps climbing (closed model). The last step before
+ * that is reported as the saturation point.
+ */
+public final class LoadTestMain {
+    private static final double OPEN_SATURATION_RATIO = 0.95;
+    private static final double CLOSED_MIN_GAIN = 1.05;
+
+    private LoadTestMain() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = new HashMap<>();
+        for (int i = 0; i + 1 < args.length; i += 2) {
+            options.put(args[i].replaceFirst("^--", ""), args[i + 1]);
+        }
+        LocalApiServer server = null;
+        FaultInjectingProxy proxy = null;
+        String baseUrl = options.getOrDefault("target", "local");
+        if ("local".equals(baseUrl)) {
+            String dynamoEndpoint = options.getOrDefault("dynamodb-endpoint", "http://localhost:8000");
+            if (options.containsKey("faults")) {
+                proxy = new FaultInjectingProxy(0, dynamoEndpoint, FaultProfile.parse(options.get("faults")));
+                proxy.start();
+                dynamoEndpoint = proxy.getEndpoint();
+            }
+            System.setProperty(DynamoDBClientFactory.ENDPOINT_PROPERTY, dynamoEndpoint);
+            System.setProperty(ReadHedger.ENABLED_PROPERTY, options.getOrDefault("hedged-reads", "false"));
+            System.setProperty(EmailRateLimiter.LIMITS_PROPERTY,
+                    options.getOrDefault("rate-limits", EmailRateLimiter.DEFAULT_TIER + "=unlimited"));
+            server = new LocalApiServer(0, Integer.parseInt(options.getOrDefault("server-threads", "64")));
+            server.start();
+            baseUrl = server.getBaseUrl();
+        }
+        try {
+            run(new HttpTarget(baseUrl), options);
+        } finally {
+            if (server != null) {
+                server.stop();
+                ReadHedger hedger = ReadHedger.getInstance();
+                System.out.printf("%nHedged reads: %d reads, hedge rate %.2f%%, win rate %.2f%%, hedge delay %d us%n",
+                        hedger.getReadCount(), hedger.getHedgeRate() * 100, hedger.getWinRate() * 100,
+                        hedger.getHedgeDelayMicros());
+                EmailRateLimiter limiter = EmailRateLimiter.getInstance();
+                System.out.printf("Rate limited writes: %d, top offenders %s%n", limiter.getRejectedCount(),
+                        limiter.getTopOffenders(5));
+            }
+            if (proxy != null) {
+                System.out.printf("%nInjected DynamoDB faults:%n");
+                proxy.printStats(System.out);
+                proxy.stop();
+            }
+        }
+    }
+
+    private static void run(HttpTarget target, Map<String, String> options) throws IOException, InterruptedException {
+        File outDir = new File(options.getOrDefault("out", "build/loadtest"));
+        if (!outDir.exists() && !outDir.mkdirs()) {
+            throw new IOException("Could not create " + outDir);
+        }
+        LoadFixture fixture = new LoadFixture();
+        int users = Integer.parseInt(options.getOrDefault("users", "50"));
+        fixture.seed(target, users, Integer.parseInt(options.getOrDefault("expenses", "20")), users * 50);
+
+        List<LoadMix> mixes = new ArrayList<>();
+        LoadMix mix = options.containsKey("mix") ? LoadMix.parse(options.get("mix")) : allEndpoints();
+        if (Boolean.parseBoolean(options.getOrDefault("per-endpoint", "false"))) {
+            for (LoadEndpoint endpoint : mix.getEndpoints()) {
+                mixes.add(LoadMix.of(endpoint));
+            }
+        } else {
+            mixes.add(mix);
+        }
+
+        int duration = Integer.parseInt(options.getOrDefault("duration", "30"));
+        int warmup = Integer.parseInt(options.getOrDefault("warmup", "5"));
+        try (PrintStream csv = new PrintStream(new File(outDir, "sweep.csv"), "UTF-8")) {
+            csv.println("scenario,model,level,offered_rps,achieved_rps,p50_ms,p90_ms,p99_ms,p999_ms,max_ms,errors");
+            for (LoadMix scenario : mixes) {
+                LoadGenerator generator = new LoadGenerator(target, fixture, scenario);
+                generator.runClosed(4, warmup);
+                if (options.containsKey("rates")) {
+                    sweepRates(generator, scenario, options, duration, outDir, csv);
+                } else {
+                    sweepConcurrency(generator, scenario, options, duration, outDir, csv);
+                }
+            }
+        }
+        System.out.println("Results written to " + new File(outDir, "sweep.csv"));
+    }
+
+    private static void sweepRates(LoadGenerator generator, LoadMix scenario, Map<String, String> options,
+                                   int duration, File outDir, PrintStream csv)
+            throws IOException, InterruptedException {
+        int maxConcurrency = Integer.parseInt(options.getOrDefault("max-concurrency", "256"));
+        String saturation = null;
+        String lastHealthy = "none";
+        for (String level : options.get("rates").split(",")) {
+            double rate = Double.parseDouble(level);
+            RouteLatencyReport report = generator.runOpen(rate, duration, maxConcurrency, maxConcurrency * 100,
+                    level.hashCode());
+            double achieved = writeStep(scenario, "open", level, rate, report, outDir, csv);
+            if (saturation == null && achieved < rate * OPEN_SATURATION_RATIO) {
+                saturation = lastHealthy;
+            } else if (saturation == null) {
+                lastHealthy = level + " req/s";
+            }
+        }
+        printSaturation(scenario, saturation == null ? lastHealthy + " (not reached)" : saturation);
+    }
+
+    private static void sweepConcurrency(LoadGenerator generator, LoadMix scenario, Map<String, String> options,
+                                         int duration, File outDir, PrintStream csv)
+            throws IOException, InterruptedException {
+        String saturation = null;
+        String lastHealthy = "none";
+        double previousThroughput = 0;
+        long previousP99 = 0;
+        for (String level : options.getOrDefault("concurrency", "1,2,4,8,16,32,64").split(",")) {
+            RouteLatencyReport report = generator.runClosed(Integer.parseInt(level), duration);
+            double achieved = writeStep(scenario, "closed", level, 0, report, outDir, csv);
+            long p99 = report.getTotalHistogram().getValueAtPercentile(99.0);
+            if (saturation == null && previousThroughput > 0 && achieved < previousThroughput * CLOSED_MIN_GAIN &&
+                    p99 > previousP99) {
+                saturation = lastHealthy;
+            } else if (saturation == null) {
+                lastHealthy = "concurrency " + level;
+            }
+            previousThroughput = achieved;
+            previousP99 = p99;
+        }
+        printSaturation(scenario, saturation == null ? lastHealthy + " (not reached)" : saturation);
+    }
+
+    private static double writeStep(LoadMix scenario, String model, String level, double offered,
+                                    RouteLatencyReport report, File outDir, PrintStream csv) throws IOException {
+        System.out.printf("%n== %s, %s model, level %s ==%n", scenario.getName(), model, level);
+        report.print(System.out);
+        report.writeHistogramLogs(new File(outDir, scenario.getName() + "-" + model + "-" + level));
+
+        Histogram total = report.getTotalHistogram();
+        double achieved = total.getTotalCount() / Math.max(report.getElapsedSeconds(), 0.001);
+        long errors = 0;
+        for (LoadEndpoint endpoint : scenario.getEndpoints()) {
+            errors += countErrors(report, endpoint);
+        }
+        csv.printf(Locale.ROOT, "%s,%s,%s,%.1f,%.1f,%.2f,%.2f,%.2f,%.2f,%.2f,%d%n", scenario.getName(), model, level,
+                offered, achieved,
+                total.getValueAtPercentile(50.0) / 1000.0, total.getValueAtPercentile(90.0) / 1000.0,
+                total.getValueAtPercentile(99.0) / 1000.0, total.getValueAtPercentile(99.9) / 1000.0,
+                total.getMaxValue() / 1000.0, errors);
+        csv.flush();
+        return achieved;
+    }
+
+    private static long countErrors(RouteLatencyReport report, LoadEndpoint endpoint) {
+        return report.getErrorCount(endpoint.getRoute());
+    }
+
+    private static void printSaturation(LoadMix scenario, String point) {
+        System.out.printf("%nSaturation point for %s: %s%n", scenario.getName(), point);
+    }
+
+    private static LoadMix allEndpoints() {
+        StringBuilder spec = new StringBuilder();
+        for (LoadEndpoint endpoint : LoadEndpoint.values()) {
+            if (spec.length() > 0) {
+                spec.append(',');
+            }
+            spec.append(endpoint.name());
+        }
+        return LoadMix.parse(spec.toString());
+    }
+}
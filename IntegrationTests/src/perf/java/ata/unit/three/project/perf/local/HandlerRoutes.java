@@ -0,0 +1,166 @@
+package ata.unit.three.project.perf.local;
+
+import ata.unit.three.project.expense.lambda.AddExpenseItemToList;
+import ata.unit.three.project.expense.lambda.CreateExpense;
+import ata.unit.three.project.expense.lambda.CreateExpenseList;
+import ata.unit.three.project.expense.lambda.DeleteExpense;
+import ata.unit.three.project.expense.lambda.RemoveExpenseItemFromList;
+import ata.unit.three.project.expense.lambda.RetrieveExpense;
+import ata.unit.three.project.expense.lambda.RetrieveExpenseListsByEmail;
+import ata.unit.three.project.expense.lambda.RetrieveExpensesByEmail;
+import ata.unit.three.project.expense.lambda.RetrieveExpensesByTag;
+import ata.unit.three.project.expense.lambda.RetrieveSpendingByPeriod;
+import ata.unit.three.project.expense.lambda.RetrieveSpendingSummary;
+import ata.unit.three.project.expense.lambda.RetrieveTagTotals;
+import ata.unit.three.project.expense.lambda.SearchExpenses;
+import ata.unit.three.project.expense.lambda.SuggestExpenseTitles;
+import ata.unit.three.project.expense.lambda.SyncChanges;
+import ata.unit.three.project.expense.lambda.UpdateExpense;
+
+import com.amazonaws.services.lambda.runtime.RequestHandler;
+import com.amazonaws.services.lambda.runtime.events.APIGatewayProxyRequestEvent;
+import com.amazonaws.services.lambda.runtime.events.APIGatewayProxyResponseEvent;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The API routes from Application/template.yml, mapped to in-process handler instances.
+ *
+ * Keep this in sync with the Events section of each function in the template.
+ */
+public class HandlerRoutes {
+    private final List<Route> routes = new ArrayList<>();
+
+    public HandlerRoutes() {
+        add("GET", "/expenses/{expenseId}", new RetrieveExpense());
+        add("POST", "/expenses", new CreateExpense());
+        add("PUT", "/expenses/{expenseId}", new UpdateExpense());
+        add("DELETE", "/expenses/{expenseId}", new DeleteExpense());
+        add("GET", "/expenses", new RetrieveExpensesByEmail());
+        add("POST", "/expenselists", new CreateExpenseList());
+        add("GET", "/expenselists", new RetrieveExpenseListsByEmail());
+        add("POST", "/expenselists/expenseitems", new AddExpenseItemToList());
+        add("DELETE", "/expenselists/expenseitems", new RemoveExpenseItemFromList());
+        add("GET", "/expenses/summary", new RetrieveSpendingSummary());
+        add("GET", "/expenses/analytics", new RetrieveSpendingByPeriod());
+        add("GET", "/expenses/search", new SearchExpenses());
+        add("GET", "/expenses/search/suggestions", new SuggestExpenseTitles());
+        add("GET", "/expenses/tags", new RetrieveExpensesByTag());
+        add("GET", "/expenses/tags/totals", new RetrieveTagTotals());
+        add("GET", "/sync", new SyncChanges());
+    }
+
+    /**
+     * Finds the route for a route key as recorded in API Gateway events.
+     * @param method the HTTP method
+     * @param resource the resource template, for example "/expenses/{expenseId}"
+     * @return the route, or null if there is none
+     */
+    public Route forResource(String method, String resource) {
+        for (Route route : routes) {
+            if (route.method.equalsIgnoreCase(method) && route.resource.equals(resource)) {
+                return route;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Finds the route that serves a concrete request path and extracts its path parameters.
+     * Literal segments win over parameters, the same way API Gateway resolves them.
+     * @param method the HTTP method
+     * @param path the request path, for example "/expenses/1234"
+     * @param pathParameters filled with the extracted path parameters
+     * @return the route, or null if there is none
+     */
+    public Route forPath(String method, String path, Map<String, String> pathParameters) {
+        Route best = null;
+        Map<String, String> bestParameters = null;
+        for (Route route : routes) {
+            if (!route.method.equalsIgnoreCase(method)) {
+                continue;
+            }
+            Map<String, String> parameters = route.match(path);
+            if (parameters != null && (bestParameters == null || parameters.size() < bestParameters.size())) {
+                best = route;
+                bestParameters = parameters;
+            }
+        }
+        if (bestParameters != null) {
+            pathParameters.putAll(bestParameters);
+        }
+        return best;
+    }
+
+    public List<Route> getRoutes() {
+        return routes;
+    }
+
+    private void add(String method, String resource,
+                     RequestHandler<APIGatewayProxyRequestEvent, APIGatewayProxyResponseEvent> handler) {
+        routes.add(new Route(method, resource, handler));
+    }
+
+    /**
+     * A single API route and the handler serving it.
+     */
+    public static class Route {
+        private final String method;
+        private final String resource;
+        private final String[] segments;
+        private final RequestHandler<APIGatewayProxyRequestEvent, APIGatewayProxyResponseEvent> handler;
+
+        Route(String method, String resource,
+              RequestHandler<APIGatewayProxyRequestEvent, APIGatewayProxyResponseEvent> handler) {
+            this.method = method;
+            this.resource = resource;
+            this.segments = resource.substring(1).split("/");
+            this.handler = handler;
+        }
+
+        public String getMethod() {
+            return method;
+        }
+
+        public String getResource() {
+            return resource;
+        }
+
+        public String getKey() {
+            return method + " " + resource;
+        }
+
+        public String getFunctionName() {
+            return handler.getClass().getSimpleName();
+        }
+
+        /**
+         * Invokes the handler with a fresh local context.
+         * @param event the request event
+         * @return the handler's response
+         */
+        public APIGatewayProxyResponseEvent invoke(APIGatewayProxyRequestEvent event) {
+            return handler.handleRequest(event, new LocalLambdaContext(getFunctionName()));
+        }
+
+        private Map<String, String> match(String path) {
+            String[] parts = path.startsWith("/") ? path.substring(1).split("/") : path.split("/");
+            if (parts.length != segments.length) {
+                return null;
+            }
+            Map<String, String> parameters = new HashMap<>();
+            for (int i = 0; i < parts.length; i++) {
+                String segment = segments[i];
+                if (segment.startsWith("{") && segment.endsWith("}")) {
+                    parameters.put(segment.substring(1, segment.length() - 1), parts[i]);
+                } else if (!segment.equals(parts[i])) {
+                    return null;
+                }
+            }
+            return parameters;
+        }
+    }
+}
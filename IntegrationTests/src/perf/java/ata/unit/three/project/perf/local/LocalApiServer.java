@@ -0,0 +1,170 @@
+package ata.unit.three.project.perf.local;
+
+import ata.unit.three.project.expense.dynamodb.DynamoDBClientFactory;
+
+import com.amazonaws.services.lambda.runtime.events.APIGatewayProxyRequestEvent;
+import com.amazonaws.services.lambda.runtime.events.APIGatewayProxyResponseEvent;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A small API Gateway stand-in that serves the routes from template.yml with the handlers running in this JVM.
+ *
+ * Start DynamoDB Local first (for example {@code docker run -p 8000:8000 amazon/dynamodb-local}) and pass its
+ * URL so the handlers never talk to a deployed table:
+ * <pre>
+ * ./gradlew :IntegrationTests:localApi -PlocalApiArgs="8080 http://localhost:8000"
+ * </pre>
+ */
+public class LocalApiServer {
+    private final HttpServer server;
+    private final ExecutorService executor;
+    private final HandlerRoutes routes = new HandlerRoutes();
+
+    static {
+        // Without TCP_NODELAY, responses written as headers plus body stall on delayed ACKs for ~40 ms.
+        if (System.getProperty("sun.net.httpserver.nodelay") == null) {
+            System.setProperty("sun.net.httpserver.nodelay", "true");
+        }
+    }
+
+    /**
+     * Creates a server; call {@link #start()} to begin serving.
+     * @param port the port to listen on, or 0 for any free port
+     * @param threads the number of request threads, i.e. the number of concurrently "warm" Lambda containers
+     * @throws IOException if the port cannot be bound
+     */
+    public LocalApiServer(int port, int threads) throws IOException {
+        server = HttpServer.create(new InetSocketAddress("localhost", port), 1024);
+        executor = Executors.newFixedThreadPool(threads);
+        server.setExecutor(executor);
+        server.createContext("/", this::handle);
+    }
+
+    public static void main(String[] args) throws IOException {
+        int port = args.length > 0 ? Integer.parseInt(args[0]) : 8080;
+        if (args.length > 1) {
+            System.setProperty(DynamoDBClientFactory.ENDPOINT_PROPERTY, args[1]);
+        }
+        LocalApiServer server = new LocalApiServer(port, 64);
+        server.start();
+        System.out.println("Serving the expense API on " + server.getBaseUrl());
+    }
+
+    public void start() {
+        server.start();
+    }
+
+    /**
+     * Stops accepting requests and waits briefly for in-flight ones.
+     */
+    public void stop() {
+        server.stop(1);
+        executor.shutdown();
+        try {
+            executor.awaitTermination(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    public String getBaseUrl() {
+        return "http://localhost:" + server.getAddress().getPort();
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try {
+            URI uri = exchange.getRequestURI();
+            Map<String, String> pathParameters = new HashMap<>();
+            HandlerRoutes.Route route = routes.forPath(exchange.getRequestMethod(), uri.getPath(), pathParameters);
+            if (route == null) {
+                respond(exchange, 404, null, "{\"message\":\"Missing Authentication Token\"}");
+                return;
+            }
+            APIGatewayProxyRequestEvent event = new APIGatewayProxyRequestEvent()
+                    .withResource(route.getResource())
+                    .withPath(uri.getPath())
+                    .withHttpMethod(route.getMethod())
+                    .withHeaders(headers(exchange))
+                    .withPathParameters(pathParameters.isEmpty() ? null : pathParameters)
+                    .withQueryStringParameters(query(uri.getRawQuery()))
+                    .withBody(body(exchange.getRequestBody()));
+            APIGatewayProxyResponseEvent response;
+            try {
+                response = route.invoke(event);
+            } catch (RuntimeException e) {
+                // An uncaught exception in a Lambda proxy integration surfaces as a 502 from API Gateway.
+                respond(exchange, 502, null, "{\"message\":\"Internal server error\"}");
+                return;
+            }
+            int status = response.getStatusCode() == null ? 200 : response.getStatusCode();
+            respond(exchange, status, response.getHeaders(), response.getBody());
+        } finally {
+            exchange.close();
+        }
+    }
+
+    private static Map<String, String> headers(HttpExchange exchange) {
+        Map<String, String> headers = new HashMap<>();
+        for (Map.Entry<String, List<String>> header : exchange.getRequestHeaders().entrySet()) {
+            headers.put(header.getKey(), String.join(",", header.getValue()));
+        }
+        return headers;
+    }
+
+    private static Map<String, String> query(String rawQuery) throws IOException {
+        if (rawQuery == null || rawQuery.isEmpty()) {
+            return null;
+        }
+        Map<String, String> parameters = new HashMap<>();
+        for (String pair : rawQuery.split("&")) {
+            int equals = pair.indexOf('=');
+            String key = equals < 0 ? pair : pair.substring(0, equals);
+            String value = equals < 0 ? "" : pair.substring(equals + 1);
+            parameters.put(URLDecoder.decode(key, "UTF-8"), URLDecoder.decode(value, "UTF-8"));
+        }
+        return parameters;
+    }
+
+    private static String body(InputStream in) throws IOException {
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        byte[] buffer = new byte[4096];
+        int read = in.read(buffer);
+        while (read != -1) {
+            body.write(buffer, 0, read);
+            read = in.read(buffer);
+        }
+        return body.size() == 0 ? null : new String(body.toByteArray(), StandardCharsets.UTF_8);
+    }
+
+    private static void respond(HttpExchange exchange, int status, Map<String, String> headers, String body)
+            throws IOException {
+        if (headers != null) {
+            for (Map.Entry<String, String> header : headers.entrySet()) {
+                exchange.getResponseHeaders().set(header.getKey(), header.getValue());
+            }
+        }
+        byte[] bytes = body == null ? new byte[0] : body.getBytes(StandardCharsets.UTF_8);
+        exchange.sendResponseHeaders(status, bytes.length == 0 ? -1 : bytes.length);
+        if (bytes.length > 0) {
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(bytes);
+            }
+        }
+    }
+}
@@ -0,0 +1,111 @@
+package ata.unit.three.project.perf.replay;
+
+import com.amazonaws.services.lambda.runtime.events.APIGatewayProxyRequestEvent;
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Rewrites expense/list IDs and emails in recorded events.
+ *
+ * The rewrite is consistent: the same original value always maps to the same replacement, both within a
+ * corpus and across runs with the same seed, so a request that creates an expense and a later request that
+ * reads it still refer to the same (rewritten) user. Caller identity and forwarding headers are dropped.
+ */
+public class EventAnonymizer {
+    private static final Pattern UUID_PATTERN = Pattern.compile(
+            "[0-9a-fA-F]{8}-[0-9a-fA-F]{4}-[0-9a-fA-F]{4}-[0-9a-fA-F]{4}-[0-9a-fA-F]{12}");
+    private static final Pattern EMAIL_PATTERN = Pattern.compile(
+            "[A-Za-z0-9._%+-]+(?:@|%40)[A-Za-z0-9.-]+\\.[A-Za-z]{2,}");
+    private static final List<String> DROPPED_HEADERS = Arrays.asList(
+            "authorization", "cookie", "x-forwarded-for", "x-amzn-trace-id", "cloudfront-viewer-country");
+
+    private final Gson gson = new GsonBuilder().disableHtmlEscaping().create();
+    private final String seed;
+    private final Map<String, String> ids = new HashMap<>();
+    private final Map<String, String> emails = new HashMap<>();
+
+    public EventAnonymizer(String seed) {
+        this.seed = seed;
+    }
+
+    /**
+     * Anonymizes every event of a corpus.
+     * @param events the recorded events
+     * @return new events with rewritten IDs and emails
+     */
+    public List<ReplayEvent> anonymize(List<ReplayEvent> events) {
+        List<ReplayEvent> result = new ArrayList<>(events.size());
+        for (ReplayEvent event : events) {
+            result.add(new ReplayEvent(event.getOffsetMillis(), event.getHandler(), anonymize(event.getEvent())));
+        }
+        return result;
+    }
+
+    /**
+     * Anonymizes a single event.
+     * @param event the recorded event
+     * @return a copy with rewritten IDs and emails
+     */
+    public APIGatewayProxyRequestEvent anonymize(APIGatewayProxyRequestEvent event) {
+        APIGatewayProxyRequestEvent copy = gson.fromJson(gson.toJson(event), APIGatewayProxyRequestEvent.class);
+        copy.setHeaders(dropHeaders(copy.getHeaders()));
+        copy.setMultiValueHeaders(null);
+        if (copy.getRequestContext() != null) {
+            copy.getRequestContext().setIdentity(null);
+        }
+        String json = replace(gson.toJson(copy), EMAIL_PATTERN, emails, this::fakeEmail);
+        json = replace(json, UUID_PATTERN, ids, this::fakeId);
+        return gson.fromJson(json, APIGatewayProxyRequestEvent.class);
+    }
+
+    private Map<String, String> dropHeaders(Map<String, String> headers) {
+        if (headers == null) {
+            return null;
+        }
+        Map<String, String> kept = new HashMap<>();
+        for (Map.Entry<String, String> header : headers.entrySet()) {
+            if (!DROPPED_HEADERS.contains(header.getKey().toLowerCase())) {
+                kept.put(header.getKey(), header.getValue());
+            }
+        }
+        return kept;
+    }
+
+    private String replace(String json, Pattern pattern, Map<String, String> mapping, Rewriter rewriter) {
+        Matcher matcher = pattern.matcher(json);
+        StringBuffer result = new StringBuffer(json.length());
+        while (matcher.find()) {
+            String replacement = mapping.computeIfAbsent(matcher.group(), rewriter::rewrite);
+            matcher.appendReplacement(result, Matcher.quoteReplacement(replacement));
+        }
+        matcher.appendTail(result);
+        return result.toString();
+    }
+
+    private String fakeId(String original) {
+        return UUID.nameUUIDFromBytes((seed + "|id|" + original.toLowerCase()).getBytes(StandardCharsets.UTF_8))
+                .toString();
+    }
+
+    private String fakeEmail(String original) {
+        String normalized = original.toLowerCase().replace("%40", "@");
+        UUID hash = UUID.nameUUIDFromBytes((seed + "|email|" + normalized).getBytes(StandardCharsets.UTF_8));
+        String separator = original.contains("%40") ? "%40" : "@";
+        return "user-" + Long.toHexString(hash.getMostSignificantBits() & Long.MAX_VALUE) + separator +
+                "example.com";
+    }
+
+    private interface Rewriter {
+        String rewrite(String original);
+    }
+}
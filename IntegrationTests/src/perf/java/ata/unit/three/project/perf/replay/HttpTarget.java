@@ -0,0 +1,115 @@
+package ata.unit.three.project.perf.replay;
+
+import com.amazonaws.services.lambda.runtime.events.APIGatewayProxyRequestEvent;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+
+/**
+ * Sends recorded requests to an HTTP endpoint, such as a deployed stage, sam local or the LocalApiServer.
+ */
+public class HttpTarget implements ReplayTarget {
+    private static final int BUFFER_SIZE = 8192;
+
+    private final String baseUrl;
+
+    /**
+     * Creates a target for the given endpoint.
+     * @param baseUrl the endpoint including the stage, for example "http://localhost:3000"
+     */
+    public HttpTarget(String baseUrl) {
+        this.baseUrl = baseUrl.endsWith("/") ? baseUrl.substring(0, baseUrl.length() - 1) : baseUrl;
+    }
+
+    @Override
+    public int send(APIGatewayProxyRequestEvent event) throws IOException {
+        return execute(event, false).getStatusCode();
+    }
+
+    /**
+     * Sends a request and optionally keeps the response body.
+     * @param event the request to send
+     * @param keepBody whether to return the response body; otherwise it is read and discarded
+     * @return the status code and, if requested, the body
+     * @throws IOException if the request could not be completed
+     */
+    public HttpResult execute(APIGatewayProxyRequestEvent event, boolean keepBody) throws IOException {
+        HttpURLConnection connection = (HttpURLConnection) new URL(buildUrl(event)).openConnection();
+        connection.setRequestMethod(event.getHttpMethod());
+        connection.setRequestProperty("Content-Type", "application/json");
+        if (event.getBody() != null) {
+            byte[] body = event.getBody().getBytes(StandardCharsets.UTF_8);
+            connection.setDoOutput(true);
+            connection.setFixedLengthStreamingMode(body.length);
+            try (OutputStream out = connection.getOutputStream()) {
+                out.write(body);
+            }
+        }
+        int status = connection.getResponseCode();
+        // Reading the body fully (instead of disconnecting) lets the keep-alive connection be reused.
+        String body = read(status >= 400 ? connection.getErrorStream() : connection.getInputStream(), keepBody);
+        return new HttpResult(status, body);
+    }
+
+    private String buildUrl(APIGatewayProxyRequestEvent event) throws IOException {
+        StringBuilder url = new StringBuilder(baseUrl).append(event.getPath());
+        Map<String, String> query = event.getQueryStringParameters();
+        if (query != null && !query.isEmpty()) {
+            char separator = '?';
+            for (Map.Entry<String, String> parameter : query.entrySet()) {
+                url.append(separator)
+                        .append(URLEncoder.encode(parameter.getKey(), "UTF-8"))
+                        .append('=')
+                        .append(URLEncoder.encode(parameter.getValue(), "UTF-8"));
+                separator = '&';
+            }
+        }
+        return url.toString();
+    }
+
+    private String read(InputStream stream, boolean keepBody) throws IOException {
+        if (stream == null) {
+            return null;
+        }
+        ByteArrayOutputStream body = keepBody ? new ByteArrayOutputStream() : null;
+        try (InputStream in = stream) {
+            byte[] buffer = new byte[BUFFER_SIZE];
+            int read = in.read(buffer);
+            while (read != -1) {
+                if (body != null) {
+                    body.write(buffer, 0, read);
+                }
+                read = in.read(buffer);
+            }
+        }
+        return body == null ? null : new String(body.toByteArray(), StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Status code and body of an HTTP response.
+     */
+    public static class HttpResult {
+        private final int statusCode;
+        private final String body;
+
+        public HttpResult(int statusCode, String body) {
+            this.statusCode = statusCode;
+            this.body = body;
+        }
+
+        public int getStatusCode() {
+            return statusCode;
+        }
+
+        public String getBody() {
+            return body;
+        }
+    }
+}
@@ -0,0 +1,28 @@
+package ata.unit.three.project.perf.replay;
+
+import ata.unit.three.project.perf.local.HandlerRoutes;
+
+import com.amazonaws.services.lambda.runtime.events.APIGatewayProxyRequestEvent;
+import com.amazonaws.services.lambda.runtime.events.APIGatewayProxyResponseEvent;
+
+import java.io.IOException;
+
+/**
+ * Invokes the Lambda handlers directly in this JVM.
+ *
+ * The handlers talk to whatever DynamoDB endpoint the DynamoDBClientFactory is configured with, so
+ * point dynamodb.endpoint at DynamoDB Local to replay without touching a deployed stack.
+ */
+public class InProcessTarget implements ReplayTarget {
+    private final HandlerRoutes routes = new HandlerRoutes();
+
+    @Override
+    public int send(APIGatewayProxyRequestEvent event) throws IOException {
+        HandlerRoutes.Route route = routes.forResource(event.getHttpMethod(), event.getResource());
+        if (route == null) {
+            throw new IOException("No handler for " + ReplayEvent.routeOf(event));
+        }
+        APIGatewayProxyResponseEvent response = route.invoke(event);
+        return response.getStatusCode() == null ? 200 : response.getStatusCode();
+    }
+}
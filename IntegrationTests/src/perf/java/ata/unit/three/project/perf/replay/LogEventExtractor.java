@@ -0,0 +1,113 @@
+package ata.unit.three.project.perf.replay;
+
+import com.amazonaws.services.lambda.runtime.events.APIGatewayProxyRequestEvent;
+import com.google.gson.Gson;
+import com.google.gson.JsonSyntaxException;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Pulls the {@link APIGatewayProxyRequestEvent}s that every handler logs at INFO out of log files.
+ *
+ * Lines are expected in the log4j2.xml layout ("date time requestId LEVEL Logger - message"), optionally
+ * prefixed by whatever the log export adds. The layout only has second precision, so requests logged
+ * in the same second are spread evenly across it to keep their original order and rate.
+ */
+public class LogEventExtractor {
+    private static final Pattern LOG_LINE = Pattern.compile(
+            "(\\d{4}-\\d{2}-\\d{2} \\d{2}:\\d{2}:\\d{2})\\s+\\S*\\s*INFO\\s+(\\w+) - (\\{.*)$");
+    private static final DateTimeFormatter TIMESTAMP = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+
+    private final Gson gson = new Gson();
+
+    /**
+     * Extracts request events from the given log files.
+     * @param logFiles the log files, in any order
+     * @return the events ordered by arrival, with offsets relative to the first one
+     * @throws IOException if a file cannot be read
+     */
+    public List<ReplayEvent> extract(List<Path> logFiles) throws IOException {
+        List<LoggedRequest> requests = new ArrayList<>();
+        for (Path logFile : logFiles) {
+            try (BufferedReader reader = Files.newBufferedReader(logFile, StandardCharsets.UTF_8)) {
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    LoggedRequest request = parse(line, requests.size());
+                    if (request != null) {
+                        requests.add(request);
+                    }
+                }
+            }
+        }
+        requests.sort(Comparator.comparingLong((LoggedRequest r) -> r.epochSecond)
+                .thenComparingInt(r -> r.sequence));
+        return toReplayEvents(requests);
+    }
+
+    private LoggedRequest parse(String line, int sequence) {
+        Matcher matcher = LOG_LINE.matcher(line);
+        if (!matcher.find()) {
+            return null;
+        }
+        APIGatewayProxyRequestEvent event;
+        try {
+            event = gson.fromJson(matcher.group(3), APIGatewayProxyRequestEvent.class);
+        } catch (JsonSyntaxException e) {
+            return null;
+        }
+        if (event == null || event.getHttpMethod() == null) {
+            return null;
+        }
+        long epochSecond = LocalDateTime.parse(matcher.group(1), TIMESTAMP).toEpochSecond(ZoneOffset.UTC);
+        return new LoggedRequest(epochSecond, sequence, matcher.group(2), event);
+    }
+
+    private List<ReplayEvent> toReplayEvents(List<LoggedRequest> requests) {
+        List<ReplayEvent> events = new ArrayList<>(requests.size());
+        if (requests.isEmpty()) {
+            return events;
+        }
+        long firstSecond = requests.get(0).epochSecond;
+        int start = 0;
+        while (start < requests.size()) {
+            int end = start;
+            while (end < requests.size() && requests.get(end).epochSecond == requests.get(start).epochSecond) {
+                end++;
+            }
+            int inSecond = end - start;
+            for (int i = start; i < end; i++) {
+                LoggedRequest request = requests.get(i);
+                long offset = (request.epochSecond - firstSecond) * 1000 + (i - start) * 1000L / inSecond;
+                events.add(new ReplayEvent(offset, request.handler, request.event));
+            }
+            start = end;
+        }
+        return events;
+    }
+
+    private static class LoggedRequest {
+        private final long epochSecond;
+        private final int sequence;
+        private final String handler;
+        private final APIGatewayProxyRequestEvent event;
+
+        LoggedRequest(long epochSecond, int sequence, String handler, APIGatewayProxyRequestEvent event) {
+            this.epochSecond = epochSecond;
+            this.sequence = sequence;
+            this.handler = handler;
+            this.event = event;
+        }
+    }
+}
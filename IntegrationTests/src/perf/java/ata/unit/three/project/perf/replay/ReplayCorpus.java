@@ -0,0 +1,57 @@
+package ata.unit.three.project.perf.replay;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Reads and writes replay corpora: one JSON-encoded {@link ReplayEvent} per line, ordered by offset.
+ */
+public final class ReplayCorpus {
+    private static final Gson GSON = new GsonBuilder().disableHtmlEscaping().create();
+
+    private ReplayCorpus() {
+    }
+
+    /**
+     * Writes events to a corpus file.
+     * @param events the events, already ordered by offset
+     * @param file the file to write
+     * @throws IOException if the file cannot be written
+     */
+    public static void write(List<ReplayEvent> events, Path file) throws IOException {
+        try (BufferedWriter writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+            for (ReplayEvent event : events) {
+                writer.write(GSON.toJson(event));
+                writer.newLine();
+            }
+        }
+    }
+
+    /**
+     * Reads a corpus file.
+     * @param file the file to read
+     * @return the events in file order
+     * @throws IOException if the file cannot be read
+     */
+    public static List<ReplayEvent> read(Path file) throws IOException {
+        List<ReplayEvent> events = new ArrayList<>();
+        try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (!line.trim().isEmpty()) {
+                    events.add(GSON.fromJson(line, ReplayEvent.class));
+                }
+            }
+        }
+        return events;
+    }
+}
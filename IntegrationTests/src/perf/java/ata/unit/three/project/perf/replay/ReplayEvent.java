@@ -0,0 +1,64 @@
+package ata.unit.three.project.perf.replay;
+
+import com.amazonaws.services.lambda.runtime.events.APIGatewayProxyRequestEvent;
+
+/**
+ * One recorded request: when it arrived relative to the start of the recording, which handler
+ * logged it, and the original API Gateway event.
+ */
+public class ReplayEvent {
+    private long offsetMillis;
+    private String handler;
+    private APIGatewayProxyRequestEvent event;
+
+    public ReplayEvent() {
+    }
+
+    public ReplayEvent(long offsetMillis, String handler, APIGatewayProxyRequestEvent event) {
+        this.offsetMillis = offsetMillis;
+        this.handler = handler;
+        this.event = event;
+    }
+
+    public long getOffsetMillis() {
+        return offsetMillis;
+    }
+
+    public void setOffsetMillis(long offsetMillis) {
+        this.offsetMillis = offsetMillis;
+    }
+
+    public String getHandler() {
+        return handler;
+    }
+
+    public void setHandler(String handler) {
+        this.handler = handler;
+    }
+
+    public APIGatewayProxyRequestEvent getEvent() {
+        return event;
+    }
+
+    public void setEvent(APIGatewayProxyRequestEvent event) {
+        this.event = event;
+    }
+
+    /**
+     * The route key used for reporting, built from the HTTP method and the API resource template.
+     * @return for example "GET /expenses/{expenseId}"
+     */
+    public String getRoute() {
+        return routeOf(event);
+    }
+
+    /**
+     * Builds the route key for an event.
+     * @param event the API Gateway event
+     * @return the route key
+     */
+    public static String routeOf(APIGatewayProxyRequestEvent event) {
+        String resource = event.getResource() != null ? event.getResource() : event.getPath();
+        return event.getHttpMethod() + " " + resource;
+    }
+}
@@ -0,0 +1,94 @@
+package ata.unit.three.project.perf.replay;
+
+import ata.unit.three.project.expense.dynamodb.DynamoDBClientFactory;
+import ata.unit.three.project.perf.report.RouteLatencyReport;
+
+import java.io.File;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Command line entry point for the record-and-replay harness.
+ *
+ * <pre>
+ * extract --out corpus.jsonl [--anonymize seed] handler-log-1.txt handler-log-2.txt ...
+ * replay  --corpus corpus.jsonl [--target inprocess|http://host:port/stage] [--speed 1.0]
+ *         [--concurrency 32] [--loops 1] [--hdr-dir build/replay] [--dynamodb-endpoint http://localhost:8000]
+ * </pre>
+ *
+ * Run it through gradle with: ./gradlew :IntegrationTests:replay -PreplayArgs="replay --corpus corpus.jsonl"
+ */
+public final class ReplayMain {
+
+    private ReplayMain() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        if (args.length == 0) {
+            usage();
+            return;
+        }
+        Map<String, String> options = new HashMap<>();
+        List<String> positional = new ArrayList<>();
+        int i = 1;
+        while (i < args.length) {
+            if (args[i].startsWith("--") && i + 1 < args.length) {
+                options.put(args[i].substring(2), args[i + 1]);
+                i += 2;
+            } else {
+                positional.add(args[i]);
+                i++;
+            }
+        }
+        if ("extract".equals(args[0])) {
+            extract(options, positional);
+        } else if ("replay".equals(args[0])) {
+            replay(options);
+        } else {
+            usage();
+        }
+    }
+
+    private static void extract(Map<String, String> options, List<String> logFiles) throws Exception {
+        List<Path> paths = new ArrayList<>();
+        for (String logFile : logFiles) {
+            paths.add(Paths.get(logFile));
+        }
+        List<ReplayEvent> events = new LogEventExtractor().extract(paths);
+        if (options.containsKey("anonymize")) {
+            events = new EventAnonymizer(options.get("anonymize")).anonymize(events);
+        }
+        Path out = Paths.get(options.getOrDefault("out", "corpus.jsonl"));
+        ReplayCorpus.write(events, out);
+        System.out.printf("Wrote %d events to %s%n", events.size(), out);
+    }
+
+    private static void replay(Map<String, String> options) throws Exception {
+        if (options.containsKey("dynamodb-endpoint")) {
+            System.setProperty(DynamoDBClientFactory.ENDPOINT_PROPERTY, options.get("dynamodb-endpoint"));
+        }
+        List<ReplayEvent> events = ReplayCorpus.read(Paths.get(options.getOrDefault("corpus", "corpus.jsonl")));
+        String targetName = options.getOrDefault("target", "inprocess");
+        ReplayTarget target = "inprocess".equals(targetName) ? new InProcessTarget() : new HttpTarget(targetName);
+        Replayer replayer = new Replayer(target,
+                Integer.parseInt(options.getOrDefault("concurrency", "32")),
+                Double.parseDouble(options.getOrDefault("speed", "1.0")));
+
+        RouteLatencyReport report = replayer.replay(events,
+                Integer.parseInt(options.getOrDefault("loops", "1")));
+        report.print(System.out);
+        if (options.containsKey("hdr-dir")) {
+            report.writeHistogramLogs(new File(options.get("hdr-dir")));
+        }
+    }
+
+    private static void usage() {
+        System.out.println("usage: extract --out corpus.jsonl [--anonymize seed] <log files...>");
+        System.out.println("       replay --corpus corpus.jsonl [--target inprocess|<url>] [--speed 1.0]" +
+                " [--concurrency 32] [--loops 1] [--hdr-dir dir] [--dynamodb-endpoint url]");
+    }
+}
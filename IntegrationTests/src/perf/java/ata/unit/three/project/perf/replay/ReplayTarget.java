@@ -0,0 +1,19 @@
+package ata.unit.three.project.perf.replay;
+
+import com.amazonaws.services.lambda.runtime.events.APIGatewayProxyRequestEvent;
+
+import java.io.IOException;
+
+/**
+ * Somewhere recorded requests can be sent: handlers in this JVM or an HTTP endpoint.
+ */
+public interface ReplayTarget {
+
+    /**
+     * Sends one request and waits for the response.
+     * @param event the recorded request
+     * @return the HTTP status code of the response
+     * @throws IOException if the request could not be completed
+     */
+    int send(APIGatewayProxyRequestEvent event) throws IOException;
+}
@@ -0,0 +1,104 @@
+package ata.unit.three.project.perf.replay;
+
+import ata.unit.three.project.perf.report.RouteLatencyReport;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Replays a corpus against a {@link ReplayTarget} and records per-route latency.
+ *
+ * With a positive speed the original arrival times are kept (scaled by the speed factor), which makes this an
+ * open-model test: latency is measured from when a request was due, not from when a worker got to it, so a
+ * saturated target shows up as growing latency instead of a quietly reduced request rate. A speed of 0 sends
+ * requests back to back, limited only by the concurrency.
+ */
+public class Replayer {
+    private final ReplayTarget target;
+    private final int concurrency;
+    private final double speed;
+
+    /**
+     * Creates a replayer.
+     * @param target where to send the requests
+     * @param concurrency the maximum number of requests in flight
+     * @param speed the rate multiplier: 1.0 is the recorded rate, 2.0 twice as fast, 0 as fast as possible
+     */
+    public Replayer(ReplayTarget target, int concurrency, double speed) {
+        this.target = target;
+        this.concurrency = concurrency;
+        this.speed = speed;
+    }
+
+    /**
+     * Replays the corpus the given number of times.
+     * @param events the corpus, ordered by offset
+     * @param loops how many times to replay it back to back
+     * @return the latency report
+     * @throws InterruptedException if interrupted while waiting for requests to finish
+     */
+    public RouteLatencyReport replay(List<ReplayEvent> events, int loops) throws InterruptedException {
+        RouteLatencyReport report = new RouteLatencyReport();
+        ExecutorService workers = Executors.newFixedThreadPool(concurrency);
+        Semaphore inFlight = new Semaphore(concurrency);
+        long loopNanos = loopLengthNanos(events);
+        long start = System.nanoTime();
+        try {
+            for (int loop = 0; loop < loops; loop++) {
+                for (ReplayEvent event : events) {
+                    long due;
+                    if (speed > 0) {
+                        due = start + loop * loopNanos + (long) (TimeUnit.MILLISECONDS.toNanos(
+                                event.getOffsetMillis()) / speed);
+                        sleepUntil(due);
+                    } else {
+                        inFlight.acquire();
+                        due = System.nanoTime();
+                    }
+                    workers.execute(() -> send(event, due, report, inFlight));
+                }
+            }
+        } finally {
+            workers.shutdown();
+            workers.awaitTermination(1, TimeUnit.HOURS);
+            report.finish();
+        }
+        return report;
+    }
+
+    private void send(ReplayEvent event, long due, RouteLatencyReport report, Semaphore inFlight) {
+        int status;
+        try {
+            status = target.send(event.getEvent());
+        } catch (IOException | RuntimeException e) {
+            status = 0;
+        } finally {
+            if (speed <= 0) {
+                inFlight.release();
+            }
+        }
+        report.record(event.getRoute(), System.nanoTime() - due, status);
+    }
+
+    private long loopLengthNanos(List<ReplayEvent> events) {
+        if (speed <= 0 || events.isEmpty()) {
+            return 0;
+        }
+        long last = events.get(events.size() - 1).getOffsetMillis();
+        long meanGap = Math.max(1, last / Math.max(1, events.size() - 1));
+        return (long) (TimeUnit.MILLISECONDS.toNanos(last + meanGap) / speed);
+    }
+
+    private static void sleepUntil(long deadlineNanos) {
+        long remaining = deadlineNanos - System.nanoTime();
+        while (remaining > 0) {
+            LockSupport.parkNanos(remaining);
+            remaining = deadlineNanos - System.nanoTime();
+        }
+    }
+}
@@ -0,0 +1,140 @@
+package ata.unit.three.project.perf.report;
+
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.HistogramLogWriter;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.PrintStream;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Thread-safe per-route latency recorder backed by HDR histograms.
+ *
+ * Latencies are recorded in microseconds. Status codes are bucketed by class (2xx, 3xx, 4xx, 5xx)
+ * so functional errors show up next to the latency numbers instead of silently skewing them.
+ */
+public class RouteLatencyReport {
+    private static final long HIGHEST_TRACKABLE_MICROS = TimeUnit.MINUTES.toMicros(5);
+    private static final double[] PERCENTILES = {50.0, 90.0, 99.0, 99.9};
+
+    private final Map<String, RouteStats> routes = new ConcurrentHashMap<>();
+    private final long startNanos = System.nanoTime();
+    private volatile long endNanos;
+
+    /**
+     * Records one completed request.
+     * @param route the route key, for example "GET /expenses/{expenseId}"
+     * @param latencyNanos the time from the intended send time to the response
+     * @param statusCode the HTTP status code, or 0 when the request failed without a response
+     */
+    public void record(String route, long latencyNanos, int statusCode) {
+        RouteStats stats = routes.computeIfAbsent(route, r -> new RouteStats());
+        long micros = Math.min(TimeUnit.NANOSECONDS.toMicros(latencyNanos), HIGHEST_TRACKABLE_MICROS);
+        stats.histogram.recordValue(Math.max(micros, 1));
+        stats.statusClasses.incrementAndGet(Math.min(statusCode / 100, 5));
+        if (statusCode == 0) {
+            stats.failures.incrementAndGet();
+        }
+    }
+
+    /**
+     * Marks the end of the measured window; throughput is computed against it.
+     */
+    public void finish() {
+        endNanos = System.nanoTime();
+    }
+
+    public Histogram getHistogram(String route) {
+        RouteStats stats = routes.get(route);
+        return stats == null ? null : stats.histogram;
+    }
+
+    /**
+     * Counts server errors and failed requests for a route.
+     * @param route the route key
+     * @return the number of 5xx responses plus requests that got no response
+     */
+    public long getErrorCount(String route) {
+        RouteStats stats = routes.get(route);
+        return stats == null ? 0 : stats.statusClasses.get(5) + stats.failures.get();
+    }
+
+    /**
+     * Merges all routes into one histogram.
+     * @return the combined histogram
+     */
+    public Histogram getTotalHistogram() {
+        Histogram total = new Histogram(HIGHEST_TRACKABLE_MICROS, 3);
+        for (RouteStats stats : routes.values()) {
+            total.add(stats.histogram);
+        }
+        return total;
+    }
+
+    public double getElapsedSeconds() {
+        long end = endNanos == 0 ? System.nanoTime() : endNanos;
+        return (end - startNanos) / 1_000_000_000.0;
+    }
+
+    /**
+     * Prints a table with throughput, status classes and latency percentiles per route.
+     * @param out where to print the table
+     */
+    public void print(PrintStream out) {
+        double seconds = Math.max(getElapsedSeconds(), 0.001);
+        out.printf("%-45s %8s %9s %6s %6s %6s %6s %9s %9s %9s %9s %9s%n",
+                "route", "count", "req/s", "2xx", "4xx", "5xx", "err",
+                "p50(ms)", "p90(ms)", "p99(ms)", "p99.9(ms)", "max(ms)");
+        for (Map.Entry<String, RouteStats> entry : new TreeMap<>(routes).entrySet()) {
+            printRow(out, entry.getKey(), entry.getValue().histogram, entry.getValue(), seconds);
+        }
+        printRow(out, "TOTAL", getTotalHistogram(), null, seconds);
+    }
+
+    /**
+     * Writes one HDR histogram log per route so runs of different builds can be compared
+     * with the standard HdrHistogram plotting tools.
+     * @param directory the directory to write the .hlog files into
+     * @throws FileNotFoundException if a log file cannot be created
+     */
+    public void writeHistogramLogs(File directory) throws FileNotFoundException {
+        if (!directory.exists() && !directory.mkdirs()) {
+            throw new FileNotFoundException("Could not create " + directory);
+        }
+        for (Map.Entry<String, RouteStats> entry : routes.entrySet()) {
+            String fileName = entry.getKey().replaceAll("[^A-Za-z0-9]+", "_") + ".hlog";
+            try (PrintStream stream = new PrintStream(new File(directory, fileName))) {
+                HistogramLogWriter writer = new HistogramLogWriter(stream);
+                writer.outputComment("route: " + entry.getKey() + ", unit: microseconds");
+                writer.outputLegend();
+                writer.outputIntervalHistogram(entry.getValue().histogram);
+            }
+        }
+    }
+
+    private void printRow(PrintStream out, String route, Histogram histogram, RouteStats stats, double seconds) {
+        long count = histogram.getTotalCount();
+        out.printf("%-45s %8d %9.1f %6s %6s %6s %6s", route, count, count / seconds,
+                stats == null ? "" : Long.toString(stats.statusClasses.get(2)),
+                stats == null ? "" : Long.toString(stats.statusClasses.get(4)),
+                stats == null ? "" : Long.toString(stats.statusClasses.get(5)),
+                stats == null ? "" : Long.toString(stats.failures.get()));
+        for (double percentile : PERCENTILES) {
+            out.printf(" %9.2f", histogram.getValueAtPercentile(percentile) / 1000.0);
+        }
+        out.printf(" %9.2f%n", histogram.getMaxValue() / 1000.0);
+    }
+
+    private static class RouteStats {
+        private final Histogram histogram = new ConcurrentHistogram(HIGHEST_TRACKABLE_MICROS, 3);
+        private final AtomicLongArray statusClasses = new AtomicLongArray(6);
+        private final AtomicLong failures = new AtomicLong();
+    }
+}